@@ -47,6 +47,7 @@ import ffx.potential.bonded.LambdaInterface
 import ffx.potential.cli.AlchemicalOptions
 import ffx.potential.cli.TopologyOptions
 import ffx.potential.parsers.SystemFilter
+import ffx.potential.utils.TrajectoryEnergyPipeline
 import org.apache.commons.configuration2.Configuration
 import org.apache.commons.io.FilenameUtils
 import picocli.CommandLine.Command
@@ -90,6 +91,10 @@ class BAR extends AlgorithmsScript {
       description = "Temperature for system 2")
   private double temp2 = 298.15
 
+  @Option(names = ["--fw", "--frameWorkers"], paramLabel = "1", defaultValue = "1",
+      description = "Number of workers that evaluate snapshots concurrently")
+  private int frameWorkers = 1
+
   /**
    * The final argument(s) should be filenames for lambda windows in order..
    */
@@ -231,38 +236,43 @@ class BAR extends AlgorithmsScript {
     String lamString1 = format("%.3f", lambda1)
     String lamString2 = format("%.3f", lambda2)
 
-    // TODO: Increment by stride instead of always 1.
-    for (int i = 1; i < nSnapshots1; i++) {
-      linter1.setLambda(lambda1)
-      for (int j = 0; j < nPer; j++) {
-        openers1[j].readNext(false, false)
+    if (frameWorkers > 1) {
+      evaluateSnapshots(1, 0, topologies1, openers1, lambda1, e1L1, e1L2, eDiff1)
+      evaluateSnapshots(2, nPer, topologies2, openers2, lambda1, e2L1, e2L2, eDiff2)
+    } else {
+      // TODO: Increment by stride instead of always 1.
+      for (int i = 1; i < nSnapshots1; i++) {
+        linter1.setLambda(lambda1)
+        for (int j = 0; j < nPer; j++) {
+          openers1[j].readNext(false, false)
+        }
+        // TODO: Make repeat measurements (esp. for mixed-precision OMM).
+        x1 = potential1.getCoordinates(x1)
+        e1L1[i] = potential1.energy(x1, false)
+        linter1.setLambda(lambda2)
+        e1L2[i] = potential1.energy(x1, false)
+
+        eDiff1[i] = e1L2[i] - e1L1[i]
+        logger.info(format(
+            " Snapshot %d of system 1: E(L=%s) = %14.7f, E(L=%s) = %14.7f, difference = %14.7f",
+            i + 1, lamString1, e1L1[i], lamString2, e1L2[i], eDiff1[i]))
       }
-      // TODO: Make repeat measurements (esp. for mixed-precision OMM).
-      x1 = potential1.getCoordinates(x1)
-      e1L1[i] = potential1.energy(x1, false)
-      linter1.setLambda(lambda2)
-      e1L2[i] = potential1.energy(x1, false)
-
-      eDiff1[i] = e1L2[i] - e1L1[i]
-      logger.info(format(
-          " Snapshot %d of system 1: E(L=%s) = %14.7f, E(L=%s) = %14.7f, difference = %14.7f",
-          i + 1, lamString1, e1L1[i], lamString2, e1L2[i], eDiff1[i]))
-    }
 
-    for (int i = 1; i < nSnapshots2; i++) {
-      linter2.setLambda(lambda1)
-      for (int j = 0; j < nPer; j++) {
-        openers2[j].readNext(false, false)
+      for (int i = 1; i < nSnapshots2; i++) {
+        linter2.setLambda(lambda1)
+        for (int j = 0; j < nPer; j++) {
+          openers2[j].readNext(false, false)
+        }
+        x2 = potential2.getCoordinates(x2)
+        e2L1[i] = potential2.energy(x2, false)
+        linter2.setLambda(lambda2)
+        e2L2[i] = potential2.energy(x2, false)
+
+        eDiff2[i] = e2L2[i] - e2L1[i]
+        logger.info(
+            format(" Snapshot %d of system 2: E(L=%s) = %14.7f, E(L=%s) = %14.7f, difference = %14.7f",
+                i + 1, lamString1, e2L1[i], lamString2, e2L2[i], eDiff2[i]))
       }
-      x2 = potential2.getCoordinates(x2)
-      e2L1[i] = potential2.energy(x2, false)
-      linter2.setLambda(lambda2)
-      e2L2[i] = potential2.energy(x2, false)
-
-      eDiff2[i] = e2L2[i] - e2L1[i]
-      logger.info(
-          format(" Snapshot %d of system 2: E(L=%s) = %14.7f, E(L=%s) = %14.7f, difference = %14.7f",
-              i + 1, lamString1, e2L1[i], lamString2, e2L2[i], eDiff2[i]))
     }
 
     double mean1 = 0
@@ -328,6 +338,71 @@ class BAR extends AlgorithmsScript {
     return this
   }
 
+  /**
+   * Evaluate snapshots 2 and onward of one end of the window with a pipeline of independent
+   * workers, each of which opens its own topologies and potential.
+   *
+   * @param system The end of the window (1 or 2).
+   * @param offset Index of the first file for this end of the window.
+   * @param topologies Topologies whose filters read the snapshots.
+   * @param openers Filters that read the snapshots.
+   * @param lambda1 Lambda value for the lower edge of the window.
+   * @param eL1 Energies at lambda1.
+   * @param eL2 Energies at lambda2.
+   * @param eDiff Energy differences.
+   */
+  private void evaluateSnapshots(int system, int offset, MolecularAssembly[] topologies,
+      SystemFilter[] openers, double lambda1, double[] eL1, double[] eL2, double[] eDiff) {
+    int nPer = topologies.length
+    int nWorkers = frameWorkers
+    int threadsPerWorker = max(1, (int) (threadsAvail / nWorkers))
+    logger.info(format(" Evaluating snapshots of system %d with %d workers of %d threads.",
+        system, nWorkers, threadsPerWorker))
+
+    TrajectoryEnergyPipeline pipeline = new TrajectoryEnergyPipeline(topologies, openers, nWorkers)
+    List<MolecularAssembly> workerAssemblies = new ArrayList<>()
+    for (int w = 0; w < nWorkers; w++) {
+      MolecularAssembly[] workerTopologies = new MolecularAssembly[nPer]
+      for (int j = 0; j < nPer; j++) {
+        workerTopologies[j] = alchemical.openFile(algorithmFunctions, topology, threadsPerWorker,
+            filenames[offset + j], j)
+        workerAssemblies.add(workerTopologies[j])
+      }
+      CrystalPotential workerPotential = (CrystalPotential) topology.assemblePotential(
+          workerTopologies, threadsPerWorker, new StringBuilder())
+      workerPotential = barostat.checkNPT(workerTopologies[0], workerPotential)
+      LambdaInterface workerLambda = (LambdaInterface) workerPotential
+      double[] x = new double[workerPotential.getNumberOfVariables()]
+      pipeline.addWorker(workerTopologies, {
+        x = workerPotential.getCoordinates(x)
+        workerLambda.setLambda(lambda1)
+        double energyL1 = workerPotential.energy(x, false)
+        workerLambda.setLambda(lambda2)
+        double energyL2 = workerPotential.energy(x, false)
+        return [energyL1, energyL2] as double[]
+      } as TrajectoryEnergyPipeline.FrameEvaluator)
+    }
+
+    String lamString1 = format("%.3f", lambda1)
+    String lamString2 = format("%.3f", lambda2)
+    pipeline.run({ int frame, double[] result ->
+      int i = frame + 1
+      if (i >= eL1.length) {
+        return
+      }
+      eL1[i] = result[0]
+      eL2[i] = result[1]
+      eDiff[i] = eL2[i] - eL1[i]
+      logger.info(format(
+          " Snapshot %d of system %d: E(L=%s) = %14.7f, E(L=%s) = %14.7f, difference = %14.7f",
+          i + 1, system, lamString1, eL1[i], lamString2, eL2[i], eDiff[i]))
+    } as TrajectoryEnergyPipeline.FrameListener)
+
+    for (MolecularAssembly workerAssembly : workerAssemblies) {
+      workerAssembly.destroy()
+    }
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -40,10 +40,12 @@ package ffx.algorithms.groovy
 import edu.rit.pj.ParallelTeam
 import ffx.algorithms.cli.AlgorithmsScript
 import ffx.algorithms.cli.MinimizeOptions
+import ffx.algorithms.optimize.BatchMinimize
 import ffx.crystal.Crystal
 import ffx.numerics.Potential
 import ffx.potential.ForceFieldEnergy
 import ffx.potential.MolecularAssembly
+import ffx.potential.bonded.Atom
 import ffx.potential.bonded.LambdaInterface
 import ffx.potential.cli.AlchemicalOptions
 import ffx.potential.cli.AtomSelectionOptions
@@ -54,8 +56,11 @@ import ffx.potential.parsers.XYZFilter
 import org.apache.commons.io.FilenameUtils
 import picocli.CommandLine.Command
 import picocli.CommandLine.Mixin
+import picocli.CommandLine.Option
 import picocli.CommandLine.Parameters
 
+import static java.lang.String.format
+
 /**
  * The Minimize script uses a limited-memory BFGS algorithm to minimize the energy of a molecular system.
  * <br>
@@ -78,6 +83,13 @@ class Minimize extends AlgorithmsScript {
   @Mixin
   TopologyOptions topology
 
+  /**
+   * --bw or --batchWorkers Number of independent potentials that minimize snapshots concurrently.
+   */
+  @Option(names = ['--bw', '--batchWorkers'], paramLabel = "1", defaultValue = "1",
+      description = 'Number of workers that minimize snapshots of an ARC/PDB file concurrently.')
+  private int batchWorkers = 1
+
   /**
    * The final argument(s) should be one or more filenames.
    */
@@ -248,7 +260,13 @@ class Minimize extends AlgorithmsScript {
         writeFilter.writeFile(saveFile, true, false, false)
       }
 
-      if (systemFilter instanceof XYZFilter || systemFilter instanceof PDBFilter) {
+      if ((systemFilter instanceof XYZFilter || systemFilter instanceof PDBFilter)
+          && batchWorkers > 1 && !lambdaTerm) {
+        minimizeBatch(systemFilter, modelFilename, saveFile)
+        if (systemFilter instanceof PDBFilter) {
+          saveFile.append("END\n")
+        }
+      } else if (systemFilter instanceof XYZFilter || systemFilter instanceof PDBFilter) {
         while (systemFilter.readNext()) {
           Crystal crystal = activeAssembly.getCrystal()
           ForceFieldEnergy forceFieldEnergy = activeAssembly.getPotentialEnergy()
@@ -272,6 +290,72 @@ class Minimize extends AlgorithmsScript {
     return this
   }
 
+  /**
+   * Minimize the remaining snapshots with workers forked from the active potential, appending each
+   * to the save file.
+   *
+   * @param systemFilter The filter reading the snapshots.
+   * @param filename The file to open for the writer assembly.
+   * @param saveFile The file minimized snapshots are appended to.
+   */
+  private void minimizeBatch(SystemFilter systemFilter, String filename, File saveFile) {
+    int nWorkers = batchWorkers
+    int threadsPerWorker = Math.max(1, (int) (threadsAvail / nWorkers))
+    logger.info(format(" Minimizing snapshots with %d workers of %d threads.",
+        nWorkers, threadsPerWorker))
+
+    BatchMinimize batchMinimize = new BatchMinimize(activeAssembly, systemFilter,
+        minimizeOptions.getEps(), minimizeOptions.getIterations())
+    List<MolecularAssembly> workerAssemblies = new ArrayList<>()
+    for (int w = 0; w < nWorkers; w++) {
+      ForceFieldEnergy workerEnergy = activeAssembly.getPotentialEnergy().fork(threadsPerWorker)
+      MolecularAssembly workerAssembly = workerEnergy.getMolecularAssembly()
+      workerAssemblies.add(workerAssembly)
+      batchMinimize.addWorker(workerAssembly, workerEnergy)
+    }
+
+    // Minimized snapshots are written from an assembly that is not being read or minimized.
+    MolecularAssembly writer = algorithmFunctions.openAll(filename, 1)[0]
+    workerAssemblies.add(writer)
+    Atom[] atoms = writer.getAtomArray()
+    boolean pdb = systemFilter instanceof PDBFilter
+    SystemFilter writeFilter
+    if (pdb) {
+      writeFilter = new PDBFilter(saveFile, writer, writer.getForceField(), writer.getProperties())
+    } else {
+      writeFilter = new XYZFilter(saveFile, writer, writer.getForceField(), writer.getProperties())
+    }
+
+    batchMinimize.run({ int index, double energy, double rmsGradient, int status, int iterations,
+        double[] unitCell, double[] x ->
+      for (int i = 0; i < atoms.length; i++) {
+        int i3 = 3 * i
+        atoms[i].moveTo(x[i3], x[i3 + 1], x[i3 + 2])
+      }
+      if (unitCell != null) {
+        Crystal crystal = writer.getCrystal()
+        crystal.changeUnitCellParameters(unitCell[0], unitCell[1], unitCell[2],
+            unitCell[3], unitCell[4], unitCell[5])
+        writer.getPotentialEnergy().setCrystal(crystal)
+      }
+      logger.info(format(" Snapshot %4d: %16.8f (kcal/mol) after %d iterations (G RMS %8.5f).",
+          index + 2, energy, iterations, rmsGradient))
+      if (status < 0) {
+        logger.warning(format(" Minimization of snapshot %d failed.", index + 2))
+      }
+      if (pdb) {
+        saveFile.append("ENDMDL\n")
+        writeFilter.writeFile(saveFile, true, false, false)
+      } else {
+        writeFilter.writeFile(saveFile, true)
+      }
+    } as BatchMinimize.StructureListener)
+
+    for (MolecularAssembly workerAssembly : workerAssemblies) {
+      workerAssembly.destroy()
+    }
+  }
+
   @Override
   List<Potential> getPotentials() {
     List<Potential> potentials
@@ -66,7 +66,7 @@ public class DynamicsOptions {
 
   /**
    * -d or --dt sets the timestep in femtoseconds (default of 1.0). A value of 2.0 is possible for
-   * the RESPA integrator.
+   * the RESPA integrator, and 4.0 for the three level RESPA3 integrator.
    */
   @Option(
       names = {"-d", "--dt"},
@@ -87,14 +87,14 @@ public class DynamicsOptions {
   private String thermostatString;
 
   /**
-   * -i or --integrator sets the desired integrator: current choices are Beeman, RESPA, Stochastic
-   * (i.e. Langevin dynamics) or Verlet.
+   * -i or --integrator sets the desired integrator: current choices are Beeman, RESPA, RESPA3
+   * (three levels), Stochastic (i.e. Langevin dynamics) or Verlet.
    */
   @Option(
       names = {"-i", "--integrator"},
       paramLabel = "Verlet",
       defaultValue = "Verlet",
-      description = "Integrator: [Beeman / Respa / Stochastic / Verlet].")
+      description = "Integrator: [Beeman / Respa / Respa3 / Stochastic / Verlet].")
   private String integratorString;
 
   /**
@@ -325,7 +325,7 @@ public class DynamicsOptions {
   }
 
   /**
-   * The integrator: current choices are Beeman, RESPA, Stochastic (Langevin) or Verlet.
+   * The integrator: current choices are Beeman, RESPA, RESPA3, Stochastic (Langevin) or Verlet.
    *
    * @return Returns a String for the requested integrator.
    */
@@ -224,7 +224,7 @@ public class Barostat implements CrystalPotential {
     double energy = potential.energyAndGradient(x, g);
 
     // Apply the barostat during computation of slowly varying forces.
-    if (active && state != STATE.FAST) {
+    if (active && state != STATE.FAST && state != STATE.MEDIUM) {
       if (random() < (1.0 / meanBarostatInterval)) {
 
         // Attempt to change the unit cell parameters.
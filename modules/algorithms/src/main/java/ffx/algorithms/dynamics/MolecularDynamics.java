@@ -52,6 +52,7 @@ import ffx.algorithms.dynamics.integrators.Integrator;
 import ffx.algorithms.dynamics.integrators.IntegratorEnum;
 import ffx.algorithms.dynamics.integrators.Respa;
 import ffx.algorithms.dynamics.integrators.Stochastic;
+import ffx.algorithms.dynamics.integrators.ThreeLevelRespa;
 import ffx.algorithms.dynamics.integrators.VelocityVerlet;
 import ffx.algorithms.dynamics.thermostats.Adiabatic;
 import ffx.algorithms.dynamics.thermostats.Berendsen;
@@ -59,6 +60,7 @@ import ffx.algorithms.dynamics.thermostats.Bussi;
 import ffx.algorithms.dynamics.thermostats.Thermostat;
 import ffx.algorithms.dynamics.thermostats.ThermostatEnum;
 import ffx.algorithms.mc.MonteCarloListener;
+import ffx.algorithms.thermodynamics.OnlineFreeEnergyEstimator;
 import ffx.crystal.Crystal;
 import ffx.numerics.Constraint;
 import ffx.numerics.Potential;
@@ -67,6 +69,7 @@ import ffx.potential.ForceFieldEnergyOpenMM;
 import ffx.potential.MolecularAssembly;
 import ffx.potential.bonded.Atom;
 import ffx.potential.bonded.LambdaInterface;
+import ffx.potential.nonbonded.ParticleMeshEwald;
 import ffx.potential.extended.ExtendedSystem;
 import ffx.potential.parsers.DYNFilter;
 import ffx.potential.parsers.PDBFilter;
@@ -90,6 +93,7 @@ import java.util.stream.Collectors;
 import org.apache.commons.collections4.queue.CircularFifoQueue;
 import org.apache.commons.configuration2.CompositeConfiguration;
 import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.math3.stat.regression.SimpleRegression;
 
 /**
  * Run NVE, NVT, or NPT molecular dynamics.
@@ -196,6 +200,10 @@ public class MolecularDynamics implements Runnable, Terminatable {
   double currentPotentialEnergy;
   /** Current total energy. */
   double currentTotalEnergy;
+  /** Linear fit of the total energy versus time, used to report the energy drift. */
+  private final SimpleRegression energyDrift = new SimpleRegression();
+  /** PME instances of the potential, whose extended Lagrangian induced dipoles follow the steps. */
+  private final List<ParticleMeshEwald> pmeNodes = new ArrayList<>();
   /** Save snapshots in PDB format. */
   boolean saveSnapshotAsPDB = true;
   /** Monte Carlo listener. */
@@ -222,6 +230,8 @@ public class MolecularDynamics implements Runnable, Terminatable {
   private int printEsvFrequency = -1;
   /** If asked to perform dynamics with a null dynamics file, write here. */
   private File fallbackDynFile;
+  /** Online free energy estimation between lambda windows (null if disabled). */
+  private final OnlineFreeEnergyEstimator onlineEstimator;
 
   /**
    * Constructor for MolecularDynamics.
@@ -319,6 +329,19 @@ public class MolecularDynamics implements Runnable, Terminatable {
         logger.log(Level.FINE, format(" Created a RESPA integrator with %d inner time steps.", in));
         integrator = respa;
         break;
+      case RESPA3:
+        ThreeLevelRespa respa3 = new ThreeLevelRespa(numberOfVariables, x, v, a, aPrevious, mass);
+        int inner = molecularAssembly.getProperties().getInt("respa-dt", 4);
+        int medium = molecularAssembly.getProperties().getInt("respa-mid-dt", 2);
+        respa3.setInnerTimeSteps(inner);
+        respa3.setMediumTimeSteps(medium);
+        logger.log(
+            Level.FINE,
+            format(
+                " Created a three level RESPA integrator with %d medium and %d inner time steps.",
+                medium, inner));
+        integrator = respa3;
+        break;
       case STOCHASTIC:
         double friction = properties.getDouble("friction", 91.0);
         logger.log(Level.FINE, format(" Friction set at %.3f collisions/picosecond", friction));
@@ -405,6 +428,7 @@ public class MolecularDynamics implements Runnable, Terminatable {
     lastSnapshots = new CircularFifoQueue<>(Math.max(numSnapshotsToKeep, 1));
 
     verboseDynamicsState = properties.getBoolean("md-verbose", false);
+    onlineEstimator = OnlineFreeEnergyEstimator.create(potentialEnergy, properties);
     done = true;
 
     fallbackDynFile = fallbackDyn;
@@ -1093,6 +1117,15 @@ public class MolecularDynamics implements Runnable, Terminatable {
     postRun();
   }
 
+  /**
+   * Get the online free energy estimator, which is configured by the "online-bar-windows" property.
+   *
+   * @return The OnlineFreeEnergyEstimator, or null if online estimation is disabled.
+   */
+  public OnlineFreeEnergyEstimator getOnlineEstimator() {
+    return onlineEstimator;
+  }
+
   /**
    * Enable or disable automatic writeout of trajectory snapshots and restart files.
    *
@@ -1410,7 +1443,22 @@ public class MolecularDynamics implements Runnable, Terminatable {
 
   /** Initializes energy fields, esp. potential energy. */
   private void initializeEnergies() {
+    // Discard any extended Lagrangian induced dipole history from a previous configuration.
+    pmeNodes.clear();
+    List<Potential> potentials = new ArrayList<>(potential.getUnderlyingPotentials());
+    potentials.add(potential);
+    for (Potential p : potentials) {
+      if (p instanceof ForceFieldEnergy) {
+        ParticleMeshEwald pme = ((ForceFieldEnergy) p).getPmeNode();
+        if (pme != null && !pmeNodes.contains(pme)) {
+          pme.resetInertialDipoles();
+          pmeNodes.add(pme);
+        }
+      }
+    }
+
     // Compute the current potential energy.
+    pmeNodes.forEach(ParticleMeshEwald::prepareInertialDipoleStep);
     try {
       currentPotentialEnergy = potential.energyAndGradient(x, gradient);
     } catch (EnergyException ex) {
@@ -1425,6 +1473,10 @@ public class MolecularDynamics implements Runnable, Terminatable {
       if (integrator instanceof Respa) {
         potential.setEnergyTermState(Potential.STATE.SLOW);
         potential.energyAndGradient(x, gradient);
+        // For three levels, the medium forces are removed from the slow forces.
+        if (integrator instanceof ThreeLevelRespa) {
+          ((ThreeLevelRespa) integrator).removeMediumGradient(potential, gradient);
+        }
       }
 
       for (int i = 0; i < numberOfVariables; i++) {
@@ -1470,6 +1522,10 @@ public class MolecularDynamics implements Runnable, Terminatable {
             currentTotalEnergy,
             currentTemperature));
 
+    // Start a new fit of the total energy versus time.
+    energyDrift.clear();
+    energyDrift.addData(totalSimTime, currentTotalEnergy);
+
     // Store the initialized state.
     storeState();
   }
@@ -1486,6 +1542,23 @@ public class MolecularDynamics implements Runnable, Terminatable {
       logger.log(basicLogging, format(" Completed %8d time steps\n", nSteps));
     }
 
+    // In the NVE ensemble, report the drift of the total energy (e.g. to validate SCF settings).
+    if (thermostat instanceof Adiabatic
+        && !(integrator instanceof Stochastic)
+        && energyDrift.getN() > 2) {
+      double drift = energyDrift.getSlope();
+      int nAtoms = numberOfVariables / 3;
+      logger.log(
+          basicLogging,
+          format(
+              " Total energy drift: %12.4e (kcal/mol/psec) %12.4e (kcal/mol/psec/atom)\n",
+              drift, drift / nAtoms));
+    }
+
+    if (onlineEstimator != null) {
+      onlineEstimator.report();
+    }
+
     // Reset the done and terminate flags.
     done = true;
     terminate = false;
@@ -1587,6 +1660,7 @@ public class MolecularDynamics implements Runnable, Terminatable {
 
       // Compute the potential energy and gradients.
       double priorPE = currentPotentialEnergy;
+      pmeNodes.forEach(ParticleMeshEwald::prepareInertialDipoleStep);
       try {
         currentPotentialEnergy = potential.energyAndGradient(x, gradient);
       } catch (EnergyException ex) {
@@ -1638,11 +1712,17 @@ public class MolecularDynamics implements Runnable, Terminatable {
 
       // Log the current state every printFrequency steps.
       totalSimTime += dt;
+      energyDrift.addData(totalSimTime, currentTotalEnergy);
       time = logThermoForTime(step, time);
       if (step % printEsvFrequency == 0 && esvSystem != null) {
         logger.log(basicLogging, format(" %7.3e %s", totalSimTime, esvSystem.getLambdaList()));
       }
 
+      // Sample the potential at adjacent lambda windows for online free energy estimation.
+      if (onlineEstimator != null) {
+        onlineEstimator.step(x, thermostat.getTargetTemperature());
+      }
+
       if (automaticWriteouts) {
         writeFilesForStep(step, true, true);
       }
@@ -45,6 +45,7 @@ package ffx.algorithms.dynamics.integrators;
 public enum IntegratorEnum {
   BEEMAN(false, true),
   RESPA(true, true),
+  RESPA3(true, true),
   STOCHASTIC(false, false),
   VELOCITYVERLET(true, true),
   VERLET(true, true);
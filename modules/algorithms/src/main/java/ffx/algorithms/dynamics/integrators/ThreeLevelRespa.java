@@ -0,0 +1,275 @@
+// ******************************************************************************
+//
+// Title:       Force Field X.
+// Description: Force Field X - Software for Molecular Biophysics.
+// Copyright:   Copyright (c) Michael J. Schnieders 2001-2020.
+//
+// This file is part of Force Field X.
+//
+// Force Field X is free software; you can redistribute it and/or modify it
+// under the terms of the GNU General Public License version 3 as published by
+// the Free Software Foundation.
+//
+// Force Field X is distributed in the hope that it will be useful, but WITHOUT
+// ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+// FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+// details.
+//
+// You should have received a copy of the GNU General Public License along with
+// Force Field X; if not, write to the Free Software Foundation, Inc., 59 Temple
+// Place, Suite 330, Boston, MA 02111-1307 USA
+//
+// Linking this library statically or dynamically with other modules is making a
+// combined work based on this library. Thus, the terms and conditions of the
+// GNU General Public License cover the whole combination.
+//
+// As a special exception, the copyright holders of this library give you
+// permission to link this library with independent modules to produce an
+// executable, regardless of the license terms of these independent modules, and
+// to copy and distribute the resulting executable under terms of your choice,
+// provided that you also meet, for each linked independent module, the terms
+// and conditions of the license of that module. An independent module is a
+// module which is not derived from or based on this library. If you modify this
+// library, you may extend this exception to your version of the library, but
+// you are not obligated to do so. If you do not wish to do so, delete this
+// exception statement from your version.
+//
+// ******************************************************************************
+package ffx.algorithms.dynamics.integrators;
+
+import static ffx.utilities.Constants.KCAL_TO_GRAM_ANG2_PER_PS2;
+import static java.lang.String.format;
+
+import ffx.numerics.Potential;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * ThreeLevelRespa performs multiple time step molecular dynamics using a three level r-RESPA
+ * splitting of the potential into fast (bonded), medium (short-range non-bonded) and slow (the
+ * remaining non-bonded) portions.
+ *
+ * <p>The medium forces come from the MEDIUM energy term state, which evaluates van der Waals
+ * interactions with a short, smoothly switched cutoff. The slow forces are the SLOW state forces
+ * minus the medium forces, so that the sum of the three levels recovers the full potential.
+ * Real-space and reciprocal-space electrostatics, including polarization, are evaluated only at
+ * the outer time step.
+ *
+ * <p>M. Tuckerman, B. J. Berne and G. J. Martyna, "Reversible Multiple Time Scale Molecular
+ * Dynamics", Journal of Chemical Physics, 97, 1990-2001 (1992)
+ *
+ * <p>X. Qian and T. Schlick, "Efficient Multiple-Time-Step Integrators with Distance-Based Force
+ * Splitting for Particle-Mesh-Ewald Molecular Dynamics Simulations", Journal of Chemical Physics,
+ * 115, 4019-4029 (2001)
+ *
+ * @author Michael J. Schnieders
+ * @since 1.0
+ */
+public class ThreeLevelRespa extends Respa {
+
+  private static final Logger logger = Logger.getLogger(ThreeLevelRespa.class.getName());
+
+  /** Number of medium time steps per outer time step. */
+  private int mediumSteps;
+  /** Number of inner (fast) time steps per medium time step. */
+  private int innerSteps;
+  /** Medium time step in psec. */
+  private double mediumTimeStep;
+  /** Half the medium time step. */
+  private double halfMediumTimeStep;
+  /** Inner time step in psec. */
+  private double innerTimeStep;
+  /** Half the inner time step. */
+  private double halfInnerTimeStep;
+  /** Potential energy of the fast degrees of freedom. */
+  private double halfStepEnergy = 0;
+  /** Accelerations due to the medium forces. */
+  private final double[] aMedium;
+  /** Gradient of the medium forces at the end of the last outer step. */
+  private final double[] mediumGradient;
+  /** Work array for the gradient. */
+  private final double[] gradient;
+
+  /**
+   * Initialize three level Respa multiple time step molecular dynamics.
+   *
+   * @param nVariables Number of variables.
+   * @param x Variables current value.
+   * @param v Current velocities.
+   * @param a Current accelerations.
+   * @param aPrevious Previous accelerations.
+   * @param mass Mass of the variables.
+   */
+  public ThreeLevelRespa(
+      int nVariables, double[] x, double[] v, double[] a, double[] aPrevious, double[] mass) {
+    super(nVariables, x, v, a, aPrevious, mass);
+    aMedium = new double[nVariables];
+    mediumGradient = new double[nVariables];
+    gradient = new double[nVariables];
+    mediumSteps = 2;
+    innerSteps = 4;
+    setTimeStep(dt);
+  }
+
+  /**
+   * Get the potential energy of the fast degrees of freedom.
+   *
+   * @return The potential energy of the fast degrees of freedom.
+   */
+  @Override
+  public double getHalfStepEnergy() {
+    return halfStepEnergy;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>The full-step integration operation using the slow forces (the SLOW state forces minus the
+   * medium forces).
+   */
+  @Override
+  public void postForce(double[] gradient) {
+    for (int i = 0; i < nVariables; i++) {
+      a[i] = -KCAL_TO_GRAM_ANG2_PER_PS2 * (gradient[i] - mediumGradient[i]) / mass[i];
+      v[i] += a[i] * dt_2;
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Performs the medium and inner RESPA loops via position Verlet.
+   */
+  @Override
+  public void preForce(Potential potential) {
+    // Find half-step velocities via velocity Verlet recursion
+    for (int i = 0; i < nVariables; i++) {
+      v[i] += a[i] * dt_2;
+    }
+
+    // Initialize accelerations due to medium forces.
+    potential.setEnergyTermState(Potential.STATE.MEDIUM);
+    potential.energyAndGradient(x, gradient);
+    for (int i = 0; i < nVariables; i++) {
+      aMedium[i] = -KCAL_TO_GRAM_ANG2_PER_PS2 * gradient[i] / mass[i];
+    }
+
+    // Initialize accelerations due to fast-evolving forces.
+    potential.setEnergyTermState(Potential.STATE.FAST);
+    halfStepEnergy = potential.energyAndGradient(x, gradient);
+    for (int i = 0; i < nVariables; i++) {
+      aPrevious[i] = -KCAL_TO_GRAM_ANG2_PER_PS2 * gradient[i] / mass[i];
+    }
+
+    for (int k = 0; k < mediumSteps; k++) {
+      // Half-step velocities due to medium forces.
+      for (int i = 0; i < nVariables; i++) {
+        v[i] += aMedium[i] * halfMediumTimeStep;
+      }
+
+      // Complete the inner RESPA loop.
+      for (int j = 0; j < innerSteps; j++) {
+        // Find fast-evolving velocities and positions via Verlet recursion.
+        for (int i = 0; i < nVariables; i++) {
+          v[i] += aPrevious[i] * halfInnerTimeStep;
+          x[i] += v[i] * innerTimeStep;
+        }
+
+        // Update accelerations from fast varying forces.
+        halfStepEnergy = potential.energyAndGradient(x, gradient);
+        for (int i = 0; i < nVariables; i++) {
+          aPrevious[i] = -KCAL_TO_GRAM_ANG2_PER_PS2 * gradient[i] / mass[i];
+          v[i] += aPrevious[i] * halfInnerTimeStep;
+        }
+      }
+
+      // Update accelerations from medium forces and complete the medium step.
+      potential.setEnergyTermState(Potential.STATE.MEDIUM);
+      potential.energyAndGradient(x, mediumGradient);
+      for (int i = 0; i < nVariables; i++) {
+        aMedium[i] = -KCAL_TO_GRAM_ANG2_PER_PS2 * mediumGradient[i] / mass[i];
+        v[i] += aMedium[i] * halfMediumTimeStep;
+      }
+      potential.setEnergyTermState(Potential.STATE.FAST);
+    }
+
+    // Revert to computing slowly varying forces.
+    potential.setEnergyTermState(Potential.STATE.SLOW);
+  }
+
+  /**
+   * Remove the medium forces from a SLOW state gradient, which is needed to initialize the slow
+   * accelerations before the first step.
+   *
+   * @param potential The Potential.
+   * @param slowGradient The SLOW state gradient, which is updated in place.
+   */
+  public void removeMediumGradient(Potential potential, double[] slowGradient) {
+    potential.setEnergyTermState(Potential.STATE.MEDIUM);
+    potential.energyAndGradient(x, mediumGradient);
+    for (int i = 0; i < nVariables; i++) {
+      slowGradient[i] -= mediumGradient[i];
+    }
+    potential.setEnergyTermState(Potential.STATE.SLOW);
+  }
+
+  /**
+   * Set the number of inner time steps per medium time step.
+   *
+   * @param n Number of inner time steps (must be greater than or equal to 2).
+   */
+  @Override
+  public void setInnerTimeSteps(int n) {
+    if (n < 2) {
+      n = 2;
+    }
+
+    innerSteps = n;
+
+    // Update the medium and inner time steps
+    setTimeStep(dt);
+  }
+
+  /**
+   * Set the number of medium time steps per outer time step.
+   *
+   * @param n Number of medium time steps (must be greater than or equal to 2).
+   */
+  public void setMediumTimeSteps(int n) {
+    if (n < 2) {
+      n = 2;
+    }
+
+    mediumSteps = n;
+
+    // Update the medium and inner time steps
+    setTimeStep(dt);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Set outer Respa time step.
+   */
+  @Override
+  public void setTimeStep(double dt) {
+    if (dt < 0.0005) {
+      dt = 0.0005;
+    }
+
+    this.dt = dt;
+    dt_2 = 0.5 * dt;
+    mediumTimeStep = dt / mediumSteps;
+    halfMediumTimeStep = 0.5 * mediumTimeStep;
+    innerTimeStep = mediumTimeStep / innerSteps;
+    halfInnerTimeStep = 0.5 * innerTimeStep;
+
+    if (logger.isLoggable(Level.FINE)) {
+      logger.fine(
+          format(
+              " Time step set at %f (psec), medium time step at %f (psec) and inner time step at"
+                  + " %f (psec) \n",
+              this.dt, mediumTimeStep, innerTimeStep));
+    }
+  }
+}
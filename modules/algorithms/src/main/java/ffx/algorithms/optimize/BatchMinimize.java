@@ -0,0 +1,255 @@
+// ******************************************************************************
+//
+// Title:       Force Field X.
+// Description: Force Field X - Software for Molecular Biophysics.
+// Copyright:   Copyright (c) Michael J. Schnieders 2001-2020.
+//
+// This file is part of Force Field X.
+//
+// Force Field X is free software; you can redistribute it and/or modify it
+// under the terms of the GNU General Public License version 3 as published by
+// the Free Software Foundation.
+//
+// Force Field X is distributed in the hope that it will be useful, but WITHOUT
+// ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+// FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+// details.
+//
+// You should have received a copy of the GNU General Public License along with
+// Force Field X; if not, write to the Free Software Foundation, Inc., 59 Temple
+// Place, Suite 330, Boston, MA 02111-1307 USA
+//
+// Linking this library statically or dynamically with other modules is making a
+// combined work based on this library. Thus, the terms and conditions of the
+// GNU General Public License cover the whole combination.
+//
+// As a special exception, the copyright holders of this library give you
+// permission to link this library with independent modules to produce an
+// executable, regardless of the license terms of these independent modules, and
+// to copy and distribute the resulting executable under terms of your choice,
+// provided that you also meet, for each linked independent module, the terms
+// and conditions of the license of that module. An independent module is a
+// module which is not derived from or based on this library. If you modify this
+// library, you may extend this exception to your version of the library, but
+// you are not obligated to do so. If you do not wish to do so, delete this
+// exception statement from your version.
+//
+// ******************************************************************************
+package ffx.algorithms.optimize;
+
+import static java.lang.Double.isNaN;
+import static java.lang.String.format;
+import static java.lang.System.arraycopy;
+import static java.util.Arrays.fill;
+
+import ffx.crystal.Crystal;
+import ffx.numerics.Potential;
+import ffx.numerics.optimization.LBFGS;
+import ffx.numerics.optimization.LineSearch.LineSearchResult;
+import ffx.numerics.optimization.OptimizationListener;
+import ffx.potential.MolecularAssembly;
+import ffx.potential.bonded.Atom;
+import ffx.potential.parsers.SystemFilter;
+import ffx.potential.utils.TrajectoryEnergyPipeline;
+import java.util.logging.Logger;
+
+/**
+ * The BatchMinimize class minimizes many structures (e.g. the snapshots of an archive) concurrently.
+ *
+ * <p>Structures are read ahead by a {@link TrajectoryEnergyPipeline}, and each worker owns an
+ * independent MolecularAssembly and Potential that it reuses for every structure it minimizes, so
+ * that force field setup is paid once per worker rather than once per structure. Workers run quiet
+ * L-BFGS optimizations, and results are passed to a StructureListener on the calling thread in input
+ * order as soon as they are available.
+ *
+ * @author Michael J. Schnieders
+ * @since 1.0
+ */
+public class BatchMinimize {
+
+  private static final Logger logger = Logger.getLogger(BatchMinimize.class.getName());
+
+  /** Number of previous steps used to estimate the Hessian. */
+  private static final int M = 7;
+  /** Number of results (energy, RMS gradient, status, iterations, unit cell) before coordinates. */
+  private static final int HEADER = 10;
+
+  /** The pipeline that reads structures and distributes them to workers. */
+  private final TrajectoryEnergyPipeline pipeline;
+  /** The convergence criteria. */
+  private final double eps;
+  /** The maximum number of iterations. */
+  private final int maxIterations;
+
+  /**
+   * Constructor for BatchMinimize.
+   *
+   * @param reader The assembly whose filter reads the structures.
+   * @param filter The filter that reads the structures.
+   * @param eps The convergence criteria (RMS gradient).
+   * @param maxIterations The maximum number of iterations per structure.
+   */
+  public BatchMinimize(
+      MolecularAssembly reader, SystemFilter filter, double eps, int maxIterations) {
+    MolecularAssembly[] readers = {reader};
+    SystemFilter[] filters = {filter};
+    pipeline = new TrajectoryEnergyPipeline(readers, filters, 2);
+    this.eps = eps;
+    this.maxIterations = maxIterations;
+  }
+
+  /**
+   * Add a worker, which must be opened from the same file as the reader assembly.
+   *
+   * @param assembly The worker assembly.
+   * @param potential The potential of the worker assembly to minimize.
+   */
+  public void addWorker(MolecularAssembly assembly, Potential potential) {
+    MolecularAssembly[] assemblies = {assembly};
+    pipeline.addWorker(assemblies, () -> minimize(assembly, potential));
+  }
+
+  /**
+   * Get the number of workers.
+   *
+   * @return The number of workers.
+   */
+  public int getNumberOfWorkers() {
+    return pipeline.getNumberOfWorkers();
+  }
+
+  /**
+   * Minimize all remaining structures read by the filter.
+   *
+   * @param listener Receives each minimized structure, in input order, on the calling thread.
+   * @return The number of structures minimized.
+   */
+  public int run(StructureListener listener) {
+    long time = -System.nanoTime();
+    int count =
+        pipeline.run(
+            (int frame, double[] result) -> {
+              double[] x = new double[result.length - HEADER];
+              arraycopy(result, HEADER, x, 0, x.length);
+              double[] unitCell = null;
+              if (!isNaN(result[4])) {
+                unitCell = new double[6];
+                arraycopy(result, 4, unitCell, 0, 6);
+              }
+              listener.structureMinimized(
+                  frame, result[0], result[1], (int) result[2], (int) result[3], unitCell, x);
+            });
+    time += System.nanoTime();
+    logger.info(
+        format(
+            " Minimized %d structures with %d workers in %8.3f (sec).",
+            count, pipeline.getNumberOfWorkers(), time * 1.0e-9));
+    return count;
+  }
+
+  /**
+   * Minimize the structure loaded into a worker assembly.
+   *
+   * @param assembly The worker assembly.
+   * @param potential The potential of the worker assembly.
+   * @return The energy, RMS gradient, status, iterations, unit cell and coordinates of all atoms.
+   */
+  private double[] minimize(MolecularAssembly assembly, Potential potential) {
+    int n = potential.getNumberOfVariables();
+    double[] x = new double[n];
+    double[] grad = new double[n];
+    double[] scaling = new double[n];
+    fill(scaling, 12.0);
+
+    potential.getCoordinates(x);
+    potential.setScaling(scaling);
+    for (int i = 0; i < n; i++) {
+      x[i] *= scaling[i];
+    }
+
+    Progress progress = new Progress();
+    progress.energy = potential.energyAndGradient(x, grad);
+    int status =
+        LBFGS.minimize(n, M, x, progress.energy, grad, eps, maxIterations, potential, progress);
+    potential.setScaling(null);
+
+    // The potential leaves the atoms at the final coordinates.
+    Atom[] atoms = assembly.getAtomArray();
+    double[] result = new double[HEADER + 3 * atoms.length];
+    result[0] = progress.energy;
+    result[1] = progress.rmsGradient;
+    result[2] = status;
+    result[3] = progress.iterations;
+    Crystal crystal = assembly.getCrystal();
+    if (crystal != null && !crystal.aperiodic()) {
+      Crystal unitCell = crystal.getUnitCell();
+      result[4] = unitCell.a;
+      result[5] = unitCell.b;
+      result[6] = unitCell.c;
+      result[7] = unitCell.alpha;
+      result[8] = unitCell.beta;
+      result[9] = unitCell.gamma;
+    } else {
+      fill(result, 4, HEADER, Double.NaN);
+    }
+    double[] xyz = new double[3];
+    for (int i = 0; i < atoms.length; i++) {
+      atoms[i].getXYZ(xyz);
+      int i3 = HEADER + 3 * i;
+      result[i3] = xyz[0];
+      result[i3 + 1] = xyz[1];
+      result[i3 + 2] = xyz[2];
+    }
+    return result;
+  }
+
+  /** Receives minimized structures in input order. */
+  @FunctionalInterface
+  public interface StructureListener {
+
+    /**
+     * Called for each minimized structure in input order.
+     *
+     * @param index Structure index, counting from 0 for the first structure read by the driver.
+     * @param energy The final energy.
+     * @param rmsGradient The final RMS gradient.
+     * @param status The L-BFGS status (0 = converged, 1 = max iterations reached, -1 = failed).
+     * @param iterations The number of iterations taken.
+     * @param unitCell The unit cell parameters of the structure, or null if aperiodic.
+     * @param x The final coordinates of all atoms (x, y, z for each atom).
+     */
+    void structureMinimized(
+        int index,
+        double energy,
+        double rmsGradient,
+        int status,
+        int iterations,
+        double[] unitCell,
+        double[] x);
+  }
+
+  /** Records the progress of one optimization without logging each step. */
+  private static class Progress implements OptimizationListener {
+
+    double energy;
+    double rmsGradient;
+    int iterations;
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean optimizationUpdate(
+        int iter,
+        int nfun,
+        double grms,
+        double xrms,
+        double f,
+        double df,
+        double angle,
+        LineSearchResult info) {
+      iterations = iter;
+      rmsGradient = grms;
+      energy = f;
+      return true;
+    }
+  }
+}
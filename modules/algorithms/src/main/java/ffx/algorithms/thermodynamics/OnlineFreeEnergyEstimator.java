@@ -0,0 +1,252 @@
+// ******************************************************************************
+//
+// Title:       Force Field X.
+// Description: Force Field X - Software for Molecular Biophysics.
+// Copyright:   Copyright (c) Michael J. Schnieders 2001-2020.
+//
+// This file is part of Force Field X.
+//
+// Force Field X is free software; you can redistribute it and/or modify it
+// under the terms of the GNU General Public License version 3 as published by
+// the Free Software Foundation.
+//
+// Force Field X is distributed in the hope that it will be useful, but WITHOUT
+// ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+// FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+// details.
+//
+// You should have received a copy of the GNU General Public License along with
+// Force Field X; if not, write to the Free Software Foundation, Inc., 59 Temple
+// Place, Suite 330, Boston, MA 02111-1307 USA
+//
+// Linking this library statically or dynamically with other modules is making a
+// combined work based on this library. Thus, the terms and conditions of the
+// GNU General Public License cover the whole combination.
+//
+// As a special exception, the copyright holders of this library give you
+// permission to link this library with independent modules to produce an
+// executable, regardless of the license terms of these independent modules, and
+// to copy and distribute the resulting executable under terms of your choice,
+// provided that you also meet, for each linked independent module, the terms
+// and conditions of the license of that module. An independent module is a
+// module which is not derived from or based on this library. If you modify this
+// library, you may extend this exception to your version of the library, but
+// you are not obligated to do so. If you do not wish to do so, delete this
+// exception statement from your version.
+//
+// ******************************************************************************
+package ffx.algorithms.thermodynamics;
+
+import static ffx.utilities.Constants.R;
+import static java.lang.String.format;
+import static org.apache.commons.math3.util.FastMath.max;
+
+import ffx.numerics.Potential;
+import ffx.numerics.estimator.StreamingBAR;
+import ffx.potential.bonded.LambdaInterface;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+import org.apache.commons.configuration2.CompositeConfiguration;
+
+/**
+ * The OnlineFreeEnergyEstimator class estimates free energy differences between lambda windows
+ * while they are sampled. Every stride steps, if the current lambda is at a window, the potential
+ * energy is evaluated at that window and its neighbors and added to a {@link StreamingBAR} estimator,
+ * so that converging BAR free energies can be reported without writing or re-reading trajectories.
+ *
+ * <p>Under Orthogonal Space Tempering, each sample is reweighted by the exponential of its bias
+ * energy to recover the unbiased ensemble of its window.
+ *
+ * @author Michael J. Schnieders
+ * @since 1.0
+ */
+public class OnlineFreeEnergyEstimator {
+
+  private static final Logger logger = Logger.getLogger(OnlineFreeEnergyEstimator.class.getName());
+
+  /** The Potential evaluated at each lambda window. */
+  private final Potential potential;
+  /** The LambdaInterface used to move between lambda windows. */
+  private final LambdaInterface lambdaInterface;
+  /** The OST instance whose bias is removed by reweighting (may be null). */
+  private final OrthogonalSpaceTempering orthogonalSpaceTempering;
+  /** Lambda value of each window. */
+  private final double[] lambdaValues;
+  /** Number of steps between samples. */
+  private final int stride;
+  /** Number of samples between reports of the free energy. */
+  private final int reportFrequency;
+  /** Maximum distance of lambda from a window for a sample to be collected. */
+  private final double lambdaTolerance;
+  /** The streaming BAR estimator, created at the first sample. */
+  private StreamingBAR streamingBAR;
+  /** Number of steps seen. */
+  private long steps = 0;
+  /** Number of samples collected. */
+  private long samples = 0;
+
+  /**
+   * Constructor for an OnlineFreeEnergyEstimator.
+   *
+   * @param potential The Potential evaluated at each lambda window.
+   * @param lambdaInterface The LambdaInterface used to move between lambda windows.
+   * @param orthogonalSpaceTempering The OST instance to reweight for, or null.
+   * @param nWindows Number of evenly spaced lambda windows.
+   * @param stride Number of steps between samples.
+   * @param reportFrequency Number of samples between reports of the free energy.
+   * @param lambdaTolerance Maximum distance of lambda from a window for a sample to be collected.
+   */
+  public OnlineFreeEnergyEstimator(Potential potential, LambdaInterface lambdaInterface,
+      OrthogonalSpaceTempering orthogonalSpaceTempering, int nWindows, int stride,
+      int reportFrequency, double lambdaTolerance) {
+    if (nWindows < 2) {
+      throw new IllegalArgumentException(" At least two lambda windows are required.");
+    }
+    this.potential = potential;
+    this.lambdaInterface = lambdaInterface;
+    this.orthogonalSpaceTempering = orthogonalSpaceTempering;
+    this.stride = max(1, stride);
+    this.reportFrequency = max(1, reportFrequency);
+    this.lambdaTolerance = lambdaTolerance;
+    lambdaValues = new double[nWindows];
+    for (int i = 0; i < nWindows; i++) {
+      lambdaValues[i] = ((double) i) / (nWindows - 1);
+    }
+  }
+
+  /**
+   * Create an OnlineFreeEnergyEstimator for a Potential from the "online-bar-windows",
+   * "online-bar-stride", "online-bar-report" and "online-bar-tolerance" properties.
+   *
+   * @param potential The Potential being sampled (e.g. a ForceFieldEnergy, OST or Barostat).
+   * @param properties The properties.
+   * @return An OnlineFreeEnergyEstimator, or null if disabled or the Potential has no lambda.
+   */
+  public static OnlineFreeEnergyEstimator create(Potential potential,
+      CompositeConfiguration properties) {
+    int nWindows = properties.getInt("online-bar-windows", 0);
+    if (nWindows < 2) {
+      return null;
+    }
+    int stride = properties.getInt("online-bar-stride", 100);
+    int reportFrequency = properties.getInt("online-bar-report", 10);
+    double lambdaTolerance = properties.getDouble("online-bar-tolerance", 1.0e-3);
+
+    List<Potential> potentials = new ArrayList<>();
+    potentials.add(potential);
+    potentials.addAll(potential.getUnderlyingPotentials());
+
+    // OST is found first, since its bias must be removed.
+    for (Potential p : potentials) {
+      if (p instanceof OrthogonalSpaceTempering) {
+        OrthogonalSpaceTempering ost = (OrthogonalSpaceTempering) p;
+        return new OnlineFreeEnergyEstimator(ost.getPotentialEnergy(), ost.getLambdaInterface(),
+            ost, nWindows, stride, reportFrequency, lambdaTolerance);
+      }
+    }
+    for (Potential p : potentials) {
+      if (p instanceof LambdaInterface) {
+        return new OnlineFreeEnergyEstimator(p, (LambdaInterface) p, null, nWindows, stride,
+            reportFrequency, lambdaTolerance);
+      }
+    }
+    logger.warning(" Online free energy estimation requires a potential with lambda.");
+    return null;
+  }
+
+  /**
+   * Notify the estimator that a step was taken, which collects a sample every stride steps if lambda
+   * is at a window.
+   *
+   * @param x Current coordinates.
+   * @param temperature Temperature of the ensemble (K).
+   * @return True if a sample was collected.
+   */
+  public boolean step(double[] x, double temperature) {
+    if (++steps % stride != 0) {
+      return false;
+    }
+    if (streamingBAR == null) {
+      streamingBAR = new StreamingBAR(lambdaValues, temperature);
+    }
+
+    double lambda = lambdaInterface.getLambda();
+    int window = streamingBAR.getWindow(lambda, lambdaTolerance);
+    if (window < 0) {
+      return false;
+    }
+
+    // Evaluate both force field terms at the window and its neighbors, then restore lambda.
+    Potential.STATE state = potential.getEnergyTermState();
+    potential.setEnergyTermState(Potential.STATE.BOTH);
+    int last = lambdaValues.length - 1;
+    double eLow = (window > 0) ? energyAt(lambdaValues[window - 1], x) : 0.0;
+    double eAt = energyAt(lambdaValues[window], x);
+    double eHigh = (window < last) ? energyAt(lambdaValues[window + 1], x) : 0.0;
+    lambdaInterface.setLambda(lambda);
+    potential.setEnergyTermState(state);
+
+    double logWeight = 0.0;
+    if (orthogonalSpaceTempering != null) {
+      logWeight = orthogonalSpaceTempering.getBiasEnergy() / (R * temperature);
+    }
+    streamingBAR.addSample(window, eLow, eAt, eHigh, logWeight);
+
+    if (++samples % reportFrequency == 0) {
+      report();
+    }
+    return true;
+  }
+
+  /** Log the current free energy estimate. */
+  public void report() {
+    if (streamingBAR == null || samples == 0) {
+      return;
+    }
+    streamingBAR.estimateDG();
+    double[] dG = streamingBAR.getBinEnergies();
+    double[] dGUncertainty = streamingBAR.getBinUncertainties();
+    StringBuilder sb = new StringBuilder(
+        format("\n Online BAR free energy after %d samples (%d steps):\n", samples, steps));
+    sb.append("   Lambda Window        Samples           dG (kcal/mol)\n");
+    for (int i = 0; i < dG.length; i++) {
+      sb.append(format(" %6.4f - %6.4f %8d %8d %12.4f +/- %8.4f\n", lambdaValues[i],
+          lambdaValues[i + 1], streamingBAR.getSampleCount(i),
+          streamingBAR.getSampleCount(i + 1), dG[i], dGUncertainty[i]));
+    }
+    sb.append(format(" Total free energy difference: %12.4f +/- %8.4f (kcal/mol)",
+        streamingBAR.getFreeEnergy(), streamingBAR.getUncertainty()));
+    logger.info(sb.toString());
+  }
+
+  /**
+   * Get the streaming BAR estimator, which is null until the first sample is collected.
+   *
+   * @return The StreamingBAR estimator.
+   */
+  public StreamingBAR getStreamingBAR() {
+    return streamingBAR;
+  }
+
+  /**
+   * Get the number of samples collected.
+   *
+   * @return The number of samples.
+   */
+  public long getNumberOfSamples() {
+    return samples;
+  }
+
+  /**
+   * Compute the potential energy at a lambda value.
+   *
+   * @param lambda The lambda value.
+   * @param x The coordinates.
+   * @return The potential energy.
+   */
+  private double energyAt(double lambda, double[] x) {
+    lambdaInterface.setLambda(lambda);
+    return potential.energy(x);
+  }
+}
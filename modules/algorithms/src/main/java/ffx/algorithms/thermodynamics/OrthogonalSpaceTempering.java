@@ -374,7 +374,7 @@ public class OrthogonalSpaceTempering implements CrystalPotential, LambdaInterfa
     forceFieldEnergy = potential.energy(x);
 
     // OST is propagated with the slowly varying terms.
-    if (state == Potential.STATE.FAST) {
+    if (state == Potential.STATE.FAST || state == Potential.STATE.MEDIUM) {
       return forceFieldEnergy;
     }
 
@@ -454,7 +454,7 @@ public class OrthogonalSpaceTempering implements CrystalPotential, LambdaInterfa
     forceFieldEnergy = potential.energyAndGradient(x, gradient);
 
     // OST is propagated with the slowly varying terms.
-    if (state == STATE.FAST) {
+    if (state == STATE.FAST || state == STATE.MEDIUM) {
       return forceFieldEnergy;
     }
 
@@ -0,0 +1,214 @@
+// ******************************************************************************
+//
+// Title:       Force Field X.
+// Description: Force Field X - Software for Molecular Biophysics.
+// Copyright:   Copyright (c) Michael J. Schnieders 2001-2020.
+//
+// This file is part of Force Field X.
+//
+// Force Field X is free software; you can redistribute it and/or modify it
+// under the terms of the GNU General Public License version 3 as published by
+// the Free Software Foundation.
+//
+// Force Field X is distributed in the hope that it will be useful, but WITHOUT
+// ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+// FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+// details.
+//
+// You should have received a copy of the GNU General Public License along with
+// Force Field X; if not, write to the Free Software Foundation, Inc., 59 Temple
+// Place, Suite 330, Boston, MA 02111-1307 USA
+//
+// Linking this library statically or dynamically with other modules is making a
+// combined work based on this library. Thus, the terms and conditions of the
+// GNU General Public License cover the whole combination.
+//
+// As a special exception, the copyright holders of this library give you
+// permission to link this library with independent modules to produce an
+// executable, regardless of the license terms of these independent modules, and
+// to copy and distribute the resulting executable under terms of your choice,
+// provided that you also meet, for each linked independent module, the terms
+// and conditions of the license of that module. An independent module is a
+// module which is not derived from or based on this library. If you modify this
+// library, you may extend this exception to your version of the library, but
+// you are not obligated to do so. If you do not wish to do so, delete this
+// exception statement from your version.
+//
+// ******************************************************************************
+package ffx.algorithms.optimize;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import ffx.crystal.Crystal;
+import ffx.potential.ForceFieldEnergy;
+import ffx.potential.MolecularAssembly;
+import ffx.potential.bonded.Atom;
+import ffx.potential.parsers.SystemFilter;
+import ffx.potential.parsers.XYZFilter;
+import ffx.potential.utils.PotentialsUtils;
+import ffx.utilities.FFXTest;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+/**
+ * Tests that batched minimization of the snapshots of an acetamide crystal archive matches
+ * minimizing each snapshot in turn.
+ *
+ * @author Michael J. Schnieders
+ */
+public class BatchMinimizeTest extends FFXTest {
+
+  private static final double EPS = 0.1;
+  private static final int MAX_ITERATIONS = 200;
+  private static final int N_FRAMES = 5;
+  private static final double TOL = 1.0E-8;
+
+  /** One worker must reproduce the serial minimizations. */
+  @Test
+  public void testOneWorker() throws IOException {
+    testBatch(1);
+  }
+
+  /** Several workers must reproduce the serial minimizations, in input order. */
+  @Test
+  public void testThreeWorkers() throws IOException {
+    testBatch(3);
+  }
+
+  /**
+   * Minimize the snapshots of an archive serially and with a batch of workers, and compare the
+   * energies and coordinates of each snapshot.
+   *
+   * @param nWorkers The number of batch workers.
+   */
+  private void testBatch(int nWorkers) throws IOException {
+    // Single threaded potentials, so that the serial and batch paths sum terms in the same order.
+    System.setProperty("pj.nt", "1");
+    File archive = writeArchive();
+    PotentialsUtils potentialsUtils = new PotentialsUtils();
+
+    // Serial path, as in the Minimize script: readNext, update the crystal and minimize.
+    MolecularAssembly serialAssembly = potentialsUtils.open(archive);
+    SystemFilter serialFilter = potentialsUtils.getFilter();
+    ForceFieldEnergy serialEnergy = serialAssembly.getPotentialEnergy();
+    Minimize minimize = new Minimize(serialAssembly, serialEnergy, null);
+    int n = serialEnergy.getNumberOfVariables();
+    double[] x = new double[n];
+    List<Double> serialEnergies = new ArrayList<>();
+    List<double[]> serialCoordinates = new ArrayList<>();
+    while (serialFilter.readNext()) {
+      serialEnergy.setCrystal(serialAssembly.getCrystal());
+      minimize.minimize(EPS, MAX_ITERATIONS);
+      serialEnergy.getCoordinates(x);
+      serialEnergies.add(serialEnergy.energy(x, false));
+      serialCoordinates.add(coordinates(serialAssembly));
+    }
+    assertEquals(N_FRAMES - 1, serialEnergies.size());
+
+    // Batch path.
+    MolecularAssembly reader = potentialsUtils.open(archive);
+    SystemFilter filter = potentialsUtils.getFilter();
+    BatchMinimize batchMinimize = new BatchMinimize(reader, filter, EPS, MAX_ITERATIONS);
+    List<MolecularAssembly> workers = new ArrayList<>();
+    for (int w = 0; w < nWorkers; w++) {
+      ForceFieldEnergy workerEnergy = reader.getPotentialEnergy().fork(1);
+      workers.add(workerEnergy.getMolecularAssembly());
+      batchMinimize.addWorker(workerEnergy.getMolecularAssembly(), workerEnergy);
+    }
+    assertEquals(nWorkers, batchMinimize.getNumberOfWorkers());
+
+    List<Integer> order = new ArrayList<>();
+    List<Double> energies = new ArrayList<>();
+    List<double[]> batchCoordinates = new ArrayList<>();
+    int count =
+        batchMinimize.run(
+            (index, energy, rmsGradient, status, iterations, unitCell, xyz) -> {
+              assertNotNull(unitCell);
+              order.add(index);
+              energies.add(energy);
+              batchCoordinates.add(xyz);
+            });
+    assertEquals(N_FRAMES - 1, count);
+
+    for (int i = 0; i < count; i++) {
+      assertEquals(i, (int) order.get(i));
+      assertEquals(" Energy of snapshot " + i, serialEnergies.get(i), energies.get(i), TOL);
+      assertArrayEquals(serialCoordinates.get(i), batchCoordinates.get(i), TOL);
+    }
+
+    for (MolecularAssembly worker : workers) {
+      worker.destroy();
+    }
+    reader.destroy();
+    serialAssembly.destroy();
+  }
+
+  /**
+   * Write an archive of acetamide snapshots with perturbed coordinates and unit cells.
+   *
+   * @return The archive.
+   */
+  private File writeArchive() throws IOException {
+    Path path = registerTemporaryDirectory();
+    for (String name : new String[] {"acetamide.xtal.xyz", "acetamide.xtal.key"}) {
+      FileUtils.copyFile(
+          new File("src/main/java/ffx/algorithms/structures/" + name),
+          path.resolve(name).toFile());
+    }
+    PotentialsUtils potentialsUtils = new PotentialsUtils();
+    MolecularAssembly molecularAssembly =
+        potentialsUtils.open(path.resolve("acetamide.xtal.xyz").toFile());
+    XYZFilter xyzFilter = (XYZFilter) potentialsUtils.getFilter();
+    ForceFieldEnergy forceFieldEnergy = molecularAssembly.getPotentialEnergy();
+    Crystal crystal = forceFieldEnergy.getCrystal();
+    Crystal unitCell = crystal.getUnitCell();
+    double a = unitCell.a;
+    double c = unitCell.c;
+    Atom[] atoms = molecularAssembly.getAtomArray();
+    double[][] x0 = new double[atoms.length][];
+    for (int i = 0; i < atoms.length; i++) {
+      x0[i] = atoms[i].getXYZ(null);
+    }
+
+    File archive = path.resolve("acetamide.xtal.arc").toFile();
+    Random random = new Random(47);
+    for (int f = 0; f < N_FRAMES; f++) {
+      double scale = 1.0 + 0.01 * f;
+      crystal.changeUnitCellParameters(a * scale, a * scale, c * scale, 90.0, 90.0, 120.0);
+      forceFieldEnergy.setCrystal(crystal);
+      for (int i = 0; i < atoms.length; i++) {
+        atoms[i].moveTo(
+            x0[i][0] + 0.1 * random.nextGaussian(),
+            x0[i][1] + 0.1 * random.nextGaussian(),
+            x0[i][2] + 0.1 * random.nextGaussian());
+      }
+      xyzFilter.writeFile(archive, true, null);
+    }
+    molecularAssembly.destroy();
+    return archive;
+  }
+
+  /**
+   * Get the coordinates of all atoms of an assembly.
+   *
+   * @param molecularAssembly The assembly.
+   * @return The coordinates (x, y, z for each atom).
+   */
+  private static double[] coordinates(MolecularAssembly molecularAssembly) {
+    Atom[] atoms = molecularAssembly.getAtomArray();
+    double[] x = new double[3 * atoms.length];
+    for (int i = 0; i < atoms.length; i++) {
+      double[] xyz = atoms[i].getXYZ(null);
+      System.arraycopy(xyz, 0, x, 3 * i, 3);
+    }
+    return x;
+  }
+}
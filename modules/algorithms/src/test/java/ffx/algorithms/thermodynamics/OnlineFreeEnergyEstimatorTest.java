@@ -0,0 +1,251 @@
+// ******************************************************************************
+//
+// Title:       Force Field X.
+// Description: Force Field X - Software for Molecular Biophysics.
+// Copyright:   Copyright (c) Michael J. Schnieders 2001-2020.
+//
+// This file is part of Force Field X.
+//
+// Force Field X is free software; you can redistribute it and/or modify it
+// under the terms of the GNU General Public License version 3 as published by
+// the Free Software Foundation.
+//
+// Force Field X is distributed in the hope that it will be useful, but WITHOUT
+// ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+// FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+// details.
+//
+// You should have received a copy of the GNU General Public License along with
+// Force Field X; if not, write to the Free Software Foundation, Inc., 59 Temple
+// Place, Suite 330, Boston, MA 02111-1307 USA
+//
+// Linking this library statically or dynamically with other modules is making a
+// combined work based on this library. Thus, the terms and conditions of the
+// GNU General Public License cover the whole combination.
+//
+// As a special exception, the copyright holders of this library give you
+// permission to link this library with independent modules to produce an
+// executable, regardless of the license terms of these independent modules, and
+// to copy and distribute the resulting executable under terms of your choice,
+// provided that you also meet, for each linked independent module, the terms
+// and conditions of the license of that module. An independent module is a
+// module which is not derived from or based on this library. If you modify this
+// library, you may extend this exception to your version of the library, but
+// you are not obligated to do so. If you do not wish to do so, delete this
+// exception statement from your version.
+//
+// ******************************************************************************
+package ffx.algorithms.thermodynamics;
+
+import static ffx.utilities.Constants.R;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import ffx.algorithms.cli.OSTOptions;
+import ffx.algorithms.dynamics.MolecularDynamics;
+import ffx.algorithms.dynamics.integrators.IntegratorEnum;
+import ffx.algorithms.dynamics.thermostats.ThermostatEnum;
+import ffx.numerics.Potential;
+import ffx.numerics.estimator.StreamingBAR;
+import ffx.potential.ForceFieldEnergy;
+import ffx.potential.MolecularAssembly;
+import ffx.potential.cli.AlchemicalOptions;
+import ffx.potential.utils.PotentialsUtils;
+import ffx.utilities.FFXTest;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.apache.commons.configuration2.CompositeConfiguration;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests collecting online BAR samples during dynamics on a water-sodium pair, whose sodium is
+ * alchemical.
+ *
+ * @author Michael J. Schnieders
+ */
+public class OnlineFreeEnergyEstimatorTest extends FFXTest {
+
+  private static final double TEMPERATURE = 298.15;
+  private static final double TOL = 1.0E-8;
+
+  private MolecularAssembly molecularAssembly;
+
+  @After
+  public void tearDown() {
+    if (molecularAssembly != null) {
+      molecularAssembly.destroy();
+    }
+  }
+
+  /**
+   * Fixed-lambda dynamics must sample only its own window every stride steps, and leave lambda
+   * where it was.
+   */
+  @Test
+  public void testFixedLambdaDynamics() throws IOException {
+    ForceFieldEnergy forceFieldEnergy =
+        open("online-bar-windows 3", "online-bar-stride 2", "online-bar-report 1000");
+    forceFieldEnergy.setLambda(0.5);
+    MolecularDynamics molecularDynamics =
+        MolecularDynamics.dynamicsFactory(
+            molecularAssembly,
+            forceFieldEnergy,
+            molecularAssembly.getProperties(),
+            null,
+            ThermostatEnum.BUSSI,
+            IntegratorEnum.VELOCITYVERLET);
+    molecularDynamics.dynamic(10, 1.0, 0.01, 10.0, TEMPERATURE, true, null);
+
+    OnlineFreeEnergyEstimator estimator = molecularDynamics.getOnlineEstimator();
+    assertNotNull(estimator);
+    assertEquals(5, estimator.getNumberOfSamples());
+    StreamingBAR streamingBAR = estimator.getStreamingBAR();
+    assertEquals(0, streamingBAR.getSampleCount(0));
+    assertEquals(5, streamingBAR.getSampleCount(1));
+    assertEquals(0, streamingBAR.getSampleCount(2));
+    assertEquals(0.5, forceFieldEnergy.getLambda(), 0.0);
+    assertEquals(Potential.STATE.BOTH, forceFieldEnergy.getEnergyTermState());
+  }
+
+  /**
+   * Samples are only collected within the tolerance of a window, and lambda and the energy term
+   * state are restored afterwards.
+   */
+  @Test
+  public void testWindowTolerance() throws IOException {
+    ForceFieldEnergy forceFieldEnergy = open();
+    OnlineFreeEnergyEstimator estimator =
+        new OnlineFreeEnergyEstimator(forceFieldEnergy, forceFieldEnergy, null, 3, 1, 1000, 1.0e-3);
+    double[] x = new double[forceFieldEnergy.getNumberOfVariables()];
+    forceFieldEnergy.getCoordinates(x);
+
+    double[] lambdas = {0.5004, 0.3, 0.9995, 0.002};
+    boolean[] sampled = {true, false, true, false};
+    for (int i = 0; i < lambdas.length; i++) {
+      forceFieldEnergy.setLambda(lambdas[i]);
+      forceFieldEnergy.setEnergyTermState(Potential.STATE.FAST);
+      assertEquals(" Lambda " + lambdas[i], sampled[i], estimator.step(x, TEMPERATURE));
+      assertEquals(lambdas[i], forceFieldEnergy.getLambda(), 0.0);
+      assertEquals(Potential.STATE.FAST, forceFieldEnergy.getEnergyTermState());
+    }
+    forceFieldEnergy.setEnergyTermState(Potential.STATE.BOTH);
+
+    StreamingBAR streamingBAR = estimator.getStreamingBAR();
+    assertEquals(2, estimator.getNumberOfSamples());
+    assertEquals(0, streamingBAR.getSampleCount(0));
+    assertEquals(1, streamingBAR.getSampleCount(1));
+    assertEquals(1, streamingBAR.getSampleCount(2));
+  }
+
+  /**
+   * Under OST, samples must use the unbiased force field energies and be weighted by the bias
+   * energy of the configuration.
+   */
+  @Test
+  public void testOSTReweighting() throws IOException {
+    ForceFieldEnergy forceFieldEnergy = open();
+    File histogram = new File(molecularAssembly.getFile().getParentFile(), "water-na.his");
+    OrthogonalSpaceTempering ost =
+        OSTOptions.constructOST(forceFieldEnergy, null, histogram, molecularAssembly, null, null);
+    ost.setPropagateLambda(false);
+    int n = forceFieldEnergy.getNumberOfVariables();
+    double[] x = new double[n];
+    forceFieldEnergy.getCoordinates(x);
+
+    // Deposit bias near lambda = 0.5.
+    ost.setLambda(0.5);
+    ost.energy(x);
+    for (int i = 0; i < 5; i++) {
+      ost.getHistogram().addBias(ost.getForceFielddEdL() + i, x, null);
+    }
+
+    CompositeConfiguration properties = new CompositeConfiguration();
+    properties.addProperty("online-bar-windows", 3);
+    properties.addProperty("online-bar-stride", 1);
+    properties.addProperty("online-bar-report", 1000);
+    OnlineFreeEnergyEstimator estimator = OnlineFreeEnergyEstimator.create(ost, properties);
+    assertNotNull(estimator);
+
+    double[] lambdaValues = {0.0, 0.5, 1.0};
+    int last = lambdaValues.length - 1;
+    StreamingBAR expected = new StreamingBAR(lambdaValues, TEMPERATURE);
+    boolean biased = false;
+    for (int k = 0; k < 4; k++) {
+      double[] xk = x.clone();
+      xk[0] += 0.1 * k;
+      for (int window = 0; window < lambdaValues.length; window++) {
+        double lambda = lambdaValues[window];
+        ost.setLambda(lambda);
+        ost.energy(xk);
+        double bias = ost.getBiasEnergy();
+        biased |= bias != 0.0;
+        assertTrue(estimator.step(xk, TEMPERATURE));
+        assertEquals(lambda, forceFieldEnergy.getLambda(), 0.0);
+
+        double eLow = (window > 0) ? energyAt(forceFieldEnergy, lambdaValues[window - 1], xk) : 0.0;
+        double eAt = energyAt(forceFieldEnergy, lambda, xk);
+        double eHigh =
+            (window < last) ? energyAt(forceFieldEnergy, lambdaValues[window + 1], xk) : 0.0;
+        forceFieldEnergy.setLambda(lambda);
+        expected.addSample(window, eLow, eAt, eHigh, bias / (R * TEMPERATURE));
+      }
+    }
+    assertTrue(biased);
+
+    StreamingBAR actual = estimator.getStreamingBAR();
+    expected.estimateDG();
+    actual.estimateDG();
+    double[] expectedBins = expected.getBinEnergies();
+    double[] actualBins = actual.getBinEnergies();
+    for (int i = 0; i < expectedBins.length; i++) {
+      assertEquals(expectedBins[i], actualBins[i], TOL);
+    }
+    assertEquals(expected.getFreeEnergy(), actual.getFreeEnergy(), TOL);
+    ost.destroy();
+  }
+
+  /**
+   * Open the water-sodium pair with an alchemical sodium.
+   *
+   * @param properties Additional lines of the properties file.
+   * @return The ForceFieldEnergy.
+   */
+  private ForceFieldEnergy open(String... properties) throws IOException {
+    Path path = registerTemporaryDirectory();
+    ClassLoader classLoader = getClass().getClassLoader();
+    File xyz =
+        new File(classLoader.getResource("ffx/algorithms/structures/water-na.xyz").getPath());
+    File structure = path.resolve("water-na.xyz").toFile();
+    FileUtils.copyFile(xyz, structure);
+    StringBuilder sb = new StringBuilder("forcefield AMOEBA_BIO_2018\nlambdaterm true\n");
+    for (String property : properties) {
+      sb.append(property).append("\n");
+    }
+    Files.write(
+        path.resolve("water-na.properties"), sb.toString().getBytes(StandardCharsets.US_ASCII));
+
+    molecularAssembly = new PotentialsUtils().open(structure);
+    AlchemicalOptions.setAlchemicalAtoms(molecularAssembly, "1");
+    return molecularAssembly.getPotentialEnergy();
+  }
+
+  /**
+   * Compute the force field energy at a lambda value.
+   *
+   * @param forceFieldEnergy The ForceFieldEnergy.
+   * @param lambda The lambda value.
+   * @param x The coordinates.
+   * @return The energy.
+   */
+  private static double energyAt(ForceFieldEnergy forceFieldEnergy, double lambda, double[] x) {
+    forceFieldEnergy.setLambda(lambda);
+    return forceFieldEnergy.energy(x);
+  }
+}
@@ -305,10 +305,12 @@ public interface Potential {
 
   /**
    * Set the state of the Potential to include FAST varying energy terms, SLOW varying energy terms
-   * or BOTH.
+   * or BOTH. The MEDIUM state includes only short-range non-bonded terms for three level multiple
+   * time step integrators, which subtract them from the SLOW terms.
    */
   enum STATE {
     FAST,
+    MEDIUM,
     SLOW,
     BOTH
   }
@@ -55,6 +55,8 @@ public interface AtomicDoubleArray {
         return new AdderDoubleArray(size);
       case PJ:
         return new PJDoubleArray(size);
+      case SPARSE:
+        return new SparseDoubleArray(threads, size);
       case MULTI:
       default:
         return new MultiDoubleArray(threads, size);
@@ -155,10 +157,11 @@ public interface AtomicDoubleArray {
    */
   void sub(int threadID, int index, double value);
 
-  /** AtomicDoubleArray implementations (ADDER, MULTI, PJ). */
+  /** AtomicDoubleArray implementations (ADDER, MULTI, PJ, SPARSE). */
   enum AtomicDoubleArrayImpl {
     ADDER,
     MULTI,
-    PJ
+    PJ,
+    SPARSE
   }
 }
@@ -78,7 +78,8 @@ public class AtomicDoubleArray3D {
    *
    * @param atomicDoubleArrayImpl Implementation.
    * @param size Size of each dimension.
-   * @param nThreads Requested number of threads (only used by the MULTI implementation).
+   * @param nThreads Requested number of threads (only used by the MULTI and SPARSE
+   *     implementations).
    */
   public AtomicDoubleArray3D(AtomicDoubleArrayImpl atomicDoubleArrayImpl, int size, int nThreads) {
     atomicDoubleArray = new AtomicDoubleArray[3];
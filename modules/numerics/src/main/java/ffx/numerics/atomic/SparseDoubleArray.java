@@ -0,0 +1,324 @@
+// ******************************************************************************
+//
+// Title:       Force Field X.
+// Description: Force Field X - Software for Molecular Biophysics.
+// Copyright:   Copyright (c) Michael J. Schnieders 2001-2020.
+//
+// This file is part of Force Field X.
+//
+// Force Field X is free software; you can redistribute it and/or modify it
+// under the terms of the GNU General Public License version 3 as published by
+// the Free Software Foundation.
+//
+// Force Field X is distributed in the hope that it will be useful, but WITHOUT
+// ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+// FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+// details.
+//
+// You should have received a copy of the GNU General Public License along with
+// Force Field X; if not, write to the Free Software Foundation, Inc., 59 Temple
+// Place, Suite 330, Boston, MA 02111-1307 USA
+//
+// Linking this library statically or dynamically with other modules is making a
+// combined work based on this library. Thus, the terms and conditions of the
+// GNU General Public License cover the whole combination.
+//
+// As a special exception, the copyright holders of this library give you
+// permission to link this library with independent modules to produce an
+// executable, regardless of the license terms of these independent modules, and
+// to copy and distribute the resulting executable under terms of your choice,
+// provided that you also meet, for each linked independent module, the terms
+// and conditions of the license of that module. An independent module is a
+// module which is not derived from or based on this library. If you modify this
+// library, you may extend this exception to your version of the library, but
+// you are not obligated to do so. If you do not wish to do so, delete this
+// exception statement from your version.
+//
+package ffx.numerics.atomic;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+import edu.rit.pj.IntegerForLoop;
+import edu.rit.pj.ParallelRegion;
+import edu.rit.pj.ParallelTeam;
+import java.util.Arrays;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The SparseDoubleArray stores a full size double array for each thread (like the {@link
+ * MultiDoubleArray}), but tracks which blocks of each array a thread has touched. Only touched
+ * blocks are reset and reduced, so the cost of these operations scales with the work done by each
+ * thread rather than with the number of threads times the size of the array. This pays off when
+ * each thread operates on a spatially localized subset of a large system.
+ *
+ * @author Michael J. Schnieders
+ * @since 1.0
+ */
+public class SparseDoubleArray implements AtomicDoubleArray {
+
+  private static final Logger logger = Logger.getLogger(SparseDoubleArray.class.getName());
+
+  /** Each block holds 2^BLOCK_SHIFT values. */
+  private static final int BLOCK_SHIFT = 6;
+  /** The number of values in each block. */
+  private static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+  /** Pad the per-thread block ranges to avoid false sharing. */
+  private static final int RANGE_PAD = 16;
+
+  private final int threadCount;
+
+  /**
+   * Storage of the array.
+   *
+   * <p>First dimension is the thread. Second dimension is the value.
+   */
+  private final double[][] array;
+
+  /**
+   * Flags that mark the blocks touched by each thread since its last reset.
+   *
+   * <p>First dimension is the thread. Second dimension is the block.
+   */
+  private final boolean[][] touched;
+
+  /**
+   * The first (index 0) and last (index 1) block touched by each thread since its last reset.
+   *
+   * <p>First dimension is the thread.
+   */
+  private final int[][] blockRange;
+
+  private int size;
+
+  /**
+   * Constructor for SparseDoubleArray.
+   *
+   * @param nThreads a int.
+   * @param size a int.
+   */
+  public SparseDoubleArray(int nThreads, int size) {
+    this.size = size;
+    threadCount = nThreads;
+    array = new double[nThreads][size];
+    touched = new boolean[nThreads][nBlocks(size)];
+    blockRange = new int[nThreads][RANGE_PAD];
+    for (int i = 0; i < nThreads; i++) {
+      clearRange(i);
+    }
+  }
+
+  /**
+   * Compute the number of blocks needed for an array of the given size.
+   *
+   * @param size a int.
+   * @return the number of blocks.
+   */
+  private static int nBlocks(int size) {
+    return (size + BLOCK_SIZE - 1) >> BLOCK_SHIFT;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void add(int threadID, int index, double value) {
+    touch(threadID, index);
+    array[threadID][index] += value;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void alloc(int size) {
+    this.size = size;
+    for (int i = 0; i < threadCount; i++) {
+      if (array[i].length < size) {
+        array[i] = new double[size];
+        touched[i] = new boolean[nBlocks(size)];
+        clearRange(i);
+      }
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Return a reduced value at the given index.
+   */
+  @Override
+  public double get(int index) {
+    return array[0][index];
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Reduce the blocks touched by each thread into array[0].
+   */
+  @Override
+  public void reduce(int lb, int ub) {
+    double[] gx = array[0];
+    boolean[] touched0 = touched[0];
+    int lbBlock = lb >> BLOCK_SHIFT;
+    int ubBlock = ub >> BLOCK_SHIFT;
+    for (int t = 1; t < threadCount; t++) {
+      double[] gxt = array[t];
+      boolean[] touchedt = touched[t];
+      int first = max(lbBlock, blockRange[t][0]);
+      int last = min(ubBlock, blockRange[t][1]);
+      for (int block = first; block <= last; block++) {
+        if (!touchedt[block]) {
+          continue;
+        }
+        int start = max(lb, block << BLOCK_SHIFT);
+        int end = min(ub, ((block + 1) << BLOCK_SHIFT) - 1);
+        for (int i = start; i <= end; i++) {
+          gx[i] += gxt[i];
+        }
+        // Blocks of array[0] that hold reduced values must be cleared by its next reset.
+        touched0[block] = true;
+      }
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Reduce the blocks touched by each thread into array[0].
+   */
+  @Override
+  public void reduce(ParallelTeam parallelTeam, int lb, int ub) {
+    try {
+      parallelTeam.execute(
+          new ParallelRegion() {
+            @Override
+            public void run() throws Exception {
+              execute(
+                  lb,
+                  ub,
+                  new IntegerForLoop() {
+                    @Override
+                    public void run(int first, int last) {
+                      reduce(first, last);
+                    }
+                  });
+            }
+          });
+    } catch (Exception e) {
+      logger.log(Level.WARNING, " Exception reducing a SparseDoubleArray", e);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Zero the blocks touched by the specified thread.
+   */
+  @Override
+  public void reset(int threadID, int lb, int ub) {
+    double[] gx = array[threadID];
+    boolean[] touchedt = touched[threadID];
+    int first = blockRange[threadID][0];
+    int last = min(blockRange[threadID][1], touchedt.length - 1);
+    if (threadID == 0) {
+      // Reduction marks blocks of array[0] from many threads, so its block range is not tracked.
+      first = 0;
+      last = touchedt.length - 1;
+    }
+    for (int block = first; block <= last; block++) {
+      if (touchedt[block]) {
+        int start = block << BLOCK_SHIFT;
+        Arrays.fill(gx, start, min(start + BLOCK_SIZE, gx.length), 0.0);
+        touchedt[block] = false;
+      }
+    }
+    clearRange(threadID);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Zero the blocks touched by each thread.
+   */
+  @Override
+  public void reset(ParallelTeam parallelTeam, int lb, int ub) {
+    try {
+      parallelTeam.execute(
+          new ParallelRegion() {
+            @Override
+            public void run() throws Exception {
+              execute(
+                  0,
+                  threadCount - 1,
+                  new IntegerForLoop() {
+                    @Override
+                    public void run(int first, int last) {
+                      for (int i = first; i <= last; i++) {
+                        reset(i, lb, ub);
+                      }
+                    }
+                  });
+            }
+          });
+    } catch (Exception e) {
+      logger.log(Level.WARNING, " Exception resetting a SparseDoubleArray", e);
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void scale(int threadID, int index, double value) {
+    touch(threadID, index);
+    array[threadID][index] *= value;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void set(int threadID, int index, double value) {
+    touch(threadID, index);
+    array[threadID][index] = value;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int size() {
+    return size;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void sub(int threadID, int index, double value) {
+    touch(threadID, index);
+    array[threadID][index] -= value;
+  }
+
+  /**
+   * Mark the block that holds the given index as touched by the specified thread.
+   *
+   * @param threadID a int.
+   * @param index a int.
+   */
+  private void touch(int threadID, int index) {
+    int block = index >> BLOCK_SHIFT;
+    boolean[] touchedt = touched[threadID];
+    if (!touchedt[block]) {
+      touchedt[block] = true;
+      int[] range = blockRange[threadID];
+      if (block < range[0]) {
+        range[0] = block;
+      }
+      if (block > range[1]) {
+        range[1] = block;
+      }
+    }
+  }
+
+  /**
+   * Mark that no blocks have been touched by the specified thread.
+   *
+   * @param threadID a int.
+   */
+  private void clearRange(int threadID) {
+    blockRange[threadID][0] = Integer.MAX_VALUE;
+    blockRange[threadID][1] = -1;
+  }
+}
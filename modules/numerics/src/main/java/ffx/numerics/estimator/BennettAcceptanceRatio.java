@@ -37,19 +37,18 @@
 // ******************************************************************************
 package ffx.numerics.estimator;
 
-import static ffx.numerics.estimator.EstimateBootstrapper.getBootstrapIndices;
+import static ffx.numerics.estimator.EstimateBootstrapper.fillBootstrapIndices;
 import static ffx.numerics.estimator.Zwanzig.Directionality.BACKWARDS;
 import static ffx.numerics.estimator.Zwanzig.Directionality.FORWARDS;
 import static ffx.numerics.math.ScalarMath.fermiFunction;
 import static java.lang.String.format;
 import static java.util.Arrays.copyOf;
 import static java.util.Arrays.fill;
-import static java.util.Arrays.stream;
 import static org.apache.commons.math3.util.FastMath.abs;
 import static org.apache.commons.math3.util.FastMath.log;
+import static org.apache.commons.math3.util.FastMath.min;
 import static org.apache.commons.math3.util.FastMath.sqrt;
 
-import ffx.numerics.math.SummaryStatistics;
 import ffx.utilities.Constants;
 import java.util.Random;
 import java.util.logging.Level;
@@ -120,6 +119,22 @@ public class BennettAcceptanceRatio extends SequentialEstimator implements Boots
    */
   private final Zwanzig backwardsFEP;
   private final Random random;
+  /**
+   * Fermi differences for the lower end of each window, allocated once for reuse across trials.
+   */
+  private final double[][] fermi0;
+  /**
+   * Fermi differences for the upper end of each window.
+   */
+  private final double[][] fermi1;
+  /**
+   * Bootstrap sample indices for the lower end of each window.
+   */
+  private final int[][] bootstrapSamples0;
+  /**
+   * Bootstrap sample indices for the upper end of each window.
+   */
+  private final int[][] bootstrapSamples1;
   /**
    * Total BAR free-energy difference estimate.
    */
@@ -173,6 +188,17 @@ public class BennettAcceptanceRatio extends SequentialEstimator implements Boots
     this.tolerance = tolerance;
     random = new Random();
 
+    fermi0 = new double[nWindows][];
+    fermi1 = new double[nWindows][];
+    bootstrapSamples0 = new int[nWindows][];
+    bootstrapSamples1 = new int[nWindows][];
+    for (int i = 0; i < nWindows; i++) {
+      fermi0[i] = new double[eAt[i].length];
+      fermi1[i] = new double[eAt[i + 1].length];
+      bootstrapSamples0[i] = new int[eAt[i].length];
+      bootstrapSamples1[i] = new int[eAt[i + 1].length];
+    }
+
     estimateDG();
   }
 
@@ -187,12 +213,16 @@ public class BennettAcceptanceRatio extends SequentialEstimator implements Boots
    * @param len Number of energies.
    * @param c Prior best estimate of the BAR offset/free energy.
    * @param invRT 1.0 / ideal gas constant * temperature.
+   * @return The sum of the Fermi differences.
    */
-  private static void fermiDiffIterative(double[] e0, double[] e1, double[] fermiDiffs, int len,
+  private static double fermiDiffIterative(double[] e0, double[] e1, double[] fermiDiffs, int len,
       double c, double invRT) {
+    double sum = 0.0;
     for (int i = 0; i < len; i++) {
       fermiDiffs[i] = fermiFunction(invRT * (e0[i] - e1[i] + c));
+      sum += fermiDiffs[i];
     }
+    return sum;
   }
 
   /**
@@ -207,13 +237,33 @@ public class BennettAcceptanceRatio extends SequentialEstimator implements Boots
    * @param len Number of energies.
    * @param c Prior best estimate of the BAR offset/free energy.
    * @param invRT 1.0 / ideal gas constant * temperature.
+   * @param bootstrapSamples Indices of the sampled energies.
+   * @return The sum of the Fermi differences.
    */
-  private static void fermiDiffBootstrap(double[] e0, double[] e1, double[] fermiDiffs,
+  private static double fermiDiffBootstrap(double[] e0, double[] e1, double[] fermiDiffs,
       int len, double c, double invRT, int[] bootstrapSamples) {
+    double sum = 0.0;
     for (int indexI = 0; indexI < len; indexI++) {
       int i = bootstrapSamples[indexI];
       fermiDiffs[indexI] = fermiFunction(invRT * (e0[i] - e1[i] + c));
+      sum += fermiDiffs[indexI];
     }
+    return sum;
+  }
+
+  /**
+   * Computes the mean squared Fermi difference.
+   *
+   * @param fermiDiffs Fermi differences.
+   * @param len Number of values.
+   * @return Mean of the squared Fermi differences.
+   */
+  private static double meanSquare(double[] fermiDiffs, int len) {
+    double sum = 0.0;
+    for (int i = 0; i < len; i++) {
+      sum += fermiDiffs[i] * fermiDiffs[i];
+    }
+    return sum / len;
   }
 
   /**
@@ -256,6 +306,12 @@ public class BennettAcceptanceRatio extends SequentialEstimator implements Boots
     return forwardsFEP;
   }
 
+  /** {@inheritDoc} */
+  @Override
+  public void setRandomSeed(long seed) {
+    random.setSeed(seed);
+  }
+
   /** {@inheritDoc} */
   @Override
   public BennettAcceptanceRatio copyEstimator() {
@@ -295,8 +351,8 @@ public class BennettAcceptanceRatio extends SequentialEstimator implements Boots
       double sampleRatio = ((double) len0) / ((double) len1);
 
       // Fermi differences.
-      double[] fermi0 = new double[len0];
-      double[] fermi1 = new double[len1];
+      double[] fermi0 = this.fermi0[i];
+      double[] fermi1 = this.fermi1[i];
 
       // Ideal gas constant * temperature, or its inverse.
       double rta = Constants.R * temperatures[i];
@@ -305,16 +361,17 @@ public class BennettAcceptanceRatio extends SequentialEstimator implements Boots
       double invRTA = 1.0 / rta;
       double invRTB = 1.0 / rtb;
 
-      SummaryStatistics s1 = null; // Summary statistics for Fermi differences for the upper half.
-      SummaryStatistics s0 = null; // Summary statistics for Fermi differences for the lower half.
+      // Sums of the Fermi differences for the lower and upper halves.
+      double sum0 = 0.0;
+      double sum1 = 0.0;
 
       // Each BAR convergence cycle needs to operate on the same set of indices.
-      int[] bootstrapSamples0 = null;
-      int[] bootstrapSamples1 = null;
+      int[] bootstrapSamples0 = this.bootstrapSamples0[i];
+      int[] bootstrapSamples1 = this.bootstrapSamples1[i];
 
       if (randomSamples) {
-        bootstrapSamples0 = getBootstrapIndices(len0, random);
-        bootstrapSamples1 = getBootstrapIndices(len1, random);
+        fillBootstrapIndices(bootstrapSamples0, random, min(2, len0));
+        fillBootstrapIndices(bootstrapSamples1, random, min(2, len1));
       }
 
       int cycleCounter = 0;
@@ -322,16 +379,15 @@ public class BennettAcceptanceRatio extends SequentialEstimator implements Boots
       while (!converged) {
         // Tinker: ub0, ub1; ua1, ua0 = FFX: eLow[i+1], eAt[i+1], eHigh[i], eAt[i]
         if (randomSamples) {
-          fermiDiffBootstrap(eHigh[i], eAt[i], fermi0, len0, -c, invRTA, bootstrapSamples0);
-          fermiDiffBootstrap(eLow[i + 1], eAt[i + 1], fermi1, len1, c, invRTB, bootstrapSamples1);
+          sum0 = fermiDiffBootstrap(eHigh[i], eAt[i], fermi0, len0, -c, invRTA, bootstrapSamples0);
+          sum1 = fermiDiffBootstrap(eLow[i + 1], eAt[i + 1], fermi1, len1, c, invRTB,
+              bootstrapSamples1);
         } else {
-          fermiDiffIterative(eHigh[i], eAt[i], fermi0, len0, -c, invRTA);
-          fermiDiffIterative(eLow[i + 1], eAt[i + 1], fermi1, len1, c, invRTB);
+          sum0 = fermiDiffIterative(eHigh[i], eAt[i], fermi0, len0, -c, invRTA);
+          sum1 = fermiDiffIterative(eLow[i + 1], eAt[i + 1], fermi1, len1, c, invRTB);
         }
 
-        s0 = new SummaryStatistics(fermi0);
-        s1 = new SummaryStatistics(fermi1);
-        double ratio = stream(fermi1).sum() / stream(fermi0).sum();
+        double ratio = sum1 / sum0;
 
         c += rtMean * log(sampleRatio * ratio);
         converged = (abs(c - cold) < tolerance);
@@ -345,17 +401,19 @@ public class BennettAcceptanceRatio extends SequentialEstimator implements Boots
 
       barEstimates[i] = c;
       cumDG += c;
-      double sqFermiMean0 = new SummaryStatistics(
-          stream(fermi0).map((double d) -> d * d).toArray()).mean;
-      double sqFermiMean1 = new SummaryStatistics(
-          stream(fermi1).map((double d) -> d * d).toArray()).mean;
+      double sqFermiMean0 = meanSquare(fermi0, len0);
+      double sqFermiMean1 = meanSquare(fermi1, len1);
       barUncertainties[i] = sqrt(
-          uncertaintyCalculation(s0.mean, sqFermiMean0, len0) + uncertaintyCalculation(s1.mean,
-              sqFermiMean1, len1));
+          uncertaintyCalculation(sum0 / len0, sqFermiMean0, len0) + uncertaintyCalculation(
+              sum1 / len1, sqFermiMean1, len1));
     }
 
     totalBAREstimate = cumDG;
-    totalBARUncertainty = sqrt(stream(barUncertainties).map((double d) -> d * d).sum());
+    double sumVariance = 0.0;
+    for (int i = 0; i < nWindows; i++) {
+      sumVariance += barUncertainties[i] * barUncertainties[i];
+    }
+    totalBARUncertainty = sqrt(sumVariance);
   }
 
   /** {@inheritDoc} */
@@ -70,6 +70,14 @@ public interface BootstrappableEstimator extends StatisticalEstimator {
   /** Re-calculates free energy without bootstrapping. */
   void estimateDG();
 
+  /**
+   * Seeds the source of randomness used to draw bootstrap samples, so that a sequence of bootstrap
+   * trials can be reproduced.
+   *
+   * @param seed The seed.
+   */
+  void setRandomSeed(long seed);
+
   /**
    * Obtains bootstrap free energy. Default implementation sums by-bin free energies.
    *
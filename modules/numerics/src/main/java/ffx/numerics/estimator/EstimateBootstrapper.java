@@ -39,11 +39,19 @@ package ffx.numerics.estimator;
 
 import static java.lang.String.format;
 import static java.util.Arrays.stream;
+import static org.apache.commons.math3.util.FastMath.max;
+import static org.apache.commons.math3.util.FastMath.min;
 
+import edu.rit.pj.IntegerForLoop;
+import edu.rit.pj.IntegerSchedule;
+import edu.rit.pj.ParallelRegion;
+import edu.rit.pj.ParallelTeam;
 import ffx.numerics.math.RunningStatistics;
 import ffx.numerics.math.SummaryStatistics;
 import java.util.Random;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -53,15 +61,22 @@ public class EstimateBootstrapper {
 
   private static final Logger logger = Logger.getLogger(EstimateBootstrapper.class.getName());
   private static final long DEFAULT_LOG_INTERVAL = 25;
+  /** Number of bootstrap trials that share one random stream. */
+  private static final int BLOCK_SIZE = 64;
+  /** Odd increment (the golden ratio scaled to 64 bits) between block seeds. */
+  private static final long SEED_INCREMENT = 0x9E3779B97F4A7C15L;
 
   private final BootstrappableEstimator estimate;
   private final int nWindows;
   private final SummaryStatistics[] bootstrapResults;
+  /** Seed from which the random stream of each block of trials is derived. */
+  private long seed;
 
   public EstimateBootstrapper(BootstrappableEstimator estimator) {
     this.estimate = estimator;
     nWindows = estimate.numberOfBins();
     bootstrapResults = new SummaryStatistics[nWindows];
+    seed = new Random().nextLong();
   }
 
   /**
@@ -94,32 +109,71 @@ public class EstimateBootstrapper {
    * @return Randomized indices.
    */
   public static int[] getBootstrapIndices(int length, Random random, int minDistinct) {
+    int[] indices = new int[length];
+    fillBootstrapIndices(indices, random, minDistinct);
+    return indices;
+  }
+
+  /**
+   * Fills an array with randomized bootstrap indices in the range [0,indices.length) without
+   * allocating; ensures there are at least a few distinct indices.
+   *
+   * @param indices Array to fill with random indices.
+   * @param random Source of randomness.
+   * @param minDistinct Minimum number of distinct indices.
+   */
+  public static void fillBootstrapIndices(int[] indices, Random random, int minDistinct) {
+    int length = indices.length;
     // Handle extremely short lengths with special-case handling.
     switch (length) {
       case 0:
-        return new int[0];
+        return;
       case 1:
-        return new int[] {0};
+        indices[0] = 0;
+        return;
       case 2:
-        int[] indices = new int[2];
         indices[0] = random.nextBoolean() ? 0 : 1;
         indices[1] = random.nextBoolean() ? 0 : 1;
-        return indices;
+        return;
       // Default: leave switch and handle general case.
     }
 
     // General case.
-    int[] indices = random.ints(length, 0, length).toArray();
-    long distinctVals = stream(indices).distinct().count();
     int ctr = 0;
-    while (distinctVals <= minDistinct) {
-      logger.info(
-          format(" Regenerating array (iteration %d): only %d distinct values found for length %d.",
-              ++ctr, distinctVals, length));
-      indices = random.ints(length, 0, length).toArray();
-      distinctVals = stream(indices).distinct().count();
+    while (true) {
+      for (int i = 0; i < length; i++) {
+        indices[i] = random.nextInt(length);
+      }
+      if (hasMoreDistinct(indices, minDistinct)) {
+        return;
+      }
+      logger.info(format(" Regenerating array (iteration %d): too few distinct values for length %d.",
+          ++ctr, length));
     }
-    return indices;
+  }
+
+  /**
+   * Checks for more than a given number of distinct values, stopping as soon as they are found.
+   *
+   * @param indices Indices to check.
+   * @param nDistinct Number of distinct values that must be exceeded.
+   * @return True if indices contains more than nDistinct distinct values.
+   */
+  private static boolean hasMoreDistinct(int[] indices, int nDistinct) {
+    int distinct = 0;
+    for (int i = 0; i < indices.length; i++) {
+      boolean seen = false;
+      for (int j = 0; j < i; j++) {
+        if (indices[j] == indices[i]) {
+          seen = true;
+          break;
+        }
+      }
+      if (!seen && ++distinct > nDistinct) {
+        return true;
+      }
+    }
+    return false;
   }
 
   /**
@@ -132,37 +186,64 @@ public class EstimateBootstrapper {
   }
 
   /**
-   * Perform bootstrap analysis.
+   * Perform bootstrap analysis using the default number of threads.
    *
    * @param trials Number of trials.
    * @param logInterval Interval between logging statements.
    */
   public void bootstrap(long trials, long logInterval) {
-    RunningStatistics[] windows = new RunningStatistics[nWindows];
-    for (int i = 0; i < nWindows; i++) {
-      windows[i] = new RunningStatistics();
-    }
-
-    // TODO: Parallelize this loop, because so long as we construct duplicate
-    // estimators/accumulators, it should be trivially parallelizable.
-    for (long i = 0; i < trials; i++) {
-      if ((i + 1) % logInterval == 0) {
-        logger.info(format(" Bootstrap Trial %d", i + 1));
-      }
-
-      estimate.estimateDG(true);
+    bootstrap(trials, logInterval, ParallelTeam.getDefaultThreadCount());
+  }
 
-      double[] fe = estimate.getBinEnergies();
-      for (int j = 0; j < nWindows; j++) {
-        windows[j].addValue(fe[j]);
+  /**
+   * Perform bootstrap analysis.
+   *
+   * <p>Trials are divided into blocks, and each block draws its samples from a random stream
+   * seeded by the bootstrapper seed and the block index. Each thread evaluates blocks with its own
+   * copy of the estimator, and per-block statistics are merged in block order, so results do not
+   * depend on the number of threads.
+   *
+   * @param trials Number of trials.
+   * @param logInterval Interval between logging statements.
+   * @param nThreads Number of threads.
+   */
+  public void bootstrap(long trials, long logInterval, int nThreads) {
+    int nBlocks = (int) ((trials + BLOCK_SIZE - 1) / BLOCK_SIZE);
+    RunningStatistics[][] blockStatistics = new RunningStatistics[nBlocks][];
+    if (nBlocks > 0) {
+      nThreads = max(1, min(nThreads, nBlocks));
+      BootstrapRegion region =
+          new BootstrapRegion(trials, logInterval, nThreads, blockStatistics);
+      ParallelTeam parallelTeam = new ParallelTeam(nThreads);
+      try {
+        parallelTeam.execute(region);
+        parallelTeam.shutdown();
+      } catch (Exception e) {
+        String message = " Fatal exception during bootstrap analysis.\n";
+        logger.log(Level.SEVERE, message, e);
+        throw new IllegalStateException(message, e);
       }
     }
 
+    RunningStatistics[] windows = new RunningStatistics[nWindows];
     for (int i = 0; i < nWindows; i++) {
+      windows[i] = new RunningStatistics();
+      for (int b = 0; b < nBlocks; b++) {
+        windows[i].addStatistics(blockStatistics[b][i]);
+      }
       bootstrapResults[i] = new SummaryStatistics(windows[i]);
     }
   }
 
+  /**
+   * Set the seed from which the random stream of each block of bootstrap trials is derived.
+   *
+   * @param seed The seed.
+   */
+  public void setRandomSeed(long seed) {
+    this.seed = seed;
+  }
+
   /**
    * Get bootstrap free energy estimate for each window.
    *
@@ -228,4 +309,71 @@ public class EstimateBootstrapper {
   public double[] getVariance() {
     return stream(bootstrapResults).mapToDouble(SummaryStatistics::getVar).toArray();
   }
+
+  /** Evaluates blocks of bootstrap trials, with one estimator copy per thread. */
+  private class BootstrapRegion extends ParallelRegion {
+
+    private final long trials;
+    private final long logInterval;
+    private final RunningStatistics[][] blockStatistics;
+    private final BootstrapLoop[] bootstrapLoops;
+    private final AtomicLong completed = new AtomicLong();
+
+    BootstrapRegion(long trials, long logInterval, int nThreads,
+        RunningStatistics[][] blockStatistics) {
+      this.trials = trials;
+      this.logInterval = logInterval;
+      this.blockStatistics = blockStatistics;
+      bootstrapLoops = new BootstrapLoop[nThreads];
+    }
+
+    @Override
+    public void run() throws Exception {
+      int threadIndex = getThreadIndex();
+      if (bootstrapLoops[threadIndex] == null) {
+        bootstrapLoops[threadIndex] = new BootstrapLoop(estimate.copyEstimator());
+      }
+      execute(0, blockStatistics.length - 1, bootstrapLoops[threadIndex]);
+    }
+
+    /** Evaluates a range of blocks with one estimator. */
+    private class BootstrapLoop extends IntegerForLoop {
+
+      private final BootstrappableEstimator estimator;
+
+      BootstrapLoop(BootstrappableEstimator estimator) {
+        this.estimator = estimator;
+      }
+
+      @Override
+      public void run(int lb, int ub) {
+        for (int b = lb; b <= ub; b++) {
+          RunningStatistics[] statistics = new RunningStatistics[nWindows];
+          for (int j = 0; j < nWindows; j++) {
+            statistics[j] = new RunningStatistics();
+          }
+          estimator.setRandomSeed(seed + b * SEED_INCREMENT);
+          long first = (long) b * BLOCK_SIZE;
+          long last = min(trials, first + BLOCK_SIZE);
+          for (long i = first; i < last; i++) {
+            estimator.estimateDG(true);
+            double[] fe = estimator.getBinEnergies();
+            for (int j = 0; j < nWindows; j++) {
+              statistics[j].addValue(fe[j]);
+            }
+            long done = completed.incrementAndGet();
+            if (done % logInterval == 0) {
+              logger.info(format(" Bootstrap Trial %d", done));
+            }
+          }
+          blockStatistics[b] = statistics;
+        }
+      }
+
+      @Override
+      public IntegerSchedule schedule() {
+        return IntegerSchedule.dynamic();
+      }
+    }
+  }
 }
@@ -0,0 +1,416 @@
+// ******************************************************************************
+//
+// Title:       Force Field X.
+// Description: Force Field X - Software for Molecular Biophysics.
+// Copyright:   Copyright (c) Michael J. Schnieders 2001-2020.
+//
+// This file is part of Force Field X.
+//
+// Force Field X is free software; you can redistribute it and/or modify it
+// under the terms of the GNU General Public License version 3 as published by
+// the Free Software Foundation.
+//
+// Force Field X is distributed in the hope that it will be useful, but WITHOUT
+// ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+// FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+// details.
+//
+// You should have received a copy of the GNU General Public License along with
+// Force Field X; if not, write to the Free Software Foundation, Inc., 59 Temple
+// Place, Suite 330, Boston, MA 02111-1307 USA
+//
+// Linking this library statically or dynamically with other modules is making a
+// combined work based on this library. Thus, the terms and conditions of the
+// GNU General Public License cover the whole combination.
+//
+// As a special exception, the copyright holders of this library give you
+// permission to link this library with independent modules to produce an
+// executable, regardless of the license terms of these independent modules, and
+// to copy and distribute the resulting executable under terms of your choice,
+// provided that you also meet, for each linked independent module, the terms
+// and conditions of the license of that module. An independent module is a
+// module which is not derived from or based on this library. If you modify this
+// library, you may extend this exception to your version of the library, but
+// you are not obligated to do so. If you do not wish to do so, delete this
+// exception statement from your version.
+//
+// ******************************************************************************
+package ffx.numerics.estimator;
+
+import static ffx.numerics.math.ScalarMath.fermiFunction;
+import static java.lang.String.format;
+import static java.util.Arrays.copyOf;
+import static org.apache.commons.math3.util.FastMath.abs;
+import static org.apache.commons.math3.util.FastMath.exp;
+import static org.apache.commons.math3.util.FastMath.log;
+import static org.apache.commons.math3.util.FastMath.max;
+import static org.apache.commons.math3.util.FastMath.sqrt;
+
+import ffx.utilities.Constants;
+import java.util.logging.Logger;
+
+/**
+ * The StreamingBAR class accumulates samples of the potential energy at adjacent lambda windows as
+ * they are generated (e.g. during molecular dynamics), and estimates free energy differences between
+ * windows with the Bennett Acceptance Ratio on request, without storing or re-reading trajectories.
+ *
+ * <p>For each window only the perturbation energies U(L-dL) - U(L) and U(L+dL) - U(L) of each
+ * sample are kept (together with an optional log weight), which are the sufficient statistics for
+ * BAR. Samples drawn from a biased ensemble can be reweighted, which reduces to replacing the
+ * sample means of the BAR iteration with weighted means and the sample counts with effective sample
+ * sizes.
+ *
+ * @author Michael J. Schnieders
+ * @since 1.0
+ */
+public class StreamingBAR implements StatisticalEstimator {
+
+  private static final Logger logger = Logger.getLogger(StreamingBAR.class.getName());
+
+  /** Default BAR convergence tolerance. */
+  private static final double DEFAULT_TOLERANCE = 1.0E-7;
+  /** Maximum number of BAR iterations. */
+  private static final int MAX_ITERS = 100;
+  /** Initial capacity of the sample arrays of each window. */
+  private static final int INITIAL_CAPACITY = 256;
+
+  /** Lambda value of each window. */
+  private final double[] lambdaValues;
+  /** Number of lambda windows. */
+  private final int nLambda;
+  /** Number of free energy differences (nLambda - 1). */
+  private final int nWindows;
+  /** Ideal gas constant times temperature (kcal/mol). */
+  private final double rt;
+  /** BAR convergence tolerance. */
+  private final double tolerance;
+  /** U(L+dL) - U(L) for the samples of each window. */
+  private final double[][] forwardWork;
+  /** U(L-dL) - U(L) for the samples of each window. */
+  private final double[][] backwardWork;
+  /** Log weight of the samples of each window. */
+  private final double[][] logWeights;
+  /** Number of samples of each window. */
+  private final int[] counts;
+  /** BAR free energy difference estimates. */
+  private final double[] barEstimates;
+  /** BAR free energy difference uncertainties. */
+  private final double[] barUncertainties;
+  /** Total BAR free energy difference estimate. */
+  private double totalBAREstimate;
+  /** Total BAR free energy difference uncertainty. */
+  private double totalBARUncertainty;
+
+  /**
+   * Constructor for a StreamingBAR estimator.
+   *
+   * @param lambdaValues Lambda value of each window, in increasing order.
+   * @param temperature Temperature of the samples (K).
+   */
+  public StreamingBAR(double[] lambdaValues, double temperature) {
+    this(lambdaValues, temperature, DEFAULT_TOLERANCE);
+  }
+
+  /**
+   * Constructor for a StreamingBAR estimator.
+   *
+   * @param lambdaValues Lambda value of each window, in increasing order.
+   * @param temperature Temperature of the samples (K).
+   * @param tolerance Convergence criterion in kcal/mol for BAR iteration.
+   */
+  public StreamingBAR(double[] lambdaValues, double temperature, double tolerance) {
+    if (lambdaValues.length < 2) {
+      throw new IllegalArgumentException(" At least two lambda windows are required.");
+    }
+    this.lambdaValues = copyOf(lambdaValues, lambdaValues.length);
+    nLambda = lambdaValues.length;
+    nWindows = nLambda - 1;
+    rt = Constants.R * temperature;
+    this.tolerance = tolerance;
+    forwardWork = new double[nLambda][INITIAL_CAPACITY];
+    backwardWork = new double[nLambda][INITIAL_CAPACITY];
+    logWeights = new double[nLambda][INITIAL_CAPACITY];
+    counts = new int[nLambda];
+    barEstimates = new double[nWindows];
+    barUncertainties = new double[nWindows];
+  }
+
+  /**
+   * Add an unweighted sample drawn at a lambda window.
+   *
+   * @param window Index of the window the sample was drawn from.
+   * @param eLow Potential energy at the previous window (ignored for the first window).
+   * @param eAt Potential energy at the sampled window.
+   * @param eHigh Potential energy at the next window (ignored for the last window).
+   */
+  public void addSample(int window, double eLow, double eAt, double eHigh) {
+    addSample(window, eLow, eAt, eHigh, 0.0);
+  }
+
+  /**
+   * Add a weighted sample drawn at a lambda window.
+   *
+   * @param window Index of the window the sample was drawn from.
+   * @param eLow Potential energy at the previous window (ignored for the first window).
+   * @param eAt Potential energy at the sampled window.
+   * @param eHigh Potential energy at the next window (ignored for the last window).
+   * @param logWeight Log of the weight that reweights the sample to the unbiased ensemble.
+   */
+  public synchronized void addSample(int window, double eLow, double eAt, double eHigh,
+      double logWeight) {
+    int n = counts[window];
+    if (n == forwardWork[window].length) {
+      forwardWork[window] = copyOf(forwardWork[window], 2 * n);
+      backwardWork[window] = copyOf(backwardWork[window], 2 * n);
+      logWeights[window] = copyOf(logWeights[window], 2 * n);
+    }
+    forwardWork[window][n] = (window < nWindows) ? eHigh - eAt : 0.0;
+    backwardWork[window][n] = (window > 0) ? eLow - eAt : 0.0;
+    logWeights[window][n] = logWeight;
+    counts[window] = n + 1;
+  }
+
+  /**
+   * Get the index of the window whose lambda value is within a tolerance of lambda.
+   *
+   * @param lambda The lambda value.
+   * @param lambdaTolerance The tolerance.
+   * @return The window index, or -1 if lambda is not at a window.
+   */
+  public int getWindow(double lambda, double lambdaTolerance) {
+    for (int i = 0; i < nLambda; i++) {
+      if (abs(lambda - lambdaValues[i]) <= lambdaTolerance) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Get the lambda value of a window.
+   *
+   * @param window The window index.
+   * @return The lambda value.
+   */
+  public double getLambda(int window) {
+    return lambdaValues[window];
+  }
+
+  /**
+   * Get the number of lambda windows.
+   *
+   * @return The number of lambda windows.
+   */
+  public int getNumberOfLambdaWindows() {
+    return nLambda;
+  }
+
+  /**
+   * Get the number of samples of a window.
+   *
+   * @param window The window index.
+   * @return The number of samples.
+   */
+  public synchronized int getSampleCount(int window) {
+    return counts[window];
+  }
+
+  /**
+   * Estimate the free energy difference between each pair of adjacent windows from the samples
+   * accumulated so far. Differences with no samples at one end use the one-sided (Zwanzig)
+   * estimate, and are zero with no samples at either end.
+   */
+  public synchronized void estimateDG() {
+    double cumDG = 0.0;
+    double sumVariance = 0.0;
+    for (int i = 0; i < nWindows; i++) {
+      int len0 = counts[i];
+      int len1 = counts[i + 1];
+      double[] w0 = normalizedWeights(i);
+      double[] w1 = normalizedWeights(i + 1);
+      double[] work0 = forwardWork[i];
+      double[] work1 = backwardWork[i + 1];
+
+      // Forward and backward exponential averaging give the initial guess.
+      double forward = (len0 > 0) ? -rt * logMeanExp(work0, w0, len0, -1.0 / rt) : Double.NaN;
+      double backward = (len1 > 0) ? rt * logMeanExp(work1, w1, len1, -1.0 / rt) : Double.NaN;
+      if (len0 == 0 || len1 == 0) {
+        double c = (len0 > 0) ? forward : (len1 > 0) ? backward : 0.0;
+        barEstimates[i] = c;
+        barUncertainties[i] = 0.0;
+        cumDG += c;
+        logger.fine(format(" Window %d has no samples at one end (%d, %d).", i, len0, len1));
+        continue;
+      }
+
+      double c = 0.5 * (forward + backward);
+      double cOld = c;
+      double mean0 = 0.0;
+      double mean1 = 0.0;
+      int cycleCounter = 0;
+      boolean converged = false;
+      while (!converged) {
+        mean0 = weightedFermiMean(work0, w0, len0, -c);
+        mean1 = weightedFermiMean(work1, w1, len1, c);
+        c += rt * log(mean1 / mean0);
+        converged = (abs(c - cOld) < tolerance);
+        cOld = c;
+        if (++cycleCounter > MAX_ITERS) {
+          throw new IllegalArgumentException(
+              format(" BAR required too many iterations (%d) to converge!", cycleCounter));
+        }
+      }
+
+      // The variance uses the effective sample size of the weighted samples.
+      double sqMean0 = weightedFermiSquareMean(work0, w0, len0, -c);
+      double sqMean1 = weightedFermiSquareMean(work1, w1, len1, c);
+      double variance = uncertaintyCalculation(mean0, sqMean0, effectiveSize(w0, len0))
+          + uncertaintyCalculation(mean1, sqMean1, effectiveSize(w1, len1));
+      barEstimates[i] = c;
+      barUncertainties[i] = sqrt(variance);
+      cumDG += c;
+      sumVariance += variance;
+    }
+    totalBAREstimate = cumDG;
+    totalBARUncertainty = sqrt(sumVariance);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public synchronized double[] getBinEnergies() {
+    return copyOf(barEstimates, nWindows);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public synchronized double[] getBinUncertainties() {
+    return copyOf(barUncertainties, nWindows);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public synchronized double getFreeEnergy() {
+    return totalBAREstimate;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public synchronized double getUncertainty() {
+    return totalBARUncertainty;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int numberOfBins() {
+    return nWindows;
+  }
+
+  /**
+   * Compute the sample weights of a window, normalized to a mean of one.
+   *
+   * @param window The window index.
+   * @return The normalized weights.
+   */
+  private double[] normalizedWeights(int window) {
+    int n = counts[window];
+    double[] logW = logWeights[window];
+    double maxLogW = Double.NEGATIVE_INFINITY;
+    for (int j = 0; j < n; j++) {
+      maxLogW = max(maxLogW, logW[j]);
+    }
+    double[] w = new double[n];
+    double sum = 0.0;
+    for (int j = 0; j < n; j++) {
+      w[j] = exp(logW[j] - maxLogW);
+      sum += w[j];
+    }
+    for (int j = 0; j < n; j++) {
+      w[j] *= n / sum;
+    }
+    return w;
+  }
+
+  /**
+   * Compute log of the weighted mean of exp(scale * work).
+   *
+   * @param work Perturbation energies.
+   * @param w Normalized weights.
+   * @param n Number of samples.
+   * @param scale Scale factor.
+   * @return log(&lt;exp(scale * work)&gt;).
+   */
+  private static double logMeanExp(double[] work, double[] w, int n, double scale) {
+    double maxArg = Double.NEGATIVE_INFINITY;
+    for (int j = 0; j < n; j++) {
+      maxArg = max(maxArg, scale * work[j]);
+    }
+    double sum = 0.0;
+    for (int j = 0; j < n; j++) {
+      sum += w[j] * exp(scale * work[j] - maxArg);
+    }
+    return maxArg + log(sum / n);
+  }
+
+  /**
+   * Compute the weighted mean Fermi function of (work + c) / RT.
+   *
+   * @param work Perturbation energies.
+   * @param w Normalized weights.
+   * @param n Number of samples.
+   * @param c Current estimate of the BAR offset/free energy.
+   * @return The weighted mean.
+   */
+  private double weightedFermiMean(double[] work, double[] w, int n, double c) {
+    double sum = 0.0;
+    for (int j = 0; j < n; j++) {
+      sum += w[j] * fermiFunction((work[j] + c) / rt);
+    }
+    return sum / n;
+  }
+
+  /**
+   * Compute the weighted mean squared Fermi function of (work + c) / RT.
+   *
+   * @param work Perturbation energies.
+   * @param w Normalized weights.
+   * @param n Number of samples.
+   * @param c Converged BAR offset/free energy.
+   * @return The weighted mean square.
+   */
+  private double weightedFermiSquareMean(double[] work, double[] w, int n, double c) {
+    double sum = 0.0;
+    for (int j = 0; j < n; j++) {
+      double f = fermiFunction((work[j] + c) / rt);
+      sum += w[j] * f * f;
+    }
+    return sum / n;
+  }
+
+  /**
+   * Compute the Kish effective sample size of normalized weights.
+   *
+   * @param w Normalized weights.
+   * @param n Number of samples.
+   * @return The effective sample size.
+   */
+  private static double effectiveSize(double[] w, int n) {
+    double sumSq = 0.0;
+    for (int j = 0; j < n; j++) {
+      sumSq += w[j] * w[j];
+    }
+    return (double) n * n / sumSq;
+  }
+
+  /**
+   * Computes one half of the BAR variance.
+   *
+   * @param meanFermi Mean Fermi value for either state 0 or state 1.
+   * @param meanSqFermi Mean squared Fermi value for either state 0 or state 1.
+   * @param len Effective number of values.
+   * @return One half of BAR variance.
+   */
+  private static double uncertaintyCalculation(double meanFermi, double meanSqFermi, double len) {
+    double sqMeanFermi = meanFermi * meanFermi;
+    return ((meanSqFermi - sqMeanFermi) / len) / sqMeanFermi;
+  }
+}
@@ -37,19 +37,17 @@
 // ******************************************************************************
 package ffx.numerics.estimator;
 
-import static ffx.numerics.estimator.EstimateBootstrapper.getBootstrapIndices;
+import static ffx.numerics.estimator.EstimateBootstrapper.fillBootstrapIndices;
 import static java.util.Arrays.copyOf;
-import static java.util.Arrays.stream;
 import static org.apache.commons.math3.util.FastMath.exp;
 import static org.apache.commons.math3.util.FastMath.log;
+import static org.apache.commons.math3.util.FastMath.min;
 import static org.apache.commons.math3.util.FastMath.sqrt;
 
-import ffx.numerics.math.SummaryStatistics;
 import ffx.utilities.Constants;
 import java.util.Random;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.stream.IntStream;
 
 /**
  * The Zwanzig class implements exponential averaging/free energy perturbation using the Zwanzig
@@ -77,6 +75,10 @@ public class Zwanzig extends SequentialEstimator implements BootstrappableEstima
    */
   private final double[] windowFreeEnergyUncertainties;
   private final Random random;
+  /**
+   * Bootstrap sample indices for each window, allocated once for reuse across trials.
+   */
+  private final int[][] bootstrapSamples;
   /**
    * Total free energy difference as a sum over windows.
    */
@@ -120,9 +122,21 @@ public class Zwanzig extends SequentialEstimator implements BootstrappableEstima
     forwards = directionality.equals(Directionality.FORWARDS);
     random = new Random();
 
+    bootstrapSamples = new int[nWindows][];
+    for (int i = 0; i < nWindows; i++) {
+      double[] e1 = forwards ? eAt[i] : eLow[i + 1];
+      bootstrapSamples[i] = new int[e1.length];
+    }
+
     estimateDG();
   }
 
+  /** {@inheritDoc} */
+  @Override
+  public void setRandomSeed(long seed) {
+    random.setSeed(seed);
+  }
+
   /** {@inheritDoc} */
   @Override
   public Zwanzig copyEstimator() {
@@ -154,38 +168,40 @@ public class Zwanzig extends SequentialEstimator implements BootstrappableEstima
       double beta = -temperatures[windowIndex] * Constants.R;
       double invBeta = 1.0 / beta;
 
-      double[] deltas = new double[len];
-      double[] expDeltas = new double[len];
-
-      int[] samples =
-          randomSamples ? getBootstrapIndices(len, random) : IntStream.range(0, len).toArray();
+      int[] samples = bootstrapSamples[i];
+      if (randomSamples) {
+        fillBootstrapIndices(samples, random, min(2, len));
+      }
 
+      // Online mean and variance of the exponentiated energy differences.
+      double meanAcc = 0.0;
+      double varAcc = 0.0;
       for (int indJ = 0; indJ < len; indJ++) {
         // With no iteration-to-convergence, generating a fresh random index is OK.
-        int j = samples[indJ];
-        deltas[indJ] = e2[j] - e1[j];
-        // expDeltas[indJ] = exp(beta * deltas[j]);
-        expDeltas[indJ] = exp(invBeta * deltas[indJ]);
+        int j = randomSamples ? samples[indJ] : indJ;
+        double delta = e2[j] - e1[j];
+        double expDelta = exp(invBeta * delta);
+        double priorMean = meanAcc;
+        meanAcc += (expDelta - meanAcc) / (indJ + 1);
+        varAcc += (expDelta - priorMean) * (expDelta - meanAcc);
       }
 
-      // SummaryStatistics deltaSummary = new SummaryStatistics(deltas);
-      SummaryStatistics expDeltaSummary = new SummaryStatistics(expDeltas);
-      // double dG = invBeta * log(expDeltaSummary.mean);
-      double dG = beta * log(expDeltaSummary.mean);
+      double dG = beta * log(meanAcc);
       windowFreeEnergyDifferences[i] = dG;
       cumDG += dG;
       if (len == 1) {
         windowFreeEnergyUncertainties[i] = 0.0;
       } else {
-        /*double ci = deltaSummary.confidenceInterval();
-        uncerts[i] = ci;*/
-        windowFreeEnergyUncertainties[i] = expDeltaSummary.sd;
+        windowFreeEnergyUncertainties[i] = sqrt(varAcc / (len - 1));
       }
     }
 
     totalFreeEnergyDifference = cumDG;
-    totalFreeEnergyUncertainty = sqrt(
-        stream(windowFreeEnergyUncertainties).map((double d) -> d * d).sum());
+    double sumVariance = 0.0;
+    for (int i = 0; i < nWindows; i++) {
+      sumVariance += windowFreeEnergyUncertainties[i] * windowFreeEnergyUncertainties[i];
+    }
+    totalFreeEnergyUncertainty = sqrt(sumVariance);
   }
 
   /** {@inheritDoc} */
@@ -0,0 +1,500 @@
+// ******************************************************************************
+//
+// Title:       Force Field X.
+// Description: Force Field X - Software for Molecular Biophysics.
+// Copyright:   Copyright (c) Michael J. Schnieders 2001-2020.
+//
+// This file is part of Force Field X.
+//
+// Force Field X is free software; you can redistribute it and/or modify it
+// under the terms of the GNU General Public License version 3 as published by
+// the Free Software Foundation.
+//
+// Force Field X is distributed in the hope that it will be useful, but WITHOUT
+// ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+// FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+// details.
+//
+// You should have received a copy of the GNU General Public License along with
+// Force Field X; if not, write to the Free Software Foundation, Inc., 59 Temple
+// Place, Suite 330, Boston, MA 02111-1307 USA
+//
+// Linking this library statically or dynamically with other modules is making a
+// combined work based on this library. Thus, the terms and conditions of the
+// GNU General Public License cover the whole combination.
+//
+// As a special exception, the copyright holders of this library give you
+// permission to link this library with independent modules to produce an
+// executable, regardless of the license terms of these independent modules, and
+// to copy and distribute the resulting executable under terms of your choice,
+// provided that you also meet, for each linked independent module, the terms
+// and conditions of the license of that module. An independent module is a
+// module which is not derived from or based on this library. If you modify this
+// library, you may extend this exception to your version of the library, but
+// you are not obligated to do so. If you do not wish to do so, delete this
+// exception statement from your version.
+//
+// ******************************************************************************
+package ffx.numerics.fft;
+
+import edu.rit.pj.IntegerForLoop;
+import edu.rit.pj.IntegerSchedule;
+import edu.rit.pj.ParallelRegion;
+import edu.rit.pj.ParallelTeam;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Compute the 3D FFT of complex, single precision input of arbitrary dimensions via 1D Mixed Radix
+ * FFTs in parallel.
+ *
+ * <p>The 3D data is stored in single precision to halve the memory traffic of large grids. Each 1D
+ * transform is done in double precision on a per-thread copy of the line being transformed, so
+ * the only additional error relative to Complex3DParallel is rounding of the stored values.
+ *
+ * <p>The location of the input point [i, j, k] within the input array must be: <br>
+ * float real = input[x*nextX + y*nextY + z*nextZ] <br>
+ * float imag = input[x*nextX + y*nextY + z*nextZ + 1] <br>
+ * where <br>
+ * int nextX = 2 <br>
+ * int nextY = 2*nX <br>
+ * int nextZ = 2*nX*nY <br>
+ *
+ * @author Michael J. Schnieders
+ * @see Complex3DParallel
+ * @since 1.0
+ */
+public class Complex3DParallelFloat {
+
+  private static final Logger logger = Logger.getLogger(Complex3DParallelFloat.class.getName());
+  private final int nX, nY, nZ;
+  private final int nX2, nY2, nZ2;
+  private final int strideX, strideY, strideZ;
+  private final float[] recip;
+  private final long[] convolutionTime;
+  private final int threadCount;
+  private final ParallelTeam parallelTeam;
+  private final Complex[] fftX;
+  private final Complex[] fftY;
+  private final Complex[] fftZ;
+  private final IntegerSchedule schedule;
+  private final int nXm1, nYm1, nZm1;
+  private final FFTRegion fftRegion;
+  private final IFFTRegion ifftRegion;
+  private final ConvolutionRegion convRegion;
+  private float[] input;
+
+  /**
+   * Initialize the 3D FFT for complex 3D matrix.
+   *
+   * @param nX X-dimension.
+   * @param nY Y-dimension.
+   * @param nZ Z-dimension.
+   * @param parallelTeam A ParallelTeam instance.
+   * @param integerSchedule The IntegerSchedule to use.
+   */
+  public Complex3DParallelFloat(
+      int nX, int nY, int nZ, ParallelTeam parallelTeam, IntegerSchedule integerSchedule) {
+    this.nX = nX;
+    this.nY = nY;
+    this.nZ = nZ;
+    this.parallelTeam = parallelTeam;
+    recip = new float[nX * nY * nZ];
+    nX2 = 2 * this.nX;
+    nY2 = 2 * this.nY;
+    nZ2 = 2 * this.nZ;
+    strideX = 2;
+    strideY = 2 * this.nX;
+    strideZ = strideY * this.nY;
+    nXm1 = this.nX - 1;
+    nYm1 = this.nY - 1;
+    nZm1 = this.nZ - 1;
+    threadCount = parallelTeam.getThreadCount();
+    if (integerSchedule != null) {
+      schedule = integerSchedule;
+    } else {
+      schedule = IntegerSchedule.fixed();
+    }
+    fftX = new Complex[threadCount];
+    fftY = new Complex[threadCount];
+    fftZ = new Complex[threadCount];
+    for (int i = 0; i < threadCount; i++) {
+      fftX[i] = new Complex(nX);
+      fftY[i] = new Complex(nY);
+      fftZ[i] = new Complex(nZ);
+    }
+    fftRegion = new FFTRegion();
+    ifftRegion = new IFFTRegion();
+    convRegion = new ConvolutionRegion();
+    convolutionTime = new long[threadCount];
+  }
+
+  /**
+   * Compute the 3D FFT, perform a multiplication in reciprocal space, and the inverse 3D FFT all in
+   * parallel.
+   *
+   * @param input The input array must be of size 2 * nX * nY * nZ.
+   */
+  public void convolution(final float[] input) {
+    this.input = input;
+    try {
+      parallelTeam.execute(convRegion);
+    } catch (Exception e) {
+      String message = "Fatal exception evaluating a convolution.\n";
+      logger.log(Level.SEVERE, message, e);
+    }
+  }
+
+  /**
+   * Compute the 3D FFT in parallel.
+   *
+   * @param input The input array must be of size 2 * nX * nY * nZ.
+   */
+  public void fft(final float[] input) {
+    this.input = input;
+    try {
+      parallelTeam.execute(fftRegion);
+    } catch (Exception e) {
+      String message = " Fatal exception evaluating the FFT.\n";
+      logger.log(Level.SEVERE, message, e);
+    }
+  }
+
+  public long[] getTimings() {
+    return convolutionTime;
+  }
+
+  /**
+   * Compute the inverse 3D FFT in parallel.
+   *
+   * @param input The input array must be of size 2 * nX * nY * nZ.
+   */
+  public void ifft(final float[] input) {
+    this.input = input;
+    try {
+      parallelTeam.execute(ifftRegion);
+    } catch (Exception e) {
+      String message = "Fatal exception evaluating the inverse FFT.\n";
+      logger.log(Level.SEVERE, message, e);
+    }
+  }
+
+  public void initTiming() {
+    for (int i = 0; i < threadCount; i++) {
+      convolutionTime[i] = 0;
+    }
+  }
+
+  /**
+   * Setter for the field <code>recip</code>.
+   *
+   * @param recip an array of double.
+   */
+  public void setRecip(double[] recip) {
+    int offset, y, x, z, i;
+
+    // Reorder the reciprocal space data into the order it is needed by the convolution routine.
+    int index = 0;
+    for (offset = 0, y = 0; y < nY; y++) {
+      for (x = 0; x < nX; x++, offset += 1) {
+        for (i = 0, z = offset; i < nZ2; i += 2, z += nX * nY) {
+          this.recip[index++] = (float) recip[z];
+        }
+      }
+    }
+  }
+
+  /**
+   * Copy a line of complex values into a double precision work array.
+   *
+   * @param offset Index of the first value.
+   * @param stride Stride between values.
+   * @param n2 Twice the number of complex values.
+   * @param work The work array.
+   */
+  private void load(int offset, int stride, int n2, double[] work) {
+    for (int i = 0, j = offset; i < n2; i += 2, j += stride) {
+      work[i] = input[j];
+      work[i + 1] = input[j + 1];
+    }
+  }
+
+  /**
+   * Round a line of complex values from a double precision work array into the input.
+   *
+   * @param offset Index of the first value.
+   * @param stride Stride between values.
+   * @param n2 Twice the number of complex values.
+   * @param work The work array.
+   */
+  private void store(int offset, int stride, int n2, double[] work) {
+    for (int i = 0, j = offset; i < n2; i += 2, j += stride) {
+      input[j] = (float) work[i];
+      input[j + 1] = (float) work[i + 1];
+    }
+  }
+
+  private class FFTRegion extends ParallelRegion {
+
+    private final FFTXYLoop[] fftXYLoop;
+    private final FFTZLoop[] fftZLoop;
+
+    private FFTRegion() {
+      fftXYLoop = new FFTXYLoop[threadCount];
+      fftZLoop = new FFTZLoop[threadCount];
+      for (int i = 0; i < threadCount; i++) {
+        fftXYLoop[i] = new FFTXYLoop();
+        fftZLoop[i] = new FFTZLoop();
+      }
+    }
+
+    @Override
+    public void run() {
+      int threadIndex = getThreadIndex();
+      try {
+        execute(0, nZm1, fftXYLoop[threadIndex]);
+        execute(0, nXm1, fftZLoop[threadIndex]);
+      } catch (Exception e) {
+        logger.severe(e.toString());
+      }
+    }
+  }
+
+  private class IFFTRegion extends ParallelRegion {
+
+    private final IFFTXYLoop[] ifftXYLoop;
+    private final IFFTZLoop[] ifftZLoop;
+
+    private IFFTRegion() {
+      ifftXYLoop = new IFFTXYLoop[threadCount];
+      ifftZLoop = new IFFTZLoop[threadCount];
+      for (int i = 0; i < threadCount; i++) {
+        ifftXYLoop[i] = new IFFTXYLoop();
+        ifftZLoop[i] = new IFFTZLoop();
+      }
+    }
+
+    @Override
+    public void run() {
+      int threadIndex = getThreadIndex();
+      try {
+        execute(0, nXm1, ifftZLoop[threadIndex]);
+        execute(0, nZm1, ifftXYLoop[threadIndex]);
+      } catch (Exception e) {
+        logger.severe(e.toString());
+      }
+    }
+  }
+
+  private class ConvolutionRegion extends ParallelRegion {
+
+    private final FFTXYLoop[] fftXYLoop;
+    private final FFTZIZLoop[] fftZIZLoop;
+    private final IFFTXYLoop[] ifftXYLoop;
+
+    private ConvolutionRegion() {
+      fftXYLoop = new FFTXYLoop[threadCount];
+      fftZIZLoop = new FFTZIZLoop[threadCount];
+      ifftXYLoop = new IFFTXYLoop[threadCount];
+      for (int i = 0; i < threadCount; i++) {
+        fftXYLoop[i] = new FFTXYLoop();
+        fftZIZLoop[i] = new FFTZIZLoop();
+        ifftXYLoop[i] = new IFFTXYLoop();
+      }
+    }
+
+    @Override
+    public void run() {
+      int threadIndex = getThreadIndex();
+      convolutionTime[threadIndex] -= System.nanoTime();
+      try {
+        execute(0, nZm1, fftXYLoop[threadIndex]);
+        execute(0, nYm1, fftZIZLoop[threadIndex]);
+        execute(0, nZm1, ifftXYLoop[threadIndex]);
+      } catch (Exception e) {
+        logger.severe(e.toString());
+      }
+      convolutionTime[threadIndex] += System.nanoTime();
+    }
+  }
+
+  private class FFTXYLoop extends IntegerForLoop {
+
+    private final double[] workX;
+    private final double[] workY;
+    private Complex localFFTX;
+    private Complex localFFTY;
+
+    private FFTXYLoop() {
+      workX = new double[nX2];
+      workY = new double[nY2];
+    }
+
+    @Override
+    public void run(final int lb, final int ub) {
+      for (int z = lb; z <= ub; z++) {
+        for (int offset = z * strideZ, y = 0; y < nY; y++, offset += strideY) {
+          load(offset, strideX, nX2, workX);
+          localFFTX.fft(workX, 0, 2);
+          store(offset, strideX, nX2, workX);
+        }
+        for (int offset = z * strideZ, x = 0; x < nX; x++, offset += strideX) {
+          load(offset, strideY, nY2, workY);
+          localFFTY.fft(workY, 0, 2);
+          store(offset, strideY, nY2, workY);
+        }
+      }
+    }
+
+    @Override
+    public IntegerSchedule schedule() {
+      return schedule;
+    }
+
+    @Override
+    public void start() {
+      localFFTX = fftX[getThreadIndex()];
+      localFFTY = fftY[getThreadIndex()];
+    }
+  }
+
+  private class FFTZLoop extends IntegerForLoop {
+
+    private final double[] work;
+    private Complex localFFTZ;
+
+    private FFTZLoop() {
+      work = new double[nZ2];
+    }
+
+    @Override
+    public void run(final int lb, final int ub) {
+      for (int x = lb, offset = lb * nY2; x <= ub; x++) {
+        for (int y = 0; y < nY; y++, offset += 2) {
+          load(offset, strideZ, nZ2, work);
+          localFFTZ.fft(work, 0, 2);
+          store(offset, strideZ, nZ2, work);
+        }
+      }
+    }
+
+    @Override
+    public IntegerSchedule schedule() {
+      return schedule;
+    }
+
+    @Override
+    public void start() {
+      localFFTZ = fftZ[getThreadIndex()];
+    }
+  }
+
+  private class IFFTXYLoop extends IntegerForLoop {
+
+    private final double[] workX;
+    private final double[] workY;
+    private Complex localFFTY;
+    private Complex localFFTX;
+
+    private IFFTXYLoop() {
+      workX = new double[nX2];
+      workY = new double[nY2];
+    }
+
+    @Override
+    public void run(final int lb, final int ub) {
+      for (int z = lb; z <= ub; z++) {
+        for (int offset = z * strideZ, x = 0; x < nX; x++, offset += strideX) {
+          load(offset, strideY, nY2, workY);
+          localFFTY.ifft(workY, 0, 2);
+          store(offset, strideY, nY2, workY);
+        }
+        for (int offset = z * strideZ, y = 0; y < nY; y++, offset += strideY) {
+          load(offset, strideX, nX2, workX);
+          localFFTX.ifft(workX, 0, 2);
+          store(offset, strideX, nX2, workX);
+        }
+      }
+    }
+
+    @Override
+    public IntegerSchedule schedule() {
+      return schedule;
+    }
+
+    @Override
+    public void start() {
+      localFFTX = fftX[getThreadIndex()];
+      localFFTY = fftY[getThreadIndex()];
+    }
+  }
+
+  private class IFFTZLoop extends IntegerForLoop {
+
+    private final double[] work;
+    private Complex localFFTZ;
+
+    private IFFTZLoop() {
+      work = new double[nZ2];
+    }
+
+    @Override
+    public void run(final int lb, final int ub) {
+      for (int offset = lb * nY2, x = lb; x <= ub; x++) {
+        for (int y = 0; y < nY; y++, offset += 2) {
+          load(offset, strideZ, nZ2, work);
+          localFFTZ.ifft(work, 0, 2);
+          store(offset, strideZ, nZ2, work);
+        }
+      }
+    }
+
+    @Override
+    public IntegerSchedule schedule() {
+      return schedule;
+    }
+
+    @Override
+    public void start() {
+      localFFTZ = fftZ[getThreadIndex()];
+    }
+  }
+
+  private class FFTZIZLoop extends IntegerForLoop {
+
+    private final double[] work;
+    private Complex localFFTZ;
+
+    private FFTZIZLoop() {
+      work = new double[nZ2];
+    }
+
+    @Override
+    public void run(final int lb, final int ub) {
+      int index = nX * nZ * lb;
+      for (int offset = lb * strideY, y = lb; y <= ub; y++) {
+        for (int x = 0; x < nX; x++, offset += 2) {
+          load(offset, strideZ, nZ2, work);
+          localFFTZ.fft(work, 0, 2);
+          for (int i = 0; i < nZ2; i += 2) {
+            double r = recip[index++];
+            work[i] *= r;
+            work[i + 1] *= r;
+          }
+          localFFTZ.ifft(work, 0, 2);
+          store(offset, strideZ, nZ2, work);
+        }
+      }
+    }
+
+    @Override
+    public IntegerSchedule schedule() {
+      return schedule;
+    }
+
+    @Override
+    public void start() {
+      localFFTZ = fftZ[getThreadIndex()];
+    }
+  }
+}
@@ -114,6 +114,46 @@ public class RunningStatistics {
     }
   }
 
+  /**
+   * Merge the values accumulated by another RunningStatistics instance into this one (Chan et al.
+   * pairwise update), so that accumulators filled concurrently can be combined.
+   *
+   * @param other Statistics to merge into this instance.
+   */
+  public void addStatistics(RunningStatistics other) {
+    if (other.count == 0) {
+      return;
+    }
+    if (count == 0) {
+      meanAcc = other.meanAcc;
+      varAcc = other.varAcc;
+      minAcc = other.minAcc;
+      maxAcc = other.maxAcc;
+      sumAcc = other.sumAcc;
+      comp = other.comp;
+      weightAcc = other.weightAcc;
+      count = other.count;
+      dof = other.dof;
+      return;
+    }
+
+    double weight = weightAcc + other.weightAcc;
+    double delta = other.meanAcc - meanAcc;
+    meanAcc += delta * other.weightAcc / weight;
+    varAcc += other.varAcc + delta * delta * weightAcc * other.weightAcc / weight;
+    weightAcc = weight;
+
+    double y = other.sumAcc - comp - other.comp;
+    double t = sumAcc + y;
+    comp = (t - sumAcc) - y;
+    sumAcc = t;
+
+    minAcc = min(minAcc, other.minAcc);
+    maxAcc = max(maxAcc, other.maxAcc);
+    count += other.count;
+    dof = count - 1;
+  }
+
   /**
    * Get the count.
    *
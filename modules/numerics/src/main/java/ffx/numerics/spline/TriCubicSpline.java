@@ -155,4 +155,112 @@ public class TriCubicSpline {
 
     return sum;
   }
+
+  /**
+   * Compute the 64 polynomial coefficients of the spline for a 4x4x4 block of scalar data.
+   *
+   * <p>The spline value is then the sum over a, b, c of dx^a dy^b dz^c coefficients[16a + 4b + c],
+   * which allows a cell to be evaluated repeatedly without gathering the scalar data again.
+   *
+   * @param scalar 3d array in x,y,z order of 3D scalar data
+   * @param coefficients the 64 polynomial coefficients (output).
+   */
+  public static void coefficients(double[][][] scalar, double[] coefficients) {
+    // Transform along z, then y, then x: C[a][b][c] = M[a][i] M[b][j] M[c][k] scalar[i][j][k].
+    for (int i = 0; i < 4; i++) {
+      for (int j = 0; j < 4; j++) {
+        double[] s = scalar[i][j];
+        transform(s[0], s[1], s[2], s[3], coefficients, 16 * i + 4 * j, 1);
+      }
+    }
+    for (int i = 0; i < 4; i++) {
+      for (int c = 0; c < 4; c++) {
+        int offset = 16 * i + c;
+        transform(
+            coefficients[offset],
+            coefficients[offset + 4],
+            coefficients[offset + 8],
+            coefficients[offset + 12],
+            coefficients,
+            offset,
+            4);
+      }
+    }
+    for (int b = 0; b < 4; b++) {
+      for (int c = 0; c < 4; c++) {
+        int offset = 4 * b + c;
+        transform(
+            coefficients[offset],
+            coefficients[offset + 16],
+            coefficients[offset + 32],
+            coefficients[offset + 48],
+            coefficients,
+            offset,
+            16);
+      }
+    }
+  }
+
+  /**
+   * Apply the Catmull-Rom matrix to 4 values and store the result with the given stride.
+   *
+   * @param s0 the first value.
+   * @param s1 the second value.
+   * @param s2 the third value.
+   * @param s3 the fourth value.
+   * @param result the result array.
+   * @param offset the index of the first result.
+   * @param stride the stride between results.
+   */
+  private static void transform(
+      double s0, double s1, double s2, double s3, double[] result, int offset, int stride) {
+    for (int a = 0; a < 4; a++) {
+      double[] m = catmullRomMat[a];
+      result[offset + a * stride] = m[0] * s0 + m[1] * s1 + m[2] * s2 + m[3] * s3;
+    }
+  }
+
+  /**
+   * Determine the spline value at a given point from precomputed polynomial coefficients.
+   *
+   * @param dx delta between point and previous grid point in X
+   * @param dy delta between point and previous grid point in Y
+   * @param dz delta between point and previous grid point in Z
+   * @param coefficients the 64 polynomial coefficients from {@link #coefficients(double[][][],
+   *     double[])}.
+   * @param g gradient array (can be null)
+   * @return the interpolated scalar value at the requested point
+   */
+  public static double spline(double dx, double dy, double dz, double[] coefficients, double[] g) {
+    double sum = 0.0;
+    double gx = 0.0, gy = 0.0, gz = 0.0;
+    // Horner's rule in x, with the yz polynomial (and its derivatives) for each power of x.
+    for (int a = 3; a >= 0; a--) {
+      double f = 0.0;
+      double fy = 0.0;
+      double fz = 0.0;
+      for (int b = 3; b >= 0; b--) {
+        int offset = 16 * a + 4 * b;
+        double c0 = coefficients[offset];
+        double c1 = coefficients[offset + 1];
+        double c2 = coefficients[offset + 2];
+        double c3 = coefficients[offset + 3];
+        double h = ((c3 * dz + c2) * dz + c1) * dz + c0;
+        double dh = (3.0 * c3 * dz + 2.0 * c2) * dz + c1;
+        fy = fy * dy + f;
+        f = f * dy + h;
+        fz = fz * dy + dh;
+      }
+      gx = gx * dx + sum;
+      sum = sum * dx + f;
+      gy = gy * dx + fy;
+      gz = gz * dx + fz;
+    }
+    if (g != null) {
+      g[0] = gx;
+      g[1] = gy;
+      g[2] = gz;
+    }
+    return sum;
+  }
 }
@@ -37,9 +37,11 @@
 // ******************************************************************************
 package ffx.numerics;
 
+import ffx.numerics.atomic.SparseDoubleArrayTest;
 import ffx.numerics.math.SquareRootTest;
 import ffx.numerics.multipole.MultipoleTensorTest;
 import ffx.numerics.special.ErfTest;
+import ffx.numerics.spline.TriCubicSplineTest;
 import ffx.numerics.spline.UniformBSplineTest;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
@@ -50,7 +52,9 @@ import org.junit.runners.Suite.SuiteClasses;
 @SuiteClasses({
   ErfTest.class,
   SquareRootTest.class,
+  SparseDoubleArrayTest.class,
   MultipoleTensorTest.class,
+  TriCubicSplineTest.class,
   UniformBSplineTest.class
 })
 public class NumericsTestSuite {}
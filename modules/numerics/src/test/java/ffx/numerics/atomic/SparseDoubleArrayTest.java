@@ -0,0 +1,120 @@
+// ******************************************************************************
+//
+// Title:       Force Field X.
+// Description: Force Field X - Software for Molecular Biophysics.
+// Copyright:   Copyright (c) Michael J. Schnieders 2001-2020.
+//
+// This file is part of Force Field X.
+//
+// Force Field X is free software; you can redistribute it and/or modify it
+// under the terms of the GNU General Public License version 3 as published by
+// the Free Software Foundation.
+//
+// Force Field X is distributed in the hope that it will be useful, but WITHOUT
+// ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+// FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+// details.
+//
+// You should have received a copy of the GNU General Public License along with
+// Force Field X; if not, write to the Free Software Foundation, Inc., 59 Temple
+// Place, Suite 330, Boston, MA 02111-1307 USA
+//
+// Linking this library statically or dynamically with other modules is making a
+// combined work based on this library. Thus, the terms and conditions of the
+// GNU General Public License cover the whole combination.
+//
+// As a special exception, the copyright holders of this library give you
+// permission to link this library with independent modules to produce an
+// executable, regardless of the license terms of these independent modules, and
+// to copy and distribute the resulting executable under terms of your choice,
+// provided that you also meet, for each linked independent module, the terms
+// and conditions of the license of that module. An independent module is a
+// module which is not derived from or based on this library. If you modify this
+// library, you may extend this exception to your version of the library, but
+// you are not obligated to do so. If you do not wish to do so, delete this
+// exception statement from your version.
+//
+package ffx.numerics.atomic;
+
+import static org.junit.Assert.assertEquals;
+
+import edu.rit.pj.ParallelTeam;
+import java.util.Random;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Test the SparseDoubleArray against the MultiDoubleArray. */
+public class SparseDoubleArrayTest {
+
+  private final int nThreads = 4;
+  private final int size = 1000;
+  private final double tolerance = 1.0e-12;
+  private ParallelTeam parallelTeam;
+
+  @Before
+  public void setUp() {
+    parallelTeam = new ParallelTeam(2);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    parallelTeam.shutdown();
+  }
+
+  @Test
+  public void testSparseReduction() {
+    SparseDoubleArray sparse = new SparseDoubleArray(nThreads, size);
+    MultiDoubleArray multi = new MultiDoubleArray(nThreads, size);
+    Random random = new Random(2020);
+    // Repeat to test that reset only needs to clear the touched blocks.
+    for (int pass = 0; pass < 4; pass++) {
+      sparse.reset(parallelTeam, 0, size - 1);
+      multi.reset(parallelTeam, 0, size - 1);
+      for (int t = 0; t < nThreads; t++) {
+        // Each thread operates on a localized subset of the array.
+        int start = random.nextInt(size - 100);
+        for (int j = 0; j < 200; j++) {
+          int index = start + random.nextInt(100);
+          double value = random.nextGaussian();
+          switch (j % 4) {
+            case 0:
+            case 1:
+              sparse.add(t, index, value);
+              multi.add(t, index, value);
+              break;
+            case 2:
+              sparse.sub(t, index, value);
+              multi.sub(t, index, value);
+              break;
+            default:
+              sparse.scale(t, index, value);
+              multi.scale(t, index, value);
+          }
+        }
+      }
+      if (pass % 2 == 0) {
+        sparse.reduce(parallelTeam, 0, size - 1);
+        multi.reduce(parallelTeam, 0, size - 1);
+      } else {
+        sparse.reduce(0, size - 1);
+        multi.reduce(0, size - 1);
+      }
+      for (int i = 0; i < size; i++) {
+        assertEquals(multi.get(i), sparse.get(i), tolerance);
+      }
+    }
+  }
+
+  @Test
+  public void testAlloc() {
+    SparseDoubleArray sparse = new SparseDoubleArray(nThreads, 10);
+    sparse.alloc(size);
+    assertEquals(size, sparse.size());
+    sparse.reset(parallelTeam, 0, size - 1);
+    sparse.add(0, size - 1, 1.0);
+    sparse.add(nThreads - 1, size - 1, 2.0);
+    sparse.reduce(0, size - 1);
+    assertEquals(3.0, sparse.get(size - 1), tolerance);
+  }
+}
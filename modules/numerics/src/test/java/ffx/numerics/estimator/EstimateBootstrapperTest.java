@@ -0,0 +1,136 @@
+// ******************************************************************************
+//
+// Title:       Force Field X.
+// Description: Force Field X - Software for Molecular Biophysics.
+// Copyright:   Copyright (c) Michael J. Schnieders 2001-2020.
+//
+// This file is part of Force Field X.
+//
+// Force Field X is free software; you can redistribute it and/or modify it
+// under the terms of the GNU General Public License version 3 as published by
+// the Free Software Foundation.
+//
+// Force Field X is distributed in the hope that it will be useful, but WITHOUT
+// ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+// FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+// details.
+//
+// You should have received a copy of the GNU General Public License along with
+// Force Field X; if not, write to the Free Software Foundation, Inc., 59 Temple
+// Place, Suite 330, Boston, MA 02111-1307 USA
+//
+// Linking this library statically or dynamically with other modules is making a
+// combined work based on this library. Thus, the terms and conditions of the
+// GNU General Public License cover the whole combination.
+//
+// As a special exception, the copyright holders of this library give you
+// permission to link this library with independent modules to produce an
+// executable, regardless of the license terms of these independent modules, and
+// to copy and distribute the resulting executable under terms of your choice,
+// provided that you also meet, for each linked independent module, the terms
+// and conditions of the license of that module. An independent module is a
+// module which is not derived from or based on this library. If you modify this
+// library, you may extend this exception to your version of the library, but
+// you are not obligated to do so. If you do not wish to do so, delete this
+// exception statement from your version.
+//
+// ******************************************************************************
+package ffx.numerics.estimator;
+
+import static org.junit.Assert.assertEquals;
+
+import ffx.numerics.math.RunningStatistics;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Tests the parallel bootstrap analysis of free energy estimators.
+ *
+ * @author Michael J. Schnieders
+ */
+public class EstimateBootstrapperTest {
+
+  private static final double TOL = 1.0E-10;
+  private static final int N_WINDOWS = 3;
+  private static final int N_SNAPSHOTS = 50;
+  private static final double[] TEMPERATURE = {298.15};
+
+  /** Merging accumulators must match accumulating every value in one instance. */
+  @Test
+  public void testMergeStatistics() {
+    Random random = new Random(42);
+    RunningStatistics all = new RunningStatistics();
+    RunningStatistics first = new RunningStatistics();
+    RunningStatistics second = new RunningStatistics();
+    for (int i = 0; i < 100; i++) {
+      double value = random.nextGaussian();
+      all.addValue(value);
+      if (i < 37) {
+        first.addValue(value);
+      } else {
+        second.addValue(value);
+      }
+    }
+    first.addStatistics(second);
+    assertEquals(all.getCount(), first.getCount());
+    assertEquals(all.getDOF(), first.getDOF());
+    assertEquals(all.getMean(), first.getMean(), TOL);
+    assertEquals(all.getVariance(), first.getVariance(), TOL);
+    assertEquals(all.getSum(), first.getSum(), TOL);
+    assertEquals(all.getMin(), first.getMin(), 0.0);
+    assertEquals(all.getMax(), first.getMax(), 0.0);
+  }
+
+  /** Bootstrap results for a given seed must not depend on the number of threads. */
+  @Test
+  public void testReproducibleBAR() {
+    BennettAcceptanceRatio bar = createBAR();
+    EstimateBootstrapper serial = new EstimateBootstrapper(bar);
+    serial.setRandomSeed(7L);
+    serial.bootstrap(500, 1000, 1);
+
+    EstimateBootstrapper parallel = new EstimateBootstrapper(bar);
+    parallel.setRandomSeed(7L);
+    parallel.bootstrap(500, 1000, 3);
+
+    double[] serialFE = serial.getFE();
+    double[] parallelFE = parallel.getFE();
+    double[] serialVar = serial.getVariance();
+    double[] parallelVar = parallel.getVariance();
+    for (int i = 0; i < N_WINDOWS - 1; i++) {
+      assertEquals(serialFE[i], parallelFE[i], TOL);
+      assertEquals(serialVar[i], parallelVar[i], TOL);
+      // The bootstrap mean should be close to the direct estimate.
+      assertEquals(bar.getBinEnergies()[i], serialFE[i], 0.1);
+    }
+  }
+
+  /** Bootstrap Zwanzig results for a given seed must not depend on the number of threads. */
+  @Test
+  public void testReproducibleZwanzig() {
+    BennettAcceptanceRatio bar = createBAR();
+    Zwanzig forwards = bar.getInitialForwardsGuess();
+    EstimateBootstrapper serial = new EstimateBootstrapper(forwards);
+    serial.setRandomSeed(11L);
+    serial.bootstrap(300, 1000, 1);
+
+    EstimateBootstrapper parallel = new EstimateBootstrapper(forwards);
+    parallel.setRandomSeed(11L);
+    parallel.bootstrap(300, 1000, 4);
+
+    assertEquals(serial.getTotalFE(), parallel.getTotalFE(), TOL);
+    assertEquals(serial.getTotalUncertainty(), parallel.getTotalUncertainty(), TOL);
+  }
+
+  /**
+   * Create a BAR estimator for synthetic Gaussian energy differences between windows.
+   *
+   * @return A BAR estimator.
+   */
+  private static BennettAcceptanceRatio createBAR() {
+    double[][][] energies =
+        SyntheticEnergies.createEnergies(N_WINDOWS, N_SNAPSHOTS, 2020, -1.0, 1.0, 0.5);
+    return new BennettAcceptanceRatio(SyntheticEnergies.createLambda(N_WINDOWS), energies[0],
+        energies[1], energies[2], TEMPERATURE);
+  }
+}
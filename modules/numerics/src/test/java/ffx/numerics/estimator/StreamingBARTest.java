@@ -0,0 +1,138 @@
+// ******************************************************************************
+//
+// Title:       Force Field X.
+// Description: Force Field X - Software for Molecular Biophysics.
+// Copyright:   Copyright (c) Michael J. Schnieders 2001-2020.
+//
+// This file is part of Force Field X.
+//
+// Force Field X is free software; you can redistribute it and/or modify it
+// under the terms of the GNU General Public License version 3 as published by
+// the Free Software Foundation.
+//
+// Force Field X is distributed in the hope that it will be useful, but WITHOUT
+// ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+// FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+// details.
+//
+// You should have received a copy of the GNU General Public License along with
+// Force Field X; if not, write to the Free Software Foundation, Inc., 59 Temple
+// Place, Suite 330, Boston, MA 02111-1307 USA
+//
+// Linking this library statically or dynamically with other modules is making a
+// combined work based on this library. Thus, the terms and conditions of the
+// GNU General Public License cover the whole combination.
+//
+// As a special exception, the copyright holders of this library give you
+// permission to link this library with independent modules to produce an
+// executable, regardless of the license terms of these independent modules, and
+// to copy and distribute the resulting executable under terms of your choice,
+// provided that you also meet, for each linked independent module, the terms
+// and conditions of the license of that module. An independent module is a
+// module which is not derived from or based on this library. If you modify this
+// library, you may extend this exception to your version of the library, but
+// you are not obligated to do so. If you do not wish to do so, delete this
+// exception statement from your version.
+//
+// ******************************************************************************
+package ffx.numerics.estimator;
+
+import static org.apache.commons.math3.util.FastMath.log;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Tests the streaming BAR estimator against the trajectory based BAR estimator.
+ *
+ * @author Michael J. Schnieders
+ */
+public class StreamingBARTest {
+
+  private static final double TOL = 1.0E-6;
+  private static final int N_WINDOWS = 4;
+  private static final int N_SNAPSHOTS = 200;
+  private static final double TEMPERATURE = 298.15;
+
+  /** Unweighted streaming samples must reproduce the trajectory based BAR estimate. */
+  @Test
+  public void testUnweighted() {
+    double[][][] energies = createEnergies();
+    double[] lambda = createLambda();
+    BennettAcceptanceRatio bar = new BennettAcceptanceRatio(lambda, energies[0], energies[1],
+        energies[2], new double[] {TEMPERATURE});
+
+    StreamingBAR streamingBAR = new StreamingBAR(lambda, TEMPERATURE);
+    // Interleave windows, as an OST simulation would visit them.
+    for (int j = 0; j < N_SNAPSHOTS; j++) {
+      for (int i = 0; i < N_WINDOWS; i++) {
+        streamingBAR.addSample(i, energies[0][i][j], energies[1][i][j], energies[2][i][j]);
+      }
+    }
+    streamingBAR.estimateDG();
+
+    assertEquals(N_SNAPSHOTS, streamingBAR.getSampleCount(0));
+    assertEquals(N_WINDOWS - 1, streamingBAR.numberOfBins());
+    double[] expected = bar.getBinEnergies();
+    double[] actual = streamingBAR.getBinEnergies();
+    double[] expectedUnc = bar.getBinUncertainties();
+    double[] actualUnc = streamingBAR.getBinUncertainties();
+    for (int i = 0; i < N_WINDOWS - 1; i++) {
+      assertEquals(expected[i], actual[i], TOL);
+      assertEquals(expectedUnc[i], actualUnc[i], TOL);
+    }
+    assertEquals(bar.getFreeEnergy(), streamingBAR.getFreeEnergy(), TOL);
+    assertEquals(bar.getUncertainty(), streamingBAR.getUncertainty(), TOL);
+  }
+
+  /** A sample with a log weight of log(2) must count the same as the sample added twice. */
+  @Test
+  public void testWeighted() {
+    double[][][] energies = createEnergies();
+    double[] lambda = createLambda();
+    StreamingBAR duplicated = new StreamingBAR(lambda, TEMPERATURE);
+    StreamingBAR weighted = new StreamingBAR(lambda, TEMPERATURE);
+    for (int i = 0; i < N_WINDOWS; i++) {
+      for (int j = 0; j < N_SNAPSHOTS; j++) {
+        double eLow = energies[0][i][j];
+        double eAt = energies[1][i][j];
+        double eHigh = energies[2][i][j];
+        // A constant bias offset within a window must not change the estimate.
+        double offset = 10.0 * i;
+        if (j % 2 == 0) {
+          duplicated.addSample(i, eLow, eAt, eHigh);
+          duplicated.addSample(i, eLow, eAt, eHigh);
+          weighted.addSample(i, eLow, eAt, eHigh, offset + log(2.0));
+        } else {
+          duplicated.addSample(i, eLow, eAt, eHigh);
+          weighted.addSample(i, eLow, eAt, eHigh, offset);
+        }
+      }
+    }
+    duplicated.estimateDG();
+    weighted.estimateDG();
+    double[] expected = duplicated.getBinEnergies();
+    double[] actual = weighted.getBinEnergies();
+    for (int i = 0; i < N_WINDOWS - 1; i++) {
+      assertEquals(expected[i], actual[i], TOL);
+    }
+  }
+
+  /**
+   * Create evenly spaced lambda values.
+   *
+   * @return The lambda values.
+   */
+  private static double[] createLambda() {
+    return SyntheticEnergies.createLambda(N_WINDOWS);
+  }
+
+  /**
+   * Create synthetic Gaussian energies at and adjacent to each window.
+   *
+   * @return Energies at the previous, current and next window.
+   */
+  private static double[][][] createEnergies() {
+    return SyntheticEnergies.createEnergies(N_WINDOWS, N_SNAPSHOTS, 2021, -0.8, 1.2, 0.4);
+  }
+}
@@ -0,0 +1,96 @@
+// ******************************************************************************
+//
+// Title:       Force Field X.
+// Description: Force Field X - Software for Molecular Biophysics.
+// Copyright:   Copyright (c) Michael J. Schnieders 2001-2020.
+//
+// This file is part of Force Field X.
+//
+// Force Field X is free software; you can redistribute it and/or modify it
+// under the terms of the GNU General Public License version 3 as published by
+// the Free Software Foundation.
+//
+// Force Field X is distributed in the hope that it will be useful, but WITHOUT
+// ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+// FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+// details.
+//
+// You should have received a copy of the GNU General Public License along with
+// Force Field X; if not, write to the Free Software Foundation, Inc., 59 Temple
+// Place, Suite 330, Boston, MA 02111-1307 USA
+//
+// Linking this library statically or dynamically with other modules is making a
+// combined work based on this library. Thus, the terms and conditions of the
+// GNU General Public License cover the whole combination.
+//
+// As a special exception, the copyright holders of this library give you
+// permission to link this library with independent modules to produce an
+// executable, regardless of the license terms of these independent modules, and
+// to copy and distribute the resulting executable under terms of your choice,
+// provided that you also meet, for each linked independent module, the terms
+// and conditions of the license of that module. An independent module is a
+// module which is not derived from or based on this library. If you modify this
+// library, you may extend this exception to your version of the library, but
+// you are not obligated to do so. If you do not wish to do so, delete this
+// exception statement from your version.
+//
+// ******************************************************************************
+package ffx.numerics.estimator;
+
+import java.util.Random;
+
+/**
+ * Synthetic Gaussian energies for testing free energy estimators.
+ *
+ * @author Michael J. Schnieders
+ */
+final class SyntheticEnergies {
+
+  private SyntheticEnergies() {}
+
+  /**
+   * Create evenly spaced lambda values.
+   *
+   * @param nWindows The number of lambda windows.
+   * @return The lambda values.
+   */
+  static double[] createLambda(int nWindows) {
+    double[] lambda = new double[nWindows];
+    for (int i = 0; i < nWindows; i++) {
+      lambda[i] = i / (nWindows - 1.0);
+    }
+    return lambda;
+  }
+
+  /**
+   * Create Gaussian energies at each window, with Gaussian energy differences to the adjacent
+   * windows. Energies beyond the first and last window are NaN.
+   *
+   * @param nWindows The number of lambda windows.
+   * @param nSnapshots The number of snapshots per window.
+   * @param seed The random seed.
+   * @param lowShift Mean of U(L-dL) - U(L).
+   * @param highShift Mean of U(L+dL) - U(L).
+   * @param sigma Standard deviation of the energy differences.
+   * @return Energies at the previous, current and next window, indexed by window and snapshot.
+   */
+  static double[][][] createEnergies(
+      int nWindows, int nSnapshots, long seed, double lowShift, double highShift, double sigma) {
+    Random random = new Random(seed);
+    double[][] eLow = new double[nWindows][nSnapshots];
+    double[][] eAt = new double[nWindows][nSnapshots];
+    double[][] eHigh = new double[nWindows][nSnapshots];
+    for (int i = 0; i < nWindows; i++) {
+      for (int j = 0; j < nSnapshots; j++) {
+        eAt[i][j] = random.nextGaussian();
+        eLow[i][j] =
+            (i == 0) ? Double.NaN : eAt[i][j] + lowShift + sigma * random.nextGaussian();
+        eHigh[i][j] =
+            (i == nWindows - 1)
+                ? Double.NaN
+                : eAt[i][j] + highShift + sigma * random.nextGaussian();
+      }
+    }
+    return new double[][][] {eLow, eAt, eHigh};
+  }
+}
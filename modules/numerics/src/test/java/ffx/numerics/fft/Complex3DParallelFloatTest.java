@@ -0,0 +1,135 @@
+// ******************************************************************************
+//
+// Title:       Force Field X.
+// Description: Force Field X - Software for Molecular Biophysics.
+// Copyright:   Copyright (c) Michael J. Schnieders 2001-2020.
+//
+// This file is part of Force Field X.
+//
+// Force Field X is free software; you can redistribute it and/or modify it
+// under the terms of the GNU General Public License version 3 as published by
+// the Free Software Foundation.
+//
+// Force Field X is distributed in the hope that it will be useful, but WITHOUT
+// ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+// FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+// details.
+//
+// You should have received a copy of the GNU General Public License along with
+// Force Field X; if not, write to the Free Software Foundation, Inc., 59 Temple
+// Place, Suite 330, Boston, MA 02111-1307 USA
+//
+// Linking this library statically or dynamically with other modules is making a
+// combined work based on this library. Thus, the terms and conditions of the
+// GNU General Public License cover the whole combination.
+//
+// As a special exception, the copyright holders of this library give you
+// permission to link this library with independent modules to produce an
+// executable, regardless of the license terms of these independent modules, and
+// to copy and distribute the resulting executable under terms of your choice,
+// provided that you also meet, for each linked independent module, the terms
+// and conditions of the license of that module. An independent module is a
+// module which is not derived from or based on this library. If you modify this
+// library, you may extend this exception to your version of the library, but
+// you are not obligated to do so. If you do not wish to do so, delete this
+// exception statement from your version.
+//
+// ******************************************************************************
+package ffx.numerics.fft;
+
+import static org.junit.Assert.assertEquals;
+
+import edu.rit.pj.ParallelTeam;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Random;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+/** Test the single precision 3D FFT against the double precision Complex3DParallel. */
+@RunWith(Parameterized.class)
+public class Complex3DParallelFloatTest {
+
+  private final String info;
+  private final int nx;
+  private final int ny;
+  private final int nz;
+  private final int tot;
+  private final double[] data;
+  private final float[] floatData;
+  private final double[] recip;
+  private final ParallelTeam parallelTeam;
+  private final double tolerance = 1.0e-5;
+
+  public Complex3DParallelFloatTest(String info, int nx, int ny, int nz, int nCPUs) {
+    this.info = info;
+    this.nx = nx;
+    this.ny = ny;
+    this.nz = nz;
+    tot = nx * ny * nz;
+    data = new double[tot * 2];
+    floatData = new float[tot * 2];
+    recip = new double[tot];
+    parallelTeam = new ParallelTeam(nCPUs);
+  }
+
+  @Parameters
+  public static Collection<Object[]> data() {
+    return Arrays.asList(
+        new Object[][] {
+          {"Test nx=32, ny=32, nz=32, nCPUs=1}", 32, 32, 32, 1},
+          {"Test nx=32, ny=32, nz=32, nCPUs=2}", 32, 32, 32, 2},
+          {"Test nx=32, ny=45, nz=21, nCPUs=1}", 32, 45, 21, 1},
+          {"Test nx=32, ny=45, nz=21, nCPUs=2}", 32, 45, 21, 2}
+        });
+  }
+
+  @Before
+  public void setUp() {
+    Random random = new Random(1);
+    for (int i = 0; i < tot; i++) {
+      int index = i * 2;
+      float r = random.nextFloat();
+      data[index] = r;
+      floatData[index] = r;
+      recip[i] = random.nextDouble();
+    }
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    parallelTeam.shutdown();
+  }
+
+  /** Test the convolution against the double precision result. */
+  @Test
+  public void testConvolution() {
+    Complex3DParallel complex3D = new Complex3DParallel(nx, ny, nz, parallelTeam);
+    complex3D.setRecip(recip);
+    complex3D.convolution(data);
+    Complex3DParallelFloat complex3DFloat =
+        new Complex3DParallelFloat(nx, ny, nz, parallelTeam, null);
+    complex3DFloat.setRecip(recip);
+    complex3DFloat.convolution(floatData);
+    for (int i = 0; i < tot * 2; i++) {
+      assertEquals(info, data[i] / tot, floatData[i] / tot, tolerance);
+    }
+  }
+
+  /** Test that the fft followed by the inverse fft recovers the input. */
+  @Test
+  public void testFft() {
+    Complex3DParallelFloat complex3DFloat =
+        new Complex3DParallelFloat(nx, ny, nz, parallelTeam, null);
+    complex3DFloat.fft(floatData);
+    complex3DFloat.ifft(floatData);
+    for (int i = 0; i < tot; i++) {
+      int index = i * 2;
+      assertEquals(info, data[index], floatData[index] / tot, tolerance);
+    }
+  }
+}
@@ -47,6 +47,7 @@ import org.junit.runners.Suite.SuiteClasses;
   ComplexTest.class,
   Complex3DTest.class,
   Complex3DParallelTest.class,
+  Complex3DParallelFloatTest.class,
   RealTest.class,
   Real3DTest.class,
   Real3DParallelTest.class
@@ -0,0 +1,91 @@
+// ******************************************************************************
+//
+// Title:       Force Field X.
+// Description: Force Field X - Software for Molecular Biophysics.
+// Copyright:   Copyright (c) Michael J. Schnieders 2001-2020.
+//
+// This file is part of Force Field X.
+//
+// Force Field X is free software; you can redistribute it and/or modify it
+// under the terms of the GNU General Public License version 3 as published by
+// the Free Software Foundation.
+//
+// Force Field X is distributed in the hope that it will be useful, but WITHOUT
+// ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+// FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+// details.
+//
+// You should have received a copy of the GNU General Public License along with
+// Force Field X; if not, write to the Free Software Foundation, Inc., 59 Temple
+// Place, Suite 330, Boston, MA 02111-1307 USA
+//
+// Linking this library statically or dynamically with other modules is making a
+// combined work based on this library. Thus, the terms and conditions of the
+// GNU General Public License cover the whole combination.
+//
+// As a special exception, the copyright holders of this library give you
+// permission to link this library with independent modules to produce an
+// executable, regardless of the license terms of these independent modules, and
+// to copy and distribute the resulting executable under terms of your choice,
+// provided that you also meet, for each linked independent module, the terms
+// and conditions of the license of that module. An independent module is a
+// module which is not derived from or based on this library. If you modify this
+// library, you may extend this exception to your version of the library, but
+// you are not obligated to do so. If you do not wish to do so, delete this
+// exception statement from your version.
+//
+package ffx.numerics.spline;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Test of the TriCubicSpline class.
+ *
+ * @author Michael J. Schnieders
+ * @since 1.0
+ */
+public class TriCubicSplineTest {
+
+  private static final double tolerance = 1.0e-12;
+
+  /** The polynomial coefficient form must reproduce the tensor product spline and its gradient. */
+  @Test
+  public void testCoefficients() {
+    Random random = new Random(1);
+    double[][][] scalar = new double[4][4][4];
+    for (int i = 0; i < 4; i++) {
+      for (int j = 0; j < 4; j++) {
+        for (int k = 0; k < 4; k++) {
+          scalar[i][j][k] = random.nextGaussian();
+        }
+      }
+    }
+    double[] coefficients = new double[64];
+    TriCubicSpline.coefficients(scalar, coefficients);
+
+    TriCubicSpline spline = new TriCubicSpline();
+    double[] g = new double[3];
+    double[] gc = new double[3];
+    for (int n = 0; n < 100; n++) {
+      double dx = random.nextDouble();
+      double dy = random.nextDouble();
+      double dz = random.nextDouble();
+      double expected = spline.spline(dx, dy, dz, scalar, g);
+      double actual = TriCubicSpline.spline(dx, dy, dz, coefficients, gc);
+      assertEquals(" Spline value", expected, actual, tolerance);
+      for (int i = 0; i < 3; i++) {
+        assertEquals(" Spline gradient", g[i], gc[i], tolerance);
+      }
+    }
+
+    // At a grid point the Catmull-Rom spline interpolates the data.
+    assertEquals(
+        " Spline at grid point",
+        scalar[1][1][1],
+        TriCubicSpline.spline(0.0, 0.0, 0.0, coefficients, null),
+        tolerance);
+  }
+}
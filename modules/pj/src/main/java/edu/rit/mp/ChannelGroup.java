@@ -39,11 +39,14 @@
 //******************************************************************************
 package edu.rit.mp;
 
+import java.io.EOFException;
+import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
@@ -191,6 +194,25 @@ import edu.rit.util.TimerThread;
  * destination buffer. The loopback channel does not do any network
  * communication.
  * <P>
+ * <B>Sending and Receiving Within the Same Host</B>
+ * <P>
+ * When a connection is set up between two channel groups in different
+ * processes on the same host, the channel passes messages through a pair of
+ * ring buffers in a memory-mapped file rather than through the socket. This is
+ * transparent to the application; if the shared memory file cannot be created
+ * or opened, the channel falls back to the socket. See class
+ * {@linkplain SharedMemoryPipe} for the system properties that control shared
+ * memory channels.
+ * <P>
+ * <B>Shared I/O Threads</B>
+ * <P>
+ * By default, each network channel has its own send thread and receive thread.
+ * If the <code>"pj.iothreads"</code> system property is set to <I>N</I> &gt; 0,
+ * all network channels of a channel group are instead serviced by a pool of
+ * <I>N</I> I/O threads using non-blocking sockets; see class
+ * {@linkplain SelectorEngine}. This keeps the number of threads per process
+ * fixed as the number of processes grows.
+ * <P>
  * <B>Non-Blocking Send and Receive Operations</B>
  * <P>
  * The <code>send()</code> method described so far does a <B>blocking send</B>
@@ -252,6 +274,10 @@ public class ChannelGroup {
     // For timeouts during channel setup.
     TimerThread myTimerThread;
 
+    // Shared I/O threads for network channels, or null if each network
+    // channel has its own send and receive threads.
+    SelectorEngine mySelectorEngine;
+
 // Hidden helper classes.
     /**
      * Class AcceptThread provides a thread that accepts incoming connections.
@@ -1026,6 +1052,11 @@ public class ChannelGroup {
             }
         }
 
+        // Stop the shared I/O threads.
+        if (mySelectorEngine != null) {
+            mySelectorEngine.close();
+        }
+
         // Report failure to all pending receive requests.
         if (myIORequestList != null) {
             myIORequestList.reportFailure(new ChannelGroupClosedException("Channel group closed"));
@@ -1038,6 +1069,7 @@ public class ChannelGroup {
         myLoopbackChannel = null;
         myChannelList = null;
         myAcceptThread = null;
+        mySelectorEngine = null;
     }
 
     /**
@@ -1065,6 +1097,7 @@ public class ChannelGroup {
         out.println(prefix + "myConnectListener = " + myConnectListener);
         out.println(prefix + "myLogger = " + myLogger);
         out.println(prefix + "myTimerThread = " + myTimerThread);
+        out.println(prefix + "mySelectorEngine = " + mySelectorEngine);
     }
 
 // Hidden operations.
@@ -1108,13 +1141,16 @@ public class ChannelGroup {
         if (theSocketChannel.read(buf) != 4) {
             throw new IOException("ChannelGroup.nearEndConnect(): Cannot receive channel group ID");
         }
-        timer.stop();
         buf.flip();
         int farChannelGroupId = buf.getInt();
 
+        // Offer the far end a shared memory channel.
+        SharedMemoryPipe[] pipes = offerSharedMemory(theSocketChannel);
+        timer.stop();
+
         // Set up channel.
         Channel channel
-                = createNetworkChannel(theSocketChannel, farChannelGroupId);
+                = createNetworkChannel(theSocketChannel, farChannelGroupId, pipes);
 
         // Inform listener if any.
         if (myConnectListener != null) {
@@ -1162,7 +1198,6 @@ public class ChannelGroup {
             if (theSocketChannel.read(buf) != 4) {
                 throw new IOException("ChannelGroup.farEndConnect(): Cannot receive channel group ID");
             }
-            timer.stop();
             buf.flip();
             int farChannelGroupId = buf.getInt();
 
@@ -1174,9 +1209,13 @@ public class ChannelGroup {
                 throw new IOException("ChannelGroup.farEndConnect(): Cannot send channel group ID");
             }
 
+            // Accept or decline the far end's shared memory channel offer.
+            SharedMemoryPipe[] pipes = acceptSharedMemory(theSocketChannel);
+            timer.stop();
+
             // Set up channel.
             Channel channel
-                    = createNetworkChannel(theSocketChannel, farChannelGroupId);
+                    = createNetworkChannel(theSocketChannel, farChannelGroupId, pipes);
 
             // Inform listener if any.
             if (myConnectListener != null) {
@@ -1195,23 +1234,205 @@ public class ChannelGroup {
     }
 
     /**
-     * Create a new network channel using the given socket channel. If this
-     * channel group is closed, null is returned.
+     * Offer the far end of the given socket channel a shared memory channel.
+     * If the far end appears to be on this host, a shared memory file is
+     * created and its name is sent; otherwise an empty name is sent. The far
+     * end accepts the offer only if it can open the file, which proves that
+     * both ends are on the same host.
+     *
+     * @param theSocketChannel Socket channel.
+     *
+     * @return Outgoing and incoming shared memory pipes if the far end
+     * accepted, null otherwise.
+     *
+     * @exception IOException Thrown if an I/O error occurred.
+     */
+    private SharedMemoryPipe[] offerSharedMemory(SocketChannel theSocketChannel)
+            throws IOException {
+        // Create the shared memory file if the far end is on this host.
+        Socket socket = theSocketChannel.socket();
+        File file = null;
+        SharedMemoryPipe[] pipes = null;
+        if (SharedMemoryPipe.ENABLED
+                && SharedMemoryPipe.DIRECTORY.isDirectory()
+                && (socket.getInetAddress().isLoopbackAddress()
+                || socket.getInetAddress().equals(socket.getLocalAddress()))) {
+            try {
+                file = SharedMemoryPipe.createFile();
+                pipes = SharedMemoryPipe.open(file, true);
+            } catch (IOException exc) {
+                myLogger.log("ChannelGroup: Cannot create shared memory channel",
+                        exc);
+                if (file != null) {
+                    file.delete();
+                    file = null;
+                }
+            }
+        }
+
+        try {
+            // Send shared memory file name (empty if none) to far end.
+            byte[] name = file == null ? new byte[0]
+                    : file.getName().getBytes(StandardCharsets.UTF_8);
+            ByteBuffer buf = ByteBuffer.allocate(4 + name.length);
+            buf.putInt(name.length);
+            buf.put(name);
+            buf.flip();
+            writeFully(theSocketChannel, buf);
+
+            // Receive far end's reply.
+            buf = ByteBuffer.allocate(4);
+            readFully(theSocketChannel, buf);
+            buf.flip();
+            return buf.getInt() == 1 ? pipes : null;
+        } finally {
+            // Both ends have mapped the file by now, so remove its name.
+            if (file != null) {
+                file.delete();
+            }
+        }
+    }
+
+    /**
+     * Receive a shared memory channel offer from the far end of the given
+     * socket channel, and accept it if the shared memory file can be opened.
+     *
+     * @param theSocketChannel Socket channel.
+     *
+     * @return Outgoing and incoming shared memory pipes if the offer was
+     * accepted, null otherwise.
+     *
+     * @exception IOException Thrown if an I/O error occurred.
+     */
+    private SharedMemoryPipe[] acceptSharedMemory(SocketChannel theSocketChannel)
+            throws IOException {
+        // Receive shared memory file name.
+        ByteBuffer buf = ByteBuffer.allocate(4);
+        readFully(theSocketChannel, buf);
+        buf.flip();
+        int length = buf.getInt();
+        if (length < 0 || length > 1024) {
+            throw new IOException("ChannelGroup.acceptSharedMemory(): Invalid file name length");
+        }
+        buf = ByteBuffer.allocate(length);
+        readFully(theSocketChannel, buf);
+        String name = new String(buf.array(), StandardCharsets.UTF_8);
+
+        // Only open files created by another channel group in the shared
+        // memory directory.
+        SharedMemoryPipe[] pipes = null;
+        File file = new File(SharedMemoryPipe.DIRECTORY, new File(name).getName());
+        if (SharedMemoryPipe.ENABLED
+                && name.startsWith("pj-") && name.endsWith(".shm")
+                && file.isFile()) {
+            try {
+                pipes = SharedMemoryPipe.open(file, false);
+            } catch (IOException exc) {
+                myLogger.log("ChannelGroup: Cannot open shared memory channel",
+                        exc);
+            }
+        }
+
+        // Send reply to far end.
+        buf = ByteBuffer.allocate(4);
+        buf.putInt(pipes == null ? 0 : 1);
+        buf.flip();
+        writeFully(theSocketChannel, buf);
+        return pipes;
+    }
+
+    /**
+     * Read bytes from the given socket channel until the given buffer is full.
+     *
+     * @param theSocketChannel Socket channel.
+     * @param buf Byte buffer.
+     *
+     * @exception IOException Thrown if an I/O error occurred.
+     */
+    private static void readFully(SocketChannel theSocketChannel,
+            ByteBuffer buf)
+            throws IOException {
+        while (buf.hasRemaining()) {
+            if (theSocketChannel.read(buf) == -1) {
+                throw new EOFException("ChannelGroup: Unexpected end-of-stream during channel setup");
+            }
+        }
+    }
+
+    /**
+     * Write all remaining bytes in the given buffer to the given socket
+     * channel.
+     *
+     * @param theSocketChannel Socket channel.
+     * @param buf Byte buffer.
+     *
+     * @exception IOException Thrown if an I/O error occurred.
+     */
+    private static void writeFully(SocketChannel theSocketChannel,
+            ByteBuffer buf)
+            throws IOException {
+        while (buf.hasRemaining()) {
+            theSocketChannel.write(buf);
+        }
+    }
+
+    /**
+     * Create a new network channel using the given socket channel. If shared
+     * memory pipes are given, a shared memory channel is created instead. If
+     * this channel group is closed, null is returned.
+     *
+     * @param theSocketChannel Socket channel.
+     * @param theFarChannelGroupId Far end channel group ID.
+     * @param thePipes Outgoing and incoming shared memory pipes, or null.
+     *
+     * @return New channel, or null.
+     *
+     * @exception IOException Thrown if an I/O error occurred.
+     */
+    Channel createNetworkChannel(SocketChannel theSocketChannel,
+            int theFarChannelGroupId,
+            SharedMemoryPipe[] thePipes)
+            throws IOException {
+        return createNetworkChannel(theSocketChannel, theFarChannelGroupId,
+                thePipes, SelectorEngine.THREADS);
+    }
+
+    /**
+     * Create a new network channel using the given socket channel, serviced by
+     * a selector engine with the given number of I/O threads if that number is
+     * greater than 0. The selector engine is created with the first channel
+     * that needs one.
      *
      * @param theSocketChannel Socket channel.
      * @param theFarChannelGroupId Far end channel group ID.
+     * @param thePipes Outgoing and incoming shared memory pipes, or null.
+     * @param theIOThreads Number of selector engine I/O threads, or 0.
      *
      * @return New channel, or null.
      *
      * @exception IOException Thrown if an I/O error occurred.
      */
     synchronized Channel createNetworkChannel(SocketChannel theSocketChannel,
-            int theFarChannelGroupId)
+            int theFarChannelGroupId,
+            SharedMemoryPipe[] thePipes,
+            int theIOThreads)
             throws IOException {
         Channel channel = null;
         if (myIORequestList != null) {
-            channel
-                    = new NetworkChannel(this, theSocketChannel, theFarChannelGroupId);
+            if (thePipes != null) {
+                channel = new SharedMemoryChannel(this, theSocketChannel,
+                        theFarChannelGroupId, thePipes);
+            } else if (theIOThreads > 0) {
+                if (mySelectorEngine == null) {
+                    mySelectorEngine = new SelectorEngine(theIOThreads, myLogger);
+                    myIORequestList.myAddListener = mySelectorEngine::requestAdded;
+                }
+                channel = new SelectorChannel(this, theSocketChannel,
+                        theFarChannelGroupId, mySelectorEngine);
+            } else {
+                channel
+                        = new NetworkChannel(this, theSocketChannel, theFarChannelGroupId);
+            }
             myChannelList.add(channel);
         }
         return channel;
@@ -56,6 +56,9 @@ class IORequestList {
 // Hidden data members.
     LinkedList<IORequest> myList = new LinkedList<IORequest>();
 
+    // Action to run whenever an I/O request is added, or null if none.
+    Runnable myAddListener;
+
 // Exported constructors.
     /**
      * Construct a new I/O request list.
@@ -70,9 +73,15 @@ class IORequestList {
      *
      * @param theIORequest I/O request.
      */
-    public synchronized void add(IORequest theIORequest) {
-        myList.add(theIORequest);
-        notifyAll();
+    public void add(IORequest theIORequest) {
+        synchronized (this) {
+            myList.add(theIORequest);
+            notifyAll();
+        }
+        Runnable listener = myAddListener;
+        if (listener != null) {
+            listener.run();
+        }
     }
 
     /**
@@ -41,7 +41,9 @@ package edu.rit.mp;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.concurrent.LinkedBlockingQueue;
 
 /**
@@ -131,11 +133,29 @@ class NetworkChannel
     void start() {
         myNetworkChannelSendThread
                 = new NetworkChannelSendThread(this,
-                        mySocketChannel,
+                        output(),
                         myOutgoingQueue);
         myNetworkChannelReceiveThread
                 = new NetworkChannelReceiveThread(this,
-                        mySocketChannel);
+                        input());
+    }
+
+    /**
+     * Obtain the byte channel from which incoming messages are read.
+     *
+     * @return Input byte channel.
+     */
+    ReadableByteChannel input() {
+        return mySocketChannel;
+    }
+
+    /**
+     * Obtain the byte channel to which outgoing messages are written.
+     *
+     * @return Output byte channel.
+     */
+    WritableByteChannel output() {
+        return mySocketChannel;
     }
 
     /**
@@ -43,7 +43,7 @@ import java.io.EOFException;
 import java.io.IOException;
 import java.io.InterruptedIOException;
 import java.nio.ByteBuffer;
-import java.nio.channels.SocketChannel;
+import java.nio.channels.ReadableByteChannel;
 
 /**
  * Class NetworkChannelReceiveThread provides a thread for receiving incoming
@@ -60,8 +60,8 @@ class NetworkChannelReceiveThread
     private NetworkChannel myNetworkChannel;
     private ChannelGroup myChannelGroup;
 
-    // Underlying socket channel.
-    private SocketChannel mySocketChannel;
+    // Underlying socket channel or shared memory pipe.
+    private ReadableByteChannel mySocketChannel;
 
     // Queue of incoming I/O requests.
     private IORequestList myIORequestList;
@@ -74,10 +74,10 @@ class NetworkChannelReceiveThread
      * Construct a new network channel receive thread.
      *
      * @param theNetworkChannel Enclosing network channel.
-     * @param theSocketChannel Underlying socket channel.
+     * @param theSocketChannel Underlying socket channel or shared memory pipe.
      */
     NetworkChannelReceiveThread(NetworkChannel theNetworkChannel,
-            SocketChannel theSocketChannel) {
+            ReadableByteChannel theSocketChannel) {
         myNetworkChannel = theNetworkChannel;
         myChannelGroup = theNetworkChannel.myChannelGroup;
         mySocketChannel = theSocketChannel;
@@ -41,7 +41,7 @@ package edu.rit.mp;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.concurrent.LinkedBlockingQueue;
 
 /**
@@ -58,8 +58,8 @@ class NetworkChannelSendThread
     // Enclosing network channel.
     private NetworkChannel myNetworkChannel;
 
-    // Underlying socket channel.
-    private SocketChannel mySocketChannel;
+    // Underlying socket channel or shared memory pipe.
+    private WritableByteChannel mySocketChannel;
 
     // Queue of outgoing I/O requests.
     private LinkedBlockingQueue<IORequest> myOutgoingQueue;
@@ -72,11 +72,11 @@ class NetworkChannelSendThread
      * Construct a new network channel send thread.
      *
      * @param theNetworkChannel Enclosing network channel.
-     * @param theSocketChannel Underlying socket channel.
+     * @param theSocketChannel Underlying socket channel or shared memory pipe.
      * @param theOutgoingQueue Queue of outgoing I/O requests.
      */
     NetworkChannelSendThread(NetworkChannel theNetworkChannel,
-            SocketChannel theSocketChannel,
+            WritableByteChannel theSocketChannel,
             LinkedBlockingQueue<IORequest> theOutgoingQueue) {
         myNetworkChannel = theNetworkChannel;
         mySocketChannel = theSocketChannel;
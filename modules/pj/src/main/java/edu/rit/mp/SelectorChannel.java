@@ -0,0 +1,524 @@
+//******************************************************************************
+//
+// File:    SelectorChannel.java
+// Package: edu.rit.mp
+// Unit:    Class edu.rit.mp.SelectorChannel
+//
+// Additional file added 10/19/2026 by Michael J. Schnieders to the Parallel
+// Java Library as maintained within Force Field X.
+//
+// This Java source file is part of the Parallel Java Library ("PJ"). PJ is free
+// software; you can redistribute it and/or modify it under the terms of the GNU
+// General Public License as published by the Free Software Foundation; either
+// version 3 of the License, or (at your option) any later version.
+//
+// PJ is distributed in the hope that it will be useful, but WITHOUT ANY
+// WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+// A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+//
+// Linking this library statically or dynamically with other modules is making a
+// combined work based on this library. Thus, the terms and conditions of the GNU
+// General Public License cover the whole combination.
+//
+// As a special exception, the copyright holders of this library give you
+// permission to link this library with independent modules to produce an
+// executable, regardless of the license terms of these independent modules, and
+// to copy and distribute the resulting executable under terms of your choice,
+// provided that you also meet, for each linked independent module, the terms
+// and conditions of the license of that module. An independent module is a module
+// which is not derived from or based on this library. If you modify this library,
+// you may extend this exception to your version of the library, but you are not
+// obligated to do so. If you do not wish to do so, delete this exception
+// statement from your version.
+//
+// A copy of the GNU General Public License is provided in the file gpl.txt. You
+// may also obtain a copy of the GNU General Public License on the World Wide
+// Web at http://www.gnu.org/licenses/gpl.html.
+//
+//******************************************************************************
+package edu.rit.mp;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Class SelectorChannel provides a channel for sending and receiving messages
+ * over the network in the Message Protocol (MP), serviced by a shared
+ * {@linkplain SelectorEngine} I/O thread rather than by its own send and
+ * receive threads. The messages on the wire are the same as for a
+ * {@linkplain NetworkChannel}.
+ * <P>
+ * Outgoing messages are written with gathering writes of the message header
+ * and a buffer of message items. As with a network channel, once the header of
+ * an incoming message has been read, no further bytes are read from the socket
+ * until a matching receive request shows up.
+ *
+ * @author Michael J. Schnieders
+ * @since 1.0
+ */
+class SelectorChannel
+        extends NetworkChannel {
+
+// Hidden data members.
+    // Underlying socket channel.
+    private SocketChannel mySocketChannel;
+
+    // Selector engine, I/O thread, and selection key.
+    private SelectorEngine mySelectorEngine;
+    private SelectorEngine.IOThread myIOThread;
+    private SelectionKey myKey;
+
+    // Queue of outgoing I/O requests.
+    private ConcurrentLinkedQueue<IORequest> myOutgoingQueue
+            = new ConcurrentLinkedQueue<IORequest>();
+
+    // State of the message being sent. Only accessed by the I/O thread.
+    private IORequest mySendRequest;
+    private int mySendIndex;
+    private ByteBuffer mySendHeader = ByteBuffer.allocateDirect(13);
+    private ByteBuffer mySendBuffer;
+    private ByteBuffer[] myGather = new ByteBuffer[2];
+
+    // State of the message being received. Only accessed by the I/O thread.
+    // The receive buffer, if any, is kept ready for reading.
+    private ByteBuffer myReceiveBuffer;
+    private boolean myHeaderValid;
+    private int myMessageTag;
+    private byte myMessageType;
+    private int myMessageLength;
+    private IORequest myReceiveRequest;
+    private int myReceiveIndex;
+    private int myReceiveCount;
+    private int mySkipCount;
+
+// Hidden constructors.
+    /**
+     * Construct a new selector channel.
+     *
+     * @param theChannelGroup Enclosing channel group.
+     * @param theSocketChannel Underlying socket channel.
+     * @param theFarChannelGroupId Far end channel group ID.
+     * @param theSelectorEngine Selector engine.
+     */
+    SelectorChannel(ChannelGroup theChannelGroup,
+            SocketChannel theSocketChannel,
+            int theFarChannelGroupId,
+            SelectorEngine theSelectorEngine) {
+        super(theChannelGroup, theSocketChannel, theFarChannelGroupId);
+        mySocketChannel = theSocketChannel;
+        mySelectorEngine = theSelectorEngine;
+    }
+
+// Hidden operations.
+    /**
+     * Start sending and receiving messages via this channel.
+     */
+    synchronized void start() {
+        try {
+            mySocketChannel.configureBlocking(false);
+        } catch (IOException exc) {
+            myChannelGroup.myLogger.log("SelectorChannel: Cannot start channel", exc);
+            close();
+            return;
+        }
+        myIOThread = mySelectorEngine.assign(this);
+        myIOThread.execute(this::register);
+    }
+
+    /**
+     * Send a message via this channel. The I/O request object must be newly
+     * constructed with the message tag and source buffer fields filled in. This
+     * method returns immediately and lets the message be sent in the I/O
+     * thread. The calling thread should use the I/O request object to wait for
+     * the message send to complete.
+     *
+     * @param theIORequest I/O request object.
+     *
+     * @exception IOException Thrown if an I/O error occurred.
+     */
+    synchronized void send(IORequest theIORequest)
+            throws IOException {
+        // Check whether channel is closed.
+        if (myWriteState == WRITE_CLOSED) {
+            throw new IOException("SelectorChannel.send(): Channel closed");
+        }
+
+        // If the channel has not started yet, the request is picked up when
+        // the channel registers with its I/O thread.
+        myOutgoingQueue.add(theIORequest);
+        if (myIOThread != null) {
+            myIOThread.execute(this::doWrite);
+        }
+    }
+
+    /**
+     * Perform additional close actions in a subclass.
+     */
+    void subclassClose() {
+        super.subclassClose();
+        mySelectorEngine.unpark(this);
+        if (myIOThread != null) {
+            myIOThread.execute(this::closed);
+        } else {
+            closed();
+        }
+    }
+
+    /**
+     * Register this channel with its I/O thread's selector. Called in the I/O
+     * thread.
+     */
+    private void register() {
+        try {
+            int ops = SelectionKey.OP_READ;
+            if (!myOutgoingQueue.isEmpty()) {
+                ops |= SelectionKey.OP_WRITE;
+            }
+            myKey = mySocketChannel.register(myIOThread.selector(), ops, this);
+        } catch (IOException exc) {
+            // The channel was closed before it started.
+        }
+    }
+
+    /**
+     * Service this channel when its socket is ready. Called in the I/O thread.
+     *
+     * @param theKey Selection key.
+     */
+    void ready(SelectionKey theKey) {
+        if (theKey.isValid() && theKey.isReadable()) {
+            doRead();
+        }
+        if (theKey.isValid() && theKey.isWritable()) {
+            doWrite();
+        }
+    }
+
+    /**
+     * Retry matching the next incoming message with a receive request. Called
+     * by the selector engine when a receive request was added.
+     */
+    void retryMatch() {
+        SelectorEngine.IOThread thread = myIOThread;
+        if (thread != null) {
+            thread.execute(() -> {
+                if (isActive()) {
+                    processIncoming();
+                }
+            });
+        }
+    }
+
+    /**
+     * Send as much outgoing data as the socket will take. Called in the I/O
+     * thread.
+     */
+    private void doWrite() {
+        if (!isActive()) {
+            return;
+        }
+        for (;;) {
+            try {
+                // Start the next message, if any.
+                if (mySendRequest == null) {
+                    mySendRequest = myOutgoingQueue.poll();
+                    if (mySendRequest == null) {
+                        setInterest(SelectionKey.OP_WRITE, false);
+                        if (mySendBuffer != null) {
+                            mySelectorEngine.releaseBuffer(mySendBuffer);
+                            mySendBuffer = null;
+                        }
+                        return;
+                    }
+                    Buf buf = mySendRequest.myBuf;
+                    buf.preSend();
+                    mySendIndex = 0;
+                    mySendHeader.clear();
+                    mySendHeader.putInt(Constants.MAGIC_NUMBER);
+                    mySendHeader.putInt(mySendRequest.myTagLb);
+                    mySendHeader.put(buf.myMessageType);
+                    mySendHeader.putInt(buf.myMessageLength);
+                    mySendHeader.flip();
+                    if (mySendBuffer == null) {
+                        mySendBuffer = mySelectorEngine.acquireBuffer();
+                    }
+                }
+
+                // Transfer items from source buffer to byte buffer, then write
+                // the header (if not yet written) and the byte buffer.
+                Buf buf = mySendRequest.myBuf;
+                int msglength = buf.myMessageLength;
+                while (mySendIndex < msglength && mySendBuffer.hasRemaining()) {
+                    int n = buf.sendItems(mySendIndex, mySendBuffer);
+                    if (n == 0) {
+                        break;
+                    }
+                    mySendIndex += n;
+                }
+                mySendBuffer.flip();
+                myGather[0] = mySendHeader;
+                myGather[1] = mySendBuffer;
+                mySocketChannel.write(myGather);
+                boolean flushed = !mySendHeader.hasRemaining()
+                        && !mySendBuffer.hasRemaining();
+                mySendBuffer.compact();
+
+                // If the socket is full, wait until it can take more.
+                if (!flushed) {
+                    setInterest(SelectionKey.OP_WRITE, true);
+                    return;
+                }
+
+                // Report success of a fully sent message.
+                if (mySendIndex == msglength) {
+                    buf.postSend();
+                    IORequest iorequest = mySendRequest;
+                    mySendRequest = null;
+                    iorequest.reportSuccess();
+                }
+            } catch (IOException exc) {
+                failSend(exc);
+                return;
+            } catch (RuntimeException exc) {
+                // Report failure of current I/O request.
+                mySendRequest.reportFailure(exc);
+                mySendRequest = null;
+                if (mySendBuffer != null) {
+                    mySendBuffer.clear();
+                }
+            } catch (Error exc) {
+                // Report failure of current I/O request.
+                mySendRequest.reportFailure(exc);
+                mySendRequest = null;
+                if (mySendBuffer != null) {
+                    mySendBuffer.clear();
+                }
+            }
+        }
+    }
+
+    /**
+     * Read incoming data from the socket. Called in the I/O thread.
+     */
+    private void doRead() {
+        if (myReceiveBuffer == null) {
+            myReceiveBuffer = mySelectorEngine.acquireBuffer();
+            myReceiveBuffer.flip();
+        }
+        try {
+            myReceiveBuffer.compact();
+            int n = mySocketChannel.read(myReceiveBuffer);
+            myReceiveBuffer.flip();
+            if (n == -1) {
+                if (myReceiveRequest != null) {
+                    throw new EOFException("Unexpected end-of-stream while receiving message");
+                }
+                stopReceiving();
+                return;
+            }
+        } catch (IOException exc) {
+            failReceive(exc);
+            return;
+        }
+        processIncoming();
+    }
+
+    /**
+     * Transfer buffered incoming data into receive requests, as far as
+     * possible. Called in the I/O thread.
+     */
+    private void processIncoming() {
+        if (myReceiveBuffer == null) {
+            return;
+        }
+        try {
+            for (;;) {
+                if (myReceiveRequest == null) {
+                    // Extract the next 13-byte message header.
+                    if (!myHeaderValid) {
+                        if (myReceiveBuffer.remaining() < 13) {
+                            break;
+                        }
+                        int magic = myReceiveBuffer.getInt();
+                        myMessageTag = myReceiveBuffer.getInt();
+                        myMessageType = myReceiveBuffer.get();
+                        myMessageLength = myReceiveBuffer.getInt();
+
+                        // If the magic number is incorrect, bad error. Close
+                        // the channel.
+                        if (magic != Constants.MAGIC_NUMBER) {
+                            myChannelGroup.myLogger.log("edu.rit.mp.SelectorChannel: Invalid magic number received");
+                            close();
+                            return;
+                        }
+                        myHeaderValid = true;
+                    }
+
+                    // Match the message with a receive request. Park first, so
+                    // that a request added during the match is not missed. If
+                    // there is no match, stop reading until there is one.
+                    mySelectorEngine.park(this);
+                    IORequest iorequest = myIORequestList.removeMatch(this, myMessageTag, myMessageType);
+                    if (iorequest == null) {
+                        setInterest(SelectionKey.OP_READ, false);
+                        return;
+                    }
+                    mySelectorEngine.unpark(this);
+
+                    // Message preprocessing.
+                    myReceiveRequest = iorequest;
+                    Buf buf = iorequest.myBuf;
+                    buf.preReceive(myMessageLength);
+                    myReceiveIndex = 0;
+                    myReceiveCount = Math.min(myMessageLength, buf.myMessageLength);
+                    mySkipCount = myMessageLength - myReceiveCount;
+                }
+
+                // Transfer items from byte buffer to destination buffer, then
+                // suck out any extra message items.
+                Buf buf = myReceiveRequest.myBuf;
+                if (myReceiveCount > 0) {
+                    int n = buf.receiveItems(myReceiveIndex, myReceiveCount, myReceiveBuffer);
+                    myReceiveIndex += n;
+                    myReceiveCount -= n;
+                    if (myReceiveCount > 0) {
+                        break;
+                    }
+                }
+                if (mySkipCount > 0) {
+                    mySkipCount -= buf.skipItems(mySkipCount, myReceiveBuffer);
+                    if (mySkipCount > 0) {
+                        break;
+                    }
+                }
+
+                // Message postprocessing.
+                Status status = new Status(this, myMessageTag, myMessageLength);
+                buf.postReceive(status, myChannelGroup.myClassLoader);
+                IORequest iorequest = myReceiveRequest;
+                iorequest.myStatus = status;
+                myReceiveRequest = null;
+                myHeaderValid = false;
+
+                // Report success to receiving thread.
+                iorequest.reportSuccess();
+            }
+        } catch (IOException exc) {
+            failReceive(exc);
+            return;
+        } catch (RuntimeException exc) {
+            failReceive(exc);
+            return;
+        } catch (Error exc) {
+            failReceive(exc);
+            return;
+        }
+
+        // Return an empty buffer to the pool, and keep reading.
+        if (!myHeaderValid && !myReceiveBuffer.hasRemaining()) {
+            mySelectorEngine.releaseBuffer(myReceiveBuffer);
+            myReceiveBuffer = null;
+        }
+        if (myReadState == READ_OPEN) {
+            setInterest(SelectionKey.OP_READ, true);
+        }
+    }
+
+    /**
+     * Determine whether this channel is registered and open.
+     */
+    private boolean isActive() {
+        return myKey != null && myKey.isValid();
+    }
+
+    /**
+     * Turn the given interest operation on or off.
+     */
+    private void setInterest(int theOp,
+            boolean on) {
+        if (isActive()) {
+            int ops = myKey.interestOps();
+            myKey.interestOps(on ? ops | theOp : ops & ~theOp);
+        }
+    }
+
+    /**
+     * Report failure of the current and all pending send requests.
+     */
+    private void failSend(IOException exc) {
+        if (mySendRequest != null) {
+            mySendRequest.reportFailure(exc);
+            mySendRequest = null;
+        }
+        IORequest iorequest;
+        while ((iorequest = myOutgoingQueue.poll()) != null) {
+            iorequest.reportFailure(exc);
+        }
+        setInterest(SelectionKey.OP_WRITE, false);
+    }
+
+    /**
+     * Report failure of the current receive request and stop receiving.
+     */
+    private void failReceive(IOException exc) {
+        if (myReceiveRequest != null) {
+            myReceiveRequest.reportFailure(exc);
+        }
+        stopReceiving();
+    }
+
+    private void failReceive(RuntimeException exc) {
+        if (myReceiveRequest != null) {
+            myReceiveRequest.reportFailure(exc);
+        }
+        stopReceiving();
+    }
+
+    private void failReceive(Error exc) {
+        if (myReceiveRequest != null) {
+            myReceiveRequest.reportFailure(exc);
+        }
+        stopReceiving();
+    }
+
+    /**
+     * Stop receiving messages, as when a network channel's receive thread
+     * terminates.
+     */
+    private void stopReceiving() {
+        myReceiveRequest = null;
+        myHeaderValid = false;
+        mySelectorEngine.unpark(this);
+        setInterest(SelectionKey.OP_READ, false);
+        shutdownInput();
+    }
+
+    /**
+     * Fail any requests in progress after this channel was closed, and return
+     * buffers to the pool. Called in the I/O thread.
+     */
+    private void closed() {
+        ChannelClosedException exc = new ChannelClosedException("Channel closed");
+        failSend(exc);
+        if (myReceiveRequest != null) {
+            InterruptedIOException exc2 = new InterruptedIOException();
+            exc2.initCause(exc);
+            myReceiveRequest.reportFailure(exc2);
+            myReceiveRequest = null;
+        }
+        if (mySendBuffer != null) {
+            mySelectorEngine.releaseBuffer(mySendBuffer);
+            mySendBuffer = null;
+        }
+        if (myReceiveBuffer != null) {
+            mySelectorEngine.releaseBuffer(myReceiveBuffer);
+            myReceiveBuffer = null;
+        }
+    }
+
+}
@@ -0,0 +1,278 @@
+//******************************************************************************
+//
+// File:    SelectorEngine.java
+// Package: edu.rit.mp
+// Unit:    Class edu.rit.mp.SelectorEngine
+//
+// Additional file added 10/19/2026 by Michael J. Schnieders to the Parallel
+// Java Library as maintained within Force Field X.
+//
+// This Java source file is part of the Parallel Java Library ("PJ"). PJ is free
+// software; you can redistribute it and/or modify it under the terms of the GNU
+// General Public License as published by the Free Software Foundation; either
+// version 3 of the License, or (at your option) any later version.
+//
+// PJ is distributed in the hope that it will be useful, but WITHOUT ANY
+// WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+// A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+//
+// Linking this library statically or dynamically with other modules is making a
+// combined work based on this library. Thus, the terms and conditions of the GNU
+// General Public License cover the whole combination.
+//
+// As a special exception, the copyright holders of this library give you
+// permission to link this library with independent modules to produce an
+// executable, regardless of the license terms of these independent modules, and
+// to copy and distribute the resulting executable under terms of your choice,
+// provided that you also meet, for each linked independent module, the terms
+// and conditions of the license of that module. An independent module is a module
+// which is not derived from or based on this library. If you modify this library,
+// you may extend this exception to your version of the library, but you are not
+// obligated to do so. If you do not wish to do so, delete this exception
+// statement from your version.
+//
+// A copy of the GNU General Public License is provided in the file gpl.txt. You
+// may also obtain a copy of the GNU General Public License on the World Wide
+// Web at http://www.gnu.org/licenses/gpl.html.
+//
+//******************************************************************************
+package edu.rit.mp;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import edu.rit.util.Logger;
+
+/**
+ * Class SelectorEngine provides a small, fixed pool of I/O threads that send
+ * and receive messages for all the {@linkplain SelectorChannel}s of a channel
+ * group, using non-blocking sockets and selectors, instead of a send thread and
+ * a receive thread for each channel.
+ * <P>
+ * Each channel is assigned to one I/O thread, round robin. An I/O thread only
+ * touches the state of its own channels; other threads hand it work by
+ * posting a task and waking up its selector. Direct byte buffers are taken
+ * from a shared pool while a channel has data in flight and returned to the
+ * pool afterwards.
+ * <P>
+ * The number of I/O threads is given by the <code>"pj.iothreads"</code> system
+ * property. If it is 0 (the default), each channel has its own send and
+ * receive threads.
+ *
+ * @author Michael J. Schnieders
+ * @since 1.0
+ */
+class SelectorEngine {
+
+// Hidden constants.
+    // Number of I/O threads.
+    static final int THREADS = Integer.getInteger("pj.iothreads", 0);
+
+// Hidden data members.
+    // I/O threads.
+    private IOThread[] myIOThreads;
+
+    // Index of the I/O thread for the next channel.
+    private int myNextIOThread;
+
+    // Pool of direct byte buffers.
+    private ConcurrentLinkedQueue<ByteBuffer> myBufferPool
+            = new ConcurrentLinkedQueue<ByteBuffer>();
+
+    // Channels whose next incoming message has no matching receive request.
+    private Set<SelectorChannel> myParkedChannels
+            = ConcurrentHashMap.newKeySet();
+
+    // For logging error messages.
+    private Logger myLogger;
+
+// Hidden helper classes.
+    /**
+     * Class IOThread provides a thread that services the channels registered
+     * with its selector.
+     *
+     * @author Michael J. Schnieders
+     * @since 1.0
+     */
+    class IOThread
+            extends Thread {
+
+        // Selector for this thread's channels.
+        private Selector mySelector;
+
+        // Tasks posted by other threads.
+        private ConcurrentLinkedQueue<Runnable> myTasks
+                = new ConcurrentLinkedQueue<Runnable>();
+
+        // Whether this thread is still running.
+        private volatile boolean myRunning = true;
+
+        IOThread()
+                throws IOException {
+            mySelector = Selector.open();
+            setDaemon(true);
+            start();
+        }
+
+        /**
+         * Run the given task in this I/O thread.
+         *
+         * @param task Task.
+         */
+        void execute(Runnable task) {
+            myTasks.add(task);
+            mySelector.wakeup();
+        }
+
+        /**
+         * Obtain this thread's selector.
+         *
+         * @return Selector.
+         */
+        Selector selector() {
+            return mySelector;
+        }
+
+        /**
+         * Stop this I/O thread.
+         */
+        void shutdown() {
+            myRunning = false;
+            mySelector.wakeup();
+        }
+
+        public void run() {
+            while (myRunning) {
+                try {
+                    mySelector.select();
+                } catch (IOException exc) {
+                    myLogger.log("SelectorEngine: I/O error in selector", exc);
+                    break;
+                }
+
+                // Run posted tasks.
+                Runnable task;
+                while ((task = myTasks.poll()) != null) {
+                    task.run();
+                }
+
+                // Service ready channels.
+                Iterator<SelectionKey> iter = mySelector.selectedKeys().iterator();
+                while (iter.hasNext()) {
+                    SelectionKey key = iter.next();
+                    iter.remove();
+                    ((SelectorChannel) key.attachment()).ready(key);
+                }
+            }
+
+            try {
+                mySelector.close();
+            } catch (IOException exc) {
+            }
+        }
+    }
+
+// Hidden constructors.
+    /**
+     * Construct a new selector engine.
+     *
+     * @param theThreadCount Number of I/O threads.
+     * @param theLogger Logger for error messages.
+     * @exception IOException Thrown if an I/O error occurred.
+     */
+    SelectorEngine(int theThreadCount,
+            Logger theLogger)
+            throws IOException {
+        myLogger = theLogger;
+        myIOThreads = new IOThread[theThreadCount];
+        for (int i = 0; i < theThreadCount; ++i) {
+            myIOThreads[i] = new IOThread();
+        }
+    }
+
+// Hidden operations.
+    /**
+     * Assign an I/O thread to the given channel.
+     *
+     * @param theChannel Channel.
+     * @return I/O thread.
+     */
+    synchronized IOThread assign(SelectorChannel theChannel) {
+        IOThread thread = myIOThreads[myNextIOThread];
+        myNextIOThread = (myNextIOThread + 1) % myIOThreads.length;
+        return thread;
+    }
+
+    /**
+     * Take a byte buffer from the pool. The buffer is empty and ready for
+     * writing.
+     *
+     * @return Direct byte buffer.
+     */
+    ByteBuffer acquireBuffer() {
+        ByteBuffer buffer = myBufferPool.poll();
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(Constants.BUFFER_SIZE);
+        }
+        return buffer;
+    }
+
+    /**
+     * Return a byte buffer to the pool.
+     *
+     * @param theBuffer Byte buffer.
+     */
+    void releaseBuffer(ByteBuffer theBuffer) {
+        theBuffer.clear();
+        myBufferPool.add(theBuffer);
+    }
+
+    /**
+     * Record that the given channel is waiting for a receive request that
+     * matches its next incoming message.
+     *
+     * @param theChannel Channel.
+     */
+    void park(SelectorChannel theChannel) {
+        myParkedChannels.add(theChannel);
+    }
+
+    /**
+     * Record that the given channel is no longer waiting for a receive request.
+     *
+     * @param theChannel Channel.
+     */
+    void unpark(SelectorChannel theChannel) {
+        myParkedChannels.remove(theChannel);
+    }
+
+    /**
+     * Report that a receive request was added to the channel group's I/O
+     * request list. Each waiting channel retries the match in its I/O thread.
+     */
+    void requestAdded() {
+        for (SelectorChannel channel : myParkedChannels) {
+            if (myParkedChannels.remove(channel)) {
+                channel.retryMatch();
+            }
+        }
+    }
+
+    /**
+     * Stop all I/O threads.
+     */
+    void close() {
+        for (IOThread thread : myIOThreads) {
+            thread.shutdown();
+        }
+        myParkedChannels.clear();
+        myBufferPool.clear();
+    }
+
+}
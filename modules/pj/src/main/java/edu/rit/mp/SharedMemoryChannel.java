@@ -0,0 +1,188 @@
+//******************************************************************************
+//
+// File:    SharedMemoryChannel.java
+// Package: edu.rit.mp
+// Unit:    Class edu.rit.mp.SharedMemoryChannel
+//
+// Additional file added 10/19/2026 by Michael J. Schnieders to the Parallel
+// Java Library as maintained within Force Field X.
+//
+// This Java source file is part of the Parallel Java Library ("PJ"). PJ is free
+// software; you can redistribute it and/or modify it under the terms of the GNU
+// General Public License as published by the Free Software Foundation; either
+// version 3 of the License, or (at your option) any later version.
+//
+// PJ is distributed in the hope that it will be useful, but WITHOUT ANY
+// WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+// A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+//
+// Linking this library statically or dynamically with other modules is making a
+// combined work based on this library. Thus, the terms and conditions of the GNU
+// General Public License cover the whole combination.
+//
+// As a special exception, the copyright holders of this library give you
+// permission to link this library with independent modules to produce an
+// executable, regardless of the license terms of these independent modules, and
+// to copy and distribute the resulting executable under terms of your choice,
+// provided that you also meet, for each linked independent module, the terms
+// and conditions of the license of that module. An independent module is a module
+// which is not derived from or based on this library. If you modify this library,
+// you may extend this exception to your version of the library, but you are not
+// obligated to do so. If you do not wish to do so, delete this exception
+// statement from your version.
+//
+// A copy of the GNU General Public License is provided in the file gpl.txt. You
+// may also obtain a copy of the GNU General Public License on the World Wide
+// Web at http://www.gnu.org/licenses/gpl.html.
+//
+//******************************************************************************
+package edu.rit.mp;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Class SharedMemoryChannel provides a channel for sending and receiving
+ * messages between two processes on the same host in the Message Protocol (MP).
+ * Messages are passed through a pair of {@linkplain SharedMemoryPipe}s rather
+ * than through the socket connection, which is kept open to identify the
+ * channel's near end and far end addresses and to detect the death of the far
+ * end process: the operating system closes a dead process's sockets, so a
+ * watcher thread reading the socket sees end-of-stream and tells the pipes.
+ * <P>
+ * A shared memory channel is not constructed directly. When a channel group
+ * sets up a connection and finds that both ends are on the same host, it
+ * creates a shared memory channel instead of a network channel; see class
+ * {@linkplain ChannelGroup}.
+ *
+ * @author Michael J. Schnieders
+ * @since 1.0
+ */
+class SharedMemoryChannel
+        extends NetworkChannel {
+
+// Hidden data members.
+    // Outgoing and incoming shared memory pipes.
+    private SharedMemoryPipe myOutput;
+    private SharedMemoryPipe myInput;
+
+    // Socket channel watched for the far end going away.
+    private SocketChannel mySocketChannel;
+
+// Hidden constructors.
+    /**
+     * Construct a new shared memory channel.
+     *
+     * @param theChannelGroup Enclosing channel group.
+     * @param theSocketChannel Underlying socket channel.
+     * @param theFarChannelGroupId Far end channel group ID.
+     * @param thePipes Outgoing pipe and incoming pipe.
+     */
+    SharedMemoryChannel(ChannelGroup theChannelGroup,
+            SocketChannel theSocketChannel,
+            int theFarChannelGroupId,
+            SharedMemoryPipe[] thePipes) {
+        super(theChannelGroup, theSocketChannel, theFarChannelGroupId);
+        myOutput = thePipes[0];
+        myInput = thePipes[1];
+        mySocketChannel = theSocketChannel;
+    }
+
+// Hidden operations.
+    /**
+     * Start sending and receiving messages via this channel.
+     */
+    void start() {
+        super.start();
+        new PeerWatchThread(mySocketChannel, myOutput, myInput);
+    }
+
+    /**
+     * Obtain the byte channel from which incoming messages are read.
+     *
+     * @return Input byte channel.
+     */
+    ReadableByteChannel input() {
+        return myInput;
+    }
+
+    /**
+     * Obtain the byte channel to which outgoing messages are written.
+     *
+     * @return Output byte channel.
+     */
+    WritableByteChannel output() {
+        return myOutput;
+    }
+
+    /**
+     * Perform additional close actions in a subclass.
+     */
+    void subclassClose() {
+        // Closing the pipes tells the far end that this end is gone.
+        if (myOutput != null) {
+            myOutput.close();
+            myInput.close();
+        }
+        super.subclassClose();
+        myOutput = null;
+        myInput = null;
+        mySocketChannel = null;
+    }
+
+// Hidden helper classes.
+    /**
+     * Class PeerWatchThread reads the socket of a shared memory channel, which
+     * carries no data after channel setup, until end-of-stream. If the far end
+     * did not close the pipes first, its process is gone, and threads waiting
+     * on the pipes are told to give up.
+     *
+     * @author Michael J. Schnieders
+     * @since 1.0
+     */
+    private static class PeerWatchThread
+            extends Thread {
+
+        private final SocketChannel mySocketChannel;
+        private final SharedMemoryPipe myOutput;
+        private final SharedMemoryPipe myInput;
+
+        /**
+         * Construct and start a new peer watch thread.
+         *
+         * @param theSocketChannel Socket channel.
+         * @param theOutput Outgoing pipe.
+         * @param theInput Incoming pipe.
+         */
+        PeerWatchThread(SocketChannel theSocketChannel,
+                SharedMemoryPipe theOutput,
+                SharedMemoryPipe theInput) {
+            mySocketChannel = theSocketChannel;
+            myOutput = theOutput;
+            myInput = theInput;
+            setDaemon(true);
+            start();
+        }
+
+        /**
+         * Run this peer watch thread.
+         */
+        public void run() {
+            ByteBuffer buf = ByteBuffer.allocate(16);
+            try {
+                while (mySocketChannel.read(buf) != -1) {
+                    buf.clear();
+                }
+            } catch (IOException exc) {
+                // A reset connection means the far end is gone too; an
+                // asynchronous close by this end leaves the pipes closed.
+            }
+            myOutput.peerLost();
+            myInput.peerLost();
+        }
+    }
+
+}
@@ -0,0 +1,396 @@
+//******************************************************************************
+//
+// File:    SharedMemoryPipe.java
+// Package: edu.rit.mp
+// Unit:    Class edu.rit.mp.SharedMemoryPipe
+//
+// Additional file added 10/19/2026 by Michael J. Schnieders to the Parallel
+// Java Library as maintained within Force Field X.
+//
+// This Java source file is part of the Parallel Java Library ("PJ"). PJ is free
+// software; you can redistribute it and/or modify it under the terms of the GNU
+// General Public License as published by the Free Software Foundation; either
+// version 3 of the License, or (at your option) any later version.
+//
+// PJ is distributed in the hope that it will be useful, but WITHOUT ANY
+// WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+// A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+//
+// Linking this library statically or dynamically with other modules is making a
+// combined work based on this library. Thus, the terms and conditions of the GNU
+// General Public License cover the whole combination.
+//
+// As a special exception, the copyright holders of this library give you
+// permission to link this library with independent modules to produce an
+// executable, regardless of the license terms of these independent modules, and
+// to copy and distribute the resulting executable under terms of your choice,
+// provided that you also meet, for each linked independent module, the terms
+// and conditions of the license of that module. An independent module is a module
+// which is not derived from or based on this library. If you modify this library,
+// you may extend this exception to your version of the library, but you are not
+// obligated to do so. If you do not wish to do so, delete this exception
+// statement from your version.
+//
+// A copy of the GNU General Public License is provided in the file gpl.txt. You
+// may also obtain a copy of the GNU General Public License on the World Wide
+// Web at http://www.gnu.org/licenses/gpl.html.
+//
+//******************************************************************************
+package edu.rit.mp;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Class SharedMemoryPipe provides a one-way byte stream between two processes
+ * on the same host, implemented as a ring buffer in a memory-mapped file. One
+ * thread in one process writes to the pipe; one thread in the other process
+ * reads from the pipe.
+ * <P>
+ * A shared memory file holds two pipes, one for each direction. Each pipe
+ * consists of a 128-byte header followed by the ring buffer. The header holds
+ * the total number of bytes written (the head), a closed flag, and, in a
+ * separate cache line, the total number of bytes read (the tail). The writer
+ * publishes the head and the reader publishes the tail with release semantics,
+ * so the data bytes are visible before the index that covers them.
+ * <P>
+ * A thread waiting for data or space spins briefly, then yields, then parks for
+ * increasing intervals; there is no way to wake a thread in another process.
+ * A process that dies never sets the closed flag, so the owner of the pipe
+ * watches some other sign of life of the far end, such as the end-of-stream of
+ * a socket, and calls {@link #peerLost()}; a thread waiting on the pipe then
+ * fails with an EOFException instead of waiting forever.
+ * <P>
+ * The directory for the shared memory files is given by the
+ * <code>"pj.shmdir"</code> system property (default <code>/dev/shm</code>). The
+ * capacity of each ring buffer in bytes is given by the
+ * <code>"pj.shmsize"</code> system property (default 1048576), rounded up to a
+ * power of 2. Shared memory channels are disabled by setting the
+ * <code>"pj.shm"</code> system property to <code>false</code>.
+ *
+ * @author Michael J. Schnieders
+ * @since 1.0
+ */
+class SharedMemoryPipe
+        implements ByteChannel {
+
+// Hidden constants.
+    // Header layout of each pipe.
+    private static final int HEAD = 0;
+    private static final int CLOSED = 8;
+    private static final int TAIL = 64;
+    static final int HEADER_SIZE = 128;
+
+    // Waiting policy. Spinning is pointless on a single processor.
+    private static final int SPINS
+            = Runtime.getRuntime().availableProcessors() > 1 ? 1000 : 0;
+    private static final int YIELDS = 100;
+    private static final long MAX_PARK_NANOS = 100000L;
+
+    // Atomic access to the header fields.
+    private static final VarHandle LONGS
+            = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+    private static final VarHandle INTS
+            = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.nativeOrder());
+
+    // Whether shared memory channels are enabled.
+    static final boolean ENABLED
+            = !"false".equalsIgnoreCase(System.getProperty("pj.shm"));
+
+    // Directory for shared memory files.
+    static final File DIRECTORY
+            = new File(System.getProperty("pj.shmdir", "/dev/shm"));
+
+    // Capacity of each ring buffer in bytes.
+    static final int CAPACITY
+            = Integer.highestOneBit(Math.max(Integer.getInteger("pj.shmsize", 1 << 20), 4096) * 2 - 1);
+
+// Hidden data members.
+    // Header of this pipe.
+    private ByteBuffer myHeader;
+
+    // Ring buffer of this pipe.
+    private ByteBuffer myRing;
+
+    // Capacity of the ring buffer; a power of 2.
+    private final int myCapacity;
+
+    // Local copy of this end's own index (head for the writer, tail for the
+    // reader).
+    private long myIndex;
+
+    // Whether this end has been closed.
+    private volatile boolean myOpen = true;
+
+    // Whether the far end process went away without closing the pipe.
+    private volatile boolean myPeerLost;
+
+// Hidden constructors.
+    /**
+     * Construct a new shared memory pipe.
+     *
+     * @param theFile Mapped shared memory file.
+     * @param theIndex Pipe index in the file, 0 or 1.
+     * @param isWriter True if this end writes to the pipe, false if it reads.
+     */
+    private SharedMemoryPipe(MappedByteBuffer theFile,
+            int theIndex,
+            boolean isWriter) {
+        myCapacity = theFile.capacity() / 2 - HEADER_SIZE;
+        int offset = theIndex * (HEADER_SIZE + myCapacity);
+        theFile.limit(offset + HEADER_SIZE + myCapacity).position(offset);
+        ByteBuffer pipe = theFile.slice();
+        theFile.clear();
+        pipe.limit(HEADER_SIZE);
+        myHeader = pipe.slice();
+        pipe.limit(HEADER_SIZE + myCapacity).position(HEADER_SIZE);
+        myRing = pipe.slice();
+        myIndex = (long) LONGS.getAcquire(myHeader, isWriter ? HEAD : TAIL);
+    }
+
+// Exported operations.
+    /**
+     * Create a new shared memory file for a pair of pipes in the shared memory
+     * directory, and map it into memory.
+     *
+     * @return Shared memory file.
+     * @exception IOException Thrown if an I/O error occurred.
+     */
+    static File createFile()
+            throws IOException {
+        File file = File.createTempFile("pj-", ".shm", DIRECTORY);
+        file.deleteOnExit();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(2L * (HEADER_SIZE + CAPACITY));
+        } catch (IOException exc) {
+            file.delete();
+            throw exc;
+        }
+        return file;
+    }
+
+    /**
+     * Open the pair of pipes in the given shared memory file.
+     *
+     * @param theFile Shared memory file.
+     * @param isCreator True if called by the process that created the file,
+     * false if called by the process at the other end.
+     * @return Two-element array: the pipe for writing, then the pipe for
+     * reading.
+     * @exception IOException Thrown if an I/O error occurred.
+     */
+    static SharedMemoryPipe[] open(File theFile,
+            boolean isCreator)
+            throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(theFile.toPath(),
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            long capacity = size / 2 - HEADER_SIZE;
+            if (size > Integer.MAX_VALUE || size % 2 != 0 || capacity <= 0
+                    || Long.bitCount(capacity) != 1) {
+                throw new IOException("SharedMemoryPipe.open(): Invalid file size " + size);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+        int out = isCreator ? 0 : 1;
+        return new SharedMemoryPipe[]{
+            new SharedMemoryPipe(buffer, out, true),
+            new SharedMemoryPipe(buffer, 1 - out, false)};
+    }
+
+    /**
+     * Read bytes from this pipe into the given byte buffer. Blocks until at
+     * least one byte is available.
+     *
+     * @param dst Byte buffer.
+     * @return Number of bytes read, or -1 if the far end closed the pipe and
+     * all bytes have been read.
+     * @exception IOException Thrown if an I/O error occurred.
+     */
+    public int read(ByteBuffer dst)
+            throws IOException {
+        int wanted = dst.remaining();
+        if (wanted == 0) {
+            return 0;
+        }
+        long available;
+        int waits = 0;
+        while ((available = (long) LONGS.getAcquire(myHeader, HEAD) - myIndex) == 0) {
+            if (closed()) {
+                return -1;
+            }
+            checkPeer();
+            await(waits++);
+        }
+        int n = (int) Math.min(available, wanted);
+        transfer(dst, n, false);
+        LONGS.setRelease(myHeader, TAIL, myIndex);
+        return n;
+    }
+
+    /**
+     * Write bytes from the given byte buffer into this pipe. Blocks until there
+     * is room for at least one byte.
+     *
+     * @param src Byte buffer.
+     * @return Number of bytes written.
+     * @exception IOException Thrown if an I/O error occurred.
+     */
+    public int write(ByteBuffer src)
+            throws IOException {
+        int wanted = src.remaining();
+        if (wanted == 0) {
+            return 0;
+        }
+        long space;
+        int waits = 0;
+        do {
+            if (closed()) {
+                throw new ClosedChannelException();
+            }
+            space = myCapacity - (myIndex - (long) LONGS.getAcquire(myHeader, TAIL));
+            if (space == 0) {
+                checkPeer();
+                await(waits++);
+            }
+        } while (space == 0);
+        int n = (int) Math.min(space, wanted);
+        transfer(src, n, true);
+        LONGS.setRelease(myHeader, HEAD, myIndex);
+        return n;
+    }
+
+    /**
+     * Determine whether this pipe is open.
+     *
+     * @return True if open, false otherwise.
+     */
+    public boolean isOpen() {
+        return myOpen;
+    }
+
+    /**
+     * Close this pipe. The far end sees end-of-stream once it has read all
+     * bytes written so far.
+     */
+    public void close() {
+        if (myOpen) {
+            myOpen = false;
+            INTS.setVolatile(myHeader, CLOSED, 1);
+        }
+    }
+
+    /**
+     * Report that the far end process is gone. If the far end did not close
+     * this pipe first, a thread waiting to read or write fails with an
+     * EOFException; bytes already in the ring buffer can still be read.
+     */
+    void peerLost() {
+        if (!closed()) {
+            myPeerLost = true;
+        }
+    }
+
+// Hidden operations.
+    /**
+     * Fail if the far end process went away without closing this pipe.
+     *
+     * @exception EOFException Thrown if the far end process is gone.
+     */
+    private void checkPeer()
+            throws EOFException {
+        if (myPeerLost) {
+            throw new EOFException("SharedMemoryPipe: Far end process terminated");
+        }
+    }
+
+    /**
+     * Determine whether either end has closed this pipe.
+     */
+    private boolean closed() {
+        return (int) INTS.getVolatile(myHeader, CLOSED) != 0;
+    }
+
+    /**
+     * Copy bytes between the given byte buffer and the ring buffer at this
+     * end's index, wrapping around the end of the ring buffer if necessary.
+     *
+     * @param buf Byte buffer.
+     * @param n Number of bytes.
+     * @param toRing True to copy into the ring, false to copy out of it.
+     */
+    private void transfer(ByteBuffer buf,
+            int n,
+            boolean toRing) {
+        int start = (int) (myIndex & (myCapacity - 1));
+        int first = Math.min(n, myCapacity - start);
+        copy(buf, start, first, toRing);
+        if (first < n) {
+            copy(buf, 0, n - first, toRing);
+        }
+        myIndex += n;
+    }
+
+    /**
+     * Copy bytes between the given byte buffer and one contiguous piece of the
+     * ring buffer.
+     */
+    private void copy(ByteBuffer buf,
+            int start,
+            int n,
+            boolean toRing) {
+        myRing.limit(start + n).position(start);
+        if (toRing) {
+            int limit = buf.limit();
+            buf.limit(buf.position() + n);
+            myRing.put(buf);
+            buf.limit(limit);
+        } else {
+            buf.put(myRing);
+        }
+    }
+
+    /**
+     * Wait for the far end: spin, then yield, then park for increasing
+     * intervals. Fails if this pipe was closed or the thread was interrupted.
+     *
+     * @param waits Number of times this method has been called for the current
+     * read or write.
+     * @exception IOException Thrown if the wait was cut short.
+     */
+    private void await(int waits)
+            throws IOException {
+        if (!myOpen) {
+            throw new ClosedChannelException();
+        }
+        if (Thread.interrupted()) {
+            // Leave the interrupted status set, so that a send thread waiting
+            // for its next request also terminates.
+            Thread.currentThread().interrupt();
+            throw new ClosedByInterruptException();
+        }
+        if (waits < SPINS) {
+            Thread.onSpinWait();
+        } else if (waits < SPINS + YIELDS) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(Math.min(1000L << Math.min(waits - SPINS - YIELDS, 20),
+                    MAX_PARK_NANOS));
+        }
+    }
+
+}
@@ -49,6 +49,7 @@ import edu.rit.mp.Buf;
 import edu.rit.mp.Channel;
 import edu.rit.mp.ChannelGroup;
 import edu.rit.mp.ConnectListener;
+import edu.rit.mp.DoubleBuf;
 import edu.rit.mp.IORequest;
 import edu.rit.mp.IntegerBuf;
 import edu.rit.mp.ObjectBuf;
@@ -57,6 +58,7 @@ import edu.rit.pj.cluster.CommPattern;
 import edu.rit.pj.cluster.JobBackend;
 import edu.rit.pj.cluster.JobFrontend;
 import edu.rit.pj.cluster.JobSchedulerException;
+import edu.rit.pj.reduction.DoubleOp;
 import edu.rit.pj.reduction.IntegerOp;
 import edu.rit.pj.reduction.Op;
 import edu.rit.util.Range;
@@ -849,6 +851,10 @@ import edu.rit.util.Range;
  * </TD>
  * </TR>
  * </TABLE>
+ * Small buffers are reduced with a latency-optimal "butterfly" pattern. Double
+ * buffers with at least 131072 items (set by the <code>"pj.ringthreshold"</code>
+ * system property) are reduced with a bandwidth-optimal ring reduce-scatter
+ * followed by a ring all-gather.
  * <p>
  * <B>All-to-All</B>
  * <p>
@@ -1055,6 +1061,11 @@ public class Comm {
     // The largest power of 2 less than or equal to this communicator's size.
     private int mySizePowerOf2;
 
+    // Minimum number of data items for which allReduce() uses the ring
+    // algorithm, set by the "pj.ringthreshold" system property.
+    private static final int RING_THRESHOLD =
+            Integer.getInteger("pj.ringthreshold", 131072);
+
     // Channel group for message passing in this communicator.
     private ChannelGroup myChannelGroup;
 
@@ -1134,6 +1145,26 @@ public class Comm {
         }
     }
 
+    /**
+     * Construct a communicator for one of several processes (or threads) that
+     * communicate over sockets at the given addresses, without a Job Scheduler.
+     * This is used to benchmark the collective operations on a single node.
+     *
+     * @param size    Communicator's size.
+     * @param rank    Current process's rank in the communicator.
+     * @param address Map from rank (array index) to listen address (array
+     *                element).
+     * @return Communicator.
+     * @throws IOException Thrown if an I/O error occurred.
+     */
+    static Comm loopback(int size,
+                         int rank,
+                         InetSocketAddress[] address)
+            throws IOException {
+        return new Comm(size, rank, address[rank].getHostName(),
+                new ChannelGroup(address[rank]), address);
+    }
+
 // Exported operations.
 
     /**
@@ -3169,6 +3200,35 @@ public class Comm {
                           Buf buffer,
                           Op op)
             throws IOException {
+        // The butterfly exchanges the whole buffer in each of log_2 K rounds,
+        // which is latency-optimal. For large double buffers the ring moves
+        // only 2(K-1)/K of the buffer in and out of each process.
+        if (mySize > 2
+                && buffer.length() >= RING_THRESHOLD
+                && buffer instanceof DoubleBuf
+                && op instanceof DoubleOp) {
+            allReduceRing(tag, (DoubleBuf) buffer, (DoubleOp) op);
+        } else {
+            allReduceButterfly(tag, buffer, op);
+        }
+    }
+
+    /**
+     * Perform an all-reduce using a "butterfly" message passing pattern, which
+     * exchanges the whole buffer in each of log_2 K rounds. This is the
+     * algorithm of choice for small buffers. All processes must call
+     * <code>allReduceButterfly()</code> with the same arguments as for
+     * <code>allReduce()</code>.
+     *
+     * @param tag    Message tag.
+     * @param buffer Buffer of data items to be reduced.
+     * @param op     Binary operation.
+     * @throws IOException Thrown if an I/O error occurred.
+     */
+    public void allReduceButterfly(int tag,
+                                   Buf buffer,
+                                   Op op)
+            throws IOException {
         // An all-reduce is done using a "butterfly" message passing pattern.
         // Consider the case of K=8 processes. In the first round, processes one
         // rank apart exchange data, then each processes accumulates the data
@@ -3274,6 +3334,82 @@ public class Comm {
         }
     }
 
+    /**
+     * Perform an all-reduce using a ring reduce-scatter followed by a ring
+     * all-gather. All processes must call <code>allReduceRing()</code> with the
+     * same arguments as for <code>allReduce()</code>.
+     * <p>
+     * The buffer is split into <I>K</I> chunks. In each of the <I>K</I>-1
+     * reduce-scatter rounds, every process sends one chunk to its successor
+     * while it receives and accumulates another chunk from its predecessor,
+     * after which each process holds one fully reduced chunk. In each of the
+     * <I>K</I>-1 all-gather rounds, the reduced chunks are passed around the
+     * ring. Each process sends and receives 2(<I>K</I>-1)/<I>K</I> of the buffer
+     * in total, independent of the number of processes, which makes this the
+     * algorithm of choice for large buffers. Since each chunk is reduced
+     * along a single path, the result is identical in all processes.
+     *
+     * @param tag    Message tag.
+     * @param buffer Buffer of data items to be reduced.
+     * @param op     Binary operation.
+     * @throws IOException Thrown if an I/O error occurred.
+     */
+    public void allReduceRing(int tag,
+                              DoubleBuf buffer,
+                              DoubleOp op)
+            throws IOException {
+        // Fall back to the butterfly if there are fewer items than processes.
+        int n = buffer.length();
+        if (mySize == 1) {
+            return;
+        } else if (n < mySize) {
+            allReduceButterfly(tag, buffer, op);
+            return;
+        }
+
+        // Work on a copy of the data items, so that chunks can be sliced.
+        double[] data = new double[n];
+        for (int i = 0; i < n; ++i) {
+            data[i] = buffer.get(i);
+        }
+        DoubleBuf[] chunk = new DoubleBuf[mySize];
+        Buf[] reductionChunk = new Buf[mySize];
+        for (int c = 0; c < mySize; ++c) {
+            int lb = (int) ((long) c * n / mySize);
+            int ub = (int) ((long) (c + 1) * n / mySize) - 1;
+            chunk[c] = DoubleBuf.sliceBuffer(data, new Range(lb, ub));
+            reductionChunk[c] = chunk[c].getReductionBuf(op);
+        }
+
+        // Get ranks of predecessor and successor processes.
+        int pred = (myRank - 1 + mySize) % mySize;
+        int succ = (myRank + 1) % mySize;
+
+        // Reduce-scatter: afterwards chunk (myRank+1) is fully reduced here.
+        for (int i = 0; i < mySize - 1; ++i) {
+            sendReceive(/*toRank  */succ,
+                    /*sendTag */ tag,
+                    /*sendBuf */ chunk[(myRank - i + mySize) % mySize],
+                    /*fromRank*/ pred,
+                    /*recvTag */ tag,
+                    /*recvBuf */ reductionChunk[(myRank - i - 1 + mySize) % mySize]);
+        }
+
+        // All-gather: pass the fully reduced chunks around the ring.
+        for (int i = 0; i < mySize - 1; ++i) {
+            sendReceive(/*toRank  */succ,
+                    /*sendTag */ tag,
+                    /*sendBuf */ chunk[(myRank + 1 - i + mySize) % mySize],
+                    /*fromRank*/ pred,
+                    /*recvTag */ tag,
+                    /*recvBuf */ chunk[(myRank - i + mySize) % mySize]);
+        }
+
+        for (int i = 0; i < n; ++i) {
+            buffer.put(i, data[i]);
+        }
+    }
+
     /**
      * Do an all-to-all among all processes in this communicator. A message tag
      * of 0 is used.
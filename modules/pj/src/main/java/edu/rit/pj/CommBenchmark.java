@@ -0,0 +1,242 @@
+//******************************************************************************
+//
+// File:    CommBenchmark.java
+// Package: edu.rit.pj
+// Unit:    Class edu.rit.pj.CommBenchmark
+//
+// Additional file added 10/19/2026 by Michael J. Schnieders to the Parallel
+// Java Library as maintained within Force Field X.
+//
+// This Java source file is part of the Parallel Java Library ("PJ"). PJ is free
+// software; you can redistribute it and/or modify it under the terms of the GNU
+// General Public License as published by the Free Software Foundation; either
+// version 3 of the License, or (at your option) any later version.
+//
+// PJ is distributed in the hope that it will be useful, but WITHOUT ANY
+// WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+// A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+//
+// Linking this library statically or dynamically with other modules is making a
+// combined work based on this library. Thus, the terms and conditions of the GNU
+// General Public License cover the whole combination.
+//
+// As a special exception, the copyright holders of this library give you
+// permission to link this library with independent modules to produce an
+// executable, regardless of the license terms of these independent modules, and
+// to copy and distribute the resulting executable under terms of your choice,
+// provided that you also meet, for each linked independent module, the terms
+// and conditions of the license of that module. An independent module is a module
+// which is not derived from or based on this library. If you modify this library,
+// you may extend this exception to your version of the library, but you are not
+// obligated to do so. If you do not wish to do so, delete this exception
+// statement from your version.
+//
+// A copy of the GNU General Public License is provided in the file gpl.txt. You
+// may also obtain a copy of the GNU General Public License on the World Wide
+// Web at http://www.gnu.org/licenses/gpl.html.
+//
+//******************************************************************************
+package edu.rit.pj;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.rit.mp.DoubleBuf;
+import edu.rit.pj.reduction.DoubleOp;
+
+/**
+ * Class CommBenchmark compares the "butterfly" and ring all-reduce algorithms
+ * of class {@linkplain Comm} among several processes on the local host, which
+ * communicate through loopback sockets without a Job Scheduler.
+ * <p>
+ * Usage: <code>java edu.rit.pj.CommBenchmark <I>K</I> [<I>port</I>]</code>
+ * <BR><I>K</I> = Number of processes
+ * <BR><I>port</I> = First of <I>K</I> consecutive loopback ports (default
+ * 20618)
+ * <p>
+ * Process 0 starts the other <I>K</I>-1 processes in separate JVMs with the
+ * same class path, and prints the average time per all-reduce of buffers of
+ * 1K to 4M doubles for each algorithm.
+ *
+ * @author Michael J. Schnieders
+ * @since 1.0
+ */
+public class CommBenchmark {
+
+// Prevent construction.
+
+    private CommBenchmark() {
+    }
+
+// Hidden constants.
+
+    private static final int[] SIZES = {1 << 10, 1 << 14, 1 << 18, 1 << 22};
+    private static final int WARMUP = 3;
+    private static final int REPS = 10;
+
+// Main program.
+
+    /**
+     * Main program.
+     *
+     * @param args Command line arguments.
+     * @throws Exception Thrown if an error occurred.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1 || args.length > 3) {
+            usage();
+        }
+        int K = Integer.parseInt(args[0]);
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 20618;
+        int rank = args.length > 2 ? Integer.parseInt(args[2]) : 0;
+        if (K < 1 || rank < 0 || rank >= K) {
+            usage();
+        }
+
+        InetSocketAddress[] address = new InetSocketAddress[K];
+        for (int r = 0; r < K; ++r) {
+            address[r] = new InetSocketAddress("localhost", port + r);
+        }
+
+        // Process 0 starts the other processes. Connections are set up on
+        // demand, so no process may communicate until all are listening:
+        // each child reports "ready" once listening and waits for "go".
+        List<Process> children = new ArrayList<>();
+        Comm comm;
+        if (args.length < 3) {
+            comm = Comm.loopback(K, rank, address);
+            String java = System.getProperty("java.home") + "/bin/java";
+            String classpath = System.getProperty("java.class.path");
+            for (int r = 1; r < K; ++r) {
+                // Pass PJ system properties on to the other processes.
+                List<String> command = new ArrayList<>();
+                command.add(java);
+                for (String name : System.getProperties().stringPropertyNames()) {
+                    if (name.startsWith("pj.")) {
+                        command.add("-D" + name + "=" + System.getProperty(name));
+                    }
+                }
+                command.add("-cp");
+                command.add(classpath);
+                command.add(CommBenchmark.class.getName());
+                command.add("" + K);
+                command.add("" + port);
+                command.add("" + r);
+                ProcessBuilder pb = new ProcessBuilder(command);
+                pb.redirectError(ProcessBuilder.Redirect.INHERIT);
+                children.add(pb.start());
+            }
+            for (Process child : children) {
+                BufferedReader in = new BufferedReader(
+                        new InputStreamReader(child.getInputStream()));
+                if (!"ready".equals(in.readLine())) {
+                    System.err.println("Process failed to start");
+                    System.exit(1);
+                }
+            }
+            for (Process child : children) {
+                child.getOutputStream().write("go\n".getBytes());
+                child.getOutputStream().flush();
+            }
+        } else {
+            comm = Comm.loopback(K, rank, address);
+            System.out.println("ready");
+            System.out.flush();
+            new BufferedReader(new InputStreamReader(System.in)).readLine();
+        }
+
+        if (rank == 0) {
+            System.out.printf("%d processes%n", K);
+            System.out.printf("%10s %15s %15s%n", "Doubles", "Butterfly (ms)",
+                    "Ring (ms)");
+        }
+        for (int n : SIZES) {
+            double[] a = new double[n];
+            double[] b = new double[n];
+            long butterfly = time(comm, a, b, false);
+            long ring = time(comm, b, a, true);
+
+            // Both algorithms must give the same sums.
+            for (int i = 0; i < n; ++i) {
+                if (a[i] != b[i] || a[i] != expected(K, i)) {
+                    System.err.printf("Rank %d: mismatch at item %d%n", rank, i);
+                    System.exit(1);
+                }
+            }
+            if (rank == 0) {
+                System.out.printf("%10d %15.3f %15.3f%n", n,
+                        butterfly / 1.0e6 / REPS, ring / 1.0e6 / REPS);
+            }
+        }
+
+        for (Process child : children) {
+            child.waitFor();
+        }
+        System.exit(0);
+    }
+
+// Hidden operations.
+
+    /**
+     * Time REPS all-reduces of <code>data</code>, after WARMUP untimed ones.
+     * On return <code>data</code> holds the sums and <code>other</code> is
+     * unchanged.
+     */
+    private static long time(Comm comm,
+                             double[] data,
+                             double[] other,
+                             boolean ring)
+            throws IOException {
+        DoubleBuf buf = DoubleBuf.buffer(data);
+        long total = 0;
+        for (int rep = 0; rep < WARMUP + REPS; ++rep) {
+            fill(comm.rank(), data);
+            comm.barrier();
+            long t = System.nanoTime();
+            if (ring) {
+                comm.allReduceRing(0, buf, DoubleOp.SUM);
+            } else {
+                comm.allReduceButterfly(0, buf, DoubleOp.SUM);
+            }
+            t = System.nanoTime() - t;
+            if (rep >= WARMUP) {
+                total += t;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Fill the data items contributed by the given rank. The values are small
+     * integers, so the sums are exact whatever the order of reduction.
+     */
+    private static void fill(int rank,
+                             double[] data) {
+        for (int i = 0; i < data.length; ++i) {
+            data[i] = (i % 101) + rank;
+        }
+    }
+
+    /**
+     * Returns the sum over all ranks of the values placed by fill().
+     */
+    private static double expected(int K,
+                                   int i) {
+        return K * (i % 101) + K * (K - 1) / 2;
+    }
+
+    /**
+     * Print a usage message and exit.
+     */
+    private static void usage() {
+        System.err.println("Usage: java edu.rit.pj.CommBenchmark <K> [<port>]");
+        System.err.println("<K> = Number of processes");
+        System.err.println("<port> = First of K consecutive loopback ports");
+        System.exit(1);
+    }
+
+}
@@ -0,0 +1,314 @@
+//******************************************************************************
+//
+// File:    CoreBudget.java
+// Package: edu.rit.pj
+// Unit:    Class edu.rit.pj.CoreBudget
+//
+// Additional file added 10/19/2026 by Michael J. Schnieders to the Parallel
+// Java Library as maintained within Force Field X.
+//
+// This Java source file is part of the Parallel Java Library ("PJ"). PJ is free
+// software; you can redistribute it and/or modify it under the terms of the GNU
+// General Public License as published by the Free Software Foundation; either
+// version 3 of the License, or (at your option) any later version.
+//
+// PJ is distributed in the hope that it will be useful, but WITHOUT ANY
+// WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+// A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+//
+// Linking this library statically or dynamically with other modules is making a
+// combined work based on this library. Thus, the terms and conditions of the GNU
+// General Public License cover the whole combination.
+//
+// As a special exception, the copyright holders of this library give you
+// permission to link this library with independent modules to produce an
+// executable, regardless of the license terms of these independent modules, and
+// to copy and distribute the resulting executable under terms of your choice,
+// provided that you also meet, for each linked independent module, the terms
+// and conditions of the license of that module. An independent module is a module
+// which is not derived from or based on this library. If you modify this library,
+// you may extend this exception to your version of the library, but you are not
+// obligated to do so. If you do not wish to do so, delete this exception
+// statement from your version.
+//
+// A copy of the GNU General Public License is provided in the file gpl.txt. You
+// may also obtain a copy of the GNU General Public License on the World Wide
+// Web at http://www.gnu.org/licenses/gpl.html.
+//
+//******************************************************************************
+package edu.rit.pj;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Class CoreBudget provides a process-wide budget of CPU cores shared by all
+ * {@linkplain ParallelTeam}s, so that nested and concurrent parallel teams do
+ * not run more threads than there are cores.
+ * <P>
+ * The budget holds one permit per core. Before a parallel team releases its
+ * threads to execute a parallel region, it acquires one permit per thread,
+ * waiting if there are not enough; each thread returns its permit when it
+ * finishes the region. A thread that is not doing useful work returns its
+ * permit while it waits and takes it back (without waiting) afterwards:
+ * <UL>
+ * <LI>
+ * A team thread that executes a nested parallel region in another team lends
+ * its permit to that team, since it only waits for the nested region.
+ * <LI>
+ * A team thread that has been waiting a long time at a barrier or for another
+ * thread (see class {@linkplain Spinner}) lends its permit until the wait ends.
+ * </UL>
+ * As a result, a team that must wait for permits only waits for threads that
+ * are doing useful work. A team with more threads than the budget has cores
+ * waits until all cores are free and then runs oversubscribed.
+ * <P>
+ * The budget also accumulates the time threads hold permits, from which it
+ * reports the utilization of the budgeted cores.
+ * <P>
+ * The global budget is disabled unless the <code>"pj.cores"</code> Java
+ * property gives the number of cores (see {@link PJProperties#getPjCores()}),
+ * or {@link #setGlobalCapacity(int)} is called.
+ *
+ * @author Michael J. Schnieders
+ * @since 1.0
+ */
+public class CoreBudget {
+
+// Hidden data members.
+    // The global core budget, or null if disabled.
+    private static volatile CoreBudget global = create(PJProperties.getPjCores());
+
+    // Number of cores.
+    private final int myCapacity;
+
+    // Number of permits not held by any thread; negative when oversubscribed.
+    private final AtomicInteger myAvailable;
+
+    // Number of teams waiting for permits.
+    private volatile int myWaiters;
+
+    // Statistics.
+    private final long myStartTime = System.nanoTime();
+    private final LongAdder myBusyTime = new LongAdder();
+    private final LongAdder myWaitTime = new LongAdder();
+    private final AtomicLong myAdmissions = new AtomicLong();
+    private final AtomicLong myWaits = new AtomicLong();
+    private final AtomicInteger myPeak = new AtomicInteger();
+
+// Exported constructors.
+    /**
+     * Construct a new core budget.
+     *
+     * @param cores Number of cores.
+     * @exception IllegalArgumentException (unchecked exception) Thrown if
+     * <code>cores</code> is less than 1.
+     */
+    public CoreBudget(int cores) {
+        if (cores < 1) {
+            throw new IllegalArgumentException("CoreBudget(): cores must be >= 1");
+        }
+        myCapacity = cores;
+        myAvailable = new AtomicInteger(cores);
+    }
+
+// Exported operations.
+    /**
+     * Obtain the global core budget.
+     *
+     * @return Global core budget, or null if disabled.
+     */
+    public static CoreBudget getGlobal() {
+        return global;
+    }
+
+    /**
+     * Set the number of cores in the global core budget. Parallel regions
+     * already executing keep using the previous budget.
+     *
+     * @param cores Number of cores, or 0 to disable the global budget.
+     * @exception IllegalArgumentException (unchecked exception) Thrown if
+     * <code>cores</code> is less than 0.
+     */
+    public static void setGlobalCapacity(int cores) {
+        if (cores < 0) {
+            throw new IllegalArgumentException("CoreBudget.setGlobalCapacity(): cores must be >= 0");
+        }
+        global = create(cores);
+    }
+
+    /**
+     * Determine the number of cores in this budget.
+     *
+     * @return Number of cores.
+     */
+    public int getCapacity() {
+        return myCapacity;
+    }
+
+    /**
+     * Determine the number of permits currently held by threads.
+     *
+     * @return Number of permits in use; more than the capacity when
+     * oversubscribed.
+     */
+    public int getInUse() {
+        return myCapacity - myAvailable.get();
+    }
+
+    /**
+     * Determine the utilization of this budget since it was created: the total
+     * time threads held permits, divided by the number of cores times the
+     * elapsed time.
+     *
+     * @return Utilization, normally between 0 and 1.
+     */
+    public double getUtilization() {
+        long elapsed = System.nanoTime() - myStartTime;
+        return elapsed == 0 ? 0.0 : myBusyTime.sum() / ((double) myCapacity * elapsed);
+    }
+
+    /**
+     * Returns a string version of this core budget, reporting its statistics.
+     *
+     * @return a {@link java.lang.String} object.
+     */
+    public String toString() {
+        return String.format("CoreBudget(cores=%d, utilization=%.1f%%, "
+                + "admissions=%d, waits=%d, waitTime=%.3f s, peak=%d)",
+                myCapacity, 100.0 * getUtilization(), myAdmissions.get(),
+                myWaits.get(), myWaitTime.sum() * 1.0e-9, myPeak.get());
+    }
+
+// Hidden operations.
+    /**
+     * Create a core budget, or return null if cores is 0.
+     */
+    private static CoreBudget create(int cores) {
+        return cores == 0 ? null : new CoreBudget(cores);
+    }
+
+    /**
+     * Acquire permits for the given number of threads, waiting until there
+     * are enough (or, for a team larger than this budget, until all cores are
+     * free).
+     *
+     * @param K Number of threads.
+     */
+    void admit(int K) {
+        int need = Math.min(K, myCapacity);
+        myAdmissions.incrementAndGet();
+        if (!tryTake(need, K)) {
+            long t = System.nanoTime();
+            synchronized (this) {
+                ++myWaiters;
+                try {
+                    while (!tryTake(need, K)) {
+                        wait();
+                    }
+                } catch (InterruptedException exc) {
+                    // Proceed oversubscribed rather than lose the region.
+                    Thread.currentThread().interrupt();
+                    myAvailable.addAndGet(-K);
+                } finally {
+                    --myWaiters;
+                }
+            }
+            myWaits.incrementAndGet();
+            myWaitTime.add(System.nanoTime() - t);
+        }
+        myPeak.accumulateAndGet(getInUse(), Math::max);
+    }
+
+    /**
+     * Take K permits if at least need are available.
+     */
+    private boolean tryTake(int need,
+            int K) {
+        for (;;) {
+            int available = myAvailable.get();
+            if (available < need) {
+                return false;
+            }
+            if (myAvailable.compareAndSet(available, available - K)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Return one permit, and wake up any teams waiting for permits.
+     */
+    private void release() {
+        myAvailable.incrementAndGet();
+        if (myWaiters > 0) {
+            synchronized (this) {
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Record that the given team thread starts a parallel region holding one
+     * of this budget's permits.
+     *
+     * @param thread Team thread.
+     */
+    void begin(ParallelTeamThread thread) {
+        thread.myCoreBudget = this;
+        thread.myBusySince = System.nanoTime();
+    }
+
+    /**
+     * Record that the given team thread finished a parallel region, and return
+     * its permit if it holds one.
+     *
+     * @param thread Team thread.
+     */
+    static void end(ParallelTeamThread thread) {
+        lend(thread);
+        thread.myCoreBudget = null;
+    }
+
+    /**
+     * Return the calling thread's permit while it waits, if it is a team
+     * thread holding a permit.
+     *
+     * @return True if a permit was lent, false otherwise.
+     */
+    static boolean lend() {
+        Thread thread = Thread.currentThread();
+        return thread instanceof ParallelTeamThread
+                && lend((ParallelTeamThread) thread);
+    }
+
+    /**
+     * Take back the calling thread's permit after a wait for which
+     * <code>lend()</code> returned true. This never waits; the budget may be
+     * oversubscribed for a while.
+     */
+    static void resume() {
+        ParallelTeamThread thread = (ParallelTeamThread) Thread.currentThread();
+        CoreBudget budget = thread.myLentCoreBudget;
+        thread.myLentCoreBudget = null;
+        budget.myAvailable.decrementAndGet();
+        budget.begin(thread);
+    }
+
+    /**
+     * Return the given team thread's permit, if it holds one.
+     */
+    private static boolean lend(ParallelTeamThread thread) {
+        CoreBudget budget = thread.myCoreBudget;
+        if (budget == null) {
+            return false;
+        }
+        budget.myBusyTime.add(System.nanoTime() - thread.myBusySince);
+        thread.myCoreBudget = null;
+        thread.myLentCoreBudget = budget;
+        budget.release();
+        return true;
+    }
+
+}
@@ -379,6 +379,7 @@ public abstract class IntegerForLoop
             while (mySchedule.myOrderedIndex != this.myOrderedIndex) {
                 spinner.spin();
             }
+            spinner.stop();
         }
 
         // Execute parallel section. Propagate any exception.
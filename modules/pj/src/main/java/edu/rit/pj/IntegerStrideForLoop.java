@@ -384,6 +384,7 @@ public abstract class IntegerStrideForLoop
             while (mySchedule.myOrderedIndex != this.myOrderedIndex) {
                 spinner.spin();
             }
+            spinner.stop();
         }
 
         // Execute parallel section. Propagate any exception.
@@ -379,6 +379,7 @@ public abstract class LongForLoop
             while (mySchedule.myOrderedIndex.get() != myOrderedIndex) {
                 spinner.spin();
             }
+            spinner.stop();
         }
 
         // Execute parallel section. Propagate any exception.
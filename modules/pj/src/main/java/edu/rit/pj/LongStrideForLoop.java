@@ -383,6 +383,7 @@ public abstract class LongStrideForLoop
             while (mySchedule.myOrderedIndex.get() != myOrderedIndex) {
                 spinner.spin();
             }
+            spinner.stop();
         }
 
         // Execute parallel section. Propagate any exception.
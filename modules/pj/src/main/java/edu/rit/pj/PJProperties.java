@@ -83,6 +83,15 @@ package edu.rit.pj;
  * <B>pj.schedule</B> -- The schedule for a parallel loop in a parallel program.
  * ({@link #getPjSchedule()})
  * <LI>
+ * <B>pj.barrier</B> -- The barrier algorithm for a parallel team.
+ * ({@link #getPjBarrier()})
+ * <LI>
+ * <B>pj.barrierspin</B> -- The number of spins before a thread waiting at a
+ * tree barrier parks. ({@link #getPjBarrierSpin()})
+ * <LI>
+ * <B>pj.cores</B> -- The number of cores shared by all parallel teams in the
+ * process. ({@link #getPjCores()})
+ * <LI>
  * <B>pj.host</B> -- The host name of the Job Scheduler Daemon to use when
  * running a cluster parallel program. ({@link #getPjHost()})
  * <LI>
@@ -275,6 +284,103 @@ public class PJProperties {
         return System.getProperty("pj.schedule");
     }
 
+    /**
+     * Determine the barrier algorithm for a parallel team. For further
+     * information, see class {@linkplain ParallelTeam}.
+     * <p>
+     * If the <code>"pj.barrier"</code> Java property is specified, it must be
+     * one of the following:
+     * <UL>
+     * <LI><code>"central"</code> -- Thread 0 waits for each of the other threads
+     * in turn, then releases them all by flipping one flag. Waiting threads
+     * spin and yield.
+     * <LI><code>"tree"</code> -- Threads arrive up, and are released down, a
+     * combining tree with fan-in 4. Waiting threads spin, then park.
+     * </UL>
+     * <p>
+     * If the <code>"pj.barrier"</code> Java property is not specified,
+     * <code>"central"</code> is returned.
+     *
+     * @return Barrier algorithm (one of the above strings).
+     * @throws IllegalArgumentException (unchecked exception) Thrown if the
+     *                                  <code>"pj.barrier"</code> property value is not one of the above.
+     */
+    public static String getPjBarrier() {
+        String pj_barrier = System.getProperty("pj.barrier", "central");
+        if (!pj_barrier.equals("central") && !pj_barrier.equals("tree")) {
+            throw new IllegalArgumentException("pj.barrier system property is not \"central\" or \"tree\"");
+        }
+        return pj_barrier;
+    }
+
+    /**
+     * Determine the number of times a thread waiting at a tree barrier spins
+     * before it parks.
+     * <p>
+     * If the <code>"pj.barrierspin"</code> Java property is specified, it must
+     * be an integer greater than or equal to 0.
+     * <p>
+     * If the <code>"pj.barrierspin"</code> Java property is not specified,
+     * this method returns -1 to signify the default: 10000 spins if the team
+     * has no more threads than there are processors, otherwise no spinning.
+     *
+     * @return Number of spins before parking, or -1 if not specified.
+     * @throws IllegalArgumentException (unchecked exception) Thrown if the
+     *                                  <code>"pj.barrierspin"</code> property value is not an integer greater than or
+     *                                  equal to 0.
+     */
+    public static int getPjBarrierSpin() {
+        int spin = -1;
+        String pj_barrierspin = System.getProperty("pj.barrierspin");
+        if (pj_barrierspin != null) {
+            try {
+                spin = Integer.parseInt(pj_barrierspin);
+            } catch (NumberFormatException exc) {
+                throw new IllegalArgumentException("pj.barrierspin system property is not an integer >= 0");
+            }
+            if (spin < 0) {
+                throw new IllegalArgumentException("pj.barrierspin system property is not an integer >= 0");
+            }
+        }
+        return spin;
+    }
+
+    /**
+     * Determine the number of cores in the global core budget shared by all
+     * parallel teams in the process (see class {@linkplain CoreBudget}).
+     * <p>
+     * If the <code>"pj.cores"</code> Java property is specified, it must be
+     * <code>"all"</code> or an integer greater than or equal to 0. A value of
+     * <code>"all"</code> means the number of available processors. A value of
+     * 0 disables the global core budget.
+     * <p>
+     * If the <code>"pj.cores"</code> Java property is not specified, this
+     * method returns 0, disabling the global core budget.
+     *
+     * @return Number of cores, or 0 if disabled.
+     * @throws IllegalArgumentException (unchecked exception) Thrown if the
+     *                                  <code>"pj.cores"</code> property value is not "all" or an integer greater than
+     *                                  or equal to 0.
+     */
+    public static int getPjCores() {
+        int cores = 0;
+        String pj_cores = System.getProperty("pj.cores");
+        if (pj_cores != null) {
+            if (pj_cores.equals("all")) {
+                return Runtime.getRuntime().availableProcessors();
+            }
+            try {
+                cores = Integer.parseInt(pj_cores);
+            } catch (NumberFormatException exc) {
+                throw new IllegalArgumentException("pj.cores system property is not \"all\" or an integer >= 0");
+            }
+            if (cores < 0) {
+                throw new IllegalArgumentException("pj.cores system property is not \"all\" or an integer >= 0");
+            }
+        }
+        return cores;
+    }
+
     /**
      * Determine the host name of the Job Scheduler Daemon to use when running a
      * cluster parallel program. The program contacts the Job Scheduler Daemon
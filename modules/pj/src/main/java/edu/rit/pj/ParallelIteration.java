@@ -351,6 +351,7 @@ public abstract class ParallelIteration<T>
             while (myItemGenerator.myOrderedIndex != this.myOrderedIndex) {
                 spinner.spin();
             }
+            spinner.stop();
         }
 
         // Execute parallel section. Propagate any exception.
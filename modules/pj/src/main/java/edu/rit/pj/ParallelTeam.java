@@ -56,6 +56,11 @@ import java.util.concurrent.atomic.AtomicInteger;
  * instance of a concrete subclass of class {@linkplain ParallelRegion}; and
  * pass this instance to the parallel team's <code>execute()</code> method. For
  * further information, see class {@linkplain ParallelRegion}.
+ * <P>
+ * By default, the threads synchronize at a barrier through thread 0, which
+ * waits for each of the other threads in turn. If the <code>"pj.barrier"</code>
+ * Java property is <code>"tree"</code>, a combining tree barrier is used
+ * instead (see {@link PJProperties#getPjBarrier()}).
  *
  * @author Alan Kaminsky
  * @version 19-May-2008
@@ -81,6 +86,12 @@ public class ParallelTeam {
     // Team barrier flag. Used by the ParallelRegion.barrier() method.
     volatile int myBarrierFlag;
 
+    // Tree barrier, or null if the central barrier is used.
+    TreeBarrier myTreeBarrier;
+
+    // Core budget for the parallel region being executed, or null if none.
+    volatile CoreBudget myCoreBudget;
+
     // Parallel construct counter. Counts how many parallel constructs have been
     // encountered.
     AtomicInteger myConstructCount = new AtomicInteger(0);
@@ -127,6 +138,10 @@ public class ParallelTeam {
         for (int i = 1; i < K; ++i) {
             myThread[i] = new ParallelTeamThread(this, i);
         }
+
+        if (PJProperties.getPjBarrier().equals("tree")) {
+            myTreeBarrier = new TreeBarrier(this);
+        }
     }
 
 // Exported operations.
@@ -170,6 +185,17 @@ public class ParallelTeam {
             // aborts the execute() method.
             myRegion.start();
 
+            // Acquire a core for each team thread from the global core budget,
+            // if any. A team thread executing this nested region lends its
+            // own core while it waits.
+            CoreBudget budget = myRegion instanceof KillRegion ? null : CoreBudget.getGlobal();
+            boolean lent = false;
+            if (budget != null) {
+                lent = CoreBudget.lend();
+                budget.admit(K);
+            }
+            myCoreBudget = budget;
+
             // Release the team threads to perform the parallel region's run()
             // method.
             for (ParallelTeamThread thread : myThread) {
@@ -179,6 +205,10 @@ public class ParallelTeam {
             // Wait until all team threads have returned from the parallel
             // region's run() method.
             myRegionEndSemaphore.acquireUninterruptibly(K);
+            myCoreBudget = null;
+            if (lent) {
+                CoreBudget.resume();
+            }
 
             // Propagate any exceptions thrown by the run() method.
             if (myExceptionMap.isEmpty()) {
@@ -264,6 +294,11 @@ public class ParallelTeam {
      * is called by thread 0 of the parallel team.
      */
     void barrier() {
+        if (myTreeBarrier != null) {
+            myTreeBarrier.barrier(0);
+            return;
+        }
+
         // Get the new team barrier flag.
         int newBarrierFlag = myBarrierFlag ^ 1;
 
@@ -276,6 +311,7 @@ public class ParallelTeam {
                 while (thread_i.myBarrierFlag != newBarrierFlag) {
                     spinner.spin();
                 }
+                spinner.stop();
             }
         }
 
@@ -294,6 +330,11 @@ public class ParallelTeam {
      */
     void barrier(BarrierAction action)
             throws Exception {
+        if (myTreeBarrier != null) {
+            myTreeBarrier.barrier(action);
+            return;
+        }
+
         // Get the new team barrier flag.
         int newBarrierFlag = myBarrierFlag ^ 1;
 
@@ -306,6 +347,7 @@ public class ParallelTeam {
                 while (thread_i.myBarrierFlag != newBarrierFlag) {
                     spinner.spin();
                 }
+                spinner.stop();
             }
         }
 
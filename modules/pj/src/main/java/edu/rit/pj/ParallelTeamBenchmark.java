@@ -0,0 +1,137 @@
+//******************************************************************************
+//
+// File:    ParallelTeamBenchmark.java
+// Package: edu.rit.pj
+// Unit:    Class edu.rit.pj.ParallelTeamBenchmark
+//
+// Additional file added 10/19/2026 by Michael J. Schnieders to the Parallel
+// Java Library as maintained within Force Field X.
+//
+// This Java source file is part of the Parallel Java Library ("PJ"). PJ is free
+// software; you can redistribute it and/or modify it under the terms of the GNU
+// General Public License as published by the Free Software Foundation; either
+// version 3 of the License, or (at your option) any later version.
+//
+// PJ is distributed in the hope that it will be useful, but WITHOUT ANY
+// WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+// A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+//
+// Linking this library statically or dynamically with other modules is making a
+// combined work based on this library. Thus, the terms and conditions of the GNU
+// General Public License cover the whole combination.
+//
+// As a special exception, the copyright holders of this library give you
+// permission to link this library with independent modules to produce an
+// executable, regardless of the license terms of these independent modules, and
+// to copy and distribute the resulting executable under terms of your choice,
+// provided that you also meet, for each linked independent module, the terms
+// and conditions of the license of that module. An independent module is a module
+// which is not derived from or based on this library. If you modify this library,
+// you may extend this exception to your version of the library, but you are not
+// obligated to do so. If you do not wish to do so, delete this exception
+// statement from your version.
+//
+// A copy of the GNU General Public License is provided in the file gpl.txt. You
+// may also obtain a copy of the GNU General Public License on the World Wide
+// Web at http://www.gnu.org/licenses/gpl.html.
+//
+//******************************************************************************
+package edu.rit.pj;
+
+/**
+ * Class ParallelTeamBenchmark measures the overhead of parallel team
+ * synchronization versus the number of threads: executing an empty parallel
+ * region, a barrier, and a parallel for loop with an empty body.
+ * <p>
+ * Usage: <code>java [-Dpj.barrier=tree] edu.rit.pj.ParallelTeamBenchmark
+ * [<I>maxThreads</I> [<I>reps</I>]]</code>
+ * <BR><I>maxThreads</I> = Largest team size (default: number of processors)
+ * <BR><I>reps</I> = Number of timed repetitions (default 100000)
+ * <p>
+ * Team sizes are 1, 2, 4, ... up to <I>maxThreads</I>. The program prints the
+ * average time in microseconds per region, barrier, and loop.
+ *
+ * @author Michael J. Schnieders
+ * @since 1.0
+ */
+public class ParallelTeamBenchmark {
+
+// Prevent construction.
+
+    private ParallelTeamBenchmark() {
+    }
+
+// Main program.
+
+    /**
+     * Main program.
+     *
+     * @param args Command line arguments.
+     * @throws Exception Thrown if an error occurred.
+     */
+    public static void main(String[] args) throws Exception {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0])
+                : Runtime.getRuntime().availableProcessors();
+        final int reps = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+
+        System.out.printf("Barrier: %s%n", PJProperties.getPjBarrier());
+        System.out.printf("%8s %12s %12s %12s%n", "Threads", "Region (us)",
+                "Barrier (us)", "Loop (us)");
+        for (int K = 1; K <= maxThreads; K = K < maxThreads ? Math.min(2 * K, maxThreads) : K + 1) {
+            ParallelTeam team = new ParallelTeam(K);
+            final int iterations = 16 * K;
+
+            // Empty parallel regions, after a warmup.
+            ParallelRegion empty = new ParallelRegion() {
+                public void run() {
+                }
+            };
+            for (int i = 0; i < reps / 10; ++i) {
+                team.execute(empty);
+            }
+            long t = System.nanoTime();
+            for (int i = 0; i < reps; ++i) {
+                team.execute(empty);
+            }
+            double region = (System.nanoTime() - t) / 1.0e3 / reps;
+
+            // Barriers within one parallel region.
+            final long[] time = new long[2];
+            team.execute(new ParallelRegion() {
+                public void run() throws Exception {
+                    for (int i = 0; i < reps / 10; ++i) {
+                        barrier();
+                    }
+                    long t = System.nanoTime();
+                    for (int i = 0; i < reps; ++i) {
+                        barrier();
+                    }
+                    t = System.nanoTime() - t;
+
+                    // Parallel for loops with an empty body.
+                    IntegerForLoop loop = new IntegerForLoop() {
+                        public void run(int first, int last) {
+                        }
+                    };
+                    for (int i = 0; i < reps / 10; ++i) {
+                        execute(0, iterations - 1, loop);
+                    }
+                    long t2 = System.nanoTime();
+                    for (int i = 0; i < reps; ++i) {
+                        execute(0, iterations - 1, loop);
+                    }
+                    t2 = System.nanoTime() - t2;
+                    if (getThreadIndex() == 0) {
+                        time[0] = t;
+                        time[1] = t2;
+                    }
+                }
+            });
+
+            System.out.printf("%8d %12.3f %12.3f %12.3f%n", K, region,
+                    time[0] / 1.0e3 / reps, time[1] / 1.0e3 / reps);
+            team.shutdown();
+        }
+    }
+
+}
@@ -86,6 +86,16 @@ class ParallelTeamThread
     // Exception thrown while setting up a parallel construct, or null if none.
     volatile Throwable myConstructException;
 
+    // Core budget from which this thread holds a core, or null if none.
+    // Accessed only by this thread.
+    CoreBudget myCoreBudget;
+
+    // Core budget to which this thread has lent its core, or null if none.
+    CoreBudget myLentCoreBudget;
+
+    // Time at which this thread last acquired its core (nanoseconds).
+    long myBusySince;
+
     // 128 bytes of extra padding to avert cache interference.
     private long p0, p1, p2, p3, p4, p5, p6, p7;
     private long p8, p9, pa, pb, pc, pd, pe, pf;
@@ -126,6 +136,10 @@ class ParallelTeamThread
             
             // Call the parallel region's run() method. Save any
             // exception for later.
+            CoreBudget budget = myTeam.myCoreBudget;
+            if (budget != null) {
+                budget.begin(this);
+            }
             try {
                 myTeam.myRegion.run();
             } catch (Throwable exc) {
@@ -140,7 +154,8 @@ class ParallelTeamThread
                 myTeam.myExceptionMap.put(myIndex, exc);
             }
 
-            // Tell the main thread we're done.
+            // Return this thread's core, and tell the main thread we're done.
+            CoreBudget.end(this);
             myTeam.myRegionEndSemaphore.release();
         }
         myTeam.myRegionEndSemaphore.release();
@@ -152,6 +167,11 @@ class ParallelTeamThread
      * is called by thread 1 through thread K-1 of the parallel team.
      */
     void barrier() {
+        if (myTeam.myTreeBarrier != null) {
+            myTeam.myTreeBarrier.barrier(myIndex);
+            return;
+        }
+
         // Get the new team barrier flag.
         int newBarrierFlag = myTeam.myBarrierFlag ^ 1;
 
@@ -164,6 +184,7 @@ class ParallelTeamThread
             while (myTeam.myBarrierFlag != newBarrierFlag) {
                 spinner.spin();
             }
+            spinner.stop();
         }
     }
 
@@ -198,6 +219,7 @@ class ParallelTeamThread
                 while (thread_i.myConstructCount < this.myConstructCount) {
                     spinner.spin();
                 }
+                spinner.stop();
             }
         }
 
@@ -230,6 +252,7 @@ class ParallelTeamThread
             while (myIntegerSchedule != null) {
                 spinner.spin();
             }
+            spinner.stop();
         }
 
         myIntegerSchedule = theSchedule;
@@ -251,6 +274,7 @@ class ParallelTeamThread
             while (myIntegerSchedule == null && myConstructException == null) {
                 spinner.spin();
             }
+            spinner.stop();
         }
 
         // Make temporary copies and null out originals.
@@ -277,6 +301,7 @@ class ParallelTeamThread
             while (myLongSchedule != null) {
                 spinner.spin();
             }
+            spinner.stop();
         }
 
         myLongSchedule = theSchedule;
@@ -298,6 +323,7 @@ class ParallelTeamThread
             while (myLongSchedule == null && myConstructException == null) {
                 spinner.spin();
             }
+            spinner.stop();
         }
 
         // Make temporary copies and null out originals.
@@ -324,6 +350,7 @@ class ParallelTeamThread
             while (myItemGenerator != null) {
                 spinner.spin();
             }
+            spinner.stop();
         }
 
         myItemGenerator = theItemGenerator;
@@ -345,6 +372,7 @@ class ParallelTeamThread
             while (myItemGenerator == null && myConstructException == null) {
                 spinner.spin();
             }
+            spinner.stop();
         }
 
         // Make temporary copies and null out originals.
@@ -371,6 +399,7 @@ class ParallelTeamThread
             while (myConstructException != null) {
                 spinner.spin();
             }
+            spinner.stop();
         }
 
         myConstructException = theException;
@@ -48,8 +48,13 @@ package edu.rit.pj;
  *        {
  *        Spinner spinner = new Spinner();
  *        while (&lt;condition&gt;) spinner.spin();
+ *        spinner.stop();
  *        }
  * </PRE> This will wait as long as the <code>&lt;condition&gt;</code> is true.
+ * <P>
+ * Once a spin-wait starts yielding the CPU, a parallel team thread lends its
+ * core to the global core budget (see class {@linkplain CoreBudget}) until the
+ * <code>stop()</code> method is called.
  *
  * @author Alan Kaminsky
  * @version 20-Dec-2007
@@ -65,6 +70,9 @@ class Spinner {
     // Spin counter.
     volatile int count;
 
+    // True if the calling thread lent its core to the core budget.
+    boolean lent;
+
     // 128 bytes of extra padding to avert cache interference.
     private long p0, p1, p2, p3, p4, p5, p6, p7;
     private long p8, p9, pa, pb, pc, pd, pe, pf;
@@ -83,9 +91,23 @@ class Spinner {
      */
     public void spin() {
         if (count++ > MAX_COUNT) {
+            if (!lent) {
+                lent = CoreBudget.lend();
+            }
             Thread.yield();
             count = 0;
         }
     }
 
+    /**
+     * Stop this spinner at the end of a spin-wait. If the calling thread lent
+     * its core while spinning, it takes the core back.
+     */
+    public void stop() {
+        if (lent) {
+            lent = false;
+            CoreBudget.resume();
+        }
+    }
+
 }
@@ -0,0 +1,256 @@
+//******************************************************************************
+//
+// File:    TreeBarrier.java
+// Package: edu.rit.pj
+// Unit:    Class edu.rit.pj.TreeBarrier
+//
+// Additional file added 10/19/2026 by Michael J. Schnieders to the Parallel
+// Java Library as maintained within Force Field X.
+//
+// This Java source file is part of the Parallel Java Library ("PJ"). PJ is free
+// software; you can redistribute it and/or modify it under the terms of the GNU
+// General Public License as published by the Free Software Foundation; either
+// version 3 of the License, or (at your option) any later version.
+//
+// PJ is distributed in the hope that it will be useful, but WITHOUT ANY
+// WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+// A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+//
+// Linking this library statically or dynamically with other modules is making a
+// combined work based on this library. Thus, the terms and conditions of the GNU
+// General Public License cover the whole combination.
+//
+// As a special exception, the copyright holders of this library give you
+// permission to link this library with independent modules to produce an
+// executable, regardless of the license terms of these independent modules, and
+// to copy and distribute the resulting executable under terms of your choice,
+// provided that you also meet, for each linked independent module, the terms
+// and conditions of the license of that module. An independent module is a module
+// which is not derived from or based on this library. If you modify this library,
+// you may extend this exception to your version of the library, but you are not
+// obligated to do so. If you do not wish to do so, delete this exception
+// statement from your version.
+//
+// A copy of the GNU General Public License is provided in the file gpl.txt. You
+// may also obtain a copy of the GNU General Public License on the World Wide
+// Web at http://www.gnu.org/licenses/gpl.html.
+//
+//******************************************************************************
+package edu.rit.pj;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Class TreeBarrier provides a combining tree barrier for the threads of a
+ * {@linkplain ParallelTeam}.
+ * <P>
+ * The threads form a tree with fan-in 4: the children of thread <I>i</I> are
+ * threads 4<I>i</I>+1 through 4<I>i</I>+4. A thread arriving at the barrier
+ * waits for its children to arrive, then signals its own arrival to its
+ * parent. When thread 0 (the root) sees that all threads have arrived, it
+ * performs the barrier action, if any, then releases its children, each of
+ * which releases its own children. Each signal is a write to a flag that only
+ * one other thread reads, so a barrier takes O(log <I>K</I>) steps rather than
+ * O(<I>K</I>) on thread 0, and waiting threads do not contend for one cache
+ * line.
+ * <P>
+ * A waiting thread spins for a while (see {@link PJProperties#getPjBarrierSpin()}),
+ * then parks until the thread it waits for unparks it, so that threads waiting
+ * at a barrier for a long time leave the CPUs to other work.
+ *
+ * @author Michael J. Schnieders
+ * @since 1.0
+ */
+class TreeBarrier {
+
+// Hidden constants.
+    // Tree fan-in.
+    private static final int FAN_IN = 4;
+
+// Hidden data members.
+    // Parallel team.
+    private ParallelTeam myTeam;
+
+    // Per-thread barrier state.
+    private Node[] myNode;
+
+    // Number of spins before parking.
+    private int mySpin;
+
+// Hidden helper classes.
+    /**
+     * Barrier state of one team thread.
+     */
+    private static class Node {
+
+        // Thread owning this node.
+        Thread myThread;
+
+        // Sense of the barrier this thread is in; flips at every barrier.
+        int mySense;
+
+        // Set to the sense when this thread and its subtree have arrived.
+        volatile int myArrived;
+
+        // Set to the sense when this thread has been released.
+        volatile int myReleased;
+
+        // True while this thread is parked or about to park.
+        volatile boolean myParked;
+
+        // 128 bytes of extra padding to avert cache interference.
+        private long p0, p1, p2, p3, p4, p5, p6, p7;
+        private long p8, p9, pa, pb, pc, pd, pe, pf;
+    }
+
+// Hidden constructors.
+    /**
+     * Construct a new tree barrier.
+     *
+     * @param theTeam Parallel team.
+     */
+    TreeBarrier(ParallelTeam theTeam) {
+        myTeam = theTeam;
+        int K = theTeam.K;
+        mySpin = PJProperties.getPjBarrierSpin();
+        if (mySpin < 0) {
+            // Spinning only delays the awaited thread when the team
+            // oversubscribes the processors.
+            mySpin = K <= Runtime.getRuntime().availableProcessors() ? 10000 : 0;
+        }
+        myNode = new Node[K];
+        for (int i = 0; i < K; ++i) {
+            myNode[i] = new Node();
+            myNode[i].myThread = theTeam.myThread[i];
+        }
+    }
+
+// Hidden operations.
+    /**
+     * Do the given thread's portion of a barrier with no barrier action.
+     *
+     * @param index Index of the calling thread within the team.
+     */
+    void barrier(int index) {
+        release(index, arrive(index));
+    }
+
+    /**
+     * Do thread 0's portion of a barrier with a barrier action. The action is
+     * performed after all threads have arrived and before any is released.
+     *
+     * @param action Barrier action.
+     *
+     * @exception Exception Thrown if the <code>action</code>'s <code>run()</code>
+     * method throws an exception.
+     */
+    void barrier(BarrierAction action)
+            throws Exception {
+        int sense = arrive(0);
+        try {
+            action.myTeam = myTeam;
+            action.run();
+        } finally {
+            action.myTeam = null;
+            release(0, sense);
+        }
+    }
+
+    /**
+     * Wait until the given thread's subtree has arrived and signal the parent.
+     * Thread 0 returns once all threads have arrived; any other thread returns
+     * once it has been released.
+     *
+     * @param index Index of the calling thread within the team.
+     * @return Barrier sense.
+     */
+    private int arrive(int index) {
+        Node node = myNode[index];
+        int sense = node.mySense ^ 1;
+        node.mySense = sense;
+
+        // Wait until each child subtree has arrived.
+        int first = FAN_IN * index + 1;
+        int last = Math.min(first + FAN_IN, myNode.length);
+        for (int c = first; c < last; ++c) {
+            waitFor(node, myNode[c], true, sense);
+        }
+
+        // Tell the parent this subtree has arrived, then wait for release.
+        if (index > 0) {
+            node.myArrived = sense;
+            signal(myNode[(index - 1) / FAN_IN]);
+            waitFor(node, node, false, sense);
+        }
+        return sense;
+    }
+
+    /**
+     * Release the children of the given thread.
+     *
+     * @param index Index of the calling thread within the team.
+     * @param sense Barrier sense.
+     */
+    private void release(int index,
+            int sense) {
+        int first = FAN_IN * index + 1;
+        int last = Math.min(first + FAN_IN, myNode.length);
+        for (int c = first; c < last; ++c) {
+            Node child = myNode[c];
+            child.myReleased = sense;
+            signal(child);
+        }
+    }
+
+    /**
+     * Wake up the thread owning the given node if it is parked. The caller has
+     * already written the flag the thread is waiting for.
+     */
+    private static void signal(Node node) {
+        if (node.myParked) {
+            LockSupport.unpark(node.myThread);
+        }
+    }
+
+    /**
+     * Wait until a flag of the given target node equals the given sense: spin,
+     * then park.
+     *
+     * @param node Node of the calling thread.
+     * @param target Node whose flag is awaited.
+     * @param arrival True to wait for the target's arrival flag, false to wait
+     * for its release flag.
+     * @param sense Barrier sense.
+     */
+    private void waitFor(Node node,
+            Node target,
+            boolean arrival,
+            int sense) {
+        int spins = 0;
+        boolean lent = false;
+        while ((arrival ? target.myArrived : target.myReleased) != sense) {
+            if (spins < mySpin) {
+                Thread.onSpinWait();
+                ++spins;
+            } else {
+                // Lend this thread's core to the core budget while parked.
+                if (!lent) {
+                    lent = CoreBudget.lend();
+                }
+
+                // Announce the park, then re-check the flag. The signaling
+                // thread writes the flag before it checks myParked, so one of
+                // the two threads sees the other's write.
+                node.myParked = true;
+                if ((arrival ? target.myArrived : target.myReleased) != sense) {
+                    LockSupport.park(this);
+                }
+                node.myParked = false;
+            }
+        }
+        if (lent) {
+            CoreBudget.resume();
+        }
+    }
+
+}
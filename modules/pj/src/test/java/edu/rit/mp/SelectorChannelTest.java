@@ -0,0 +1,152 @@
+//******************************************************************************
+//
+// File:    SelectorChannelTest.java
+// Package: edu.rit.mp
+// Unit:    Class edu.rit.mp.SelectorChannelTest
+//
+// Additional file added 10/19/2026 by Michael J. Schnieders to the Parallel
+// Java Library as maintained within Force Field X.
+//
+// This Java source file is part of the Parallel Java Library ("PJ"). PJ is free
+// software; you can redistribute it and/or modify it under the terms of the GNU
+// General Public License as published by the Free Software Foundation; either
+// version 3 of the License, or (at your option) any later version.
+//
+// PJ is distributed in the hope that it will be useful, but WITHOUT ANY
+// WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+// A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+//
+// Linking this library statically or dynamically with other modules is making a
+// combined work based on this library. Thus, the terms and conditions of the GNU
+// General Public License cover the whole combination.
+//
+// As a special exception, the copyright holders of this library give you
+// permission to link this library with independent modules to produce an
+// executable, regardless of the license terms of these independent modules, and
+// to copy and distribute the resulting executable under terms of your choice,
+// provided that you also meet, for each linked independent module, the terms
+// and conditions of the license of that module. An independent module is a module
+// which is not derived from or based on this library. If you modify this library,
+// you may extend this exception to your version of the library, but you are not
+// obligated to do so. If you do not wish to do so, delete this exception
+// statement from your version.
+//
+// A copy of the GNU General Public License is provided in the file gpl.txt. You
+// may also obtain a copy of the GNU General Public License on the World Wide
+// Web at http://www.gnu.org/licenses/gpl.html.
+//
+//******************************************************************************
+package edu.rit.mp;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for class {@linkplain SelectorChannel}. Two channel groups in this
+ * process are connected over the loopback interface, each with a one-thread
+ * selector engine.
+ *
+ * @author Michael J. Schnieders
+ * @since 1.0
+ */
+public class SelectorChannelTest {
+
+    private ChannelGroup groupA;
+    private ChannelGroup groupB;
+    private Channel channelA;
+    private Channel channelB;
+
+    @Before
+    public void setUp() throws IOException {
+        groupA = new ChannelGroup();
+        groupB = new ChannelGroup();
+        try (ServerSocketChannel server = ServerSocketChannel.open()) {
+            server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            SocketChannel socketA = SocketChannel.open(server.getLocalAddress());
+            SocketChannel socketB = server.accept();
+            channelA = groupA.createNetworkChannel(socketA, groupB.myChannelGroupId, null, 1);
+            channelB = groupB.createNetworkChannel(socketB, groupA.myChannelGroupId, null, 1);
+        }
+        assertTrue(channelA instanceof SelectorChannel);
+        assertTrue(channelB instanceof SelectorChannel);
+        channelA.start();
+        channelB.start();
+    }
+
+    @After
+    public void tearDown() {
+        groupA.close();
+        groupB.close();
+    }
+
+    /**
+     * An incoming message is only delivered to a receive request with a
+     * matching tag; a pending receive for another tag is left alone until its
+     * own message arrives.
+     */
+    @Test(timeout = 30000)
+    public void testMessageTagMatch() throws Exception {
+        groupA.send(channelA, 1, IntegerBuf.buffer(new int[]{1, 1, 1}));
+
+        // Wait for tag 2 in another thread; the tag 1 message must not match.
+        final int[] two = new int[2];
+        final Status[] twoStatus = new Status[1];
+        Thread thread = new Thread(() -> {
+            try {
+                twoStatus[0] = groupB.receive(channelB, 2, IntegerBuf.buffer(two));
+            } catch (IOException exc) {
+                // Leaves the status null, which fails below.
+            }
+        });
+        thread.start();
+        thread.join(200);
+        assertTrue(thread.isAlive());
+
+        int[] one = new int[3];
+        Status status = groupB.receive(channelB, 1, IntegerBuf.buffer(one));
+        assertEquals(1, status.tag);
+        assertEquals(3, status.length);
+        assertArrayEquals(new int[]{1, 1, 1}, one);
+        assertTrue(thread.isAlive());
+
+        groupA.send(channelA, 2, IntegerBuf.buffer(new int[]{2, 2}));
+        thread.join();
+        assertEquals(2, twoStatus[0].tag);
+        assertEquals(2, twoStatus[0].length);
+        assertArrayEquals(new int[]{2, 2}, two);
+    }
+
+    /**
+     * A message larger than the I/O buffers crosses intact in both directions.
+     */
+    @Test(timeout = 30000)
+    public void testLargeMessage() throws IOException {
+        int n = 3 * Constants.BUFFER_SIZE / 8 + 5;
+        double[] sent = new double[n];
+        for (int i = 0; i < n; i++) {
+            sent[i] = i + 0.5;
+        }
+        groupA.send(channelA, 7, DoubleBuf.buffer(sent));
+        double[] received = new double[n];
+        Status status = groupB.receive(channelB, 7, DoubleBuf.buffer(received));
+        assertEquals(n, status.length);
+        assertArrayEquals(sent, received, 0.0);
+
+        // Echo it back.
+        groupB.send(channelB, 8, DoubleBuf.buffer(received));
+        double[] echoed = new double[n];
+        groupA.receive(channelA, 8, DoubleBuf.buffer(echoed));
+        assertArrayEquals(sent, echoed, 0.0);
+    }
+
+}
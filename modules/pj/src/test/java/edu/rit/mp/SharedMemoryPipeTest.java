@@ -0,0 +1,207 @@
+//******************************************************************************
+//
+// File:    SharedMemoryPipeTest.java
+// Package: edu.rit.mp
+// Unit:    Class edu.rit.mp.SharedMemoryPipeTest
+//
+// Additional file added 10/19/2026 by Michael J. Schnieders to the Parallel
+// Java Library as maintained within Force Field X.
+//
+// This Java source file is part of the Parallel Java Library ("PJ"). PJ is free
+// software; you can redistribute it and/or modify it under the terms of the GNU
+// General Public License as published by the Free Software Foundation; either
+// version 3 of the License, or (at your option) any later version.
+//
+// PJ is distributed in the hope that it will be useful, but WITHOUT ANY
+// WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+// A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+//
+// Linking this library statically or dynamically with other modules is making a
+// combined work based on this library. Thus, the terms and conditions of the GNU
+// General Public License cover the whole combination.
+//
+// As a special exception, the copyright holders of this library give you
+// permission to link this library with independent modules to produce an
+// executable, regardless of the license terms of these independent modules, and
+// to copy and distribute the resulting executable under terms of your choice,
+// provided that you also meet, for each linked independent module, the terms
+// and conditions of the license of that module. An independent module is a module
+// which is not derived from or based on this library. If you modify this library,
+// you may extend this exception to your version of the library, but you are not
+// obligated to do so. If you do not wish to do so, delete this exception
+// statement from your version.
+//
+// A copy of the GNU General Public License is provided in the file gpl.txt. You
+// may also obtain a copy of the GNU General Public License on the World Wide
+// Web at http://www.gnu.org/licenses/gpl.html.
+//
+//******************************************************************************
+package edu.rit.mp;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for class {@linkplain SharedMemoryPipe}. Both ends of the pipe are
+ * opened in this process, with the writer and reader in different threads.
+ *
+ * @author Michael J. Schnieders
+ * @since 1.0
+ */
+public class SharedMemoryPipeTest {
+
+    // Ring buffer capacity, small enough that the round trip wraps around.
+    private static final int CAPACITY = 4096;
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("pj-", ".shm");
+        file.deleteOnExit();
+        setLength(CAPACITY);
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    /**
+     * Everything written before close is read in order, then end-of-stream.
+     */
+    @Test(timeout = 30000)
+    public void testRoundTrip() throws Exception {
+        final SharedMemoryPipe writer = SharedMemoryPipe.open(file, true)[0];
+        SharedMemoryPipe reader = SharedMemoryPipe.open(file, false)[1];
+        final int total = 25 * CAPACITY + 17;
+        final Exception[] failure = new Exception[1];
+        Thread thread = new Thread(() -> {
+            try {
+                ByteBuffer buf = ByteBuffer.allocate(1000);
+                int sent = 0;
+                while (sent < total) {
+                    buf.clear();
+                    while (buf.hasRemaining() && sent + buf.position() < total) {
+                        buf.put((byte) (sent + buf.position()));
+                    }
+                    buf.flip();
+                    while (buf.hasRemaining()) {
+                        sent += writer.write(buf);
+                    }
+                }
+                writer.close();
+            } catch (Exception exc) {
+                failure[0] = exc;
+            }
+        });
+        thread.start();
+
+        ByteBuffer buf = ByteBuffer.allocate(777);
+        int received = 0;
+        int n;
+        while ((n = reader.read(buf)) != -1) {
+            buf.flip();
+            for (int i = 0; i < n; i++) {
+                assertEquals((byte) (received + i), buf.get());
+            }
+            received += n;
+            buf.clear();
+        }
+        thread.join();
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+        assertEquals(total, received);
+    }
+
+    /**
+     * A writer fails once the reader has closed the pipe.
+     */
+    @Test(timeout = 30000)
+    public void testReaderClose() throws Exception {
+        SharedMemoryPipe writer = SharedMemoryPipe.open(file, true)[0];
+        SharedMemoryPipe reader = SharedMemoryPipe.open(file, false)[1];
+        reader.close();
+        try {
+            writer.write(ByteBuffer.allocate(1));
+            fail("Write to a closed pipe succeeded");
+        } catch (IOException exc) {
+            // Expected.
+        }
+    }
+
+    /**
+     * A reader waiting on a far end that died without closing the pipe fails.
+     */
+    @Test(timeout = 30000)
+    public void testPeerLost() throws Exception {
+        SharedMemoryPipe.open(file, true);
+        final SharedMemoryPipe reader = SharedMemoryPipe.open(file, false)[1];
+        Thread thread = new Thread(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException exc) {
+                // Report the loss right away.
+            }
+            reader.peerLost();
+        });
+        thread.start();
+        try {
+            reader.read(ByteBuffer.allocate(8));
+            fail("Read from a lost peer succeeded");
+        } catch (EOFException exc) {
+            // Expected.
+        }
+        thread.join();
+    }
+
+    /**
+     * A far end that closed the pipe before going away still gives an orderly
+     * end-of-stream after the remaining bytes.
+     */
+    @Test(timeout = 30000)
+    public void testCloseBeforePeerLost() throws Exception {
+        SharedMemoryPipe writer = SharedMemoryPipe.open(file, true)[0];
+        SharedMemoryPipe reader = SharedMemoryPipe.open(file, false)[1];
+        writer.write(ByteBuffer.wrap(new byte[]{1, 2, 3}));
+        writer.close();
+        reader.peerLost();
+        ByteBuffer buf = ByteBuffer.allocate(8);
+        assertEquals(3, reader.read(buf));
+        assertEquals(-1, reader.read(buf));
+    }
+
+    /**
+     * A file whose ring buffers are not a power of 2 in size is rejected.
+     */
+    @Test
+    public void testRejectCapacityNotPowerOfTwo() throws IOException {
+        setLength(3000);
+        try {
+            SharedMemoryPipe.open(file, false);
+            fail("Opened a ring buffer of 3000 bytes");
+        } catch (IOException exc) {
+            // Expected.
+        }
+    }
+
+    /**
+     * Size the shared memory file for two ring buffers of the given capacity.
+     */
+    private void setLength(int capacity) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(2L * (SharedMemoryPipe.HEADER_SIZE + capacity));
+        }
+    }
+
+}
@@ -0,0 +1,118 @@
+//******************************************************************************
+//
+// File:    CoreBudgetTest.java
+// Package: edu.rit.pj
+// Unit:    Class edu.rit.pj.CoreBudgetTest
+//
+// Additional file added 10/19/2026 by Michael J. Schnieders to the Parallel
+// Java Library as maintained within Force Field X.
+//
+// This Java source file is part of the Parallel Java Library ("PJ"). PJ is free
+// software; you can redistribute it and/or modify it under the terms of the GNU
+// General Public License as published by the Free Software Foundation; either
+// version 3 of the License, or (at your option) any later version.
+//
+// PJ is distributed in the hope that it will be useful, but WITHOUT ANY
+// WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+// A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+//
+// Linking this library statically or dynamically with other modules is making a
+// combined work based on this library. Thus, the terms and conditions of the GNU
+// General Public License cover the whole combination.
+//
+// As a special exception, the copyright holders of this library give you
+// permission to link this library with independent modules to produce an
+// executable, regardless of the license terms of these independent modules, and
+// to copy and distribute the resulting executable under terms of your choice,
+// provided that you also meet, for each linked independent module, the terms
+// and conditions of the license of that module. An independent module is a module
+// which is not derived from or based on this library. If you modify this library,
+// you may extend this exception to your version of the library, but you are not
+// obligated to do so. If you do not wish to do so, delete this exception
+// statement from your version.
+//
+// A copy of the GNU General Public License is provided in the file gpl.txt. You
+// may also obtain a copy of the GNU General Public License on the World Wide
+// Web at http://www.gnu.org/licenses/gpl.html.
+//
+//******************************************************************************
+package edu.rit.pj;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for class {@linkplain CoreBudget}.
+ *
+ * @author Michael J. Schnieders
+ * @since 1.0
+ */
+public class CoreBudgetTest {
+
+    @After
+    public void tearDown() {
+        CoreBudget.setGlobalCapacity(0);
+    }
+
+    /**
+     * Threads of a team that execute nested regions in other teams lend their
+     * permits, so the nested teams can run without deadlock and without more
+     * busy threads than cores.
+     */
+    @Test(timeout = 60000)
+    public void testNestedTeams() throws Exception {
+        CoreBudget.setGlobalCapacity(2);
+        final CoreBudget budget = CoreBudget.getGlobal();
+        final AtomicInteger peak = new AtomicInteger();
+        final AtomicInteger nested = new AtomicInteger();
+        final ParallelTeam[] inner = {new ParallelTeam(2), new ParallelTeam(2)};
+        ParallelTeam outer = new ParallelTeam(2);
+        try {
+            for (int rep = 0; rep < 20; ++rep) {
+                outer.execute(new ParallelRegion() {
+                    public void run() throws Exception {
+                        inner[getThreadIndex()].execute(new ParallelRegion() {
+                            public void run() {
+                                peak.accumulateAndGet(budget.getInUse(), Math::max);
+                                nested.incrementAndGet();
+                            }
+                        });
+                    }
+                });
+                assertEquals(0, budget.getInUse());
+            }
+        } finally {
+            outer.shutdown();
+            inner[0].shutdown();
+            inner[1].shutdown();
+        }
+        assertEquals(20 * 2 * 2, nested.get());
+        assertTrue("Peak permits in use " + peak.get(), peak.get() <= 2);
+    }
+
+    /**
+     * A disabled global budget leaves teams unconstrained.
+     */
+    @Test
+    public void testDisabled() throws Exception {
+        CoreBudget.setGlobalCapacity(0);
+        assertEquals(null, CoreBudget.getGlobal());
+        ParallelTeam team = new ParallelTeam(3);
+        final AtomicInteger count = new AtomicInteger();
+        try {
+            team.execute(new ParallelRegion() {
+                public void run() {
+                    count.incrementAndGet();
+                }
+            });
+        } finally {
+            team.shutdown();
+        }
+        assertEquals(3, count.get());
+    }
+
+}
@@ -0,0 +1,138 @@
+//******************************************************************************
+//
+// File:    TreeBarrierTest.java
+// Package: edu.rit.pj
+// Unit:    Class edu.rit.pj.TreeBarrierTest
+//
+// Additional file added 10/19/2026 by Michael J. Schnieders to the Parallel
+// Java Library as maintained within Force Field X.
+//
+// This Java source file is part of the Parallel Java Library ("PJ"). PJ is free
+// software; you can redistribute it and/or modify it under the terms of the GNU
+// General Public License as published by the Free Software Foundation; either
+// version 3 of the License, or (at your option) any later version.
+//
+// PJ is distributed in the hope that it will be useful, but WITHOUT ANY
+// WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+// A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+//
+// Linking this library statically or dynamically with other modules is making a
+// combined work based on this library. Thus, the terms and conditions of the GNU
+// General Public License cover the whole combination.
+//
+// As a special exception, the copyright holders of this library give you
+// permission to link this library with independent modules to produce an
+// executable, regardless of the license terms of these independent modules, and
+// to copy and distribute the resulting executable under terms of your choice,
+// provided that you also meet, for each linked independent module, the terms
+// and conditions of the license of that module. An independent module is a module
+// which is not derived from or based on this library. If you modify this library,
+// you may extend this exception to your version of the library, but you are not
+// obligated to do so. If you do not wish to do so, delete this exception
+// statement from your version.
+//
+// A copy of the GNU General Public License is provided in the file gpl.txt. You
+// may also obtain a copy of the GNU General Public License on the World Wide
+// Web at http://www.gnu.org/licenses/gpl.html.
+//
+//******************************************************************************
+package edu.rit.pj;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Unit tests for class {@linkplain TreeBarrier}. Teams with more threads than
+ * the tree fan-in, so that some threads are both parents and children, pass
+ * through many barriers in a row, both spinning and parking.
+ *
+ * @author Michael J. Schnieders
+ * @since 1.0
+ */
+public class TreeBarrierTest {
+
+    // Number of barriers per parallel region.
+    private static final int BARRIERS = 2000;
+
+    @After
+    public void tearDown() {
+        System.clearProperty("pj.barrier");
+        System.clearProperty("pj.barrierspin");
+    }
+
+    /**
+     * Reuse one barrier many times, spinning before parking.
+     */
+    @Test(timeout = 60000)
+    public void testReuseSpinning() throws Exception {
+        reuse(7, "10000");
+        reuse(21, "10000");
+    }
+
+    /**
+     * Reuse one barrier many times, parking right away.
+     */
+    @Test(timeout = 60000)
+    public void testReuseParking() throws Exception {
+        reuse(7, "0");
+        reuse(21, "0");
+    }
+
+    /**
+     * Run several regions on a team whose threads all enter every barrier, and
+     * check that no thread leaves a barrier before every thread has arrived
+     * and that each barrier action runs exactly once, between arrival and
+     * release.
+     *
+     * @param K Number of threads.
+     * @param spin Number of spins before parking.
+     */
+    private void reuse(final int K,
+            String spin)
+            throws Exception {
+        System.setProperty("pj.barrier", "tree");
+        System.setProperty("pj.barrierspin", spin);
+        ParallelTeam team = new ParallelTeam(K);
+        assertNotNull(team.myTreeBarrier);
+        try {
+            for (int region = 0; region < 3; ++region) {
+                final AtomicIntegerArray arrived = new AtomicIntegerArray(BARRIERS);
+                final AtomicInteger actions = new AtomicInteger();
+                final AtomicInteger errors = new AtomicInteger();
+                team.execute(new ParallelRegion() {
+                    public void run() throws Exception {
+                        for (int i = 0; i < BARRIERS; ++i) {
+                            arrived.incrementAndGet(i);
+                            if (i % 2 == 0) {
+                                barrier();
+                            } else {
+                                final int barrier = i;
+                                barrier(new BarrierAction() {
+                                    public void run() {
+                                        if (arrived.get(barrier) != K) {
+                                            errors.incrementAndGet();
+                                        }
+                                        actions.incrementAndGet();
+                                    }
+                                });
+                            }
+                            if (arrived.get(i) != K) {
+                                errors.incrementAndGet();
+                            }
+                        }
+                    }
+                });
+                assertEquals(0, errors.get());
+                assertEquals(BARRIERS / 2, actions.get());
+            }
+        } finally {
+            team.shutdown();
+        }
+    }
+
+}
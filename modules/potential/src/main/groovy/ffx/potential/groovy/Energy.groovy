@@ -38,6 +38,7 @@
 package ffx.potential.groovy
 
 import com.google.common.collect.MinMaxPriorityQueue
+import edu.rit.pj.ParallelTeam
 import ffx.crystal.Crystal
 import ffx.numerics.Potential
 import ffx.potential.AssemblyState
@@ -49,6 +50,7 @@ import ffx.potential.cli.PotentialScript
 import ffx.potential.parsers.PDBFilter
 import ffx.potential.parsers.SystemFilter
 import ffx.potential.parsers.XYZFilter
+import ffx.potential.utils.TrajectoryEnergyPipeline
 import org.apache.commons.io.FilenameUtils
 import picocli.CommandLine.Command
 import picocli.CommandLine.Mixin
@@ -99,6 +101,13 @@ class Energy extends PotentialScript {
       description = "Print out all energy components for each snapshot.")
   private boolean verbose = false
 
+  /**
+   * --fw or --frameWorkers Number of independent potentials that evaluate snapshots concurrently.
+   */
+  @Option(names = ['--fw', '--frameWorkers'], paramLabel = "1", defaultValue = "1",
+      description = 'Number of workers that evaluate snapshots of an ARC/PDB file concurrently.')
+  private int frameWorkers = 1
+
   /**
    * The final argument(s) should be one or more filenames.
    */
@@ -186,6 +195,11 @@ class Energy extends PotentialScript {
         lowestEnergyQueue.add(new StateContainer(assemblyState, lowestEnergy))
       }
 
+      if (frameWorkers > 1 && !verbose && !moments && fl <= 0) {
+        evaluateFrames(systemFilter, index)
+        return this
+      }
+
       while (systemFilter.readNext()) {
         index++
         Crystal crystal = activeAssembly.getCrystal()
@@ -254,6 +268,45 @@ class Energy extends PotentialScript {
     return this
   }
 
+  /**
+   * Evaluate the remaining snapshots with a pipeline of workers forked from the active potential.
+   *
+   * @param systemFilter The filter reading the snapshots.
+   * @param index The index of the last snapshot evaluated.
+   */
+  private void evaluateFrames(SystemFilter systemFilter, int index) {
+    int nWorkers = frameWorkers
+    int threadsPerWorker = Math.max(1, (int) (ParallelTeam.getDefaultThreadCount() / nWorkers))
+    logger.info(format(" Evaluating snapshots with %d workers of %d threads.",
+        nWorkers, threadsPerWorker))
+
+    MolecularAssembly[] readers = [activeAssembly]
+    SystemFilter[] filters = [systemFilter]
+    TrajectoryEnergyPipeline pipeline = new TrajectoryEnergyPipeline(readers, filters, nWorkers)
+    List<MolecularAssembly> workerAssemblies = new ArrayList<>()
+    for (int w = 0; w < nWorkers; w++) {
+      ForceFieldEnergy workerEnergy = forceFieldEnergy.fork(threadsPerWorker)
+      MolecularAssembly workerAssembly = workerEnergy.getMolecularAssembly()
+      workerAssemblies.add(workerAssembly)
+      double[] workerX = new double[workerEnergy.getNumberOfVariables()]
+      MolecularAssembly[] assemblies = [workerAssembly]
+      pipeline.addWorker(assemblies, {
+        workerEnergy.getCoordinates(workerX)
+        return [workerEnergy.energy(workerX, false)] as double[]
+      } as TrajectoryEnergyPipeline.FrameEvaluator)
+    }
+
+    int first = index + 1
+    pipeline.run({ int frame, double[] result ->
+      energy = result[0]
+      logger.info(format(" Snapshot %4d: %16.8f (kcal/mol)", first + frame, energy))
+    } as TrajectoryEnergyPipeline.FrameListener)
+
+    for (MolecularAssembly workerAssembly : workerAssemblies) {
+      workerAssembly.destroy()
+    }
+  }
+
   @Override
   List<Potential> getPotentials() {
     List<Potential> potentials
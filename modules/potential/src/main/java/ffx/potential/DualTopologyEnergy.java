@@ -39,6 +39,8 @@ package ffx.potential;
 
 import static java.lang.String.format;
 import static java.util.Arrays.fill;
+import static org.apache.commons.math3.util.FastMath.abs;
+import static org.apache.commons.math3.util.FastMath.max;
 import static org.apache.commons.math3.util.FastMath.sqrt;
 
 import edu.rit.pj.ParallelRegion;
@@ -48,6 +50,7 @@ import ffx.crystal.Crystal;
 import ffx.crystal.CrystalPotential;
 import ffx.numerics.Potential;
 import ffx.numerics.switching.UnivariateSwitchingFunction;
+import ffx.potential.ForceFieldEnergy.EnvironmentMode;
 import ffx.potential.bonded.Atom;
 import ffx.potential.bonded.LambdaInterface;
 import ffx.potential.parameters.ForceField;
@@ -70,6 +73,8 @@ public class DualTopologyEnergy implements CrystalPotential, LambdaInterface {
 
   /** Logger for the DualTopologyEnergy class. */
   private static final Logger logger = Logger.getLogger(DualTopologyEnergy.class.getName());
+  /** Relative tolerance for the environment energy and gradient to be considered shared. */
+  private static final double ENVIRONMENT_TOLERANCE = 1.0e-8;
   /** Topology 1 number of atoms. */
   private final int nAtoms1;
   /** Topology 2 number of atoms. */
@@ -120,6 +125,8 @@ public class DualTopologyEnergy implements CrystalPotential, LambdaInterface {
    * terms
    */
   private final double[] rgl2;
+  /** Gradient of the shared environment for topology 1 atoms. */
+  private final double[] ge;
   /**
    * Returns true if we should unpin this atom. Replaces prior uses of atom.applyLambda(). Is often
    * set to Atom::applyLambda.
@@ -147,6 +154,13 @@ public class DualTopologyEnergy implements CrystalPotential, LambdaInterface {
   private final Atom[] activeAtoms2;
   /** Will default to a power-1 PowerSwitch function. */
   private final UnivariateSwitchingFunction switchFunction;
+  /**
+   * Indicates the environment (bonded terms and vdW pairs without alchemical atoms) is identical for
+   * both topologies, and is evaluated once by topology 1.
+   */
+  private final boolean shareEnvironment;
+  /** Energy of the shared environment, which is scaled by f1L + f2L. */
+  private double environmentEnergy = 0;
   /** Current potential energy of topology 1 (kcal/mol). */
   private double energy1 = 0;
   /** Current potential energy of topology 2 (kcal/mol). */
@@ -295,6 +309,7 @@ public class DualTopologyEnergy implements CrystalPotential, LambdaInterface {
     gl2 = new double[nActive2 * 3];
     rgl1 = new double[nActive1 * 3];
     rgl2 = new double[nActive2 * 3];
+    ge = new double[nActive1 * 3];
 
     // Check that all Dual-Topology atoms start with identical coordinates.
     int i1 = 0;
@@ -360,6 +375,13 @@ public class DualTopologyEnergy implements CrystalPotential, LambdaInterface {
     team = new ParallelTeam(1);
     this.switchFunction = switchFunction;
     logger.info(format(" Dual topology using switching function %s", switchFunction));
+
+    // Evaluate environment terms once if they are identical for both topologies.
+    if (!doPinSoftcore && forceField1.getBoolean("DUAL_TOPOLOGY_SHARED_ENVIRONMENT", false)) {
+      shareEnvironment = detectSharedEnvironment();
+    } else {
+      shareEnvironment = false;
+    }
   }
 
   /**
@@ -580,6 +602,15 @@ public class DualTopologyEnergy implements CrystalPotential, LambdaInterface {
     return 3 * nShared;
   }
 
+  /**
+   * Determine if the environment shared by both topologies is evaluated once.
+   *
+   * @return True if the dual-topology-shared-environment mode is active.
+   */
+  public boolean isEnvironmentShared() {
+    return shareEnvironment;
+  }
+
   /** {@inheritDoc} */
   @Override
   public int getNumberOfVariables() {
@@ -717,7 +748,7 @@ public class DualTopologyEnergy implements CrystalPotential, LambdaInterface {
             + f1L * restraintd2EdL2_2
             + 2.0 * dF1dL * restraintdEdL_2
             + d2F1dL2 * restraintEnergy2;
-    return e1 + e2;
+    return e1 + e2 + (d2F1dL2 + d2F2dL2) * environmentEnergy;
   }
 
   /** {@inheritDoc} */
@@ -727,7 +758,7 @@ public class DualTopologyEnergy implements CrystalPotential, LambdaInterface {
     // negative 1 when set.
     double e1 = f1L * dEdL_1 + dF1dL * energy1 + f2L * restraintdEdL_1 + dF2dL * restraintEnergy1;
     double e2 = f2L * dEdL_2 + dF2dL * energy2 + f1L * restraintdEdL_2 + dF1dL * restraintEnergy2;
-    return e1 + e2;
+    return e1 + e2 + (dF1dL + dF2dL) * environmentEnergy;
   }
 
   /** {@inheritDoc} */
@@ -740,16 +771,30 @@ public class DualTopologyEnergy implements CrystalPotential, LambdaInterface {
     int index = 0;
     int indexCommon = 0;
     int indexUnique = nShared * 3;
+    // The shared environment gradient is independent of lambda, and zero for softcore atoms.
+    double dFEdL = dF1dL + dF2dL;
     // Coordinate Gradient from Topology 1.
     for (int i = 0; i < nActive1; i++) {
       Atom a = activeAtoms1[i];
       if (!doUnpin.test(a)) {
         g[indexCommon++] =
-            f1L * gl1[index] + dF1dL * g1[index] + f2L * rgl1[index] + dF2dL * rg1[index++];
+            f1L * gl1[index]
+                + dF1dL * g1[index]
+                + dFEdL * ge[index]
+                + f2L * rgl1[index]
+                + dF2dL * rg1[index++];
         g[indexCommon++] =
-            f1L * gl1[index] + dF1dL * g1[index] + f2L * rgl1[index] + dF2dL * rg1[index++];
+            f1L * gl1[index]
+                + dF1dL * g1[index]
+                + dFEdL * ge[index]
+                + f2L * rgl1[index]
+                + dF2dL * rg1[index++];
         g[indexCommon++] =
-            f1L * gl1[index] + dF1dL * g1[index] + f2L * rgl1[index] + dF2dL * rg1[index++];
+            f1L * gl1[index]
+                + dF1dL * g1[index]
+                + dFEdL * ge[index]
+                + f2L * rgl1[index]
+                + dF2dL * rg1[index++];
       } else {
         g[indexUnique++] =
             f1L * gl1[index] + dF1dL * g1[index] + f2L * rgl1[index] + dF2dL * rg1[index++];
@@ -925,6 +970,63 @@ public class DualTopologyEnergy implements CrystalPotential, LambdaInterface {
     }
   }
 
+  /**
+   * Determine if the environment (bonded terms and van der Waals pairs without alchemical atoms) is
+   * identical for both topologies, by comparing its energy and the gradient of each shared atom.
+   *
+   * @return True if the environment can be evaluated once for both topologies.
+   */
+  private boolean detectSharedEnvironment() {
+    double[] ge2 = new double[nActive2 * 3];
+    double e1;
+    double e2;
+    try {
+      forceFieldEnergy1.setEnvironmentMode(EnvironmentMode.ENVIRONMENT_ONLY);
+      forceFieldEnergy2.setEnvironmentMode(EnvironmentMode.ENVIRONMENT_ONLY);
+      e1 = forceFieldEnergy1.energyAndGradient(forceFieldEnergy1.getCoordinates(null), ge);
+      e2 = forceFieldEnergy2.energyAndGradient(forceFieldEnergy2.getCoordinates(null), ge2);
+    } finally {
+      forceFieldEnergy1.setEnvironmentMode(EnvironmentMode.ALL);
+      forceFieldEnergy2.setEnvironmentMode(EnvironmentMode.ALL);
+    }
+
+    if (abs(e1 - e2) > ENVIRONMENT_TOLERANCE * max(1.0, abs(e1))) {
+      logger.info(
+          format(
+              " Environment energies differ (%16.8f vs. %16.8f); it will be computed per topology.",
+              e1, e2));
+      fill(ge, 0.0);
+      return false;
+    }
+
+    // Compare the gradient of each shared atom.
+    int i2 = 0;
+    for (int i1 = 0; i1 < nActive1; i1++) {
+      if (doUnpin.test(activeAtoms1[i1])) {
+        continue;
+      }
+      while (doUnpin.test(activeAtoms2[i2])) {
+        i2++;
+      }
+      for (int j = 0; j < 3; j++) {
+        double g1j = ge[3 * i1 + j];
+        double g2j = ge2[3 * i2 + j];
+        if (abs(g1j - g2j) > ENVIRONMENT_TOLERANCE * max(1.0, abs(g1j))) {
+          logger.info(
+              format(
+                  " Environment gradients differ for atoms %s and %s; it will be computed per"
+                      + " topology.",
+                  activeAtoms1[i1], activeAtoms2[i2]));
+          fill(ge, 0.0);
+          return false;
+        }
+      }
+      i2++;
+    }
+    logger.info(format(" Shared environment energy evaluated once: %16.8f", e1));
+    return true;
+  }
+
   /**
    * Moves two shared atoms together if there is a small discrepancy (such as that caused by the
    * mutator script).
@@ -980,15 +1082,16 @@ public class DualTopologyEnergy implements CrystalPotential, LambdaInterface {
     }
     int indexCommon = 0;
     int indexUnique = nShared * 3;
+    double fE = f1L + f2L;
 
-    // Coordinate Gradient from Topology 1.
+    // Coordinate Gradient from Topology 1, including the shared environment.
     int index = 0;
     for (int i = 0; i < nActive1; i++) {
       Atom a = activeAtoms1[i];
       if (!doUnpin.test(a)) {
-        g[indexCommon++] = f1L * g1[index] + f2L * rg1[index++];
-        g[indexCommon++] = f1L * g1[index] + f2L * rg1[index++];
-        g[indexCommon++] = f1L * g1[index] + f2L * rg1[index++];
+        g[indexCommon++] = f1L * g1[index] + fE * ge[index] + f2L * rg1[index++];
+        g[indexCommon++] = f1L * g1[index] + fE * ge[index] + f2L * rg1[index++];
+        g[indexCommon++] = f1L * g1[index] + fE * ge[index] + f2L * rg1[index++];
       } else {
         g[indexUnique++] = f1L * g1[index] + f2L * rg1[index++];
         g[indexUnique++] = f1L * g1[index] + f2L * rg1[index++];
@@ -1102,6 +1205,7 @@ public class DualTopologyEnergy implements CrystalPotential, LambdaInterface {
     public void finish() {
       // Apply the dual-topology scaling for the total energy.
       totalEnergy = f1L * energy1 + f2L * restraintEnergy1 + f2L * energy2 + f1L * restraintEnergy2;
+      totalEnergy += (f1L + f2L) * environmentEnergy;
 
       if (gradient) {
         packGradient(x, g);
@@ -1110,6 +1214,9 @@ public class DualTopologyEnergy implements CrystalPotential, LambdaInterface {
       }
 
       if (verbose) {
+        if (shareEnvironment) {
+          logger.info(format(" Shared environment energy:  %12.4f", environmentEnergy));
+        }
         logger.info(format(" Total dual-topology energy: %12.4f", totalEnergy));
       }
       setVerbose(false);
@@ -1155,6 +1262,9 @@ public class DualTopologyEnergy implements CrystalPotential, LambdaInterface {
 
     @Override
     public void run() throws Exception {
+      if (shareEnvironment) {
+        forceFieldEnergy1.setEnvironmentMode(EnvironmentMode.NO_ENVIRONMENT);
+      }
       if (gradient) {
         fill(gl1, 0.0);
         fill(rgl1, 0.0);
@@ -1186,6 +1296,11 @@ public class DualTopologyEnergy implements CrystalPotential, LambdaInterface {
           logger.fine(format(" Topology 1:    %15.8f * (%.2f)", energy1, f1L));
           logger.fine(format(" T1 Restraints: %15.8f * (%.2f)", restraintEnergy1, f2L));
         }
+        if (shareEnvironment) {
+          // Evaluate the environment shared by both topologies.
+          forceFieldEnergy1.setEnvironmentMode(EnvironmentMode.ENVIRONMENT_ONLY);
+          environmentEnergy = forceFieldEnergy1.energyAndGradient(x1, ge, verbose);
+        }
       } else {
         energy1 = potential1.energy(x1, verbose);
         if (doValenceRestraint1 && potential1 instanceof ForceFieldEnergy) {
@@ -1205,6 +1320,13 @@ public class DualTopologyEnergy implements CrystalPotential, LambdaInterface {
                   " Topology 1 Energy & Restraints: %15.8f %15.8f\n",
                   f1L * energy1, f2L * restraintEnergy1));
         }
+        if (shareEnvironment) {
+          forceFieldEnergy1.setEnvironmentMode(EnvironmentMode.ENVIRONMENT_ONLY);
+          environmentEnergy = forceFieldEnergy1.energy(x1, verbose);
+        }
+      }
+      if (shareEnvironment) {
+        forceFieldEnergy1.setEnvironmentMode(EnvironmentMode.ALL);
       }
     }
 
@@ -1224,6 +1346,9 @@ public class DualTopologyEnergy implements CrystalPotential, LambdaInterface {
 
     @Override
     public void run() throws Exception {
+      if (shareEnvironment) {
+        forceFieldEnergy2.setEnvironmentMode(EnvironmentMode.NO_ENVIRONMENT);
+      }
       if (gradient) {
         fill(gl2, 0.0);
         fill(rgl2, 0.0);
@@ -1277,6 +1402,9 @@ public class DualTopologyEnergy implements CrystalPotential, LambdaInterface {
                   f2L * energy2, f1L * restraintEnergy2));
         }
       }
+      if (shareEnvironment) {
+        forceFieldEnergy2.setEnvironmentMode(EnvironmentMode.ALL);
+      }
     }
 
     public void setGradient(boolean grad) {
@@ -47,6 +47,7 @@ import static org.apache.commons.math3.util.FastMath.max;
 import static org.apache.commons.math3.util.FastMath.min;
 import static org.apache.commons.math3.util.FastMath.sqrt;
 
+import edu.rit.pj.CoreBudget;
 import edu.rit.pj.IntegerForLoop;
 import edu.rit.pj.IntegerSchedule;
 import edu.rit.pj.ParallelRegion;
@@ -157,6 +158,8 @@ public class ForceFieldEnergy implements CrystalPotential, LambdaInterface {
   private final RestrainGroups restrainGroups;
   /** Non-Bonded van der Waals energy. */
   private final VanDerWaals vanderWaals;
+  /** Short cutoff van der Waals energy for the MEDIUM state of multiple time step integrators. */
+  private VanDerWaals midRangeVanDerWaals = null;
 
   private final List<Constraint> constraints;
   /** 2.0 times the neighbor list cutoff. */
@@ -221,6 +224,8 @@ public class ForceFieldEnergy implements CrystalPotential, LambdaInterface {
   protected double[] optimizationScaling = null;
   /** Indicates only bonded energy terms effected by Lambda should be evaluated. */
   boolean lambdaBondedTerms = false;
+  /** Selects evaluation of environment terms (those without alchemical atoms). */
+  EnvironmentMode environmentMode = EnvironmentMode.ALL;
   /** Flag to indicate proper shutdown of the ForceFieldEnergy. */
   boolean destroyed = false;
   /**
@@ -316,6 +321,8 @@ public class ForceFieldEnergy implements CrystalPotential, LambdaInterface {
   private boolean restraintBondTerm;
   /** Evaluate van der Waals energy term. */
   private boolean vanderWaalsTerm;
+  /** Evaluate the short cutoff van der Waals energy term (MEDIUM state only). */
+  private boolean midRangeTerm = false;
   /** Evaluate permanent multipole electrostatics energy term. */
   private boolean multipoleTerm;
   /** Evaluate COM energy term. */
@@ -493,6 +500,10 @@ public class ForceFieldEnergy implements CrystalPotential, LambdaInterface {
 
     logger.info(format(" Constructing Force Field %s", name));
     logger.info(format("\n SMP threads:                        %10d", nThreads));
+    CoreBudget coreBudget = CoreBudget.getGlobal();
+    if (coreBudget != null) {
+      logger.info(format(" Shared core budget:                 %10d", coreBudget.getCapacity()));
+    }
 
     bondTerm = forceField.getBoolean("BONDTERM", true);
     angleTerm = forceField.getBoolean("ANGLETERM", true);
@@ -1296,6 +1307,105 @@ public class ForceFieldEnergy implements CrystalPotential, LambdaInterface {
     }
   }
 
+  /**
+   * Get the MolecularAssembly of this ForceFieldEnergy.
+   *
+   * @return The MolecularAssembly.
+   */
+  public MolecularAssembly getMolecularAssembly() {
+    return molecularAssembly;
+  }
+
+  /**
+   * Fork an independent ForceFieldEnergy with the same topology, for example to give each worker of
+   * a pool its own evaluator.
+   *
+   * <p>The fork shares the parsed ForceField, its parameter types and the properties of this
+   * instance, and its MolecularAssembly is built directly from the atoms and bonds of this one, so
+   * no files are read and no force field is parsed. Atoms (and therefore coordinates), bonded terms
+   * and energy work buffers belong to the fork, which can be evaluated concurrently with this
+   * instance.
+   *
+   * @param numThreads Number of threads for the fork.
+   * @return The ForceFieldEnergy of the forked MolecularAssembly.
+   */
+  public ForceFieldEnergy fork(int numThreads) {
+    long time = -System.nanoTime();
+    Runtime runtime = Runtime.getRuntime();
+    long memory = runtime.totalMemory() - runtime.freeMemory();
+
+    ForceField forceField = molecularAssembly.getForceField();
+    MolecularAssembly forkAssembly = new MolecularAssembly(molecularAssembly.getName());
+    forkAssembly.setFile(molecularAssembly.getFile());
+    forkAssembly.setForceField(forceField);
+
+    // Copy the atoms, which share the AtomType instances of the force field.
+    Atom[] forkAtoms = new Atom[nAtoms];
+    List<Atom> atomList = new ArrayList<>(nAtoms);
+    for (int i = 0; i < nAtoms; i++) {
+      Atom atom = atoms[i];
+      Atom forkAtom = new Atom(i + 1, atom.getName(), atom.getAtomType(), atom.getXYZ(null));
+      forkAtom.setActive(atom.isActive());
+      forkAtom.setUse(atom.getUse());
+      forkAtom.setElectrostatics(atom.getElectrostatics());
+      forkAtom.setApplyLambda(atom.applyLambda());
+      forkAtoms[i] = forkAtom;
+      atomList.add(forkAtom);
+    }
+
+    // Copy the bonds, which share the BondType instances of the force field.
+    List<Bond> bondList = molecularAssembly.getBondList();
+    for (Bond bond : bondList) {
+      Atom a1 = forkAtoms[bond.getAtom(0).getXyzIndex() - 1];
+      Atom a2 = forkAtoms[bond.getAtom(1).getXyzIndex() - 1];
+      Bond forkBond = new Bond(a1, a2);
+      forkBond.setBondType(bond.getBondType());
+    }
+
+    Utilities.biochemistry(forkAssembly, atomList);
+    forkAssembly.finalize(true, forceField);
+
+    int nRestraints = coordRestraints.size() - (autoCoordRestraint != null ? 1 : 0);
+    if (nRestraints > 0) {
+      logger.warning(format(" %d coordinate restraints were not copied to the fork.", nRestraints));
+    }
+
+    ForceFieldEnergy forkEnergy = energyFactory(forkAssembly, null, numThreads);
+    forkAssembly.setPotential(forkEnergy);
+    if (!crystal.aperiodic()) {
+      // Copy the current unit cell, and rebuild the replicates cell if the cutoff requires one.
+      Crystal unitCell = crystal.getUnitCell();
+      forkEnergy.setCrystal(
+          new Crystal(
+              unitCell.a,
+              unitCell.b,
+              unitCell.c,
+              unitCell.alpha,
+              unitCell.beta,
+              unitCell.gamma,
+              unitCell.spaceGroup.pdbName),
+          true);
+    }
+    if (lambdaTerm) {
+      forkEnergy.setLambda(lambda);
+    }
+
+    time += System.nanoTime();
+    memory = runtime.totalMemory() - runtime.freeMemory() - memory;
+    int sharedTypes = 0;
+    for (ForceField.ForceFieldType type : ForceField.ForceFieldType.values()) {
+      if (type != ForceField.ForceFieldType.KEYWORD) {
+        sharedTypes += forceField.getForceFieldTypeCount(type);
+      }
+    }
+    logger.info(
+        format(
+            " Forked %d atoms in %8.3f (sec), sharing %d force field parameter types"
+                + " (approximate heap growth %8.3f MB).",
+            nAtoms, time * Constants.NS2SEC, sharedTypes, memory / (1024.0 * 1024.0)));
+    return forkEnergy;
+  }
+
   /**
    * Applies constraints to positions
    *
@@ -1384,9 +1494,16 @@ public class ForceFieldEnergy implements CrystalPotential, LambdaInterface {
         if (parallelTeam != null) {
           parallelTeam.shutdown();
         }
+        CoreBudget coreBudget = CoreBudget.getGlobal();
+        if (coreBudget != null) {
+          logger.fine(format(" %s", coreBudget));
+        }
         if (vanderWaals != null) {
           vanderWaals.destroy();
         }
+        if (midRangeVanDerWaals != null) {
+          midRangeVanDerWaals.destroy();
+        }
         if (particleMeshEwald != null) {
           particleMeshEwald.destroy();
         }
@@ -1514,7 +1631,15 @@ public class ForceFieldEnergy implements CrystalPotential, LambdaInterface {
         logger.severe(ex.toString());
       }
 
-      if (!lambdaBondedTerms) {
+      if (environmentMode == EnvironmentMode.ENVIRONMENT_ONLY) {
+        // Only bonded terms and van der Waals pairs separate into environment contributions.
+        if (vanderWaalsTerm) {
+          vanDerWaalsTime = -System.nanoTime();
+          vanDerWaalsEnergy = vanderWaals.energy(gradient, print);
+          nVanDerWaalInteractions = this.vanderWaals.getInteractions();
+          vanDerWaalsTime += System.nanoTime();
+        }
+      } else if (!lambdaBondedTerms) {
         // Compute restraint terms.
         if (ncsTerm) {
           ncsTime = -System.nanoTime();
@@ -1544,6 +1669,11 @@ public class ForceFieldEnergy implements CrystalPotential, LambdaInterface {
           vanDerWaalsEnergy = vanderWaals.energy(gradient, print);
           nVanDerWaalInteractions = this.vanderWaals.getInteractions();
           vanDerWaalsTime += System.nanoTime();
+        } else if (midRangeTerm) {
+          vanDerWaalsTime = -System.nanoTime();
+          vanDerWaalsEnergy = midRangeVanDerWaals.energy(gradient, print);
+          nVanDerWaalInteractions = midRangeVanDerWaals.getInteractions();
+          vanDerWaalsTime += System.nanoTime();
         }
         if (multipoleTerm) {
           electrostaticTime = -System.nanoTime();
@@ -1558,7 +1688,7 @@ public class ForceFieldEnergy implements CrystalPotential, LambdaInterface {
         }
       }
 
-      if (relativeSolvationTerm) {
+      if (relativeSolvationTerm && environmentMode != EnvironmentMode.ENVIRONMENT_ONLY) {
         List<Residue> residuesList = molecularAssembly.getResidueList();
         for (Residue residue : residuesList) {
           if (residue instanceof MultiResidue) {
@@ -1596,7 +1726,7 @@ public class ForceFieldEnergy implements CrystalPotential, LambdaInterface {
               + restrainGroupEnergy;
       totalNonBondedEnergy = vanDerWaalsEnergy + totalMultipoleEnergy + relativeSolvationEnergy;
       totalEnergy = totalBondedEnergy + totalNonBondedEnergy + solvationEnergy;
-      if (esvTerm) {
+      if (esvTerm && environmentMode != EnvironmentMode.ENVIRONMENT_ONLY) {
         esvBias = esvSystem.getBiasEnergy();
         totalEnergy += esvBias;
       }
@@ -1999,7 +2129,37 @@ public class ForceFieldEnergy implements CrystalPotential, LambdaInterface {
   @Override
   public void setEnergyTermState(STATE state) {
     this.state = state;
+    midRangeTerm = false;
     switch (state) {
+      case MEDIUM:
+        bondTerm = false;
+        angleTerm = false;
+        stretchBendTerm = false;
+        ureyBradleyTerm = false;
+        outOfPlaneBendTerm = false;
+        torsionTerm = false;
+        stretchTorsionTerm = false;
+        angleTorsionTerm = false;
+        piOrbitalTorsionTerm = false;
+        torsionTorsionTerm = false;
+        improperTorsionTerm = false;
+        restraintBondTerm = false;
+        ncsTerm = false;
+        restrainTerm = false;
+        comTerm = false;
+        restrainGroupTerm = false;
+        vanderWaalsTerm = false;
+        multipoleTerm = false;
+        polarizationTerm = false;
+        generalizedKirkwoodTerm = false;
+        // Only the short cutoff van der Waals term is evaluated.
+        if (vanderWaalsTermOrig) {
+          if (midRangeVanDerWaals == null) {
+            midRangeVanDerWaals = createMidRangeVanDerWaals();
+          }
+          midRangeTerm = true;
+        }
+        break;
       case FAST:
         bondTerm = bondTermOrig;
         angleTerm = angleTermOrig;
@@ -2068,6 +2228,53 @@ public class ForceFieldEnergy implements CrystalPotential, LambdaInterface {
     }
   }
 
+  /**
+   * Create the short cutoff van der Waals term evaluated for the MEDIUM state. Its cutoff is given
+   * by the respa-mid-cutoff property (7.0 Angstroms by default), with the usual multiplicative
+   * switch over the final 10% of the cutoff so that the mid-range forces are smooth.
+   *
+   * @return The mid-range VanDerWaals instance.
+   */
+  private VanDerWaals createMidRangeVanDerWaals() {
+    ForceField forceField = molecularAssembly.getForceField();
+    double vdwOff = vanderWaals.getNonbondedCutoff().off;
+    double midRangeOff = forceField.getDouble("RESPA_MID_CUTOFF", 7.0);
+    if (midRangeOff <= 0.0 || midRangeOff >= vdwOff) {
+      logger.warning(
+          format(
+              " Invalid respa-mid-cutoff %8.3f; it must be positive and less than the vdW cutoff.",
+              midRangeOff));
+      midRangeOff = min(7.0, 0.5 * vdwOff);
+    }
+    logger.info(format("\n Mid-Range van der Waals Cut-Off:    %8.3f (A)", midRangeOff));
+    VanDerWaals midRange;
+    if (esvTerm) {
+      midRange =
+          new VanDerWaals(
+              esvSystem.getExtendedAtoms(),
+              esvSystem.getExtendedMolecule(),
+              crystal,
+              forceField,
+              parallelTeam,
+              midRangeOff,
+              midRangeOff);
+    } else {
+      midRange =
+          new VanDerWaals(
+              atoms,
+              molecularAssembly.getMoleculeNumbers(),
+              crystal,
+              forceField,
+              parallelTeam,
+              midRangeOff,
+              midRangeOff);
+    }
+    if (lambdaTerm) {
+      midRange.setLambda(lambda);
+    }
+    return midRange;
+  }
+
   /**
    * getEsvBiasEnergy.
    *
@@ -2151,6 +2358,9 @@ public class ForceFieldEnergy implements CrystalPotential, LambdaInterface {
         if (vanderWaalsTerm) {
           vanderWaals.setLambda(lambda);
         }
+        if (midRangeVanDerWaals != null) {
+          midRangeVanDerWaals.setLambda(lambda);
+        }
         if (multipoleTerm) {
           particleMeshEwald.setLambda(lambda);
         }
@@ -3264,6 +3474,14 @@ public class ForceFieldEnergy implements CrystalPotential, LambdaInterface {
         vanderWaals.setAtoms(atoms, molecule);
       }
     }
+    if (midRangeVanDerWaals != null) {
+      if (esvTerm) {
+        midRangeVanDerWaals.setAtoms(
+            esvSystem.getExtendedAtoms(), esvSystem.getExtendedMolecule());
+      } else {
+        midRangeVanDerWaals.setAtoms(atoms, molecule);
+      }
+    }
 
     if (multipoleTerm) {
       if (esvTerm) {
@@ -3350,6 +3568,9 @@ public class ForceFieldEnergy implements CrystalPotential, LambdaInterface {
     if (vanderWaalsTerm) {
       vanderWaals.setCrystal(this.crystal);
     }
+    if (midRangeVanDerWaals != null) {
+      midRangeVanDerWaals.setCrystal(this.crystal);
+    }
     if (multipoleTerm) {
       particleMeshEwald.setCrystal(this.crystal);
     }
@@ -3722,6 +3943,18 @@ public class ForceFieldEnergy implements CrystalPotential, LambdaInterface {
     this.lambdaBondedTerms = lambdaBondedTerms;
   }
 
+  /**
+   * Setter for the field <code>environmentMode</code>, which is also applied to van der Waals pairs.
+   *
+   * @param environmentMode an {@link EnvironmentMode}.
+   */
+  void setEnvironmentMode(EnvironmentMode environmentMode) {
+    this.environmentMode = environmentMode;
+    if (vanderWaals != null) {
+      vanderWaals.setEnvironmentMode(environmentMode);
+    }
+  }
+
   /**
    * Return the non-bonded components of energy (vdW, electrostatics).
    *
@@ -3938,6 +4171,24 @@ public class ForceFieldEnergy implements CrystalPotential, LambdaInterface {
     OMM_OPENCL
   }
 
+  /**
+   * EnvironmentMode selects evaluation of environment terms: bonded terms and van der Waals pairs
+   * that involve no alchemical atoms and are not scaled by lambda. A DualTopologyEnergy whose two
+   * topologies share an environment evaluates it once using ENVIRONMENT_ONLY, and excludes it from
+   * each topology using NO_ENVIRONMENT.
+   *
+   * <p>ALL: evaluate all terms (default).
+   *
+   * <p>NO_ENVIRONMENT: skip environment terms.
+   *
+   * <p>ENVIRONMENT_ONLY: evaluate only environment terms.
+   */
+  public enum EnvironmentMode {
+    ALL,
+    NO_ENVIRONMENT,
+    ENVIRONMENT_ONLY
+  }
+
   private class BondedRegion extends ParallelRegion {
 
     // Shared RMSD variables.
@@ -4459,6 +4710,11 @@ public class ForceFieldEnergy implements CrystalPotential, LambdaInterface {
            * In that case, we skip evaluation into restraintEnergy.
            */
           boolean used = !lambdaBondedTerms || (term.applyLambda() && !term.isLambdaScaled());
+          if (used && environmentMode != EnvironmentMode.ALL) {
+            // Environment terms are shared by both topologies of a DualTopologyEnergy.
+            boolean environment = !term.applyLambda() && !term.isLambdaScaled();
+            used = environment == (environmentMode == EnvironmentMode.ENVIRONMENT_ONLY);
+          }
           if (used) {
             localEnergy += term.energy(gradient, threadID, grad, lambdaGrad);
             if (computeRMSD) {
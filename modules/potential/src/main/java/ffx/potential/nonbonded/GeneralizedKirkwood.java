@@ -583,7 +583,9 @@ public class GeneralizedKirkwood implements LambdaInterface {
           cut2,
           nativeEnvironmentApproximation,
           born);
-      parallelTeam.execute(bornRadiiRegion);
+      if (!bornRadiiRegion.incrementalUpdate(parallelTeam)) {
+        parallelTeam.execute(bornRadiiRegion);
+      }
     } catch (Exception e) {
       String message = "Fatal exception computing Born radii.";
       logger.log(Level.SEVERE, message, e);
@@ -639,6 +641,15 @@ public class GeneralizedKirkwood implements LambdaInterface {
     return baseRadius;
   }
 
+  /**
+   * Returns the Born radius of each atom from the last update.
+   *
+   * @return the Born radii.
+   */
+  public double[] getBornRadii() {
+    return born;
+  }
+
   /**
    * getDescreenRadii.
    *
@@ -890,6 +901,7 @@ public class GeneralizedKirkwood implements LambdaInterface {
     nAtoms = atoms.length;
     maxNumAtoms = max(nAtoms, maxNumAtoms);
     initAtomArrays();
+    bornRadiiRegion.clearIncremental();
   }
 
   /**
@@ -993,6 +1005,13 @@ public class GeneralizedKirkwood implements LambdaInterface {
       parallelTeam.execute(gkEnergyRegion);
       gkTime += System.nanoTime();
 
+      // Lattice translation codes are only parallel to the lists of the shared NeighborList.
+      int[][] neighborShifts = null;
+      int[][][] shifts = particleMeshEwald.getNeighborShifts();
+      if (shifts != null && neighborLists == particleMeshEwald.neighborLists) {
+        neighborShifts = shifts[0];
+      }
+
       // Find the nonpolar energy.
       switch (nonPolar) {
         case CAV:
@@ -1003,7 +1022,8 @@ public class GeneralizedKirkwood implements LambdaInterface {
           break;
         case CAV_DISP:
           dispersionTime = -System.nanoTime();
-          dispersionRegion.init(atoms, crystal, use, neighborLists, x, y, z, cut2, gradient, grad);
+          dispersionRegion.init(
+              atoms, crystal, use, neighborLists, neighborShifts, x, y, z, cut2, gradient, grad);
           parallelTeam.execute(dispersionRegion);
           dispersionEnergy = dispersionRegion.getEnergy();
           dispersionTime += System.nanoTime();
@@ -1014,7 +1034,8 @@ public class GeneralizedKirkwood implements LambdaInterface {
           break;
         case SEV_DISP:
           dispersionTime = -System.nanoTime();
-          dispersionRegion.init(atoms, crystal, use, neighborLists, x, y, z, cut2, gradient, grad);
+          dispersionRegion.init(
+              atoms, crystal, use, neighborLists, neighborShifts, x, y, z, cut2, gradient, grad);
           parallelTeam.execute(dispersionRegion);
           dispersionEnergy = dispersionRegion.getEnergy();
           dispersionTime += System.nanoTime();
@@ -1032,7 +1053,8 @@ public class GeneralizedKirkwood implements LambdaInterface {
           break;
         case GAUSS_DISP:
           dispersionTime = -System.nanoTime();
-          dispersionRegion.init(atoms, crystal, use, neighborLists, x, y, z, cut2, gradient, grad);
+          dispersionRegion.init(
+              atoms, crystal, use, neighborLists, neighborShifts, x, y, z, cut2, gradient, grad);
           parallelTeam.execute(dispersionRegion);
           dispersionEnergy = dispersionRegion.getEnergy();
           dispersionTime += System.nanoTime();
@@ -1049,7 +1071,8 @@ public class GeneralizedKirkwood implements LambdaInterface {
           break;
         case BORN_CAV_DISP:
           dispersionTime = -System.nanoTime();
-          dispersionRegion.init(atoms, crystal, use, neighborLists, x, y, z, cut2, gradient, grad);
+          dispersionRegion.init(
+              atoms, crystal, use, neighborLists, neighborShifts, x, y, z, cut2, gradient, grad);
           parallelTeam.execute(dispersionRegion);
           dispersionEnergy = dispersionRegion.getEnergy();
           dispersionTime += System.nanoTime();
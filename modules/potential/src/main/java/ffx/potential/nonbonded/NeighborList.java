@@ -41,8 +41,11 @@ import static java.lang.String.format;
 import static java.lang.System.arraycopy;
 import static java.util.Arrays.copyOf;
 import static java.util.Arrays.fill;
+import static org.apache.commons.math3.util.FastMath.abs;
 import static org.apache.commons.math3.util.FastMath.floor;
+import static org.apache.commons.math3.util.FastMath.max;
 import static org.apache.commons.math3.util.FastMath.min;
+import static org.apache.commons.math3.util.FastMath.signum;
 import static org.apache.commons.math3.util.FastMath.sqrt;
 
 import edu.rit.pj.IntegerForLoop;
@@ -108,13 +111,13 @@ public class NeighborList extends ParallelRegion {
    * A buffer, which is added to the cutoff distance, such that the Verlet lists do not need to be
    * calculated for all coordinate changes.
    */
-  private final double buffer;
+  private double buffer;
   /** The maximum squared displacement allowed before list rebuild. */
-  private final double motion2;
+  private double motion2;
   /** The sum of the cutoff + buffer. */
-  private final double cutoffPlusBuffer;
+  private double cutoffPlusBuffer;
   /** Total^2 for distance comparisons without taking a sqrt. */
-  private final double cutoffPlusBuffer2;
+  private double cutoffPlusBuffer2;
   /** The ParallelTeam coordinates use of threads and their schedules. */
   private final ParallelTeam parallelTeam;
   /** Number of threads used by the parallelTeam. */
@@ -216,6 +219,19 @@ public class NeighborList extends ParallelRegion {
   private boolean inactiveInteractions = true;
   /** Disable updates to the NeighborList; use with caution. */
   private boolean disableUpdates = false;
+  /** If true, a lattice translation code is stored for each neighbor. */
+  private boolean imageShifts = false;
+  /** The lattice translation code of each neighbor. [nSymm][nAtoms][nNeighbors] */
+  private int[][][] shifts;
+  /**
+   * If greater than zero, the list is rebuilt every rebuildInterval calls to buildList (i.e. energy
+   * evaluations).
+   */
+  private int rebuildInterval = 0;
+  /** Number of calls to buildList since the list was last rebuilt. */
+  private int evaluationsSinceRebuild = 0;
+  /** Tunes the buffer at run time, or null if the buffer is fixed. */
+  private BufferTuner bufferTuner = null;
 
   /**
    * Constructor for the NeighborList class.
@@ -238,15 +254,12 @@ public class NeighborList extends ParallelRegion {
     this.maskingRules = maskingRules;
     this.crystal = crystal;
     this.cutoff = cutoff;
-    this.buffer = buffer;
     this.parallelTeam = new ParallelTeam(parallelTeam.getThreadCount());
     this.atoms = atoms;
     nAtoms = atoms.length;
 
     // Configure the neighbor cutoff and list rebuilding criteria.
-    cutoffPlusBuffer = cutoff + buffer;
-    cutoffPlusBuffer2 = cutoffPlusBuffer * cutoffPlusBuffer;
-    motion2 = (buffer / 2.0) * (buffer / 2.0);
+    configureBuffer(buffer);
 
     // Initialize parallel constructs.
     threadCount = parallelTeam.getThreadCount();
@@ -318,7 +331,31 @@ public class NeighborList extends ParallelRegion {
     this.coordinates = coordinates;
     this.lists = lists;
     this.use = use;
-    if (forceRebuild || motion()) {
+    evaluationsSinceRebuild++;
+    if (bufferTuner != null) {
+      bufferTuner.evaluations++;
+    }
+    boolean rebuild = forceRebuild;
+    if (!rebuild && rebuildInterval > 0) {
+      // Rebuild on a fixed schedule for reproducible dynamics.
+      rebuild = evaluationsSinceRebuild >= rebuildInterval;
+      if (!rebuild && motion()) {
+        logger.warning(
+            format(
+                " An atom moved half the neighbor list buffer (%5.2f A) within %d energy"
+                    + " evaluations; a larger buffer is needed for a rebuild interval of %d.",
+                buffer, evaluationsSinceRebuild, rebuildInterval));
+        rebuild = true;
+      }
+    } else if (!rebuild) {
+      rebuild = motion();
+    }
+    if (rebuild) {
+      long rebuildTime = -System.nanoTime();
+      if (bufferTuner != null && !forceRebuild) {
+        bufferTuner.rebuild();
+      }
+      evaluationsSinceRebuild = 0;
 
       // Save the current coordinates.
       double[] current = coordinates[0];
@@ -339,6 +376,10 @@ public class NeighborList extends ParallelRegion {
       }
 
       pairwiseSchedule.updateRanges(sharedCount.get(), atomsWithIteractions, listCount);
+      if (bufferTuner != null) {
+        rebuildTime += System.nanoTime();
+        bufferTuner.rebuildTime += rebuildTime;
+      }
     }
   }
 
@@ -377,6 +418,15 @@ public class NeighborList extends ParallelRegion {
     return cutoff;
   }
 
+  /**
+   * Returns the buffer added to the cutoff distance.
+   *
+   * @return Buffer distance in Angstroms.
+   */
+  public double getBuffer() {
+    return buffer;
+  }
+
   /**
    * Getter for the disableUpdates field.
    *
@@ -396,6 +446,146 @@ public class NeighborList extends ParallelRegion {
     this.disableUpdates = disableUpdate;
   }
 
+  /**
+   * If autoTune is true, the buffer is periodically adjusted at run time to minimize the average
+   * time per energy evaluation spent rebuilding the list plus evaluating pairwise interactions.
+   * Pair loops that use the list report their wall clock time via {@link #addPairLoopTime(long)}.
+   *
+   * @param autoTune Tune the buffer at run time.
+   */
+  public void setAutoTune(boolean autoTune) {
+    if (autoTune && rebuildInterval > 0) {
+      logger.info(" Neighbor list buffer tuning is disabled by the fixed rebuild interval.");
+      autoTune = false;
+    }
+    bufferTuner = autoTune ? new BufferTuner() : null;
+  }
+
+  /**
+   * Rebuild the list every rebuildInterval calls to buildList, rather than only when an atom has
+   * moved half the buffer, so that dynamics trajectories are reproducible. The list is built once
+   * per energy evaluation, so the interval counts energy evaluations rather than dynamics steps;
+   * the two are equal only for integrators that evaluate the energy once per step (e.g. velocity
+   * Verlet), while multiple time step integrators and optimizers evaluate it more often. The list
+   * is still rebuilt early (with a warning) if an atom moves half the buffer within the interval. A
+   * fixed interval disables tuning of the buffer.
+   *
+   * @param rebuildInterval The number of energy evaluations between rebuilds (zero to rebuild upon
+   *     motion).
+   */
+  public void setRebuildInterval(int rebuildInterval) {
+    this.rebuildInterval = max(rebuildInterval, 0);
+    if (this.rebuildInterval > 0 && bufferTuner != null) {
+      setAutoTune(false);
+    }
+  }
+
+  /**
+   * Returns true once the buffer tuner has settled on a buffer.
+   *
+   * @return True if tuning is finished, false if tuning is in progress or disabled.
+   */
+  public boolean isBufferTuned() {
+    return bufferTuner != null && bufferTuner.converged;
+  }
+
+  /**
+   * Returns the wall clock time of pairwise loops reported in the current tuning window.
+   *
+   * @return The time in nanoseconds, or zero if the buffer is not being tuned.
+   */
+  long getPairLoopTime() {
+    return bufferTuner != null ? bufferTuner.pairTime : 0;
+  }
+
+  /**
+   * Add the wall clock time of one evaluation of a pairwise loop over the list, which is used to
+   * tune the buffer. Each potential that loops over the list (e.g. van der Waals and real space
+   * PME) reports its own time.
+   *
+   * @param time The time in nanoseconds.
+   */
+  public void addPairLoopTime(long time) {
+    if (bufferTuner != null) {
+      bufferTuner.pairTime += time;
+    }
+  }
+
+  /**
+   * Returns true if a lattice translation code is stored for each neighbor.
+   *
+   * @return If image shifts are stored.
+   */
+  public boolean getImageShifts() {
+    return imageShifts;
+  }
+
+  /**
+   * If imageShifts is true, a lattice translation code is stored for each neighbor when the list is
+   * built. Energy kernels can then apply the translation with {@link #image(Crystal, int,
+   * double[])} rather than the minimum image convention. Coordinates that are wrapped back into
+   * the unit cell force a rebuild of the list, since they invalidate the stored translations.
+   *
+   * @param imageShifts Store a lattice translation code for each neighbor.
+   */
+  public void setImageShifts(boolean imageShifts) {
+    this.imageShifts = imageShifts;
+    if (!imageShifts) {
+      shifts = null;
+    }
+  }
+
+  /**
+   * Return the lattice translation code of each neighbor, which is parallel to the Verlet list.
+   *
+   * @return The translation codes of size [nSymm][nAtoms][nNeighbors], or null if image shifts are
+   *     not stored.
+   */
+  public int[][][] getShifts() {
+    return imageShifts ? shifts : null;
+  }
+
+  /**
+   * Encode a lattice translation. Each component must fall in the range -512 to 511; the code for
+   * no translation is 0.
+   *
+   * @param a Number of translations along the a-axis.
+   * @param b Number of translations along the b-axis.
+   * @param c Number of translations along the c-axis.
+   * @return The translation code.
+   */
+  public static int encodeShift(int a, int b, int c) {
+    return (a & 0x3FF) | (b & 0x3FF) << 10 | (c & 0x3FF) << 20;
+  }
+
+  /**
+   * Apply a lattice translation, given as a code from the neighbor list, to a separation vector.
+   * For a pair within the cutoff this matches the minimum image convention.
+   *
+   * @param crystal The crystal that defines the lattice vectors.
+   * @param code The translation code.
+   * @param xyz The separation vector (from neighbor to atom), which is over-written.
+   * @return The separation distance squared.
+   */
+  public static double image(Crystal crystal, int code, double[] xyz) {
+    double x = xyz[0];
+    double y = xyz[1];
+    double z = xyz[2];
+    if (code != 0) {
+      // Sign extend each 10-bit component.
+      final int a = (code << 22) >> 22;
+      final int b = (code << 12) >> 22;
+      final int c = (code << 2) >> 22;
+      x += a * crystal.Ai00 + b * crystal.Ai10 + c * crystal.Ai20;
+      y += a * crystal.Ai01 + b * crystal.Ai11 + c * crystal.Ai21;
+      z += a * crystal.Ai02 + b * crystal.Ai12 + c * crystal.Ai22;
+      xyz[0] = x;
+      xyz[1] = y;
+      xyz[2] = z;
+    }
+    return x * x + y * y + z * z;
+  }
+
   /**
    * Returns a set of Atoms neighboring those passed in. If their indices are already available,
    * preferentially use getNeighborIndices instead. Is exclusive of passed atoms.
@@ -495,6 +685,18 @@ public class NeighborList extends ParallelRegion {
     sharedCount.set(0);
   }
 
+  /**
+   * Set the buffer and the quantities that depend on it.
+   *
+   * @param buffer The buffer distance.
+   */
+  private void configureBuffer(double buffer) {
+    this.buffer = buffer;
+    cutoffPlusBuffer = cutoff + buffer;
+    cutoffPlusBuffer2 = cutoffPlusBuffer * cutoffPlusBuffer;
+    motion2 = (buffer / 2.0) * (buffer / 2.0);
+  }
+
   private void initNeighborList(boolean print) {
 
     // Allocate memory for fractional coordinates and subcell pointers for each atom.
@@ -765,6 +967,9 @@ public class NeighborList extends ParallelRegion {
         lists[iSymm] = new int[nAtoms][];
       }
     }
+    if (imageShifts && (shifts == null || shifts.length < nSymm || shifts[0].length < nAtoms)) {
+      shifts = new int[nSymm][nAtoms][];
+    }
     try {
       parallelTeam.execute(this);
     } catch (Exception e) {
@@ -803,7 +1008,8 @@ public class NeighborList extends ParallelRegion {
       double dx = previous[iX] - current[iX];
       double dy = previous[iY] - current[iY];
       double dz = previous[iZ] - current[iZ];
-      double dr2 = crystal.image(dx, dy, dz);
+      // Stored image shifts are invalidated if an atom is wrapped into the unit cell.
+      double dr2 = imageShifts ? dx * dx + dy * dy + dz * dz : crystal.image(dx, dy, dz);
       if (dr2 > motion2) {
         return true;
       }
@@ -811,6 +1017,120 @@ public class NeighborList extends ParallelRegion {
     return false;
   }
 
+  /**
+   * The BufferTuner class adjusts the buffer by hill climbing on the measured cost per energy
+   * evaluation, which is the time spent rebuilding the list plus the time spent in pairwise loops,
+   * averaged over a window of rebuilds. A larger buffer reduces the frequency of rebuilds, but
+   * increases the number of pairs in each loop.
+   */
+  private class BufferTuner {
+
+    /** The change in buffer between trials (A). */
+    private static final double STEP = 0.25;
+    /** The smallest buffer considered (A). */
+    private static final double MIN_BUFFER = 0.5;
+    /** The largest buffer considered (A). */
+    private static final double MAX_BUFFER = 4.0;
+    /** The number of rebuilds used to measure the cost of each buffer. */
+    private static final int WINDOW = 10;
+
+    /** Number of energy evaluations in the current window. */
+    long evaluations = 0;
+    /** Time spent rebuilding the list in the current window (nsec). */
+    long rebuildTime = 0;
+    /** Time spent in pairwise loops in the current window (nsec). */
+    long pairTime = 0;
+    /** Number of rebuilds in the current window. */
+    private int rebuilds = 0;
+    /** The buffer with the lowest cost so far. */
+    private double bestBuffer = Double.NaN;
+    /** The lowest cost per energy evaluation so far (nsec). */
+    private double bestCost = Double.MAX_VALUE;
+    /** The direction of the current search. */
+    private double direction = 1.0;
+    /** True once the search direction has been reversed. */
+    private boolean reversed = false;
+    /** True once the buffer has improved upon the initial buffer in the current direction. */
+    private boolean improved = false;
+    /** True once the search is finished. */
+    private boolean converged = false;
+
+    /**
+     * Called before each rebuild of the list that was triggered by motion or a fixed interval. At
+     * the end of each window the cost per energy evaluation of the current buffer is evaluated and
+     * the next buffer to try is chosen.
+     */
+    void rebuild() {
+      if (converged) {
+        return;
+      }
+      if (++rebuilds == 1) {
+        // The first window begins with the first rebuild.
+        evaluations = 0;
+        rebuildTime = 0;
+        pairTime = 0;
+        return;
+      }
+      if (rebuilds <= WINDOW || evaluations == 0) {
+        return;
+      }
+      double cost = (double) (rebuildTime + pairTime) / evaluations;
+      double evaluationsPerRebuild = (double) evaluations / (rebuilds - 1);
+      logger.info(
+          format(
+              " Neighbor list buffer %5.2f (A): %9.3f msec per evaluation and %6.1f evaluations"
+                  + " per rebuild.",
+              buffer, cost * 1.0e-6, evaluationsPerRebuild));
+      double next;
+      if (cost < bestCost) {
+        if (!Double.isNaN(bestBuffer)) {
+          improved = true;
+        }
+        bestCost = cost;
+        bestBuffer = buffer;
+        next = buffer + direction * STEP;
+      } else if (!improved && !reversed) {
+        direction = -direction;
+        reversed = true;
+        next = bestBuffer + direction * STEP;
+      } else {
+        next = Double.NaN;
+      }
+
+      // The buffer must stay within the bounds and allow use of the minimum image convention.
+      double maxBuffer = MAX_BUFFER;
+      if (!crystal.aperiodic()) {
+        double sphere =
+            min(
+                min(crystal.interfacialRadiusA, crystal.interfacialRadiusB),
+                crystal.interfacialRadiusC);
+        maxBuffer = min(maxBuffer, sphere - cutoff);
+      }
+      if (!Double.isNaN(next) && (next < MIN_BUFFER || next > maxBuffer) && !reversed) {
+        direction = -direction;
+        reversed = true;
+        next = improved ? Double.NaN : bestBuffer + direction * STEP;
+      }
+      if (Double.isNaN(next) || next < MIN_BUFFER || next > maxBuffer) {
+        converged = true;
+        next = bestBuffer;
+        logger.info(
+            format(
+                " Neighbor list buffer tuned to %5.2f (A) with %9.3f msec per evaluation.",
+                bestBuffer, bestCost * 1.0e-6));
+      }
+
+      if (next != buffer) {
+        configureBuffer(next);
+        initNeighborList(false);
+      }
+      rebuilds = 1;
+      evaluations = 0;
+      rebuildTime = 0;
+      pairTime = 0;
+    }
+  }
+
   /**
    * The VerletListLoop class encapsulates thread local variables and methods for building Verlet
    * lists based on a spatial decomposition of the unit cell.
@@ -829,6 +1149,7 @@ public class NeighborList extends ParallelRegion {
     private int[] asymmetricIndex;
     private double[] xyz;
     private int[] pairs;
+    private int[] pairShifts;
     private double[] mask;
     private boolean[] vdw14;
     // Extra padding to avert cache interference.
@@ -838,6 +1159,7 @@ public class NeighborList extends ParallelRegion {
     NeighborListLoop() {
       int len = 1000;
       pairs = new int[len];
+      pairShifts = new int[len];
       schedule = IntegerSchedule.dynamic(10);
     }
 
@@ -937,6 +1259,9 @@ public class NeighborList extends ParallelRegion {
           listCount[atomIndex] += n;
           count += n;
           arraycopy(pairs, 0, list[atomIndex], 0, n);
+          if (imageShifts) {
+            shifts[iSymm][atomIndex] = copyOf(pairShifts, n);
+          }
         }
       }
     }
@@ -987,6 +1312,28 @@ public class NeighborList extends ParallelRegion {
       return i + j * nA + k * nAB;
     }
 
+    /**
+     * Compute the code of the lattice translation that the minimum image convention applies to a
+     * separation vector.
+     *
+     * @param x The x-component of the separation vector.
+     * @param y The y-component of the separation vector.
+     * @param z The z-component of the separation vector.
+     * @return The translation code.
+     */
+    private int shift(double x, double y, double z) {
+      if (crystal.aperiodic()) {
+        return 0;
+      }
+      double xf = x * crystal.A00 + y * crystal.A10 + z * crystal.A20;
+      double yf = x * crystal.A01 + y * crystal.A11 + z * crystal.A21;
+      double zf = x * crystal.A02 + y * crystal.A12 + z * crystal.A22;
+      int a = (int) (floor(abs(xf) + 0.5) * signum(-xf));
+      int b = (int) (floor(abs(yf) + 0.5) * signum(-yf));
+      int c = (int) (floor(abs(zf) + 0.5) * signum(-zf));
+      return encodeShift(a, b, c);
+    }
+
     private void atomCellPairs(final int pairCellIndex) {
       final int atomCellIndex = asymmetricIndex[atomIndex];
       final int i3 = atomIndex * 3;
@@ -1049,13 +1396,14 @@ public class NeighborList extends ParallelRegion {
             }
 
             // Add the pair to the list, reallocating the array size if necessary.
-            try {
-              pairs[n++] = aj;
-            } catch (Exception e) {
-              n = pairs.length;
+            if (n == pairs.length) {
               pairs = copyOf(pairs, n + 100);
-              pairs[n++] = aj;
+              pairShifts = copyOf(pairShifts, n + 100);
+            }
+            if (imageShifts) {
+              pairShifts[n] = shift(xr, yr, zr);
             }
+            pairs[n++] = aj;
           }
         }
       }
@@ -401,6 +401,16 @@ public abstract class ParticleMeshEwald implements LambdaInterface {
    */
   public abstract GeneralizedKirkwood getGK();
 
+  /**
+   * Returns the lattice translation code of each neighbor, which is parallel to the current
+   * neighbor lists.
+   *
+   * @return The translation codes [nSymm][nAtoms][nNeighbors], or null if they are not stored.
+   */
+  public int[][][] getNeighborShifts() {
+    return null;
+  }
+
   /**
    * getDispersionEnergy.
    *
@@ -631,6 +641,24 @@ public abstract class ParticleMeshEwald implements LambdaInterface {
    */
   public abstract void setLambdaMultipoleScale(double scale);
 
+  /**
+   * Discard the auxiliary induced dipole history of the inertial extended Lagrangian SCF algorithm.
+   * By default, this does nothing.
+   */
+  public void resetInertialDipoles() {
+    // Only implementations that support the IEL SCF algorithm keep a history.
+  }
+
+  /**
+   * Announce that the next energy evaluation is the force evaluation of a molecular dynamics step,
+   * which advances the auxiliary induced dipoles of the inertial extended Lagrangian SCF algorithm.
+   * All other evaluations converge the SCF without touching the history. By default, this does
+   * nothing.
+   */
+  public void prepareInertialDipoleStep() {
+    // Only implementations that support the IEL SCF algorithm keep a history.
+  }
+
   /**
    * Setter for the field <code>polarization</code>.
    *
@@ -799,7 +827,8 @@ public abstract class ParticleMeshEwald implements LambdaInterface {
   public enum SCFAlgorithm {
     SOR(true, true),
     CG(true, true),
-    EPT(true, true);
+    EPT(true, true),
+    IEL(true, false);
 
     private final List<Platform> supportedPlatforms;
 
@@ -44,13 +44,23 @@ import static ffx.potential.parameters.MultipoleType.assignMultipole;
 import static ffx.potential.parameters.MultipoleType.t000;
 import static ffx.potential.parameters.MultipoleType.t001;
 import static ffx.potential.parameters.MultipoleType.t002;
+import static ffx.potential.parameters.MultipoleType.t003;
 import static ffx.potential.parameters.MultipoleType.t010;
 import static ffx.potential.parameters.MultipoleType.t011;
+import static ffx.potential.parameters.MultipoleType.t012;
 import static ffx.potential.parameters.MultipoleType.t020;
+import static ffx.potential.parameters.MultipoleType.t021;
+import static ffx.potential.parameters.MultipoleType.t030;
 import static ffx.potential.parameters.MultipoleType.t100;
 import static ffx.potential.parameters.MultipoleType.t101;
+import static ffx.potential.parameters.MultipoleType.t102;
 import static ffx.potential.parameters.MultipoleType.t110;
+import static ffx.potential.parameters.MultipoleType.t111;
+import static ffx.potential.parameters.MultipoleType.t120;
 import static ffx.potential.parameters.MultipoleType.t200;
+import static ffx.potential.parameters.MultipoleType.t201;
+import static ffx.potential.parameters.MultipoleType.t210;
+import static ffx.potential.parameters.MultipoleType.t300;
 import static ffx.utilities.Constants.NS2SEC;
 import static java.lang.String.format;
 import static java.util.Arrays.fill;
@@ -74,13 +84,16 @@ import ffx.potential.bonded.Atom.Resolution;
 import ffx.potential.bonded.Bond;
 import ffx.potential.bonded.LambdaInterface;
 import ffx.potential.nonbonded.ReciprocalSpace.FFTMethod;
+import ffx.potential.nonbonded.octree.FastMultipoleMethod;
 import ffx.potential.nonbonded.pme.DirectRegion;
 import ffx.potential.nonbonded.pme.ExpandInducedDipolesRegion;
 import ffx.potential.nonbonded.pme.InducedDipoleFieldReduceRegion;
 import ffx.potential.nonbonded.pme.InducedDipoleFieldRegion;
+import ffx.potential.nonbonded.pme.InertialDipoles;
 import ffx.potential.nonbonded.pme.InitializationRegion;
 import ffx.potential.nonbonded.pme.OPTRegion;
 import ffx.potential.nonbonded.pme.PCGSolver;
+import ffx.potential.nonbonded.pme.PMEThreadBalancer;
 import ffx.potential.nonbonded.pme.PermanentFieldRegion;
 import ffx.potential.nonbonded.pme.PolarizationEnergyRegion;
 import ffx.potential.nonbonded.pme.RealSpaceEnergyRegion;
@@ -155,6 +168,12 @@ public class ParticleMeshEwaldCart extends ParticleMeshEwald implements LambdaIn
   private final SCFPredictor scfPredictor;
 
   private final SCFPredictorParameters scfPredictorParameters;
+  /** Auxiliary induced dipoles propagated by the inertial extended Lagrangian (IEL) algorithm. */
+  private final InertialDipoles inertialDipoles;
+  /** Number of SCF iterations (0 or 1) per step for the IEL algorithm. */
+  private final int ielSCFCycles;
+  /** True if the next SCF belongs to a molecular dynamics step and advances the IEL history. */
+  private boolean inertialDipoleStep = false;
   private final EwaldParameters ewaldParameters;
   private final ScaleParameters scaleParameters;
   private final AlchemicalParameters alchemicalParameters;
@@ -175,7 +194,7 @@ public class ParticleMeshEwaldCart extends ParticleMeshEwald implements LambdaIn
    * <p>If it contains 2 threads, the real and reciprocal space calculations will be done
    * concurrently.
    */
-  private final ParallelTeam sectionTeam;
+  private ParallelTeam sectionTeam;
   /**
    * If the real and reciprocal space parts of PME are done sequentially, then the realSpaceTeam is
    * equal parallalTeam.
@@ -183,7 +202,7 @@ public class ParticleMeshEwaldCart extends ParticleMeshEwald implements LambdaIn
    * <p>If the real and reciprocal space parts of PME are done concurrently, then the realSpaceTeam
    * will have fewer threads than the default parallelTeam.
    */
-  private final ParallelTeam realSpaceTeam;
+  private ParallelTeam realSpaceTeam;
   /**
    * If the real and reciprocal space parts of PME are done sequentially, then the
    * reciprocalSpaceTeam is equal parallalTeam.
@@ -191,7 +210,20 @@ public class ParticleMeshEwaldCart extends ParticleMeshEwald implements LambdaIn
    * <p>If the real and reciprocal space parts of PME are done concurrently, then the
    * reciprocalSpaceTeam will have fewer threads than the default parallelTeam.
    */
-  private final ParallelTeam fftTeam;
+  private ParallelTeam fftTeam;
+  /**
+   * If pme-real-threads is set to "auto", the threadBalancer chooses and rebalances the split
+   * between real and reciprocal space threads from measured timings.
+   */
+  private final PMEThreadBalancer threadBalancer;
+  /** Real space teams indexed by thread count, created when the threadBalancer first uses them. */
+  private final ParallelTeam[] realSpaceTeams;
+  /** Reciprocal space teams indexed by thread count, created when first used. */
+  private final ParallelTeam[] fftTeams;
+  /** Section teams with 1 thread (sequential) and 2 threads (concurrent) used when balancing. */
+  private final ParallelTeam sequentialSectionTeam;
+
+  private final ParallelTeam concurrentSectionTeam;
 
   private final NeighborList neighborList;
   private final InitializationRegion initializationRegion;
@@ -209,6 +241,13 @@ public class ParticleMeshEwaldCart extends ParticleMeshEwald implements LambdaIn
   private final RealSpaceEnergyRegion realSpaceEnergyRegion;
   private final ReduceRegion reduceRegion;
   private final GeneralizedKirkwood generalizedKirkwood;
+  /**
+   * The fast multipole method replaces real space summation of the permanent multipole energy for
+   * aperiodic systems without polarization (or null if not in use).
+   */
+  private final FastMultipoleMethod fastMultipoleMethod;
+  /** If true, the FMM error versus direct summation is reported for the next energy evaluation. */
+  private boolean fastMultipoleCheck;
   /** Partial derivative with respect to Lambda. */
   private final SharedDouble shareddEdLambda;
   /** Second partial derivative with respect to Lambda. */
@@ -388,6 +427,18 @@ public class ParticleMeshEwaldCart extends ParticleMeshEwald implements LambdaIn
       scfAlgorithm = SCFAlgorithm.CG;
     }
 
+    if (scfAlgorithm == SCFAlgorithm.IEL && lambdaTerm) {
+      // Alchemical states share the induced dipole arrays, which would corrupt the IEL history.
+      logger.info(" The IEL SCF algorithm does not support lambda; falling back to CG.");
+      scfAlgorithm = SCFAlgorithm.CG;
+    }
+    ielSCFCycles = max(0, min(1, forceField.getInteger("IEL_SCF_CYCLES", 1)));
+    if (scfAlgorithm == SCFAlgorithm.IEL) {
+      inertialDipoles = new InertialDipoles(nAtoms);
+    } else {
+      inertialDipoles = null;
+    }
+
     pcgSolver = new PCGSolver(maxThreads, poleps, forceField, nAtoms);
 
     alchemicalParameters = new AlchemicalParameters(forceField, lambdaTerm);
@@ -438,6 +489,9 @@ public class ParticleMeshEwaldCart extends ParticleMeshEwald implements LambdaIn
         sb.append(format("    SCF Algorithm:                     %8s\n", scfAlgorithm));
         if (scfAlgorithm == SCFAlgorithm.SOR) {
           sb.append(format("    SOR Parameter:                     %8.3f\n", sorRegion.getSOR()));
+        } else if (scfAlgorithm == SCFAlgorithm.IEL) {
+          sb.append(format("    IEL SCF Cycles per Step:           %8d\n", ielSCFCycles));
+          sb.append(format("    SOR Parameter:                     %8.3f\n", sorRegion.getSOR()));
         } else {
           sb.append(
               format(
@@ -473,6 +527,8 @@ public class ParticleMeshEwaldCart extends ParticleMeshEwald implements LambdaIn
      reciprocalThreads = maxThreads - realSpaceThreads
     */
     int reciprocalThreads;
+    // Balance the split between real and reciprocal space threads from timings.
+    boolean balance = false;
 
     if (gpuFFT) {
       sectionThreads = 2;
@@ -491,6 +547,11 @@ public class ParticleMeshEwaldCart extends ParticleMeshEwald implements LambdaIn
         concurrent = true;
       } catch (Exception e) {
         concurrent = false;
+        balance =
+            maxThreads > 1
+                && ewaldParameters.aewald > 0.0
+                && reciprocalSpaceTerm
+                && forceField.getString("PME_REAL_THREADS", "").equalsIgnoreCase("AUTO");
       }
       if (concurrent) {
         sectionThreads = 2;
@@ -508,6 +569,24 @@ public class ParticleMeshEwaldCart extends ParticleMeshEwald implements LambdaIn
       }
     }
 
+    if (balance) {
+      int interval = forceField.getInteger("PME_BALANCE_INTERVAL", 10);
+      threadBalancer = new PMEThreadBalancer(maxThreads, interval);
+      realSpaceTeams = new ParallelTeam[maxThreads];
+      fftTeams = new ParallelTeam[maxThreads];
+      sequentialSectionTeam = sectionTeam;
+      concurrentSectionTeam = new ParallelTeam(2);
+      logger.info(
+          format(
+              " Real and reciprocal space threads balanced every %d evaluations.\n", interval));
+    } else {
+      threadBalancer = null;
+      realSpaceTeams = null;
+      fftTeams = null;
+      sequentialSectionTeam = null;
+      concurrentSectionTeam = null;
+    }
+
     realSpaceNeighborParameters = new RealSpaceNeighborParameters(maxThreads);
     initializationRegion = new InitializationRegion(maxThreads, forceField);
     expandInducedDipolesRegion = new ExpandInducedDipolesRegion(maxThreads);
@@ -555,6 +634,29 @@ public class ParticleMeshEwaldCart extends ParticleMeshEwald implements LambdaIn
     } else {
       generalizedKirkwood = null;
     }
+
+    // The fast multipole method is an alternative to all-pairs real space summation for aperiodic
+    // systems.
+    boolean fmm = forceField.getBoolean("FMM", false);
+    if (fmm
+        && crystal.aperiodic()
+        && polarization == Polarization.NONE
+        && !lambdaTerm
+        && generalizedKirkwood == null) {
+      int fmmOrder = forceField.getInteger("FMM_ORDER", 6);
+      int fmmCritical = forceField.getInteger("FMM_NCRIT", 32);
+      double fmmTheta = forceField.getDouble("FMM_THETA", 0.5);
+      fastMultipoleMethod = new FastMultipoleMethod(fmmOrder, fmmCritical, fmmTheta, parallelTeam);
+      fastMultipoleCheck = forceField.getBoolean("FMM_CHECK", false);
+      logger.info(fastMultipoleMethod.toString());
+    } else {
+      if (fmm) {
+        logger.info(
+            " The fast multipole method requires an aperiodic system without polarization, "
+                + "lambda or generalized Kirkwood terms; real space summation will be used.");
+      }
+      fastMultipoleMethod = null;
+    }
   }
 
   /**
@@ -592,7 +694,8 @@ public class ParticleMeshEwaldCart extends ParticleMeshEwald implements LambdaIn
   public void computeInduceDipoleField() {
     expandInducedDipoles();
 
-    if (reciprocalSpaceTerm && ewaldParameters.aewald > 0.0) {
+    boolean overlap = overlapReciprocalSpace();
+    if (reciprocalSpaceTerm && ewaldParameters.aewald > 0.0 && !overlap) {
       reciprocalSpace.splineInducedDipoles(inducedDipole, inducedDipoleCR, use);
     }
     field.reset(parallelTeam, 0, nAtoms - 1);
@@ -615,19 +718,21 @@ public class ParticleMeshEwaldCart extends ParticleMeshEwald implements LambdaIn
         field,
         fieldCR,
         pmeTimings);
+    inducedDipoleFieldRegion.setReciprocalPhi(
+        overlap ? cartesianDipolePhi : null, cartesianDipolePhiCR);
     inducedDipoleFieldRegion.executeWith(sectionTeam);
     pmeTimings.realSpaceSCFTotal = inducedDipoleFieldRegion.getRealSpaceSCFTotal();
 
-    if (reciprocalSpaceTerm && ewaldParameters.aewald > 0.0) {
+    if (reciprocalSpaceTerm && ewaldParameters.aewald > 0.0 && !overlap) {
       reciprocalSpace.computeInducedPhi(cartesianDipolePhi, cartesianDipolePhiCR);
     }
 
     if (generalizedKirkwoodTerm) {
-      pmeTimings.gkEnergyTotal = -System.nanoTime();
+      long gkTime = -System.nanoTime();
       generalizedKirkwood.computeInducedGKField();
-      pmeTimings.gkEnergyTotal += System.nanoTime();
-      logger.fine(
-          format(" Computed GK induced field %8.3f (sec)", pmeTimings.gkEnergyTotal * 1.0e-9));
+      gkTime += System.nanoTime();
+      pmeTimings.gkEnergyTotal += gkTime;
+      logger.fine(format(" Computed GK induced field %8.3f (sec)", gkTime * 1.0e-9));
     }
 
     inducedDipoleFieldReduceRegion.init(
@@ -667,6 +772,22 @@ public class ParticleMeshEwaldCart extends ParticleMeshEwald implements LambdaIn
         logger.warning(" Exception in shutting down realSpaceTeam");
       }
     }
+    if (threadBalancer != null) {
+      try {
+        for (int i = 1; i < maxThreads; i++) {
+          if (realSpaceTeams[i] != null) {
+            realSpaceTeams[i].shutdown();
+          }
+          if (fftTeams[i] != null) {
+            fftTeams[i].shutdown();
+          }
+        }
+        sequentialSectionTeam.shutdown();
+        concurrentSectionTeam.shutdown();
+      } catch (Exception ex) {
+        logger.warning(" Exception in shutting down balanced PME teams");
+      }
+    }
   }
 
   /**
@@ -680,6 +801,7 @@ public class ParticleMeshEwaldCart extends ParticleMeshEwald implements LambdaIn
   public double energy(boolean gradient, boolean print) {
 
     this.gradient = gradient;
+    long time = -System.nanoTime();
 
     // Initialize energy variables.
     totalMultipoleEnergy = 0.0;
@@ -747,6 +869,7 @@ public class ParticleMeshEwaldCart extends ParticleMeshEwald implements LambdaIn
     if (!lambdaTerm) {
       lambdaMode = LambdaMode.OFF;
       energy = computeEnergy(print);
+      addPairLoopTime();
     } else {
       // Condensed phase with all atoms.
       lambdaMode = LambdaMode.CONDENSED;
@@ -762,6 +885,8 @@ public class ParticleMeshEwaldCart extends ParticleMeshEwald implements LambdaIn
       if (logger.isLoggable(Level.FINE)) {
         logger.fine(format(" Step 2 energy:   %20.8f", energy - temp));
       }
+      // The vapor ligand loops below do not use the shared neighbor list.
+      addPairLoopTime();
 
       // Vapor ligand electrostatics.
       if (alchemicalParameters.doLigandVaporElec) {
@@ -801,9 +926,72 @@ public class ParticleMeshEwaldCart extends ParticleMeshEwald implements LambdaIn
       }
     }
 
+    // Rebalance real and reciprocal space threads.
+    if (threadBalancer != null) {
+      time += System.nanoTime();
+      long realTime = pmeTimings.realSpacePermTotal + pmeTimings.realSpaceSCFTotal;
+      if (threadBalancer.update(realTime, reciprocalSpace.getTotalTime(), time)) {
+        applyThreadSplit();
+        if (logger.isLoggable(Level.FINE)) {
+          logger.fine(threadBalancer.toString());
+        }
+      }
+    }
+
     return permanentMultipoleEnergy + polarizationEnergy;
   }
 
+  /**
+   * Report the wall clock time spent in real space (and generalized Kirkwood) loops over the
+   * neighbor list shared with van der Waals, which is used to tune the buffer of the list.
+   */
+  private void addPairLoopTime() {
+    long time =
+        pmeTimings.realSpacePermTotal
+            + pmeTimings.realSpaceSCFTotal
+            + pmeTimings.realSpaceEnergyTotal;
+    if (generalizedKirkwoodTerm) {
+      time += pmeTimings.bornRadiiTotal + pmeTimings.gkEnergyTotal;
+    }
+    neighborList.addPairLoopTime(time);
+  }
+
+  /**
+   * Check if b-Splines, spreading and interpolation of the potential can overlap the real space
+   * part, in addition to the convolution.
+   *
+   * @return True if the reciprocal space sections compute the whole reciprocal space chain.
+   */
+  private boolean overlapReciprocalSpace() {
+    return reciprocalSpace != null
+        && sectionTeam.getThreadCount() == 2
+        && reciprocalSpace.canOverlapSplines();
+  }
+
+  /** Apply the real and reciprocal space thread split chosen by the threadBalancer. */
+  private void applyThreadSplit() {
+    if (threadBalancer.isConcurrent()) {
+      int realThreads = threadBalancer.getRealThreads();
+      int reciprocalThreads = threadBalancer.getReciprocalThreads();
+      if (realSpaceTeams[realThreads] == null) {
+        realSpaceTeams[realThreads] = new ParallelTeam(realThreads);
+      }
+      if (fftTeams[reciprocalThreads] == null) {
+        fftTeams[reciprocalThreads] = new ParallelTeam(reciprocalThreads);
+      }
+      sectionTeam = concurrentSectionTeam;
+      realSpaceTeam = realSpaceTeams[realThreads];
+      fftTeam = fftTeams[reciprocalThreads];
+    } else {
+      sectionTeam = sequentialSectionTeam;
+      realSpaceTeam = parallelTeam;
+      fftTeam = parallelTeam;
+    }
+    permanentFieldRegion.setRealSpaceTeam(realSpaceTeam);
+    inducedDipoleFieldRegion.setRealSpaceTeam(realSpaceTeam);
+    reciprocalSpace.setFFTTeam(fftTeam);
+  }
+
   public void expandInducedDipoles() {
     if (nSymm > 1) {
       expandInducedDipolesRegion.init(atoms, crystal, inducedDipole, inducedDipoleCR);
@@ -851,6 +1039,17 @@ public class ParticleMeshEwaldCart extends ParticleMeshEwald implements LambdaIn
     return generalizedKirkwood;
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Translation codes are only available while the neighbor lists are those of the shared
+   * NeighborList (i.e. not the vacuum lists).
+   */
+  @Override
+  public int[][][] getNeighborShifts() {
+    return neighborLists == neighborList.getNeighborList() ? neighborList.getShifts() : null;
+  }
+
   /**
    * getGeneralizedKirkwoodEnergy.
    *
@@ -1148,9 +1347,12 @@ public class ParticleMeshEwaldCart extends ParticleMeshEwald implements LambdaIn
       ipdamp = new double[nAtoms];
       polarizability = new double[nAtoms];
 
-      if (scfAlgorithm == SCFAlgorithm.CG) {
+      if (scfAlgorithm == SCFAlgorithm.CG || scfAlgorithm == SCFAlgorithm.IEL) {
         pcgSolver.allocateVectors(nAtoms);
       }
+      if (inertialDipoles != null) {
+        inertialDipoles.allocate(nAtoms);
+      }
       pcgSolver.allocateLists(nSymm, nAtoms);
 
       if (scfPredictor != SCFPredictor.NONE) {
@@ -1529,6 +1731,10 @@ public class ParticleMeshEwaldCart extends ParticleMeshEwald implements LambdaIn
    * @return return the total electrostatic energy (permanent + polarization).
    */
   private double computeEnergy(boolean print) {
+    if (fastMultipoleMethod != null) {
+      return fastMultipoleEnergy();
+    }
+
     // Find the permanent multipole potential, field, etc.
     permanentMultipoleField();
 
@@ -1560,7 +1766,10 @@ public class ParticleMeshEwaldCart extends ParticleMeshEwald implements LambdaIn
 
       if (reciprocalSpaceTerm && ewaldParameters.aewald > 0.0) {
         if (gradient && polarization == Polarization.DIRECT) {
-          reciprocalSpace.splineInducedDipoles(inducedDipole, inducedDipoleCR, use);
+          boolean overlap = overlapReciprocalSpace();
+          if (!overlap) {
+            reciprocalSpace.splineInducedDipoles(inducedDipole, inducedDipoleCR, use);
+          }
           field.reset(parallelTeam, 0, nAtoms - 1);
           fieldCR.reset(parallelTeam, 0, nAtoms - 1);
           inducedDipoleFieldRegion.init(
@@ -1581,8 +1790,12 @@ public class ParticleMeshEwaldCart extends ParticleMeshEwald implements LambdaIn
               field,
               fieldCR,
               pmeTimings);
+          inducedDipoleFieldRegion.setReciprocalPhi(
+              overlap ? cartesianDipolePhi : null, cartesianDipolePhiCR);
           inducedDipoleFieldRegion.executeWith(sectionTeam);
-          reciprocalSpace.computeInducedPhi(cartesianDipolePhi, cartesianDipolePhiCR);
+          if (!overlap) {
+            reciprocalSpace.computeInducedPhi(cartesianDipolePhi, cartesianDipolePhiCR);
+          }
         } else {
           reciprocalSpace.cartToFracInducedDipoles(inducedDipole, inducedDipoleCR);
         }
@@ -1909,11 +2122,172 @@ public class ParticleMeshEwaldCart extends ParticleMeshEwald implements LambdaIn
     return permanentMultipoleEnergy + polarizationEnergy + solvationEnergy;
   }
 
+  /**
+   * Compute the permanent multipole energy, gradient and torque of an aperiodic system using the
+   * fast multipole method in place of real space summation.
+   *
+   * @return The permanent multipole energy.
+   */
+  private double fastMultipoleEnergy() {
+    final double oneThird = 1.0 / 3.0;
+    final double twoThirds = 2.0 / 3.0;
+    pmeTimings.realSpaceEnergyTotal -= System.nanoTime();
+    double[][] xyz = coordinates[0];
+    double[][] mpoles = globalMultipole[0];
+    double[][] phis = cartesianMultipolePhi;
+    fastMultipoleMethod.computePotential(xyz, mpoles, phis);
+
+    if (fastMultipoleCheck) {
+      double[][] reference = new double[nAtoms][FastMultipoleMethod.PHI_COUNT];
+      fastMultipoleMethod.directSum(xyz, mpoles, reference);
+      fastMultipoleMethod.error(reference, phis);
+      fastMultipoleCheck = false;
+    }
+
+    // Remove the masked fraction of 1-2, 1-3, 1-4 and 1-5 interactions.
+    double[] mask = new double[nAtoms];
+    fill(mask, 1.0);
+    for (int i = 0; i < nAtoms; i++) {
+      boolean amoeba = ip11[i] != null;
+      for (int k : mask12[i]) {
+        mask[k] = scaleParameters.m12scale;
+      }
+      for (int k : mask13[i]) {
+        mask[k] = scaleParameters.m13scale;
+      }
+      for (int k : mask14[i]) {
+        mask[k] = scaleParameters.m14scale;
+      }
+      if (amoeba) {
+        for (int k : mask15[i]) {
+          mask[k] = scaleParameters.m15scale;
+        }
+      }
+      int[][] masks = {mask12[i], mask13[i], mask14[i], mask15[i]};
+      int nMasks = amoeba ? 4 : 3;
+      for (int m = 0; m < nMasks; m++) {
+        int[] list = masks[m];
+        for (int k : list) {
+          if (mask[k] != 1.0) {
+            fastMultipoleMethod.addPairPotential(xyz, mpoles, i, k, mask[k] - 1.0, phis[i]);
+            mask[k] = 1.0;
+          }
+        }
+      }
+    }
+
+    double energy = 0.0;
+    for (int i = 0; i < nAtoms; i++) {
+      final double[] phi = phis[i];
+      final double[] mpole = mpoles[i];
+      energy +=
+          mpole[t000] * phi[t000]
+              + mpole[t100] * phi[t100]
+              + mpole[t010] * phi[t010]
+              + mpole[t001] * phi[t001]
+              + oneThird
+                  * (mpole[t200] * phi[t200]
+                      + mpole[t020] * phi[t020]
+                      + mpole[t002] * phi[t002]
+                      + 2.0
+                          * (mpole[t110] * phi[t110]
+                              + mpole[t101] * phi[t101]
+                              + mpole[t011] * phi[t011]));
+      if (gradient) {
+        double gx =
+            mpole[t000] * phi[t100]
+                + mpole[t100] * phi[t200]
+                + mpole[t010] * phi[t110]
+                + mpole[t001] * phi[t101]
+                + oneThird
+                    * (mpole[t200] * phi[t300]
+                        + mpole[t020] * phi[t120]
+                        + mpole[t002] * phi[t102]
+                        + 2.0
+                            * (mpole[t110] * phi[t210]
+                                + mpole[t101] * phi[t201]
+                                + mpole[t011] * phi[t111]));
+        double gy =
+            mpole[t000] * phi[t010]
+                + mpole[t100] * phi[t110]
+                + mpole[t010] * phi[t020]
+                + mpole[t001] * phi[t011]
+                + oneThird
+                    * (mpole[t200] * phi[t210]
+                        + mpole[t020] * phi[t030]
+                        + mpole[t002] * phi[t012]
+                        + 2.0
+                            * (mpole[t110] * phi[t120]
+                                + mpole[t101] * phi[t111]
+                                + mpole[t011] * phi[t021]));
+        double gz =
+            mpole[t000] * phi[t001]
+                + mpole[t100] * phi[t101]
+                + mpole[t010] * phi[t011]
+                + mpole[t001] * phi[t002]
+                + oneThird
+                    * (mpole[t200] * phi[t201]
+                        + mpole[t020] * phi[t021]
+                        + mpole[t002] * phi[t003]
+                        + 2.0
+                            * (mpole[t110] * phi[t111]
+                                + mpole[t101] * phi[t102]
+                                + mpole[t011] * phi[t012]));
+        // Compute dipole torques
+        double tqx = -mpole[t010] * phi[t001] + mpole[t001] * phi[t010];
+        double tqy = -mpole[t001] * phi[t100] + mpole[t100] * phi[t001];
+        double tqz = -mpole[t100] * phi[t010] + mpole[t010] * phi[t100];
+        // Compute quadrupole torques
+        tqx -=
+            twoThirds
+                * (mpole[t110] * phi[t101]
+                    + mpole[t020] * phi[t011]
+                    + mpole[t011] * phi[t002]
+                    - mpole[t101] * phi[t110]
+                    - mpole[t011] * phi[t020]
+                    - mpole[t002] * phi[t011]);
+        tqy -=
+            twoThirds
+                * (mpole[t101] * phi[t200]
+                    + mpole[t011] * phi[t110]
+                    + mpole[t002] * phi[t101]
+                    - mpole[t200] * phi[t101]
+                    - mpole[t110] * phi[t011]
+                    - mpole[t101] * phi[t002]);
+        tqz -=
+            twoThirds
+                * (mpole[t200] * phi[t110]
+                    + mpole[t110] * phi[t020]
+                    + mpole[t101] * phi[t011]
+                    - mpole[t110] * phi[t200]
+                    - mpole[t020] * phi[t110]
+                    - mpole[t011] * phi[t101]);
+        grad.add(0, i, electric * gx, electric * gy, electric * gz);
+        torque.add(0, i, electric * tqx, electric * tqy, electric * tqz);
+      }
+    }
+    energy *= 0.5 * electric;
+    interactions += nAtoms;
+    pmeTimings.realSpaceEnergyTotal += System.nanoTime();
+
+    permanentRealSpaceEnergy += energy;
+    permanentMultipoleEnergy += energy;
+    totalMultipoleEnergy += energy;
+
+    if (logger.isLoggable(Level.FINE) || printDecomposition) {
+      logger.info(fastMultipoleMethod.toString());
+      logger.info(format(" Multipole FMM Energy:    %16.8f", energy));
+    }
+
+    return permanentMultipoleEnergy;
+  }
+
   /** Find the permanent multipole potential, field, etc. */
   private void permanentMultipoleField() {
     try {
       // Compute b-Splines and permanent density.
-      if (reciprocalSpaceTerm && ewaldParameters.aewald > 0.0) {
+      boolean overlap = overlapReciprocalSpace();
+      if (reciprocalSpaceTerm && ewaldParameters.aewald > 0.0 && !overlap) {
         reciprocalSpace.computeBSplines();
         reciprocalSpace.splinePermanentMultipoles(globalMultipole, 0, use);
       }
@@ -1949,12 +2323,13 @@ public class ParticleMeshEwaldCart extends ParticleMeshEwald implements LambdaIn
           pmeTimings);
       // The real space contribution can be calculated at the same time
       // the reciprocal space convolution is being done.
+      permanentFieldRegion.setReciprocalPhi(overlap ? cartesianMultipolePhi : null);
       sectionTeam.execute(permanentFieldRegion);
 
       pmeTimings.realSpacePermTotal = permanentFieldRegion.getRealSpacePermTotal();
 
       // Collect the reciprocal space field.
-      if (reciprocalSpaceTerm && ewaldParameters.aewald > 0.0) {
+      if (reciprocalSpaceTerm && ewaldParameters.aewald > 0.0 && !overlap) {
         reciprocalSpace.computePermanentPhi(cartesianMultipolePhi);
       }
     } catch (RuntimeException e) {
@@ -1993,11 +2368,11 @@ public class ParticleMeshEwaldCart extends ParticleMeshEwald implements LambdaIn
 
     // Compute the direct induced dipoles.
     if (generalizedKirkwoodTerm) {
-      pmeTimings.gkEnergyTotal = -System.nanoTime();
+      long gkTime = -System.nanoTime();
       generalizedKirkwood.computePermanentGKField();
-      pmeTimings.gkEnergyTotal += System.nanoTime();
-      logger.fine(
-          format(" Computed GK permanent field %8.3f (sec)", pmeTimings.gkEnergyTotal * 1.0e-9));
+      gkTime += System.nanoTime();
+      pmeTimings.gkEnergyTotal += gkTime;
+      logger.fine(format(" Computed GK permanent field %8.3f (sec)", gkTime * 1.0e-9));
     }
     directRegion.init(
         atoms,
@@ -2022,7 +2397,7 @@ public class ParticleMeshEwaldCart extends ParticleMeshEwald implements LambdaIn
     }
 
     // Predict the current self-consistent induced dipoles using information from previous steps.
-    if (scfPredictor != SCFPredictor.NONE) {
+    if (scfPredictor != SCFPredictor.NONE && scfAlgorithm != SCFAlgorithm.IEL) {
       switch (scfPredictor) {
         case ASPC:
           scfPredictorParameters.aspcPredictor();
@@ -2050,33 +2425,58 @@ public class ParticleMeshEwaldCart extends ParticleMeshEwald implements LambdaIn
       case EPT:
         iterations = scfByEPT(print, startTime);
         break;
+      case IEL:
+        iterations = scfByIEL(print, startTime);
+        break;
       case CG:
       default:
-        pcgSolver.init(
-            atoms,
-            coordinates,
-            polarizability,
-            ipdamp,
-            thole,
-            use,
-            crystal,
-            inducedDipole,
-            inducedDipoleCR,
-            directDipole,
-            directDipoleCR,
-            field,
-            fieldCR,
-            ewaldParameters,
-            parallelTeam,
-            realSpaceNeighborParameters.realSpaceSchedule,
-            pmeTimings.realSpaceSCFTime);
-        iterations = pcgSolver.scfByPCG(print, startTime, this);
+        iterations = scfByPCG(print, startTime);
         break;
     }
 
     return iterations;
   }
 
+  /**
+   * Reset the auxiliary induced dipole history of the IEL SCF algorithm, which should be done
+   * whenever the coordinates change discontinuously (e.g. at the start of a dynamics run).
+   */
+  @Override
+  public void resetInertialDipoles() {
+    if (inertialDipoles != null) {
+      inertialDipoles.reset();
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void prepareInertialDipoleStep() {
+    inertialDipoleStep = inertialDipoles != null;
+  }
+
+  /** Converge the SCF using the preconditioned conjugate gradient solver. */
+  private int scfByPCG(boolean print, long startTime) {
+    pcgSolver.init(
+        atoms,
+        coordinates,
+        polarizability,
+        ipdamp,
+        thole,
+        use,
+        crystal,
+        inducedDipole,
+        inducedDipoleCR,
+        directDipole,
+        directDipoleCR,
+        field,
+        fieldCR,
+        ewaldParameters,
+        parallelTeam,
+        realSpaceNeighborParameters.realSpaceSchedule,
+        pmeTimings.realSpaceSCFTime);
+    return pcgSolver.scfByPCG(print, startTime, this);
+  }
+
   /** Converge the SCF using Successive Over-Relaxation (SOR). */
   private int scfBySOR(boolean print, long startTime) {
     long directTime = System.nanoTime() - startTime;
@@ -2094,7 +2494,8 @@ public class ParticleMeshEwaldCart extends ParticleMeshEwald implements LambdaIn
     while (!done) {
       long cycleTime = -System.nanoTime();
       try {
-        if (reciprocalSpaceTerm && ewaldParameters.aewald > 0.0) {
+        boolean overlap = overlapReciprocalSpace();
+        if (reciprocalSpaceTerm && ewaldParameters.aewald > 0.0 && !overlap) {
           reciprocalSpace.splineInducedDipoles(inducedDipole, inducedDipoleCR, use);
         }
         field.reset(parallelTeam, 0, nAtoms - 1);
@@ -2117,19 +2518,21 @@ public class ParticleMeshEwaldCart extends ParticleMeshEwald implements LambdaIn
             field,
             fieldCR,
             pmeTimings);
+        inducedDipoleFieldRegion.setReciprocalPhi(
+            overlap ? cartesianDipolePhi : null, cartesianDipolePhiCR);
         inducedDipoleFieldRegion.executeWith(sectionTeam);
         pmeTimings.realSpaceSCFTotal = inducedDipoleFieldRegion.getRealSpaceSCFTotal();
-        if (reciprocalSpaceTerm && ewaldParameters.aewald > 0.0) {
+        if (reciprocalSpaceTerm && ewaldParameters.aewald > 0.0 && !overlap) {
           reciprocalSpace.computeInducedPhi(cartesianDipolePhi, cartesianDipolePhiCR);
         }
 
         if (generalizedKirkwoodTerm) {
           // GK field.
-          pmeTimings.gkEnergyTotal = -System.nanoTime();
+          long gkTime = -System.nanoTime();
           generalizedKirkwood.computeInducedGKField();
-          pmeTimings.gkEnergyTotal += System.nanoTime();
-          logger.fine(
-              format(" Computed GK induced field %8.3f (sec)", pmeTimings.gkEnergyTotal * 1.0e-9));
+          gkTime += System.nanoTime();
+          pmeTimings.gkEnergyTotal += gkTime;
+          logger.fine(format(" Computed GK induced field %8.3f (sec)", gkTime * 1.0e-9));
         }
 
         sorRegion.init(
@@ -2210,7 +2613,8 @@ public class ParticleMeshEwaldCart extends ParticleMeshEwald implements LambdaIn
     // Collect OPT dipole contributions from 1st to Nth.
     for (int currentOptOrder = 1; currentOptOrder <= optOrder; currentOptOrder++) {
       try {
-        if (reciprocalSpaceTerm && ewaldParameters.aewald > 0.0) {
+        boolean overlap = overlapReciprocalSpace();
+        if (reciprocalSpaceTerm && ewaldParameters.aewald > 0.0 && !overlap) {
           reciprocalSpace.splineInducedDipoles(inducedDipole, inducedDipoleCR, use);
         }
         field.reset(parallelTeam, 0, nAtoms - 1);
@@ -2233,20 +2637,22 @@ public class ParticleMeshEwaldCart extends ParticleMeshEwald implements LambdaIn
             field,
             fieldCR,
             pmeTimings);
+        inducedDipoleFieldRegion.setReciprocalPhi(
+            overlap ? cartesianDipolePhi : null, cartesianDipolePhiCR);
         inducedDipoleFieldRegion.executeWith(sectionTeam);
         pmeTimings.realSpaceSCFTotal = inducedDipoleFieldRegion.getRealSpaceSCFTotal();
 
-        if (reciprocalSpaceTerm && ewaldParameters.aewald > 0.0) {
+        if (reciprocalSpaceTerm && ewaldParameters.aewald > 0.0 && !overlap) {
           reciprocalSpace.computeInducedPhi(cartesianDipolePhi, cartesianDipolePhiCR);
         }
 
         if (generalizedKirkwoodTerm) {
           // GK field.
-          pmeTimings.gkEnergyTotal = -System.nanoTime();
+          long gkTime = -System.nanoTime();
           generalizedKirkwood.computeInducedGKField();
-          pmeTimings.gkEnergyTotal += System.nanoTime();
-          logger.fine(
-              format(" Computed GK induced field %8.3f (sec)", pmeTimings.gkEnergyTotal * 1.0e-9));
+          gkTime += System.nanoTime();
+          pmeTimings.gkEnergyTotal += gkTime;
+          logger.fine(format(" Computed GK induced field %8.3f (sec)", gkTime * 1.0e-9));
         }
 
         optRegion.init(
@@ -2294,6 +2700,109 @@ public class ParticleMeshEwaldCart extends ParticleMeshEwald implements LambdaIn
     return optOrder;
   }
 
+  /**
+   * Set the induced dipoles using the inertial extended Lagrangian (IEL). The auxiliary dipoles of
+   * the current step are refined by at most one SCF iteration, and then propagated to the next
+   * step. Only an evaluation announced by {@link #prepareInertialDipoleStep()} is a step; any other
+   * evaluation (e.g. a Monte Carlo move or an analysis between steps) is converged by CG and leaves
+   * the history alone.
+   */
+  private int scfByIEL(boolean print, long startTime) {
+    boolean step = inertialDipoleStep;
+    inertialDipoleStep = false;
+    if (!step) {
+      return scfByPCG(print, startTime);
+    }
+
+    // Converge tightly until the auxiliary dipole history is complete.
+    if (!inertialDipoles.isInitialized()) {
+      int iterations = scfByPCG(print, startTime);
+      inertialDipoles.propagate(inducedDipole[0], inducedDipoleCR[0], false);
+      return iterations;
+    }
+
+    inertialDipoles.predict(inducedDipole[0], inducedDipoleCR[0]);
+    expandInducedDipoles();
+
+    // A single field evaluation both refines the induced dipoles and drives the auxiliary dipoles.
+    try {
+      boolean overlap = overlapReciprocalSpace();
+      if (reciprocalSpaceTerm && ewaldParameters.aewald > 0.0 && !overlap) {
+        reciprocalSpace.splineInducedDipoles(inducedDipole, inducedDipoleCR, use);
+      }
+      field.reset(parallelTeam, 0, nAtoms - 1);
+      fieldCR.reset(parallelTeam, 0, nAtoms - 1);
+      inducedDipoleFieldRegion.init(
+          atoms,
+          crystal,
+          use,
+          molecule,
+          ipdamp,
+          thole,
+          coordinates,
+          realSpaceNeighborParameters,
+          inducedDipole,
+          inducedDipoleCR,
+          reciprocalSpaceTerm,
+          reciprocalSpace,
+          lambdaMode,
+          ewaldParameters,
+          field,
+          fieldCR,
+          pmeTimings);
+      inducedDipoleFieldRegion.setReciprocalPhi(
+          overlap ? cartesianDipolePhi : null, cartesianDipolePhiCR);
+      inducedDipoleFieldRegion.executeWith(sectionTeam);
+      pmeTimings.realSpaceSCFTotal = inducedDipoleFieldRegion.getRealSpaceSCFTotal();
+      if (reciprocalSpaceTerm && ewaldParameters.aewald > 0.0 && !overlap) {
+        reciprocalSpace.computeInducedPhi(cartesianDipolePhi, cartesianDipolePhiCR);
+      }
+
+      if (generalizedKirkwoodTerm) {
+        // GK field.
+        long gkTime = -System.nanoTime();
+        generalizedKirkwood.computeInducedGKField();
+        gkTime += System.nanoTime();
+        pmeTimings.gkEnergyTotal += gkTime;
+        logger.fine(format(" Computed GK induced field %8.3f (sec)", gkTime * 1.0e-9));
+      }
+
+      sorRegion.init(
+          atoms,
+          polarizability,
+          inducedDipole,
+          inducedDipoleCR,
+          directDipole,
+          directDipoleCR,
+          cartesianDipolePhi,
+          cartesianDipolePhiCR,
+          field,
+          fieldCR,
+          generalizedKirkwoodTerm,
+          generalizedKirkwood,
+          ewaldParameters);
+      parallelTeam.execute(sorRegion);
+    } catch (Exception e) {
+      String message = "Exception computing IEL induced dipoles.";
+      logger.log(Level.SEVERE, message, e);
+    }
+
+    // For zero SCF cycles the auxiliary dipoles are used directly.
+    inertialDipoles.propagate(inducedDipole[0], inducedDipoleCR[0], ielSCFCycles == 0);
+    expandInducedDipoles();
+
+    if (print) {
+      double residual = Constants.ELEC_ANG_TO_DEBYE * inertialDipoles.getRMSResidual();
+      long time = System.nanoTime() - startTime;
+      logger.info(
+          format(
+              "\n IEL Induced Dipoles (%d SCF cycles)\n RMS Residual: %15.10f (Debye)\n"
+                  + " Total:        %7.4f",
+              ielSCFCycles, residual, time * NS2SEC));
+    }
+    return ielSCFCycles;
+  }
+
   /**
    * A precision of 1.0e-8 results in an Ewald coefficient that ensures continuity in the real space
    * gradient, but at the cost of increased amplitudes for high frequency reciprocal space structure
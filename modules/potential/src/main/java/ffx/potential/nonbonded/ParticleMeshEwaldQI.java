@@ -1326,6 +1326,17 @@ public class ParticleMeshEwaldQI extends ParticleMeshEwald {
     return generalizedKirkwood;
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Translation codes are only available while the neighbor lists are those of the shared
+   * NeighborList (i.e. not the vacuum lists).
+   */
+  @Override
+  public int[][][] getNeighborShifts() {
+    return neighborLists == neighborList.getNeighborList() ? neighborList.getShifts() : null;
+  }
+
   /**
    * getGeneralizedKirkwoodEnergy.
    *
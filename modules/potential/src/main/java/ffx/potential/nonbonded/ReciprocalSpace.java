@@ -82,6 +82,7 @@ import ffx.crystal.Crystal;
 import ffx.numerics.fft.Complex;
 import ffx.numerics.fft.Complex3DCuda;
 import ffx.numerics.fft.Complex3DParallel;
+import ffx.numerics.fft.Complex3DParallelFloat;
 import ffx.numerics.multipole.MultipoleTensor;
 import ffx.potential.bonded.Atom;
 import ffx.potential.extended.ExtUtils;
@@ -135,8 +136,13 @@ public class ReciprocalSpace {
   private final double aEwald;
   /** Parallel team instance. */
   private final ParallelTeam parallelTeam;
-
-  private final ParallelTeam fftTeam;
+  /** Parallel team used for the convolution. */
+  private ParallelTeam fftTeam;
+  /**
+   * Parallel team used for b-Splines, spreading to the grid and interpolation of the potential;
+   * this is the fftTeam while the whole reciprocal space chain overlaps the real space part.
+   */
+  private ParallelTeam splineTeam;
   private final BSplineRegion bSplineRegion;
   private final SpatialPermanentLoop[] spatialPermanentLoops;
   private final SpatialInducedLoop[] spatialInducedLoops;
@@ -197,6 +203,13 @@ public class ReciprocalSpace {
   private double[] splineGrid;
   /** Wraps the splineGrid. */
   private DoubleBuffer splineBuffer;
+  /**
+   * If true, the reciprocal space grid and convolution use single precision storage, while the
+   * potential and its derivatives are still accumulated in double precision.
+   */
+  private final boolean singlePrecision;
+  /** Single precision reciprocal space grid. [fftSpace] */
+  private float[] splineGridFloat;
   /** Reference to atomic coordinate array. */
   private double[][][] coordinates;
   /** Fractional multipole array. */
@@ -221,6 +234,7 @@ public class ReciprocalSpace {
   private long permanentPhiTotal, inducedPhiTotal, convTotal;
   private Complex3DCuda cudaFFT3D;
   private Complex3DParallel pjFFT3D;
+  private Complex3DParallelFloat pjFloatFFT3D;
   private GridMethod gridMethod;
 
   /**
@@ -251,6 +265,7 @@ public class ReciprocalSpace {
     this.aEwald = aewald;
     this.fftTeam = fftTeam;
     this.parallelTeam = parallelTeam;
+    this.splineTeam = parallelTeam;
 
     coordinates = particleMeshEwald.getCoordinates();
     threadCount = parallelTeam.getThreadCount();
@@ -292,6 +307,13 @@ public class ReciprocalSpace {
 
     bSplineOrder = forceField.getInteger("PME_ORDER", 5);
 
+    boolean single = forceField.getBoolean("PME_SINGLE_PRECISION", false);
+    if (single && (gridMethod != GridMethod.SPATIAL || fftMethod != FFTMethod.PJ)) {
+      logger.info(" Single precision PME requires the SPATIAL grid method and the PJ FFT.");
+      single = false;
+    }
+    singlePrecision = single;
+
     // Initialize convolution objects that may be re-allocated during NPT simulations.
     double density = initConvolution();
 
@@ -302,6 +324,9 @@ public class ReciprocalSpace {
       sb.append(format("    Mesh Density:                      %8.3f\n", density));
       sb.append(format("    Mesh Dimensions:              (%3d,%3d,%3d)\n", fftX, fftY, fftZ));
       sb.append(format("    Grid Method:                       %8s\n", gridMethod.toString()));
+      if (singlePrecision) {
+        sb.append("    Grid Precision:                      SINGLE\n");
+      }
       logger.info(sb.toString());
     }
 
@@ -441,6 +466,17 @@ public class ReciprocalSpace {
     }
   }
 
+  /**
+   * Check if b-Splines, spreading to the grid and interpolation of the potential can run on the
+   * fftTeam concurrently with the real space part. This requires the spatial grid method, whose
+   * work decomposition does not depend on the number of threads, and the PJ convolution.
+   *
+   * @return True if the whole reciprocal space chain can overlap the real space part.
+   */
+  public boolean canOverlapSplines() {
+    return gridMethod == GridMethod.SPATIAL && fftMethod == FFTMethod.PJ;
+  }
+
   /**
    * cartToFracInducedDipoles
    *
@@ -468,7 +504,7 @@ public class ReciprocalSpace {
   public void computeBSplines() {
     try {
       bSplineTotal -= System.nanoTime();
-      parallelTeam.execute(bSplineRegion);
+      splineTeam.execute(bSplineRegion);
       bSplineTotal += System.nanoTime();
     } catch (Exception e) {
       String message = " Fatal exception evaluating b-Splines.";
@@ -487,7 +523,7 @@ public class ReciprocalSpace {
     inducedPhiTotal -= System.nanoTime();
     try {
       polarizationPhiRegion.setCartInducedDipolePhi(cartInducedDipolePhi, cartInducedDipoleCRPhi);
-      parallelTeam.execute(polarizationPhiRegion);
+      splineTeam.execute(polarizationPhiRegion);
     } catch (Exception e) {
       String message = "Fatal exception evaluating induced reciprocal space potential.";
       logger.log(Level.SEVERE, message, e);
@@ -510,7 +546,7 @@ public class ReciprocalSpace {
       double[][] cartUnscaledDipolePhiCR) {
     try {
       polarizationPhiRegion.setCartInducedDipolePhi(cartInducedDipolePhi, cartInducedDipoleCRPhi);
-      parallelTeam.execute(polarizationPhiRegion);
+      splineTeam.execute(polarizationPhiRegion);
       if (esvTerm) {
         if (cartUnscaledDipolePhi == null) {
           logger.warning(
@@ -519,7 +555,7 @@ public class ReciprocalSpace {
         }
         polarUnscaledPhiRegion.setCartInducedDipolePhi(
             cartUnscaledDipolePhi, cartUnscaledDipolePhiCR);
-        parallelTeam.execute(polarUnscaledPhiRegion);
+        splineTeam.execute(polarUnscaledPhiRegion);
       }
     } catch (RuntimeException ex) {
       logger.warning("Fatal exception evaluating induced reciprocal space potential.");
@@ -539,7 +575,7 @@ public class ReciprocalSpace {
     permanentPhiTotal -= System.nanoTime();
     try {
       permanentPhiRegion.setCartPermanentPhi(cartPermanentPhi);
-      parallelTeam.execute(permanentPhiRegion);
+      splineTeam.execute(permanentPhiRegion);
     } catch (Exception e) {
       String message = " Fatal exception evaluating permanent reciprocal space potential.";
       logger.log(Level.SEVERE, message, e);
@@ -646,6 +682,20 @@ public class ReciprocalSpace {
     return fftZ;
   }
 
+  /**
+   * Get the wall clock time spent in reciprocal space since the last call to initTimings.
+   *
+   * @return The reciprocal space time (nanoseconds).
+   */
+  public long getTotalTime() {
+    return bSplineTotal
+        + splinePermanentTotal
+        + splineInducedTotal
+        + convTotal
+        + permanentPhiTotal
+        + inducedPhiTotal;
+  }
+
   /**
    * globalToFracDipole.
    *
@@ -713,7 +763,11 @@ public class ReciprocalSpace {
           cudaFFT3D.convolution(splineGrid);
           break;
         case PJ:
-          pjFFT3D.convolution(splineGrid);
+          if (singlePrecision) {
+            pjFloatFFT3D.convolution(splineGridFloat);
+          } else {
+            pjFFT3D.convolution(splineGrid);
+          }
           break;
       }
     } catch (Exception e) {
@@ -723,6 +777,33 @@ public class ReciprocalSpace {
     convTotal += System.nanoTime();
   }
 
+  /**
+   * Spread the induced dipoles onto the grid, convolve and interpolate the induced reciprocal
+   * space potential using the fftTeam. This is used to overlap the whole induced reciprocal space
+   * chain with the real space part.
+   *
+   * @param inducedDipole Induced dipoles.
+   * @param inducedDipoleCR Chain rule term for induced dipole gradient.
+   * @param use The atoms in use.
+   * @param cartInducedDipolePhi The induced dipole potential.
+   * @param cartInducedDipoleCRPhi The chain rule induced dipole potential.
+   */
+  public void inducedReciprocalSpace(
+      double[][][] inducedDipole,
+      double[][][] inducedDipoleCR,
+      boolean[] use,
+      double[][] cartInducedDipolePhi,
+      double[][] cartInducedDipoleCRPhi) {
+    splineTeam = fftTeam;
+    try {
+      splineInducedDipoles(inducedDipole, inducedDipoleCR, use);
+      inducedDipoleConvolution();
+      computeInducedPhi(cartInducedDipolePhi, cartInducedDipoleCRPhi);
+    } finally {
+      splineTeam = parallelTeam;
+    }
+  }
+
   /** initTimings. */
   public void initTimings() {
     // Reset total timings.
@@ -747,6 +828,9 @@ public class ReciprocalSpace {
     if (pjFFT3D != null) {
       pjFFT3D.initTiming();
     }
+    if (pjFloatFFT3D != null) {
+      pjFloatFFT3D.initTiming();
+    }
   }
 
   /** permanentMultipoleConvolution */
@@ -758,7 +842,11 @@ public class ReciprocalSpace {
           cudaFFT3D.convolution(splineGrid);
           break;
         case PJ:
-          pjFFT3D.convolution(splineGrid);
+          if (singlePrecision) {
+            pjFloatFFT3D.convolution(splineGridFloat);
+          } else {
+            pjFFT3D.convolution(splineGrid);
+          }
           break;
       }
     } catch (Exception e) {
@@ -768,10 +856,32 @@ public class ReciprocalSpace {
     convTotal += System.nanoTime();
   }
 
+  /**
+   * Compute b-Splines, spread the permanent multipoles onto the grid, convolve and interpolate the
+   * permanent reciprocal space potential using the fftTeam. This is used to overlap the whole
+   * permanent reciprocal space chain with the real space part.
+   *
+   * @param globalMultipoles Multipoles in the global frame.
+   * @param use The atoms in use.
+   * @param cartPermanentPhi The permanent multipole potential.
+   */
+  public void permanentReciprocalSpace(
+      double[][][] globalMultipoles, boolean[] use, double[][] cartPermanentPhi) {
+    splineTeam = fftTeam;
+    try {
+      computeBSplines();
+      splinePermanentMultipoles(globalMultipoles, 0, use);
+      permanentMultipoleConvolution();
+      computePermanentPhi(cartPermanentPhi);
+    } finally {
+      splineTeam = parallelTeam;
+    }
+  }
+
   /** printTimings. */
   public void printTimings() {
     if (logger.isLoggable(Level.FINE)) {
-      if (pjFFT3D != null) {
+      if (pjFFT3D != null || pjFloatFFT3D != null) {
         double total =
             (bSplineTotal
                     + convTotal
@@ -782,7 +892,10 @@ public class ReciprocalSpace {
                 * toSeconds;
 
         logger.fine(String.format("\n Reciprocal Space: %7.4f (sec)", total));
-        long[] convTime = pjFFT3D.getTimings();
+        // The fftTeam may have fewer threads than the parallelTeam.
+        long[] fftTime = singlePrecision ? pjFloatFFT3D.getTimings() : pjFFT3D.getTimings();
+        long[] convTime = new long[threadCount];
+        arraycopy(fftTime, 0, convTime, 0, min(threadCount, fftTime.length));
         logger.fine("                           Direct Field    SCF Field");
         logger.fine(" Thread  B-Spline  3DConv  Spline  Phi     Spline  Phi      Count");
 
@@ -915,6 +1028,26 @@ public class ReciprocalSpace {
     initConvolution();
   }
 
+  /**
+   * Set the parallel team used for the convolution.
+   *
+   * @param fftTeam The fftTeam.
+   */
+  public void setFFTTeam(ParallelTeam fftTeam) {
+    if (fftTeam == this.fftTeam) {
+      return;
+    }
+    this.fftTeam = fftTeam;
+    if (fftMethod == FFTMethod.PJ && pjFFT3D != null) {
+      pjFFT3D = new Complex3DParallel(fftX, fftY, fftZ, fftTeam, recipSchedule);
+      pjFFT3D.setRecip(generalizedInfluenceFunction());
+    }
+    if (pjFloatFFT3D != null) {
+      pjFloatFFT3D = new Complex3DParallelFloat(fftX, fftY, fftZ, fftTeam, recipSchedule);
+      pjFloatFFT3D.setRecip(generalizedInfluenceFunction());
+    }
+  }
+
   /**
    * Place the induced dipoles onto the FFT grid for the atoms in use.
    *
@@ -944,7 +1077,7 @@ public class ReciprocalSpace {
           spatialInducedLoops[i].setRegion(spatialDensityRegion);
         }
         try {
-          parallelTeam.execute(spatialDensityRegion);
+          splineTeam.execute(spatialDensityRegion);
         } catch (Exception e) {
           String message = " Fatal exception evaluating induced density.\n";
           logger.log(Level.SEVERE, message, e);
@@ -957,7 +1090,7 @@ public class ReciprocalSpace {
           rowInducedLoops[i].setUse(use);
         }
         try {
-          parallelTeam.execute(rowRegion);
+          splineTeam.execute(rowRegion);
         } catch (Exception e) {
           String message = " Fatal exception evaluating induced density.";
           logger.log(Level.SEVERE, message, e);
@@ -970,7 +1103,7 @@ public class ReciprocalSpace {
           sliceInducedLoops[i].setUse(use);
         }
         try {
-          parallelTeam.execute(sliceRegion);
+          splineTeam.execute(sliceRegion);
         } catch (Exception e) {
           String message = " Fatal exception evaluating induced density.";
           logger.log(Level.SEVERE, message, e);
@@ -1017,7 +1150,7 @@ public class ReciprocalSpace {
           spatialPermanentLoops[i].setRegion(spatialDensityRegion);
         }
         try {
-          parallelTeam.execute(spatialDensityRegion);
+          splineTeam.execute(spatialDensityRegion);
         } catch (Exception e) {
           String message = " Fatal exception evaluating permanent multipole density.";
           logger.log(Level.SEVERE, message, e);
@@ -1031,7 +1164,7 @@ public class ReciprocalSpace {
           rowPermanentLoops[i].setUse(use);
         }
         try {
-          parallelTeam.execute(rowRegion);
+          splineTeam.execute(rowRegion);
         } catch (Exception e) {
           String message = " Fatal exception evaluating permanent multipole density.";
           logger.log(Level.SEVERE, message, e);
@@ -1046,7 +1179,7 @@ public class ReciprocalSpace {
           slicePermanentLoops[i].setUse(use);
         }
         try {
-          parallelTeam.execute(sliceRegion);
+          splineTeam.execute(sliceRegion);
         } catch (Exception e) {
           String message = " Fatal exception evaluating permanent multipole density.";
           logger.log(Level.SEVERE, message, e);
@@ -1142,6 +1275,17 @@ public class ReciprocalSpace {
 
     switch (fftMethod) {
       case PJ:
+        if (singlePrecision) {
+          if (pjFloatFFT3D == null || dimChanged) {
+            pjFloatFFT3D = new Complex3DParallelFloat(fftX, fftY, fftZ, fftTeam, recipSchedule);
+            if (splineGridFloat == null || splineGridFloat.length < fftSpace) {
+              splineGridFloat = new float[fftSpace];
+            }
+          }
+          pjFloatFFT3D.setRecip(generalizedInfluenceFunction());
+          cudaFFT3D = null;
+          break;
+        }
         if (pjFFT3D == null || dimChanged) {
           pjFFT3D = new Complex3DParallel(fftX, fftY, fftZ, fftTeam, recipSchedule);
           if (splineGrid == null || splineGrid.length < fftSpace) {
@@ -1186,6 +1330,8 @@ public class ReciprocalSpace {
                   coordinates);
           if (fftMethod != FFTMethod.PJ) {
             spatialDensityRegion.setGridBuffer(splineBuffer);
+          } else if (singlePrecision) {
+            spatialDensityRegion.setGrid(splineGridFloat);
           }
         } else {
           spatialDensityRegion.setCrystal(crystal, fftX, fftY, fftZ);
@@ -1233,7 +1379,7 @@ public class ReciprocalSpace {
     permanentPhiTotal -= System.nanoTime();
     try {
       permanentPhiDotRegion.setCartPermanentDotPhi(cartPermanentDotPhi);
-      parallelTeam.execute(permanentPhiDotRegion);
+      splineTeam.execute(permanentPhiDotRegion);
     } catch (Exception e) {
       String message = " Fatal exception evaluating permanent reciprocal space potential.";
       logger.log(Level.SEVERE, message, e);
@@ -1685,8 +1831,12 @@ public class ReciprocalSpace {
             final int ii = iComplex3D(i, j, k, fftX, fftY);
             final double[] splxi = splx[ith1];
             final double add = splxi[0] * term0 + splxi[1] * term1 + splxi[2] * term2;
-            final double current = splineBuffer.get(ii);
-            splineBuffer.put(ii, current + add);
+            if (singlePrecision) {
+              splineGridFloat[ii] += (float) add;
+            } else {
+              final double current = splineBuffer.get(ii);
+              splineBuffer.put(ii, current + add);
+            }
           }
         }
       }
@@ -1794,10 +1944,15 @@ public class ReciprocalSpace {
             final double[] splxi = splx[ith1];
             final double add = splxi[0] * term0 + splxi[1] * term1;
             final double addi = splxi[0] * termp0 + splxi[1] * termp1;
-            final double current = splineBuffer.get(ii);
-            final double currenti = splineBuffer.get(ii + 1);
-            splineBuffer.put(ii, current + add);
-            splineBuffer.put(ii + 1, currenti + addi);
+            if (singlePrecision) {
+              splineGridFloat[ii] += (float) add;
+              splineGridFloat[ii + 1] += (float) addi;
+            } else {
+              final double current = splineBuffer.get(ii);
+              final double currenti = splineBuffer.get(ii + 1);
+              splineBuffer.put(ii, current + add);
+              splineBuffer.put(ii + 1, currenti + addi);
+            }
             // splineGrid[ii] += add;
             // splineGrid[ii + 1] += addi;
           }
@@ -2561,7 +2716,7 @@ public class ReciprocalSpace {
               for (int ith1 = 0; ith1 < bSplineOrder; ith1++) {
                 final int i = mod(++i0, fftX);
                 final int ii = iComplex3D(i, j, k, fftX, fftY);
-                final double tq = splineBuffer.get(ii);
+                final double tq = singlePrecision ? splineGridFloat[ii] : splineBuffer.get(ii);
                 final double[] splxi = splx[ith1];
                 t0 += tq * splxi[0];
                 t1 += tq * splxi[1];
@@ -2805,8 +2960,9 @@ public class ReciprocalSpace {
                 final int ii = iComplex3D(i, j, k, fftX, fftY);
                 // final double tq = splineGrid[ii];
                 // final double tp = splineGrid[ii + 1];
-                final double tq = splineBuffer.get(ii);
-                final double tp = splineBuffer.get(ii + 1);
+                final double tq = singlePrecision ? splineGridFloat[ii] : splineBuffer.get(ii);
+                final double tp =
+                    singlePrecision ? splineGridFloat[ii + 1] : splineBuffer.get(ii + 1);
                 final double[] splxi = splx[ith1];
                 t0 += tq * splxi[0];
                 t1 += tq * splxi[1];
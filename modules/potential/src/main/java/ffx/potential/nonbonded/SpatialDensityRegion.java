@@ -122,6 +122,8 @@ public class SpatialDensityRegion extends ParallelRegion {
   private int gridSize;
   private double[] grid = null;
   private DoubleBuffer gridBuffer;
+  /** Single precision grid; if set, it is initialized instead of the gridBuffer. */
+  private float[] floatGrid;
   private double initValue = 0.0;
   private GridInitLoop gridInitLoop;
 
@@ -577,6 +579,15 @@ public class SpatialDensityRegion extends ParallelRegion {
     gridBuffer = grid;
   }
 
+  /**
+   * Set a single precision grid to be initialized in place of the gridBuffer.
+   *
+   * @param grid The single precision grid.
+   */
+  void setGrid(float[] grid) {
+    floatGrid = grid;
+  }
+
   private int count(int ia, int ib, int ic) {
     int count = 0;
     for (int iSymm = 0; iSymm < nSymm; iSymm++) {
@@ -597,7 +608,12 @@ public class SpatialDensityRegion extends ParallelRegion {
 
     @Override
     public void run(int lb, int ub) {
-      if (gridBuffer != null) {
+      if (floatGrid != null) {
+        float value = (float) initValue;
+        for (int i = lb; i <= ub; i++) {
+          floatGrid[i] = value;
+        }
+      } else if (gridBuffer != null) {
         // if (grid != null) {
         for (int i = lb; i <= ub; i++) {
           // grid[i] = initValue;
@@ -58,6 +58,7 @@ import ffx.crystal.SymOp;
 import ffx.numerics.atomic.AtomicDoubleArray.AtomicDoubleArrayImpl;
 import ffx.numerics.atomic.AtomicDoubleArray3D;
 import ffx.numerics.switching.MultiplicativeSwitch;
+import ffx.potential.ForceFieldEnergy.EnvironmentMode;
 import ffx.potential.bonded.Atom;
 import ffx.potential.bonded.Atom.Resolution;
 import ffx.potential.bonded.Bond;
@@ -87,7 +88,14 @@ public class VanDerWaals implements MaskingInterface, LambdaInterface {
   private static final byte XX = 0;
   private static final byte YY = 1;
   private static final byte ZZ = 2;
+  /** Number of neighbors gathered into each tile of the tiled pair kernel. */
+  private static final int TILE_WIDTH = 16;
   private final boolean doLongRangeCorrection;
+  /**
+   * If true, interactions between hard atoms are evaluated by a kernel that gathers neighbors into
+   * fixed width tiles.
+   */
+  private final boolean vdwTiles;
   // *************************************************************************
   // Parallel variables.
   private final ParallelTeam parallelTeam;
@@ -108,6 +116,8 @@ public class VanDerWaals implements MaskingInterface, LambdaInterface {
   private final MultiplicativeSwitch multiplicativeSwitch;
   /** This field specifies resolution for multi-scale modeling. */
   private Resolution resolution = null;
+  /** Selects pairs without alchemical atoms (environment pairs) for a DualTopologyEnergy. */
+  private EnvironmentMode environmentMode = EnvironmentMode.ALL;
   /** Boundary conditions and crystal symmetry. */
   private Crystal crystal;
   /** An array of all atoms in the system. */
@@ -234,6 +244,7 @@ public class VanDerWaals implements MaskingInterface, LambdaInterface {
     vdwForm = null;
     nonbondedCutoff = null;
     multiplicativeSwitch = null;
+    vdwTiles = false;
   }
 
   /**
@@ -302,6 +313,7 @@ public class VanDerWaals implements MaskingInterface, LambdaInterface {
     sharedInteractions = new SharedInteger();
     sharedEnergy = new SharedDouble();
     doLongRangeCorrection = forceField.getBoolean("VDW_CORRECTION", false);
+    vdwTiles = forceField.getBoolean("VDW_TILES", false);
     vanDerWaalsRegion = new VanDerWaalsRegion();
     initializationTime = new long[threadCount];
     vdwTime = new long[threadCount];
@@ -332,6 +344,13 @@ public class VanDerWaals implements MaskingInterface, LambdaInterface {
     multiplicativeSwitch = new MultiplicativeSwitch(vdwTaper, vdwCutoff);
     neighborList =
         new NeighborList(null, this.crystal, atoms, neighborListCutoff, buff, parallelTeam);
+    // Optionally store lattice translations in the neighbor list rather than applying the minimum
+    // image convention to each pair.
+    neighborList.setImageShifts(forceField.getBoolean("NEIGHBOR_IMAGE_SHIFTS", false));
+    // Optionally rebuild the neighbor list every N energy evaluations, or tune the buffer at run
+    // time.
+    neighborList.setRebuildInterval(forceField.getInteger("NEIGHBOR_REBUILD_INTERVAL", 0));
+    neighborList.setAutoTune(forceField.getBoolean("NEIGHBOR_BUFFER_TUNING", false));
     pairwiseSchedule = neighborList.getPairwiseSchedule();
     neighborLists = new int[nSymm][][];
 
@@ -475,7 +494,7 @@ public class VanDerWaals implements MaskingInterface, LambdaInterface {
    * @since 1.0
    */
   public double getBuffer() {
-    return nonbondedCutoff.buff;
+    return neighborList.getBuffer();
   }
 
   /**
@@ -800,6 +819,16 @@ public class VanDerWaals implements MaskingInterface, LambdaInterface {
     this.resolution = resolution;
   }
 
+  /**
+   * Setter for the field <code>environmentMode</code>. Environment pairs involve no alchemical
+   * atoms; the long-range correction is not an environment term.
+   *
+   * @param environmentMode an {@link EnvironmentMode}.
+   */
+  public void setEnvironmentMode(EnvironmentMode environmentMode) {
+    this.environmentMode = environmentMode;
+  }
+
   /** {@inheritDoc} */
   @Override
   public String toString() {
@@ -813,6 +842,9 @@ public class VanDerWaals implements MaskingInterface, LambdaInterface {
             "   Cut-Off:                              %6.3f (A)\n",
             multiplicativeSwitch.getSwitchEnd()));
     sb.append(format("   Long-Range Correction:                %b\n", doLongRangeCorrection));
+    if (vdwTiles) {
+      sb.append(format("   Tiled Pair Kernel Width:              %6d\n", TILE_WIDTH));
+    }
     if (!reducedHydrogens) {
       sb.append(format("   Reduce Hydrogens:                     %b\n", reducedHydrogens));
     }
@@ -1178,8 +1210,17 @@ public class VanDerWaals implements MaskingInterface, LambdaInterface {
     }
   }
 
-  /** Test if both atoms match the set Resolution (or true when unset). */
+  /**
+   * Test if both atoms match the set Resolution (or true when unset), and if the pair is selected by
+   * the EnvironmentMode.
+   */
   private boolean include(Atom atom1, Atom atom2) {
+    if (environmentMode != EnvironmentMode.ALL) {
+      boolean environment = !atom1.applyLambda() && !atom2.applyLambda();
+      if (environment != (environmentMode == EnvironmentMode.ENVIRONMENT_ONLY)) {
+        return false;
+      }
+    }
     return ((resolution == null)
         || (atom1.getResolution() == resolution && atom2.getResolution() == resolution));
   }
@@ -1307,6 +1348,7 @@ public class VanDerWaals implements MaskingInterface, LambdaInterface {
         execute(0, nAtoms - 1, vanDerWaalsLoop[threadIndex]);
         if (threadIndex == 0) {
           vdwTotal += System.nanoTime();
+          neighborList.addPairLoopTime(vdwTotal);
         }
       } catch (RuntimeException ex) {
         logger.warning(
@@ -1414,7 +1456,7 @@ public class VanDerWaals implements MaskingInterface, LambdaInterface {
     public void start() {
 
       // Initialize the shared variables.
-      if (doLongRangeCorrection) {
+      if (doLongRangeCorrection && environmentMode != EnvironmentMode.ENVIRONMENT_ONLY) {
         longRangeCorrection = getLongRangeCorrection();
         sharedEnergy.set(longRangeCorrection);
       } else {
@@ -1585,6 +1627,18 @@ public class VanDerWaals implements MaskingInterface, LambdaInterface {
 
       private final double[] dx_local;
       private final double[][] transOp;
+      /** Neighbor indices gathered into the current tile. */
+      private final int[] tileK;
+      /** Separation vectors, squared separation and combined parameters of the current tile. */
+      private final double[] tileDx;
+      private final double[] tileDy;
+      private final double[] tileDz;
+      private final double[] tileR2;
+      private final double[] tileIrv;
+      private final double[] tileEv;
+      /** Energy and dU/dR * 1/R of each pair in the current tile. */
+      private final double[] tileEnergy;
+      private final double[] tileDeDr;
       private int count;
       private double energy;
       private int threadID;
@@ -1602,6 +1656,15 @@ public class VanDerWaals implements MaskingInterface, LambdaInterface {
         super();
         dx_local = new double[3];
         transOp = new double[3][3];
+        tileK = new int[TILE_WIDTH];
+        tileDx = new double[TILE_WIDTH];
+        tileDy = new double[TILE_WIDTH];
+        tileDz = new double[TILE_WIDTH];
+        tileR2 = new double[TILE_WIDTH];
+        tileIrv = new double[TILE_WIDTH];
+        tileEv = new double[TILE_WIDTH];
+        tileEnergy = new double[TILE_WIDTH];
+        tileDeDr = new double[TILE_WIDTH];
       }
 
       @Override
@@ -1629,6 +1692,9 @@ public class VanDerWaals implements MaskingInterface, LambdaInterface {
         double[] xyzS = reduced[0];
         // neighborLists array: [nSymm][nAtoms][nNeighbors]
         int[][] list = neighborLists[0];
+        // Optional lattice translation codes that are parallel to the neighbor lists.
+        int[][][] shifts = neighborList.getShifts();
+        int[][] shiftList = shifts != null ? shifts[0] : null;
         for (int i = lb; i <= ub; i++) {
           if (!use[i]) {
             continue;
@@ -1672,14 +1738,22 @@ public class VanDerWaals implements MaskingInterface, LambdaInterface {
           // Collect information about 1-4 interactions, and fill the mask array due to
           // application of 1-2, 1-3 and 1-4 vdW scale factors.
           applyMask(i, vdw14, mask);
+          final int[] neighbors = list[i];
+          final int[] neighborShifts = shiftList != null ? shiftList[i] : null;
+          // Interactions between hard atoms can be evaluated by the tiled kernel.
+          if (vdwTiles && !esvi && !isSoft[i] && hardNeighbors(neighbors)) {
+            e += tiledInteractions(i, xyzS, neighbors, neighborShifts);
+            removeMask(i, vdw14, mask);
+            continue;
+          }
           // Default is that the outer loop atom is hard.
           boolean[] softCorei = softCore[HARD];
           if (isSoft[i]) {
             softCorei = softCore[SOFT];
           }
           // Loop over the neighbor list.
-          final int[] neighbors = list[i];
-          for (final int k : neighbors) {
+          for (int n = 0; n < neighbors.length; n++) {
+            final int k = neighbors[n];
             Atom atomk = atoms[k];
             // Check if atom k is in use, and if we're including the pairwise interaction.
             if (!use[k] || !include(atomi, atomk)) {
@@ -1701,8 +1775,11 @@ public class VanDerWaals implements MaskingInterface, LambdaInterface {
             dx_local[0] = xi - xk;
             dx_local[1] = yi - yk;
             dx_local[2] = zi - zk;
-            // Apply the minimum image convention (if periodic).
-            final double r2 = crystal.image(dx_local);
+            // Apply the stored lattice translation or the minimum image convention (if periodic).
+            final double r2 =
+                neighborShifts != null
+                    ? NeighborList.image(crystal, neighborShifts[n], dx_local)
+                    : crystal.image(dx_local);
             int classK = atomClass[k];
             double irv = vdwForm.getCombinedInverseRmin(classI, classK);
             if (vdw14[k]) {
@@ -1785,12 +1862,11 @@ public class VanDerWaals implements MaskingInterface, LambdaInterface {
                 taper = multiplicativeSwitch.taper(r, r2, r3, r4, r5);
                 dtaper = multiplicativeSwitch.dtaper(r, r2, r3, r4);
               }
-              eik *= taper;
-              final double eik_preswitch = eik;
+              final double eik_preswitch = eik * taper;
               if (esvi || esvk) {
                 eik *= esvLambdaSwitch[i] * esvLambdaSwitch[k];
               }
-              e += eik;
+              e += eik * taper;
               count++;
               if (!gradient && !soft) {
                 continue;
@@ -1907,6 +1983,7 @@ public class VanDerWaals implements MaskingInterface, LambdaInterface {
           crystal.getTransformationOperator(symOp, transOp);
           xyzS = reduced[iSymOp];
           list = neighborLists[iSymOp];
+          shiftList = shifts != null ? shifts[iSymOp] : null;
           for (int i = lb; i <= ub; i++) {
             int i3 = i * 3;
             if (!use[i]) {
@@ -1943,7 +2020,9 @@ public class VanDerWaals implements MaskingInterface, LambdaInterface {
 
             // Loop over the neighbor list.
             final int[] neighbors = list[i];
-            for (final int k : neighbors) {
+            final int[] neighborShifts = shiftList != null ? shiftList[i] : null;
+            for (int n = 0; n < neighbors.length; n++) {
+              final int k = neighbors[n];
               Atom atomk = atoms[k];
               if (!use[k] || !include(atomi, atomk)) {
                 continue;
@@ -1960,7 +2039,10 @@ public class VanDerWaals implements MaskingInterface, LambdaInterface {
               dx_local[0] = xi - xk;
               dx_local[1] = yi - yk;
               dx_local[2] = zi - zk;
-              final double r2 = crystal.image(dx_local);
+              final double r2 =
+                  neighborShifts != null
+                      ? NeighborList.image(crystal, neighborShifts[n], dx_local)
+                      : crystal.image(dx_local);
               int classK = atomClass[k];
               final double irv = vdwForm.getCombinedInverseRmin(classI, classK);
               if (r2 <= nonbondedCutoff.off2 && irv > 0) {
@@ -2150,6 +2232,184 @@ public class VanDerWaals implements MaskingInterface, LambdaInterface {
         }
       }
 
+      /**
+       * Check that none of the neighbors of an atom are softcore or extended system atoms.
+       *
+       * @param neighbors The neighbor list of an atom.
+       * @return True if all interactions with the neighbors are hard.
+       */
+      private boolean hardNeighbors(int[] neighbors) {
+        if (!lambdaTerm && !esvTerm) {
+          return true;
+        }
+        for (int k : neighbors) {
+          if (isSoft[k] || esvAtoms[k]) {
+            return false;
+          }
+        }
+        return true;
+      }
+
+      /**
+       * Evaluate the interactions of a hard asymmetric unit atom with hard neighbors. Neighbors
+       * within the cutoff are gathered into tiles of separation vectors and combined parameters
+       * (including the 1-2, 1-3 and 1-4 mask scale factors), which are then evaluated by a
+       * straight-line loop over contiguous arrays. The gradient is scattered afterwards.
+       *
+       * @param i The asymmetric unit atom.
+       * @param xyzS The reduced coordinates of the neighbors.
+       * @param neighbors The neighbor list of atom i.
+       * @param neighborShifts Optional lattice translation codes of the neighbors.
+       * @return The Van der Waals energy between atom i and its neighbors.
+       */
+      private double tiledInteractions(
+          int i, double[] xyzS, int[] neighbors, int[] neighborShifts) {
+        Atom atomi = atoms[i];
+        int i3 = i * 3;
+        final double xi = reducedXYZ[i3++];
+        final double yi = reducedXYZ[i3++];
+        final double zi = reducedXYZ[i3];
+        final int redi = reductionIndex[i];
+        final double redv = reductionValue[i];
+        final double rediv = 1.0 - redv;
+        final int classI = atomClass[i];
+        final double off2 = nonbondedCutoff.off2;
+        double e = 0.0;
+        double gxi = 0.0;
+        double gyi = 0.0;
+        double gzi = 0.0;
+        double gxredi = 0.0;
+        double gyredi = 0.0;
+        double gzredi = 0.0;
+        final int nNeighbors = neighbors.length;
+        int n = 0;
+        while (n < nNeighbors) {
+          // Gather the next tile of interactions within the cutoff.
+          int m = 0;
+          for (; n < nNeighbors && m < TILE_WIDTH; n++) {
+            final int k = neighbors[n];
+            if (!use[k] || mask[k] <= 0.0 || !include(atomi, atoms[k])) {
+              continue;
+            }
+            int k3 = k * 3;
+            dx_local[0] = xi - xyzS[k3++];
+            dx_local[1] = yi - xyzS[k3++];
+            dx_local[2] = zi - xyzS[k3];
+            final double r2 =
+                neighborShifts != null
+                    ? NeighborList.image(crystal, neighborShifts[n], dx_local)
+                    : crystal.image(dx_local);
+            if (r2 > off2) {
+              continue;
+            }
+            final int classK = atomClass[k];
+            final double irv;
+            final double ev;
+            if (vdw14[k]) {
+              irv = vdwForm.getCombinedInverseRmin14(classI, classK);
+              ev = vdwForm.getCombinedEps14(classI, classK);
+            } else {
+              irv = vdwForm.getCombinedInverseRmin(classI, classK);
+              ev = vdwForm.getCombinedEps(classI, classK);
+            }
+            if (irv <= 0.0) {
+              continue;
+            }
+            tileK[m] = k;
+            tileDx[m] = dx_local[0];
+            tileDy[m] = dx_local[1];
+            tileDz[m] = dx_local[2];
+            tileR2[m] = r2;
+            tileIrv[m] = irv;
+            tileEv[m] = mask[k] * ev;
+            m++;
+          }
+
+          // Evaluate the tile.
+          pairTile(m);
+          count += m;
+          for (int j = 0; j < m; j++) {
+            e += tileEnergy[j];
+          }
+          if (!gradient) {
+            continue;
+          }
+
+          // Scatter the gradient of the tile.
+          for (int j = 0; j < m; j++) {
+            final int k = tileK[j];
+            final int redk = reductionIndex[k];
+            final double red = reductionValue[k];
+            final double redkv = 1.0 - red;
+            final double dedr = tileDeDr[j];
+            final double dedx = dedr * tileDx[j];
+            final double dedy = dedr * tileDy[j];
+            final double dedz = dedr * tileDz[j];
+            gxi += dedx * redv;
+            gyi += dedy * redv;
+            gzi += dedz * redv;
+            gxredi += dedx * rediv;
+            gyredi += dedy * rediv;
+            gzredi += dedz * rediv;
+            grad.sub(threadID, k, red * dedx, red * dedy, red * dedz);
+            grad.sub(threadID, redk, redkv * dedx, redkv * dedy, redkv * dedz);
+          }
+        }
+        if (gradient) {
+          grad.add(threadID, i, gxi, gyi, gzi);
+          grad.add(threadID, redi, gxredi, gyredi, gzredi);
+        }
+        return e;
+      }
+
+      /**
+       * Evaluate the Van der Waals energy and dU/dR * 1/R for the first m pairs of the current
+       * tile. The multiplicative switch is evaluated for every pair and only applied to pairs
+       * beyond the cut, so the taper is not computed inside a conditional.
+       *
+       * @param m The number of pairs in the tile.
+       */
+      private void pairTile(int m) {
+        final double delta = vdwForm.delta;
+        final double gamma = vdwForm.gamma;
+        final double t1n = vdwForm.t1n;
+        final double gamma1 = vdwForm.gamma1;
+        final double repDispPower = vdwForm.repDispPower;
+        final double dispersivePower = vdwForm.dispersivePower;
+        final double cut2 = nonbondedCutoff.cut2;
+        for (int j = 0; j < m; j++) {
+          final double r2 = tileR2[j];
+          final double r = sqrt(r2);
+          final double irv = tileIrv[j];
+          final double ev = tileEv[j];
+          final double rho = r * irv;
+          final double rhoDisp1 = vdwForm.rhoDisp1(rho);
+          final double rhoDisp = rhoDisp1 * rho;
+          final double rhoBuff = rho + delta;
+          final double rhoDelta1 = vdwForm.rhoDelta1(rhoBuff);
+          final double rhoDelta = rhoDelta1 * rhoBuff;
+          final double t1d = 1.0 / rhoDelta;
+          final double t2d = 1.0 / (rhoDisp + gamma);
+          final double t1 = t1n * t1d;
+          final double t2a = gamma1 * t2d;
+          final double t2 = t2a - 2.0;
+          final double eik = ev * t1 * t2;
+          final double dt1_dr = t1 * repDispPower * rhoDelta1 * irv * t1d;
+          final double dt2_dr = t2a * dispersivePower * rhoDisp1 * irv * t2d;
+          final double dedr = -ev * (dt1_dr * t2 + t1 * dt2_dr);
+          final double r3 = r2 * r;
+          final double r4 = r2 * r2;
+          final double r5 = r2 * r3;
+          final double switchTaper = multiplicativeSwitch.taper(r, r2, r3, r4, r5);
+          final double switchDTaper = multiplicativeSwitch.dtaper(r, r2, r3, r4);
+          final boolean switched = r2 > cut2;
+          final double taper = switched ? switchTaper : 1.0;
+          final double dtaper = switched ? switchDTaper : 0.0;
+          tileEnergy[j] = eik * taper;
+          tileDeDr[j] = (eik * dtaper + dedr * taper) / r;
+        }
+      }
+
       @Override
       public IntegerSchedule schedule() {
         return pairwiseSchedule;
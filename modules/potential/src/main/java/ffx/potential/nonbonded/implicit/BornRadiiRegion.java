@@ -42,11 +42,14 @@ import static java.lang.Double.isNaN;
 import static java.lang.String.format;
 import static java.util.Arrays.fill;
 import static org.apache.commons.math3.util.FastMath.PI;
+import static org.apache.commons.math3.util.FastMath.abs;
+import static org.apache.commons.math3.util.FastMath.max;
 import static org.apache.commons.math3.util.FastMath.pow;
 import static org.apache.commons.math3.util.FastMath.sqrt;
 
 import edu.rit.pj.IntegerForLoop;
 import edu.rit.pj.ParallelRegion;
+import edu.rit.pj.ParallelTeam;
 import edu.rit.pj.reduction.DoubleOp;
 import edu.rit.pj.reduction.SharedDouble;
 import edu.rit.pj.reduction.SharedDoubleArray;
@@ -68,7 +71,13 @@ public class BornRadiiRegion extends ParallelRegion {
   private static final double oneThird = 1.0 / 3.0;
   private static final double PI4_3 = 4.0 / 3.0 * PI;
   private static final double PI_12 = PI / 12.0;
+  /**
+   * Born radius difference (A) between incremental and full updates at the same coordinates above
+   * which a warning is logged.
+   */
+  private static final double INCREMENTAL_ERROR = 1.0e-6;
   private final BornRadiiLoop[] bornRadiiLoop;
+  private final IncrementalRegion incrementalRegion;
   /** An ordered array of atoms in the system. */
   protected Atom[] atoms;
   /** Periodic boundary conditions and symmetry. */
@@ -103,68 +112,240 @@ public class BornRadiiRegion extends ParallelRegion {
   private SharedDoubleArray sharedBorn;
   private SharedDouble ecavTot;
   private boolean verboseRadii;
+  /** If true, Born radii are updated incrementally from cached descreening integrals. */
+  private final boolean incremental;
+  /** Atoms that move less than this distance (A) keep their cached descreening contributions. */
+  private final double incrementalTolerance;
+  /** Number of incremental updates between full recomputations of the descreening integrals. */
+  private final int incrementalCheck;
+  /** Cached descreening integral of each atom. */
+  private double[] descreenIntegral;
+  /** Coordinates of each atom at which its cached descreening contributions were computed. */
+  private double[][] referenceXYZ;
+  /** The use flags at the time the descreening integrals were cached. */
+  private boolean[] referenceUse;
+  /** Flag to mark atoms that moved beyond the incremental tolerance. */
+  private boolean[] moved;
+  /** Indices of the atoms that moved beyond the incremental tolerance. */
+  private int[] movedList;
+  /** Number of atoms that moved beyond the incremental tolerance. */
+  private int nMoved;
+  /** Number of incremental updates since the last full recomputation. */
+  private int incrementalCount;
+  /** Born radii from an incremental update, to be compared with a full recomputation. */
+  private double[] incrementalBorn;
+  /** If true, the next full recomputation is compared with the incremental Born radii. */
+  private boolean checkIncremental;
 
   public BornRadiiRegion(int nt, ForceField forceField, boolean perfectHCTScale) {
     bornRadiiLoop = new BornRadiiLoop[nt];
     for (int i = 0; i < nt; i++) {
       bornRadiiLoop[i] = new BornRadiiLoop();
     }
+    incrementalRegion = new IncrementalRegion(nt);
     ecavTot = new SharedDouble(0.0);
     verboseRadii = forceField.getBoolean("VERBOSE_BORN_RADII", false);
     this.perfectHCTScale = perfectHCTScale;
     if (verboseRadii) {
       logger.info(" Verbose Born radii.");
     }
+    incremental = forceField.getBoolean("GK_INCREMENTAL", false);
+    incrementalTolerance = forceField.getDouble("GK_INCREMENTAL_TOLERANCE", 0.0);
+    incrementalCheck = forceField.getInteger("GK_INCREMENTAL_CHECK", 100);
+    if (incremental) {
+      logger.info(
+          format(
+              " Incremental Born radii (tolerance %6.4f A, full update every %d steps).",
+              incrementalTolerance, incrementalCheck));
+    }
+  }
+
+  /** Discard cached descreening integrals so that the next update is a full recomputation. */
+  public void clearIncremental() {
+    descreenIntegral = null;
+    incrementalCount = 0;
+  }
+
+  /**
+   * Update the Born radii incrementally from the cached descreening integrals. Only pairs that
+   * include an atom that moved beyond the incremental tolerance are recomputed; for these pairs the
+   * contribution at the cached coordinates is removed and the contribution at the new coordinates
+   * is added.
+   *
+   * <p>A full recomputation (by executing this region) is needed if false is returned, which
+   * happens when incremental updates are disabled, nothing is cached, the system is periodic, the
+   * use flags changed, or the incremental update would evaluate more pairs than the full update.
+   * When a periodic exactness check is due, the incremental radii are computed and then compared
+   * with the full recomputation at the same coordinates.
+   *
+   * @param parallelTeam the ParallelTeam used to evaluate the moved pairs.
+   * @return true if the Born radii were updated.
+   * @throws Exception if the parallel evaluation fails.
+   */
+  public boolean incrementalUpdate(ParallelTeam parallelTeam) throws Exception {
+    checkIncremental = false;
+    int nAtoms = atoms.length;
+    if (!incremental
+        || descreenIntegral == null
+        || descreenIntegral.length != nAtoms
+        || !crystal.aperiodic()) {
+      return false;
+    }
+    for (int i = 0; i < nAtoms; i++) {
+      if (use[i] != referenceUse[i]) {
+        return false;
+      }
+    }
+
+    double[] x = sXYZ[0][0];
+    double[] y = sXYZ[0][1];
+    double[] z = sXYZ[0][2];
+    double[] rx = referenceXYZ[0];
+    double[] ry = referenceXYZ[1];
+    double[] rz = referenceXYZ[2];
+    double tolerance2 = incrementalTolerance * incrementalTolerance;
+    nMoved = 0;
+    for (int i = 0; i < nAtoms; i++) {
+      double dx = x[i] - rx[i];
+      double dy = y[i] - ry[i];
+      double dz = z[i] - rz[i];
+      double dr2 = dx * dx + dy * dy + dz * dz;
+      moved[i] = dr2 > tolerance2;
+      if (moved[i]) {
+        movedList[nMoved++] = i;
+      }
+    }
+
+    // Each moved atom removes and adds its pairs with every atom, while the full update evaluates
+    // each pair of the neighbor list once.
+    long fullPairs = 0;
+    for (int[] list : neighborLists[0]) {
+      if (list != null) {
+        fullPairs += list.length;
+      }
+    }
+    if (2L * nMoved * nAtoms > fullPairs) {
+      return false;
+    }
+
+    parallelTeam.execute(incrementalRegion);
+    for (int m = 0; m < nMoved; m++) {
+      int i = movedList[m];
+      rx[i] = x[i];
+      ry[i] = y[i];
+      rz[i] = z[i];
+    }
+    for (int i = 0; i < nAtoms; i++) {
+      born[i] = use[i] ? bornRadius(i, descreenIntegral[i]) : baseRadius[i];
+    }
+    if (++incrementalCount >= incrementalCheck) {
+      // Check the incremental radii against a full recomputation at the same coordinates.
+      if (incrementalBorn == null || incrementalBorn.length != nAtoms) {
+        incrementalBorn = new double[nAtoms];
+      }
+      System.arraycopy(born, 0, incrementalBorn, 0, nAtoms);
+      checkIncremental = true;
+      return false;
+    }
+    return true;
   }
 
   @Override
   public void finish() {
     int nAtoms = atoms.length;
-    double bigRadius = 50.0;
     for (int i = 0; i < nAtoms; i++) {
-      final double baseRi = baseRadius[i];
-      if (!use[i]) {
-        born[i] = baseRi;
-      } else {
-        double sum = sharedBorn.get(i);
-        if (sum <= 0.0) {
-          born[i] = bigRadius;
-          if (verboseRadii) {
-            logger.info(
-                format(" Born integral < 0 for atom %d; set Born radius to %12.6f.", i, born[i]));
-          }
-        } else {
-          born[i] = 1.0 / pow(sum / PI4_3, oneThird);
-          if (born[i] < baseRi) {
-            born[i] = baseRi;
-            if (verboseRadii) {
-              logger.info(
-                  format(" Born radius < Base Radius for atom %d: set Born radius to %12.6f.", i,
-                      baseRi));
-            }
-          } else if (born[i] > bigRadius) {
-            born[i] = bigRadius;
-            if (verboseRadii) {
-              logger.info(
-                  format(" Born radius > 50.0 Angstroms for atom %d: set Born radius to %12.6f.", i,
-                      baseRi));
-            }
-          } else if (isInfinite(born[i]) || isNaN(born[i])) {
-            if (verboseRadii) {
-              logger.info(
-                  format(" Born radius NaN / Infinite for atom %d; set Born radius to %12.6f.", i,
-                      baseRi));
-            }
-            born[i] = baseRi;
-          }
-        }
-      }
+      born[i] = use[i] ? bornRadius(i, sharedBorn.get(i)) : baseRadius[i];
     }
     if (verboseRadii) {
       // This could get very verbose if printed at each step.
       logger.info(" Disabling verbose radii printing.");
       verboseRadii = false;
     }
+    if (incremental) {
+      if (checkIncremental) {
+        double maxError = 0.0;
+        for (int i = 0; i < nAtoms; i++) {
+          maxError = max(maxError, abs(born[i] - incrementalBorn[i]));
+        }
+        String message =
+            format(
+                " Max difference between incremental and full Born radii after %d updates: %12.6e"
+                    + " (A).",
+                incrementalCount, maxError);
+        if (maxError > INCREMENTAL_ERROR && incrementalTolerance == 0.0) {
+          logger.warning(message);
+        } else if (logger.isLoggable(Level.FINE)) {
+          logger.fine(message);
+        }
+        checkIncremental = false;
+      }
+      cacheIntegrals();
+    }
+  }
+
+  /** Cache the descreening integrals and coordinates of the last full recomputation. */
+  private void cacheIntegrals() {
+    int nAtoms = atoms.length;
+    if (descreenIntegral == null || descreenIntegral.length != nAtoms) {
+      descreenIntegral = new double[nAtoms];
+      referenceXYZ = new double[3][nAtoms];
+      referenceUse = new boolean[nAtoms];
+      moved = new boolean[nAtoms];
+      movedList = new int[nAtoms];
+    }
+    for (int i = 0; i < nAtoms; i++) {
+      descreenIntegral[i] = sharedBorn.get(i);
+    }
+    for (int j = 0; j < 3; j++) {
+      System.arraycopy(sXYZ[0][j], 0, referenceXYZ[j], 0, nAtoms);
+    }
+    System.arraycopy(use, 0, referenceUse, 0, nAtoms);
+    incrementalCount = 0;
+  }
+
+  /**
+   * Convert the descreening integral of an atom into its Born radius.
+   *
+   * @param i the atom index.
+   * @param sum the descreening integral.
+   * @return the Born radius.
+   */
+  private double bornRadius(int i, double sum) {
+    final double baseRi = baseRadius[i];
+    double bigRadius = 50.0;
+    double bornRadius;
+    if (sum <= 0.0) {
+      bornRadius = bigRadius;
+      if (verboseRadii) {
+        logger.info(
+            format(" Born integral < 0 for atom %d; set Born radius to %12.6f.", i, bornRadius));
+      }
+    } else {
+      bornRadius = 1.0 / pow(sum / PI4_3, oneThird);
+      if (bornRadius < baseRi) {
+        bornRadius = baseRi;
+        if (verboseRadii) {
+          logger.info(
+              format(" Born radius < Base Radius for atom %d: set Born radius to %12.6f.", i,
+                  baseRi));
+        }
+      } else if (bornRadius > bigRadius) {
+        bornRadius = bigRadius;
+        if (verboseRadii) {
+          logger.info(
+              format(" Born radius > 50.0 Angstroms for atom %d: set Born radius to %12.6f.", i,
+                  baseRi));
+        }
+      } else if (isInfinite(bornRadius) || isNaN(bornRadius)) {
+        if (verboseRadii) {
+          logger.info(
+              format(" Born radius NaN / Infinite for atom %d; set Born radius to %12.6f.", i,
+                  baseRi));
+        }
+        bornRadius = baseRi;
+      }
+    }
+    return bornRadius;
   }
 
   public void init(
@@ -214,6 +395,138 @@ public class BornRadiiRegion extends ParallelRegion {
     }
   }
 
+  /**
+   * Update the cached descreening integrals for pairs that include a moved atom. Each thread
+   * accumulates changes for its range of moved atoms, which are then summed into the cache.
+   */
+  private class IncrementalRegion extends ParallelRegion {
+
+    private final IncrementalLoop[] incrementalLoop;
+    private SharedDoubleArray sharedDelta;
+
+    IncrementalRegion(int nt) {
+      incrementalLoop = new IncrementalLoop[nt];
+      for (int i = 0; i < nt; i++) {
+        incrementalLoop[i] = new IncrementalLoop();
+      }
+    }
+
+    @Override
+    public void finish() {
+      int nAtoms = atoms.length;
+      for (int i = 0; i < nAtoms; i++) {
+        descreenIntegral[i] += sharedDelta.get(i);
+      }
+    }
+
+    @Override
+    public void run() {
+      try {
+        execute(0, nMoved - 1, incrementalLoop[getThreadIndex()]);
+      } catch (Exception e) {
+        String message =
+            "Fatal exception updating Born radii in thread " + getThreadIndex() + "\n";
+        logger.log(Level.SEVERE, message, e);
+      }
+    }
+
+    @Override
+    public void start() {
+      int nAtoms = atoms.length;
+      if (sharedDelta == null || sharedDelta.length() < nAtoms) {
+        sharedDelta = new SharedDoubleArray(nAtoms);
+      }
+      for (int i = 0; i < nAtoms; i++) {
+        sharedDelta.set(i, 0.0);
+      }
+    }
+
+    /** Update the descreening integrals for the pairs of a range of moved atoms. */
+    private class IncrementalLoop extends IntegerForLoop {
+
+      private double[] localDelta;
+      private BornRadiiLoop pairIntegral;
+      // Extra padding to avert cache interference.
+      private long pad0, pad1, pad2, pad3, pad4, pad5, pad6, pad7;
+      private long pad8, pad9, pada, padb, padc, padd, pade, padf;
+
+      @Override
+      public void finish() {
+        sharedDelta.reduce(localDelta, DoubleOp.SUM);
+      }
+
+      @Override
+      public void run(int lb, int ub) {
+        int nAtoms = atoms.length;
+        double[] x = sXYZ[0][0];
+        double[] y = sXYZ[0][1];
+        double[] z = sXYZ[0][2];
+        double[] rx = referenceXYZ[0];
+        double[] ry = referenceXYZ[1];
+        double[] rz = referenceXYZ[2];
+        for (int m = lb; m <= ub; m++) {
+          int i = movedList[m];
+          if (!nativeEnvironmentApproximation && !use[i]) {
+            continue;
+          }
+          for (int k = 0; k < nAtoms; k++) {
+            if (k == i || (moved[k] && k < i) || (!nativeEnvironmentApproximation && !use[k])) {
+              continue;
+            }
+            // Remove the contribution at the cached coordinates.
+            double xr = rx[k] - rx[i];
+            double yr = ry[k] - ry[i];
+            double zr = rz[k] - rz[i];
+            addPair(i, k, xr * xr + yr * yr + zr * zr, -1.0);
+            // Add the contribution at the new coordinates.
+            double xk = moved[k] ? x[k] : rx[k];
+            double yk = moved[k] ? y[k] : ry[k];
+            double zk = moved[k] ? z[k] : rz[k];
+            xr = xk - x[i];
+            yr = yk - y[i];
+            zr = zk - z[i];
+            addPair(i, k, xr * xr + yr * yr + zr * zr, 1.0);
+          }
+        }
+      }
+
+      @Override
+      public void start() {
+        int nAtoms = atoms.length;
+        if (localDelta == null || localDelta.length < nAtoms) {
+          localDelta = new double[nAtoms];
+        }
+        fill(localDelta, 0.0);
+        pairIntegral = bornRadiiLoop[getThreadIndex()];
+      }
+
+      /**
+       * Add the mutual descreening contributions of a pair of atoms.
+       *
+       * @param i the first atom.
+       * @param k the second atom.
+       * @param r2 the separation squared.
+       * @param sign 1.0 to add the contributions, or -1.0 to remove them.
+       */
+      private void addPair(int i, int k, double r2, double sign) {
+        if (r2 > cut2) {
+          return;
+        }
+        double r = sqrt(r2);
+        double sk = overlapScale[k];
+        if (sk > 0.0) {
+          localDelta[i] +=
+              sign * pairIntegral.descreen(r, r2, baseRadius[i], descreenRadius[k], sk);
+        }
+        double si = overlapScale[i];
+        if (si > 0.0) {
+          localDelta[k] +=
+              sign * pairIntegral.descreen(r, r2, baseRadius[k], descreenRadius[i], si);
+        }
+      }
+    }
+  }
+
   /**
    * Compute Born radii for a range of atoms via the Grycuk method.
    *
@@ -51,6 +51,7 @@ import edu.rit.pj.reduction.SharedDouble;
 import ffx.crystal.Crystal;
 import ffx.numerics.atomic.AtomicDoubleArray3D;
 import ffx.potential.bonded.Atom;
+import ffx.potential.nonbonded.NeighborList;
 import ffx.potential.nonbonded.VanDerWaalsForm.EPSILON_RULE;
 import ffx.potential.nonbonded.VanDerWaalsForm.RADIUS_RULE;
 import ffx.potential.parameters.ForceField;
@@ -104,6 +105,8 @@ public class DispersionRegion extends ParallelRegion {
   private boolean[] use = null;
   /** Neighbor lists for each atom and symmetry operator. */
   private int[][][] neighborLists;
+  /** Optional lattice translation codes parallel to the asymmetric unit neighbor lists. */
+  private int[][] neighborShifts;
   /** Cartesian coordinates of each atom. */
   private double[] x, y, z;
   /** GK cut-off distance squared. */
@@ -235,6 +238,8 @@ public class DispersionRegion extends ParallelRegion {
    * @param crystal Crystal for periodic boundary conditions.
    * @param use Flag to indicate an atom is to be used.
    * @param neighborLists Neighbor-list for each atom.
+   * @param neighborShifts Lattice translation codes parallel to the asymmetric unit neighbor
+   *     lists, or null to apply the minimum image convention.
    * @param x X-coordinate array.
    * @param y Y-coordinate array.
    * @param z Z-coordinate array.
@@ -247,6 +252,7 @@ public class DispersionRegion extends ParallelRegion {
       Crystal crystal,
       boolean[] use,
       int[][][] neighborLists,
+      int[][] neighborShifts,
       double[] x,
       double[] y,
       double[] z,
@@ -257,6 +263,7 @@ public class DispersionRegion extends ParallelRegion {
     this.crystal = crystal;
     this.use = use;
     this.neighborLists = neighborLists;
+    this.neighborShifts = neighborShifts;
     this.x = x;
     this.y = y;
     this.z = z;
@@ -351,7 +358,9 @@ public class DispersionRegion extends ParallelRegion {
         final double yi = y[i];
         final double zi = z[i];
         int[] list = neighborLists[0][i];
-        for (int k : list) {
+        int[] shifts = neighborShifts != null ? neighborShifts[i] : null;
+        for (int n = 0; n < list.length; n++) {
+          final int k = list[n];
           if (!use[k] || i == k) {
             continue;
           }
@@ -359,7 +368,11 @@ public class DispersionRegion extends ParallelRegion {
             dx_local[0] = xi - x[k];
             dx_local[1] = yi - y[k];
             dx_local[2] = zi - z[k];
-            r2 = crystal.image(dx_local);
+            // Apply the stored lattice translation or the minimum image convention.
+            r2 =
+                shifts != null
+                    ? NeighborList.image(crystal, shifts[n], dx_local)
+                    : crystal.image(dx_local);
             if (r2 > cut2) {
               continue;
             }
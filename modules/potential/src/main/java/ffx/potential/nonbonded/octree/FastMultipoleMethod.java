@@ -0,0 +1,970 @@
+// ******************************************************************************
+//
+// Title:       Force Field X.
+// Description: Force Field X - Software for Molecular Biophysics.
+// Copyright:   Copyright (c) Michael J. Schnieders 2001-2020.
+//
+// This file is part of Force Field X.
+//
+// Force Field X is free software; you can redistribute it and/or modify it
+// under the terms of the GNU General Public License version 3 as published by
+// the Free Software Foundation.
+//
+// Force Field X is distributed in the hope that it will be useful, but WITHOUT
+// ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+// FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+// details.
+//
+// You should have received a copy of the GNU General Public License along with
+// Force Field X; if not, write to the Free Software Foundation, Inc., 59 Temple
+// Place, Suite 330, Boston, MA 02111-1307 USA
+//
+// Linking this library statically or dynamically with other modules is making a
+// combined work based on this library. Thus, the terms and conditions of the
+// GNU General Public License cover the whole combination.
+//
+// As a special exception, the copyright holders of this library give you
+// permission to link this library with independent modules to produce an
+// executable, regardless of the license terms of these independent modules, and
+// to copy and distribute the resulting executable under terms of your choice,
+// provided that you also meet, for each linked independent module, the terms
+// and conditions of the license of that module. An independent module is a
+// module which is not derived from or based on this library. If you modify this
+// library, you may extend this exception to your version of the library, but
+// you are not obligated to do so. If you do not wish to do so, delete this
+// exception statement from your version.
+//
+package ffx.potential.nonbonded.octree;
+
+import static java.lang.String.format;
+import static java.util.Arrays.fill;
+import static org.apache.commons.math3.util.FastMath.max;
+import static org.apache.commons.math3.util.FastMath.sqrt;
+
+import edu.rit.pj.IntegerForLoop;
+import edu.rit.pj.IntegerSchedule;
+import edu.rit.pj.ParallelRegion;
+import edu.rit.pj.ParallelTeam;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The FastMultipoleMethod class evaluates the aperiodic Coulomb potential (and its first three
+ * Cartesian derivatives) at every site of a collection of point charges and Cartesian multipoles
+ * up to quadrupole order.
+ *
+ * <p>Sites are sorted into an adaptive octree whose leaves hold at most <code>nCritical</code>
+ * sites. The expansions are Cartesian Taylor series of 1/R:
+ *
+ * <ul>
+ *   <li>Upward pass: P2M at leaf cells, then M2M translations toward the root.
+ *   <li>Dual tree traversal: cell pairs that satisfy (rA + rB) &lt; theta * R interact through M2L
+ *       translations, while neighboring leaves are summed directly (P2P).
+ *   <li>Downward pass: L2L translations toward the leaves, then L2P evaluation.
+ * </ul>
+ *
+ * <p>Multipoles use the global frame convention of the Force Field X PME classes: {q, dx, dy, dz,
+ * Qxx, Qyy, Qzz, Qxy, Qxz, Qyz}, where the energy of a multipole in a potential is q*phi +
+ * d.grad(phi) + 1/3 Q:grad(grad(phi)). The potential and derivatives are returned using the tensor
+ * ordering of {@link ffx.potential.parameters.MultipoleType} (t000 through t111). The energy is
+ * then 1/2 sum_i M_i . phi_i in units of e^2/Ang (i.e. without the Coulomb constant).
+ *
+ * <p>The multipole expansion order is configurable; local expansions carry three additional
+ * orders so that the field, field gradient and field Hessian (needed for quadrupole forces) are
+ * as accurate as the potential.
+ *
+ * @author Michael J. Schnieders
+ * @see <a href="http://dx.doi.org/10.1016/0021-9991(87)90140-9" target="_blank">L. Greengard and
+ *     V. Rokhlin, A fast algorithm for particle simulations, Journal of Computational Physics 73
+ *     (2), 325-348 (1987)</a>
+ * @see <a href="http://dx.doi.org/10.1006/jcph.2001.6904" target="_blank">W. Dehnen, A Hierarchical
+ *     O(N) Force Calculation Algorithm, Journal of Computational Physics 179 (1), 27-42 (2002)</a>
+ * @since 1.0
+ */
+public class FastMultipoleMethod {
+
+  private static final Logger logger = Logger.getLogger(FastMultipoleMethod.class.getName());
+  /** Number of potential derivatives (through 3rd order) returned for each site. */
+  public static final int PHI_COUNT = 20;
+  /** Highest order of the source multipoles (quadrupoles). */
+  private static final int SOURCE_ORDER = 2;
+  /** Highest order potential derivative returned for each site. */
+  private static final int PHI_ORDER = 3;
+  /** Maximum depth of the octree. */
+  private static final int MAX_DEPTH = 24;
+  /** Tensor indices (l, m, n) of the returned potential derivatives, in MultipoleType order. */
+  private static final int[][] PHI_LMN = {
+    {0, 0, 0}, {1, 0, 0}, {0, 1, 0}, {0, 0, 1}, {2, 0, 0},
+    {0, 2, 0}, {0, 0, 2}, {1, 1, 0}, {1, 0, 1}, {0, 1, 1},
+    {3, 0, 0}, {0, 3, 0}, {0, 0, 3}, {2, 1, 0}, {2, 0, 1},
+    {1, 2, 0}, {0, 2, 1}, {1, 0, 2}, {0, 1, 2}, {1, 1, 1}
+  };
+
+  /** Order of the multipole expansions. */
+  private final int order;
+  /** Order of the local expansions. */
+  private final int localOrder;
+  /** Maximum number of sites in a leaf cell. */
+  private final int nCritical;
+  /** Multipole acceptance criterion. */
+  private final double theta;
+  /** ParallelTeam used for the P2M, M2L, L2L and L2P/P2P phases. */
+  private final ParallelTeam parallelTeam;
+  /** Parallel region that executes one phase of the calculation. */
+  private final FMMRegion fmmRegion;
+
+  /** Number of multi-indices (l + m + n .LE. order). */
+  private final int multipoleCount;
+  /** Number of multi-indices (l + m + n .LE. localOrder). */
+  private final int localCount;
+  /** Number of multi-indices of the source multipoles (l + m + n .LE. 2). */
+  private final int sourceCount;
+  /** Linear index of each multi-index [l][m][n]; -1 if l + m + n exceeds the local order. */
+  private final int[][][] index;
+  /** Total order of each multi-index. */
+  private final int[] total;
+  /** Cartesian direction (0, 1 or 2) used to reduce each multi-index in recursions. */
+  private final int[] direction;
+  /** Power of the reduction direction for each multi-index. */
+  private final int[] power;
+  /** Index of the multi-index minus one step along its reduction direction. */
+  private final int[] minus1;
+  /** Index of the multi-index minus two steps along its reduction direction. */
+  private final int[] minus2;
+  /** Index of the difference of two multi-indices [k][m] (k - m), or -1. */
+  private final int[][] difference;
+  /** Index of the sum of two multi-indices [k][n] (k + n), or -1 if it exceeds the local order. */
+  private final int[][] sum;
+  /** Linear index of each returned potential derivative. */
+  private final int[] phiIndex;
+  /** Work array for serial pair interactions. */
+  private final double[] pairWork;
+  /** Tensor array for serial pair interactions. */
+  private final double[] pairTensor;
+
+  /** All cells, with parents preceding their children. */
+  private List<Cell> cells;
+  /** The leaf cells. */
+  private Cell[] leaves;
+  /** Cells that have a parent, grouped by tree depth. */
+  private Cell[][] levels;
+  /** Site order (sorted by leaf cell). */
+  private int[] permutation;
+  /** Cartesian coordinates [3][nSites]. */
+  private double[][] xyz;
+  /** Multipole source terms of each site, in linear multi-index order [nSites][sourceCount]. */
+  private double[][] sources;
+  /** Output potential and derivatives [nSites][PHI_COUNT]. */
+  private double[][] phi;
+
+  /** Number of M2L interactions in the last evaluation. */
+  private long m2lCount;
+  /** Number of P2P site interactions in the last evaluation. */
+  private long p2pCount;
+  /** Timings of the last evaluation (nanoseconds). */
+  private long treeTime, upwardTime, m2lTime, downwardTime, nearTime;
+
+  /**
+   * Constructor for the FastMultipoleMethod.
+   *
+   * @param order Order of the multipole expansions (at least 2).
+   * @param nCritical Maximum number of sites in a leaf cell.
+   * @param theta Multipole acceptance criterion; smaller is more accurate.
+   * @param parallelTeam The ParallelTeam used to evaluate the expansions.
+   */
+  public FastMultipoleMethod(int order, int nCritical, double theta, ParallelTeam parallelTeam) {
+    if (order < SOURCE_ORDER) {
+      logger.info(format(" FMM expansion order %d increased to %d.", order, SOURCE_ORDER));
+      order = SOURCE_ORDER;
+    }
+    this.order = order;
+    this.localOrder = order + PHI_ORDER;
+    this.nCritical = max(1, nCritical);
+    this.theta = theta;
+    this.parallelTeam = parallelTeam;
+
+    multipoleCount = count(order);
+    localCount = count(localOrder);
+    sourceCount = count(SOURCE_ORDER);
+
+    // Enumerate multi-indices by increasing total order.
+    index = new int[localOrder + 1][localOrder + 1][localOrder + 1];
+    for (int[][] a : index) {
+      for (int[] b : a) {
+        fill(b, -1);
+      }
+    }
+    int[][] lmn = new int[localCount][];
+    int k = 0;
+    for (int t = 0; t <= localOrder; t++) {
+      for (int l = t; l >= 0; l--) {
+        for (int m = t - l; m >= 0; m--) {
+          int n = t - l - m;
+          index[l][m][n] = k;
+          lmn[k++] = new int[] {l, m, n};
+        }
+      }
+    }
+
+    total = new int[localCount];
+    direction = new int[localCount];
+    power = new int[localCount];
+    minus1 = new int[localCount];
+    minus2 = new int[localCount];
+    for (k = 0; k < localCount; k++) {
+      int[] v = lmn[k];
+      total[k] = v[0] + v[1] + v[2];
+      int d = v[0] > 0 ? 0 : (v[1] > 0 ? 1 : 2);
+      direction[k] = d;
+      power[k] = v[d];
+      int[] w = v.clone();
+      w[d]--;
+      minus1[k] = lookup(w);
+      w[d]--;
+      minus2[k] = lookup(w);
+    }
+
+    difference = new int[localCount][localCount];
+    sum = new int[localCount][localCount];
+    for (k = 0; k < localCount; k++) {
+      for (int m = 0; m < localCount; m++) {
+        int[] a = lmn[k];
+        int[] b = lmn[m];
+        difference[k][m] = lookup(new int[] {a[0] - b[0], a[1] - b[1], a[2] - b[2]});
+        sum[k][m] = lookup(new int[] {a[0] + b[0], a[1] + b[1], a[2] + b[2]});
+      }
+    }
+
+    phiIndex = new int[PHI_COUNT];
+    for (int i = 0; i < PHI_COUNT; i++) {
+      phiIndex[i] = lookup(PHI_LMN[i]);
+    }
+
+    pairWork = new double[(SOURCE_ORDER + PHI_ORDER + 1) * localCount];
+    pairTensor = new double[localCount];
+    fmmRegion = new FMMRegion(parallelTeam.getThreadCount());
+  }
+
+  /**
+   * Number of multi-indices (l, m, n) with l + m + n .LE. order.
+   *
+   * @param order The maximum order.
+   * @return The number of multi-indices.
+   */
+  private static int count(int order) {
+    return (order + 1) * (order + 2) * (order + 3) / 6;
+  }
+
+  /**
+   * Compute the potential and its derivatives at each site by direct summation over all pairs.
+   * This O(N^2) reference is used to report the error of the FMM.
+   *
+   * @param xyz Cartesian coordinates [3][nSites].
+   * @param multipole Global frame multipoles [nSites][10].
+   * @param phi Output potential and derivatives [nSites][PHI_COUNT].
+   */
+  public void directSum(double[][] xyz, double[][] multipole, double[][] phi) {
+    int nSites = xyz[0].length;
+    double[] work = new double[(localOrder + 1) * localCount];
+    double[] tensor = new double[localCount];
+    double[][] src = new double[nSites][];
+    for (int i = 0; i < nSites; i++) {
+      src[i] = sourceTerms(multipole[i]);
+    }
+    for (int i = 0; i < nSites; i++) {
+      fill(phi[i], 0.0);
+      for (int j = 0; j < nSites; j++) {
+        if (i != j) {
+          p2p(xyz, i, j, src[j], 1.0, phi[i], work, tensor);
+        }
+      }
+    }
+  }
+
+  /**
+   * Evaluate the potential and its first three derivatives at each site due to all other sites.
+   *
+   * @param xyz Cartesian coordinates [3][nSites].
+   * @param multipole Global frame multipoles [nSites][10].
+   * @param phi Output potential and derivatives [nSites][PHI_COUNT].
+   */
+  public void computePotential(double[][] xyz, double[][] multipole, double[][] phi) {
+    int nSites = xyz[0].length;
+    if (nSites == 0) {
+      return;
+    }
+    this.xyz = xyz;
+    this.phi = phi;
+    if (sources == null || sources.length < nSites) {
+      sources = new double[nSites][];
+    }
+    for (int i = 0; i < nSites; i++) {
+      sources[i] = sourceTerms(multipole[i]);
+    }
+
+    treeTime = -System.nanoTime();
+    buildTree(nSites);
+    traverse(cells.get(0), cells.get(0));
+    treeTime += System.nanoTime();
+
+    // Upward pass.
+    upwardTime = -System.nanoTime();
+    fmmRegion.execute(Phase.P2M, leaves.length);
+    for (int c = cells.size() - 1; c > 0; c--) {
+      Cell cell = cells.get(c);
+      Cell parent = cell.parent;
+      translateMultipole(cell, parent);
+    }
+    upwardTime += System.nanoTime();
+
+    // Far field interactions.
+    m2lTime = -System.nanoTime();
+    fmmRegion.execute(Phase.M2L, cells.size());
+    m2lTime += System.nanoTime();
+
+    // Downward pass.
+    downwardTime = -System.nanoTime();
+    for (Cell[] level : levels) {
+      fmmRegion.execute(Phase.L2L, level, level.length);
+    }
+    downwardTime += System.nanoTime();
+
+    // Evaluate local expansions at each site and add near field interactions.
+    nearTime = -System.nanoTime();
+    fmmRegion.execute(Phase.L2P, leaves.length);
+    nearTime += System.nanoTime();
+
+    if (logger.isLoggable(Level.FINE)) {
+      logger.fine(toString());
+    }
+  }
+
+  /**
+   * Add the potential and derivatives at site i due to site k multiplied by a scale factor. This is
+   * used to remove or scale the contribution of masked (i.e. bonded) pairs. This method is not
+   * thread-safe.
+   *
+   * @param xyz Cartesian coordinates [3][nSites].
+   * @param multipole Global frame multipoles [nSites][10].
+   * @param i The target site.
+   * @param k The source site.
+   * @param scale The scale factor.
+   * @param phi The potential and derivatives at site i.
+   */
+  public void addPairPotential(
+      double[][] xyz, double[][] multipole, int i, int k, double scale, double[] phi) {
+    p2p(xyz, i, k, sourceTerms(multipole[k]), scale, phi, pairWork, pairTensor);
+  }
+
+  /**
+   * Compute and log the relative RMS error of the FMM potential and field with respect to a
+   * reference (e.g. from directSum).
+   *
+   * @param reference Reference potential and derivatives [nSites][PHI_COUNT].
+   * @param phi FMM potential and derivatives [nSites][PHI_COUNT].
+   * @return The relative RMS error of the potential and of the field.
+   */
+  public double[] error(double[][] reference, double[][] phi) {
+    double potNum = 0.0;
+    double potDenom = 0.0;
+    double fieldNum = 0.0;
+    double fieldDenom = 0.0;
+    int nSites = reference.length;
+    for (int i = 0; i < nSites; i++) {
+      double[] r = reference[i];
+      double[] p = phi[i];
+      double d = r[0] - p[0];
+      potNum += d * d;
+      potDenom += r[0] * r[0];
+      for (int j = 1; j < 4; j++) {
+        d = r[j] - p[j];
+        fieldNum += d * d;
+        fieldDenom += r[j] * r[j];
+      }
+    }
+    double potError = potDenom > 0.0 ? sqrt(potNum / potDenom) : sqrt(potNum);
+    double fieldError = fieldDenom > 0.0 ? sqrt(fieldNum / fieldDenom) : sqrt(fieldNum);
+    logger.info(
+        format(
+            " FMM relative RMS error (potential, field): %10.4e %10.4e", potError, fieldError));
+    return new double[] {potError, fieldError};
+  }
+
+  /**
+   * Get the expansion order.
+   *
+   * @return The multipole expansion order.
+   */
+  public int getOrder() {
+    return order;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    sb.append(format("\n Fast Multipole Method (order %d, theta %5.3f)\n", order, theta));
+    if (cells != null) {
+      sb.append(format("  Cells:                %10d\n", cells.size()));
+      sb.append(format("  Leaves:               %10d\n", leaves.length));
+      sb.append(format("  Depth:                %10d\n", levels.length));
+      sb.append(format("  M2L Interactions:     %10d\n", m2lCount));
+      sb.append(format("  P2P Interactions:     %10d\n", p2pCount));
+      sb.append(format("  Tree Build:           %10.4f (sec)\n", treeTime * 1.0e-9));
+      sb.append(format("  Upward Pass:          %10.4f (sec)\n", upwardTime * 1.0e-9));
+      sb.append(format("  M2L:                  %10.4f (sec)\n", m2lTime * 1.0e-9));
+      sb.append(format("  Downward Pass:        %10.4f (sec)\n", downwardTime * 1.0e-9));
+      sb.append(format("  L2P and P2P:          %10.4f (sec)", nearTime * 1.0e-9));
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Linear index of a multi-index.
+   *
+   * @param v The multi-index.
+   * @return The linear index, or -1 if the multi-index is invalid.
+   */
+  private int lookup(int[] v) {
+    if (v[0] < 0 || v[1] < 0 || v[2] < 0 || v[0] + v[1] + v[2] > localOrder) {
+      return -1;
+    }
+    return index[v[0]][v[1]][v[2]];
+  }
+
+  /**
+   * Convert a multipole into its source terms S such that the potential at x is sum_k (-1)^|k|
+   * S_k D^k (1/|x - s|).
+   *
+   * @param mpole The multipole.
+   * @return The source terms.
+   */
+  private double[] sourceTerms(double[] mpole) {
+    final double oneThird = 1.0 / 3.0;
+    double[] s = new double[sourceCount];
+    s[index[0][0][0]] = mpole[0];
+    s[index[1][0][0]] = mpole[1];
+    s[index[0][1][0]] = mpole[2];
+    s[index[0][0][1]] = mpole[3];
+    s[index[2][0][0]] = oneThird * mpole[4];
+    s[index[0][2][0]] = oneThird * mpole[5];
+    s[index[0][0][2]] = oneThird * mpole[6];
+    s[index[1][1][0]] = 2.0 * oneThird * mpole[7];
+    s[index[1][0][1]] = 2.0 * oneThird * mpole[8];
+    s[index[0][1][1]] = 2.0 * oneThird * mpole[9];
+    return s;
+  }
+
+  /**
+   * Compute the Cartesian derivatives of 1/R through the requested order using the McMurchie -
+   * Davidson recursion.
+   *
+   * @param x The x-component of R.
+   * @param y The y-component of R.
+   * @param z The z-component of R.
+   * @param tensorOrder Highest derivative order.
+   * @param work Work array of length (tensorOrder + 1) * localCount.
+   * @param tensor Output derivatives in linear multi-index order.
+   */
+  private void coulombTensor(
+      double x, double y, double z, int tensorOrder, double[] work, double[] tensor) {
+    double r2 = x * x + y * y + z * z;
+    double rInv = 1.0 / sqrt(r2);
+    double rInv2 = rInv * rInv;
+    double[] r = {x, y, z};
+    // Source terms: (-1)^j (2j-1)!! / R^(2j+1)
+    double source = rInv;
+    for (int j = 0; j <= tensorOrder; j++) {
+      work[j * localCount] = source;
+      source *= -(2 * j + 1) * rInv2;
+    }
+    for (int j = tensorOrder - 1; j >= 0; j--) {
+      int n = count(tensorOrder - j);
+      int current = j * localCount;
+      int previous = current + localCount;
+      for (int k = 1; k < n; k++) {
+        double value = r[direction[k]] * work[previous + minus1[k]];
+        if (power[k] > 1) {
+          value += (power[k] - 1) * work[previous + minus2[k]];
+        }
+        work[current + k] = value;
+      }
+    }
+    System.arraycopy(work, 0, tensor, 0, count(tensorOrder));
+  }
+
+  /**
+   * Compute t^k / k! for all multi-indices through the requested order.
+   *
+   * @param x The x-component of t.
+   * @param y The y-component of t.
+   * @param z The z-component of t.
+   * @param n The number of multi-indices to compute.
+   * @param mono The output array.
+   */
+  private void monomials(double x, double y, double z, int n, double[] mono) {
+    double[] t = {x, y, z};
+    mono[0] = 1.0;
+    for (int k = 1; k < n; k++) {
+      mono[k] = mono[minus1[k]] * t[direction[k]] / power[k];
+    }
+  }
+
+  /**
+   * Add the potential derivatives at site i due to the source terms of site j.
+   *
+   * @param xyz Cartesian coordinates [3][nSites].
+   * @param i Target site.
+   * @param j Source site.
+   * @param src Source terms of site j.
+   * @param scale Scale factor.
+   * @param phi Potential derivatives at site i.
+   * @param work Work array for the tensor recursion.
+   * @param tensor Tensor array.
+   */
+  private void p2p(
+      double[][] xyz,
+      int i,
+      int j,
+      double[] src,
+      double scale,
+      double[] phi,
+      double[] work,
+      double[] tensor) {
+    double dx = xyz[0][i] - xyz[0][j];
+    double dy = xyz[1][i] - xyz[1][j];
+    double dz = xyz[2][i] - xyz[2][j];
+    coulombTensor(dx, dy, dz, SOURCE_ORDER + PHI_ORDER, work, tensor);
+    for (int p = 0; p < PHI_COUNT; p++) {
+      int d = phiIndex[p];
+      double value = 0.0;
+      for (int k = 0; k < sourceCount; k++) {
+        double s = src[k];
+        if (s != 0.0) {
+          double t = tensor[sum[k][d]];
+          value += (total[k] % 2 == 0) ? s * t : -s * t;
+        }
+      }
+      phi[p] += scale * value;
+    }
+  }
+
+  /**
+   * Shift the multipole expansion of a child cell to its parent (M2M).
+   *
+   * @param child The child cell.
+   * @param parent The parent cell.
+   */
+  private void translateMultipole(Cell child, Cell parent) {
+    double[] mono = new double[multipoleCount];
+    monomials(child.x - parent.x, child.y - parent.y, child.z - parent.z, multipoleCount, mono);
+    double[] src = child.multipole;
+    double[] dst = parent.multipole;
+    for (int k = 0; k < multipoleCount; k++) {
+      double value = 0.0;
+      int[] diff = difference[k];
+      for (int m = 0; m <= k; m++) {
+        int km = diff[m];
+        if (km >= 0) {
+          value += src[m] * mono[km];
+        }
+      }
+      dst[k] += value;
+    }
+  }
+
+  /** Sort the sites into an adaptive octree. */
+  private void buildTree(int nSites) {
+    if (permutation == null || permutation.length != nSites) {
+      permutation = new int[nSites];
+    }
+    for (int i = 0; i < nSites; i++) {
+      permutation[i] = i;
+    }
+    double[] x = xyz[0];
+    double[] y = xyz[1];
+    double[] z = xyz[2];
+    double minX = Double.POSITIVE_INFINITY;
+    double minY = Double.POSITIVE_INFINITY;
+    double minZ = Double.POSITIVE_INFINITY;
+    double maxX = Double.NEGATIVE_INFINITY;
+    double maxY = Double.NEGATIVE_INFINITY;
+    double maxZ = Double.NEGATIVE_INFINITY;
+    for (int i = 0; i < nSites; i++) {
+      minX = Math.min(minX, x[i]);
+      minY = Math.min(minY, y[i]);
+      minZ = Math.min(minZ, z[i]);
+      maxX = max(maxX, x[i]);
+      maxY = max(maxY, y[i]);
+      maxZ = max(maxZ, z[i]);
+    }
+    double halfWidth = 0.5 * max(max(maxX - minX, maxY - minY), maxZ - minZ) * (1.0 + 1.0e-6);
+    halfWidth = max(halfWidth, 1.0e-3);
+
+    cells = new ArrayList<>();
+    List<Cell> leafList = new ArrayList<>();
+    List<List<Cell>> levelList = new ArrayList<>();
+    Cell root =
+        new Cell(0.5 * (minX + maxX), 0.5 * (minY + maxY), 0.5 * (minZ + maxZ), halfWidth, 0);
+    root.start = 0;
+    root.end = nSites;
+    int[] buffer = new int[nSites];
+    split(root, buffer, leafList, levelList);
+    leaves = leafList.toArray(new Cell[0]);
+    levels = new Cell[levelList.size()][];
+    for (int i = 0; i < levels.length; i++) {
+      levels[i] = levelList.get(i).toArray(new Cell[0]);
+    }
+    m2lCount = 0;
+    p2pCount = 0;
+  }
+
+  /**
+   * Recursively split a cell into octants.
+   *
+   * @param cell The cell.
+   * @param buffer Scratch space for the permutation.
+   * @param leafList The list of leaf cells.
+   * @param levelList Cells with a parent grouped by depth.
+   */
+  private void split(Cell cell, int[] buffer, List<Cell> leafList, List<List<Cell>> levelList) {
+    cells.add(cell);
+    if (cell.depth > 0) {
+      while (levelList.size() < cell.depth) {
+        levelList.add(new ArrayList<>());
+      }
+      levelList.get(cell.depth - 1).add(cell);
+    }
+    cell.multipole = new double[multipoleCount];
+    cell.local = new double[localCount];
+
+    double[] x = xyz[0];
+    double[] y = xyz[1];
+    double[] z = xyz[2];
+    int n = cell.end - cell.start;
+    if (n <= nCritical || cell.depth >= MAX_DEPTH) {
+      double r2 = 0.0;
+      for (int p = cell.start; p < cell.end; p++) {
+        int i = permutation[p];
+        double dx = x[i] - cell.x;
+        double dy = y[i] - cell.y;
+        double dz = z[i] - cell.z;
+        r2 = max(r2, dx * dx + dy * dy + dz * dz);
+      }
+      cell.radius = sqrt(r2);
+      leafList.add(cell);
+      return;
+    }
+
+    // Counting sort of the sites into octants.
+    int[] octant = new int[n];
+    int[] counts = new int[8];
+    for (int p = cell.start; p < cell.end; p++) {
+      int i = permutation[p];
+      int o = (x[i] > cell.x ? 1 : 0) + (y[i] > cell.y ? 2 : 0) + (z[i] > cell.z ? 4 : 0);
+      octant[p - cell.start] = o;
+      counts[o]++;
+    }
+    int[] offsets = new int[8];
+    for (int o = 1; o < 8; o++) {
+      offsets[o] = offsets[o - 1] + counts[o - 1];
+    }
+    int[] next = offsets.clone();
+    for (int p = cell.start; p < cell.end; p++) {
+      buffer[cell.start + next[octant[p - cell.start]]++] = permutation[p];
+    }
+    System.arraycopy(buffer, cell.start, permutation, cell.start, n);
+
+    List<Cell> children = new ArrayList<>();
+    double h = 0.5 * cell.halfWidth;
+    for (int o = 0; o < 8; o++) {
+      if (counts[o] == 0) {
+        continue;
+      }
+      double cx = cell.x + ((o & 1) != 0 ? h : -h);
+      double cy = cell.y + ((o & 2) != 0 ? h : -h);
+      double cz = cell.z + ((o & 4) != 0 ? h : -h);
+      Cell child = new Cell(cx, cy, cz, h, cell.depth + 1);
+      child.parent = cell;
+      child.start = cell.start + offsets[o];
+      child.end = child.start + counts[o];
+      children.add(child);
+      split(child, buffer, leafList, levelList);
+    }
+    cell.children = children.toArray(new Cell[0]);
+
+    // The cell radius encloses all child cells.
+    double radius = 0.0;
+    for (Cell child : cell.children) {
+      double dx = child.x - cell.x;
+      double dy = child.y - cell.y;
+      double dz = child.z - cell.z;
+      radius = max(radius, sqrt(dx * dx + dy * dy + dz * dz) + child.radius);
+    }
+    cell.radius = radius;
+  }
+
+  /**
+   * Dual tree traversal that builds the M2L and P2P interaction lists of each cell.
+   *
+   * @param a The first cell.
+   * @param b The second cell.
+   */
+  private void traverse(Cell a, Cell b) {
+    if (a == b) {
+      if (a.isLeaf()) {
+        a.near.add(a);
+        int n = a.end - a.start;
+        p2pCount += (long) n * (n - 1);
+      } else {
+        Cell[] children = a.children;
+        for (int i = 0; i < children.length; i++) {
+          for (int j = i; j < children.length; j++) {
+            traverse(children[i], children[j]);
+          }
+        }
+      }
+      return;
+    }
+    double dx = a.x - b.x;
+    double dy = a.y - b.y;
+    double dz = a.z - b.z;
+    double r = sqrt(dx * dx + dy * dy + dz * dz);
+    if (a.radius + b.radius < theta * r) {
+      a.far.add(b);
+      b.far.add(a);
+      m2lCount += 2;
+    } else if (a.isLeaf() && b.isLeaf()) {
+      a.near.add(b);
+      b.near.add(a);
+      p2pCount += 2L * (a.end - a.start) * (b.end - b.start);
+    } else if (b.isLeaf() || (!a.isLeaf() && a.radius >= b.radius)) {
+      for (Cell child : a.children) {
+        traverse(child, b);
+      }
+    } else {
+      for (Cell child : b.children) {
+        traverse(a, child);
+      }
+    }
+  }
+
+  /** Phases of the calculation that are executed in parallel. */
+  private enum Phase {
+    P2M,
+    M2L,
+    L2L,
+    L2P
+  }
+
+  /** A cell of the octree. */
+  private static class Cell {
+
+    /** Center of the cell. */
+    final double x, y, z;
+    /** Half the width of the cell. */
+    final double halfWidth;
+    /** Depth of the cell (the root is 0). */
+    final int depth;
+    /** Cells whose multipole expansions are translated into the local expansion of this cell. */
+    final List<Cell> far = new ArrayList<>();
+    /** Leaf cells whose sites interact directly with the sites of this (leaf) cell. */
+    final List<Cell> near = new ArrayList<>();
+    /** Radius of a sphere centered on the cell that encloses all of its sites. */
+    double radius;
+    /** Range of sites in the permutation array [start, end). */
+    int start, end;
+    /** Parent cell. */
+    Cell parent;
+    /** Child cells (null for a leaf). */
+    Cell[] children;
+    /** Multipole expansion. */
+    double[] multipole;
+    /** Local expansion. */
+    double[] local;
+
+    Cell(double x, double y, double z, double halfWidth, int depth) {
+      this.x = x;
+      this.y = y;
+      this.z = z;
+      this.halfWidth = halfWidth;
+      this.depth = depth;
+    }
+
+    boolean isLeaf() {
+      return children == null;
+    }
+  }
+
+  /** Execute one phase of the FMM in parallel. */
+  private class FMMRegion extends ParallelRegion {
+
+    private final FMMLoop[] fmmLoops;
+    private Phase phase;
+    private Cell[] level;
+    private int n;
+
+    FMMRegion(int nThreads) {
+      fmmLoops = new FMMLoop[nThreads];
+    }
+
+    void execute(Phase phase, int n) {
+      execute(phase, null, n);
+    }
+
+    void execute(Phase phase, Cell[] level, int n) {
+      this.phase = phase;
+      this.level = level;
+      this.n = n;
+      if (n == 0) {
+        return;
+      }
+      try {
+        parallelTeam.execute(this);
+      } catch (Exception e) {
+        String message = " Fatal exception in the FMM " + phase + " phase.";
+        logger.log(Level.SEVERE, message, e);
+      }
+    }
+
+    @Override
+    public void run() throws Exception {
+      int ti = getThreadIndex();
+      if (fmmLoops[ti] == null) {
+        fmmLoops[ti] = new FMMLoop();
+      }
+      execute(0, n - 1, fmmLoops[ti]);
+    }
+
+    private class FMMLoop extends IntegerForLoop {
+
+      private final IntegerSchedule schedule = IntegerSchedule.dynamic(1);
+      private final double[] work = new double[(localOrder + 1) * localCount];
+      private final double[] tensor = new double[localCount];
+      private final double[] mono = new double[localCount];
+      private final double[] sitePhi = new double[PHI_COUNT];
+
+      @Override
+      public void run(int lb, int ub) {
+        switch (phase) {
+          case P2M:
+            for (int i = lb; i <= ub; i++) {
+              p2m(leaves[i]);
+            }
+            break;
+          case M2L:
+            for (int i = lb; i <= ub; i++) {
+              m2l(cells.get(i));
+            }
+            break;
+          case L2L:
+            for (int i = lb; i <= ub; i++) {
+              l2l(level[i]);
+            }
+            break;
+          case L2P:
+            for (int i = lb; i <= ub; i++) {
+              l2p(leaves[i]);
+            }
+            break;
+        }
+      }
+
+      @Override
+      public IntegerSchedule schedule() {
+        return schedule;
+      }
+
+      /** P2M: multipole expansion of a leaf cell from its sites. */
+      private void p2m(Cell cell) {
+        double[] multipole = cell.multipole;
+        for (int p = cell.start; p < cell.end; p++) {
+          int i = permutation[p];
+          monomials(
+              xyz[0][i] - cell.x, xyz[1][i] - cell.y, xyz[2][i] - cell.z, multipoleCount, mono);
+          double[] src = sources[i];
+          for (int k = 0; k < multipoleCount; k++) {
+            int[] diff = difference[k];
+            double value = 0.0;
+            for (int m = 0; m < sourceCount; m++) {
+              int km = diff[m];
+              if (km >= 0) {
+                value += src[m] * mono[km];
+              }
+            }
+            multipole[k] += value;
+          }
+        }
+      }
+
+      /** M2L: translate the multipole expansions of far cells into the local expansion. */
+      private void m2l(Cell cell) {
+        double[] local = cell.local;
+        for (Cell source : cell.far) {
+          coulombTensor(
+              cell.x - source.x, cell.y - source.y, cell.z - source.z, localOrder, work, tensor);
+          double[] multipole = source.multipole;
+          for (int n = 0; n < localCount; n++) {
+            int maxK = count(localOrder - total[n]);
+            maxK = Math.min(maxK, multipoleCount);
+            int[] sumN = sum[n];
+            double value = 0.0;
+            for (int k = 0; k < maxK; k++) {
+              double t = multipole[k] * tensor[sumN[k]];
+              value += (total[k] % 2 == 0) ? t : -t;
+            }
+            local[n] += value;
+          }
+        }
+      }
+
+      /** L2L: shift the local expansion of the parent to a child cell. */
+      private void l2l(Cell cell) {
+        Cell parent = cell.parent;
+        monomials(cell.x - parent.x, cell.y - parent.y, cell.z - parent.z, localCount, mono);
+        double[] src = parent.local;
+        double[] dst = cell.local;
+        for (int n = 0; n < localCount; n++) {
+          double value = 0.0;
+          for (int m = n; m < localCount; m++) {
+            int mn = difference[m][n];
+            if (mn >= 0) {
+              value += src[m] * mono[mn];
+            }
+          }
+          dst[n] += value;
+        }
+      }
+
+      /** L2P and P2P: evaluate the local expansion and near field at each site of a leaf. */
+      private void l2p(Cell cell) {
+        double[] local = cell.local;
+        for (int p = cell.start; p < cell.end; p++) {
+          int i = permutation[p];
+          monomials(xyz[0][i] - cell.x, xyz[1][i] - cell.y, xyz[2][i] - cell.z, localCount, mono);
+          for (int d = 0; d < PHI_COUNT; d++) {
+            int di = phiIndex[d];
+            double value = 0.0;
+            for (int n = di; n < localCount; n++) {
+              int nd = difference[n][di];
+              if (nd >= 0) {
+                value += local[n] * mono[nd];
+              }
+            }
+            sitePhi[d] = value;
+          }
+          for (Cell source : cell.near) {
+            for (int q = source.start; q < source.end; q++) {
+              int j = permutation[q];
+              if (j != i) {
+                p2p(xyz, i, j, sources[j], 1.0, sitePhi, work, tensor);
+              }
+            }
+          }
+          System.arraycopy(sitePhi, 0, phi[i], 0, PHI_COUNT);
+        }
+      }
+    }
+  }
+}
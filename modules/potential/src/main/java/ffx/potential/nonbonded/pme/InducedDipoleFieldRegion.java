@@ -137,6 +137,13 @@ public class InducedDipoleFieldRegion extends ParallelRegion {
   private AtomicDoubleArray3D field;
   /** Chain rule field array. */
   private AtomicDoubleArray3D fieldCR;
+  /**
+   * If not null, the reciprocal space section also spreads the induced dipoles and interpolates
+   * this potential, so the whole chain overlaps the real space field.
+   */
+  private double[][] cartesianDipolePhi;
+  /** Chain rule induced dipole potential computed by the reciprocal space section. */
+  private double[][] cartesianDipolePhiCR;
 
   private InducedDipoleRealSpaceFieldSection inducedRealSpaceFieldSection;
   private InducedDipoleReciprocalFieldSection inducedReciprocalFieldSection;
@@ -177,6 +184,28 @@ public class InducedDipoleFieldRegion extends ParallelRegion {
     return realSpaceSCFTotal;
   }
 
+  /**
+   * Set the parallel team used for the real space field. The team must not have more threads than
+   * the team this region was constructed with.
+   *
+   * @param pt The real space ParallelTeam.
+   */
+  public void setRealSpaceTeam(ParallelTeam pt) {
+    inducedRealSpaceFieldSection.pt = pt;
+  }
+
+  /**
+   * Set the induced dipole potential to be computed by the reciprocal space section. If null, only
+   * the convolution is done and the caller is responsible for the rest of the chain.
+   *
+   * @param cartesianDipolePhi The induced dipole potential, or null.
+   * @param cartesianDipolePhiCR The chain rule induced dipole potential.
+   */
+  public void setReciprocalPhi(double[][] cartesianDipolePhi, double[][] cartesianDipolePhiCR) {
+    this.cartesianDipolePhi = cartesianDipolePhi;
+    this.cartesianDipolePhiCR = cartesianDipolePhiCR;
+  }
+
   public void init(
       Atom[] atoms,
       Crystal crystal,
@@ -238,7 +267,7 @@ public class InducedDipoleFieldRegion extends ParallelRegion {
   private class InducedDipoleRealSpaceFieldSection extends ParallelSection {
 
     private final InducedDipoleRealSpaceFieldRegion polarizationRealSpaceFieldRegion;
-    private final ParallelTeam pt;
+    private ParallelTeam pt;
 
     InducedDipoleRealSpaceFieldSection(ParallelTeam pt) {
       this.pt = pt;
@@ -263,7 +292,12 @@ public class InducedDipoleFieldRegion extends ParallelRegion {
 
     @Override
     public void run() {
-      reciprocalSpace.inducedDipoleConvolution();
+      if (cartesianDipolePhi != null) {
+        reciprocalSpace.inducedReciprocalSpace(
+            inducedDipole, inducedDipoleCR, use, cartesianDipolePhi, cartesianDipolePhiCR);
+      } else {
+        reciprocalSpace.inducedDipoleConvolution();
+      }
     }
   }
 
@@ -0,0 +1,214 @@
+// ******************************************************************************
+//
+// Title:       Force Field X.
+// Description: Force Field X - Software for Molecular Biophysics.
+// Copyright:   Copyright (c) Michael J. Schnieders 2001-2020.
+//
+// This file is part of Force Field X.
+//
+// Force Field X is free software; you can redistribute it and/or modify it
+// under the terms of the GNU General Public License version 3 as published by
+// the Free Software Foundation.
+//
+// Force Field X is distributed in the hope that it will be useful, but WITHOUT
+// ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+// FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+// details.
+//
+// You should have received a copy of the GNU General Public License along with
+// Force Field X; if not, write to the Free Software Foundation, Inc., 59 Temple
+// Place, Suite 330, Boston, MA 02111-1307 USA
+//
+// Linking this library statically or dynamically with other modules is making a
+// combined work based on this library. Thus, the terms and conditions of the
+// GNU General Public License cover the whole combination.
+//
+// As a special exception, the copyright holders of this library give you
+// permission to link this library with independent modules to produce an
+// executable, regardless of the license terms of these independent modules, and
+// to copy and distribute the resulting executable under terms of your choice,
+// provided that you also meet, for each linked independent module, the terms
+// and conditions of the license of that module. An independent module is a
+// module which is not derived from or based on this library. If you modify this
+// library, you may extend this exception to your version of the library, but
+// you are not obligated to do so. If you do not wish to do so, delete this
+// exception statement from your version.
+//
+// ******************************************************************************
+package ffx.potential.nonbonded.pme;
+
+import static java.lang.System.arraycopy;
+import static org.apache.commons.math3.util.FastMath.sqrt;
+
+/**
+ * The InertialDipoles class propagates auxiliary induced dipoles as extended Lagrangian degrees of
+ * freedom, so that molecular dynamics needs at most one SCF iteration per step.
+ *
+ * <p>The auxiliary dipoles follow a time-reversible Verlet update that is harmonically coupled to
+ * the induced dipoles of the current step, plus a weak dissipative term that removes the numerical
+ * noise that would otherwise heat the auxiliary dipoles over long simulations:
+ *
+ * <p>p(t+dt) = 2 p(t) - p(t-dt) + kappa (u(t) - p(t)) + alpha sum_k c_k p(t-k dt)
+ *
+ * <p>Until K+1 steps of history are available (or after a reset) the caller should converge the
+ * SCF tightly and store the result with {@link #propagate(double[][], double[][], boolean)}.
+ *
+ * <p>Niklasson, A. M. N.; Steneteg, P.; Odell, A.; Bock, N.; Challacombe, M.; Tymczak, C. J.;
+ * Holmstrom, E.; Zheng, G.; Weber, V., Extended Lagrangian Born-Oppenheimer molecular dynamics
+ * with dissipation. The Journal of Chemical Physics 2009, 130 (21), 214109.
+ *
+ * <p>Albaugh, A.; Demerdash, O.; Head-Gordon, T., An efficient and stable hybrid extended
+ * Lagrangian/self-consistent field scheme for solving classical mutual induction. The Journal of
+ * Chemical Physics 2015, 143 (17), 174104.
+ *
+ * @author Michael J. Schnieders
+ * @since 1.0
+ */
+public class InertialDipoles {
+
+  /** Order of the dissipation term. */
+  private static final int K = 5;
+  /** Dimensionless coupling between the auxiliary and induced dipoles (dt^2 omega^2). */
+  private static final double KAPPA = 1.82;
+  /** Strength of the dissipation term. */
+  private static final double ALPHA = 0.018;
+  /** Dissipation coefficients for p(t), p(t-dt), ..., p(t-K dt). */
+  private static final double[] C = {-6.0, 14.0, -8.0, -3.0, 4.0, -1.0};
+
+  /** Auxiliary dipole history; entry head holds p(t). */
+  private double[][][] auxiliary;
+  /** Auxiliary chain rule dipole history; entry head holds p(t). */
+  private double[][][] auxiliaryCR;
+  /** Number of atoms. */
+  private int nAtoms;
+  /** Index of p(t) in the history. */
+  private int head = 0;
+  /** Number of stored history entries. */
+  private int count = 0;
+  /** RMS difference between the induced and auxiliary dipoles of the last step (e-Ang). */
+  private double rmsResidual = 0.0;
+
+  /**
+   * Constructor for InertialDipoles.
+   *
+   * @param nAtoms Number of atoms.
+   */
+  public InertialDipoles(int nAtoms) {
+    allocate(nAtoms);
+  }
+
+  /**
+   * Allocate history for the given number of atoms, which also discards any history.
+   *
+   * @param nAtoms Number of atoms.
+   */
+  public void allocate(int nAtoms) {
+    if (auxiliary == null || this.nAtoms != nAtoms) {
+      this.nAtoms = nAtoms;
+      auxiliary = new double[K + 1][nAtoms][3];
+      auxiliaryCR = new double[K + 1][nAtoms][3];
+    }
+    reset();
+  }
+
+  /**
+   * Get the RMS difference between the induced and auxiliary dipoles of the last propagated step.
+   *
+   * @return The RMS residual (e-Ang).
+   */
+  public double getRMSResidual() {
+    return rmsResidual;
+  }
+
+  /**
+   * Check if enough history is available to propagate the auxiliary dipoles.
+   *
+   * @return True once K+1 steps have been stored since the last reset.
+   */
+  public boolean isInitialized() {
+    return count > K;
+  }
+
+  /**
+   * Load the current auxiliary dipoles p(t) as the initial guess for the induced dipoles.
+   *
+   * @param dipole Induced dipoles to set.
+   * @param dipoleCR Chain rule induced dipoles to set.
+   */
+  public void predict(double[][] dipole, double[][] dipoleCR) {
+    for (int i = 0; i < nAtoms; i++) {
+      arraycopy(auxiliary[head][i], 0, dipole[i], 0, 3);
+      arraycopy(auxiliaryCR[head][i], 0, dipoleCR[i], 0, 3);
+    }
+  }
+
+  /**
+   * Advance the auxiliary dipoles by one step using the induced dipoles of the current step. Until
+   * the history is complete, the (converged) induced dipoles are stored as p(t).
+   *
+   * @param dipole Induced dipoles of the current step.
+   * @param dipoleCR Chain rule induced dipoles of the current step.
+   * @param useAuxiliary If true, the induced dipoles are replaced by p(t) (i.e. zero SCF
+   *     iterations).
+   */
+  public void propagate(double[][] dipole, double[][] dipoleCR, boolean useAuxiliary) {
+    int next = (head + 1) % (K + 1);
+    if (!isInitialized()) {
+      // Store the induced dipoles as p(t); propagation begins once the history is complete.
+      for (int i = 0; i < nAtoms; i++) {
+        arraycopy(dipole[i], 0, auxiliary[head][i], 0, 3);
+        arraycopy(dipoleCR[i], 0, auxiliaryCR[head][i], 0, 3);
+      }
+      count++;
+      if (!isInitialized()) {
+        head = next;
+        rmsResidual = 0.0;
+        return;
+      }
+    }
+
+    // The oldest entry, p(t-K dt), is overwritten by p(t+dt).
+    int previous = (head + K) % (K + 1);
+    double residual = 0.0;
+    for (int i = 0; i < nAtoms; i++) {
+      for (int j = 0; j < 3; j++) {
+        double r = dipole[i][j] - auxiliary[head][i][j];
+        residual += r * r;
+        auxiliary[next][i][j] = step(auxiliary, previous, i, j, r);
+        double rCR = dipoleCR[i][j] - auxiliaryCR[head][i][j];
+        auxiliaryCR[next][i][j] = step(auxiliaryCR, previous, i, j, rCR);
+      }
+    }
+    rmsResidual = sqrt(residual / nAtoms);
+
+    if (useAuxiliary) {
+      predict(dipole, dipoleCR);
+    }
+    head = next;
+  }
+
+  /** Discard the auxiliary dipole history (e.g. after a discontinuous change of coordinates). */
+  public void reset() {
+    head = 0;
+    count = 0;
+    rmsResidual = 0.0;
+  }
+
+  /**
+   * Compute p(t+dt) for one component.
+   *
+   * @param p Auxiliary dipole history.
+   * @param previous Index of p(t-dt).
+   * @param i Atom index.
+   * @param j Component index.
+   * @param residual The induced dipole minus p(t).
+   * @return p(t+dt).
+   */
+  private double step(double[][][] p, int previous, int i, int j, double residual) {
+    double dissipation = 0.0;
+    for (int k = 0; k <= K; k++) {
+      dissipation += C[k] * p[(head - k + K + 1) % (K + 1)][i][j];
+    }
+    return 2.0 * p[head][i][j] - p[previous][i][j] + KAPPA * residual + ALPHA * dissipation;
+  }
+}
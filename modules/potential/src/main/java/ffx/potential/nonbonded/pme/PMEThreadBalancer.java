@@ -0,0 +1,223 @@
+// ******************************************************************************
+//
+// Title:       Force Field X.
+// Description: Force Field X - Software for Molecular Biophysics.
+// Copyright:   Copyright (c) Michael J. Schnieders 2001-2020.
+//
+// This file is part of Force Field X.
+//
+// Force Field X is free software; you can redistribute it and/or modify it
+// under the terms of the GNU General Public License version 3 as published by
+// the Free Software Foundation.
+//
+// Force Field X is distributed in the hope that it will be useful, but WITHOUT
+// ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+// FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+// details.
+//
+// You should have received a copy of the GNU General Public License along with
+// Force Field X; if not, write to the Free Software Foundation, Inc., 59 Temple
+// Place, Suite 330, Boston, MA 02111-1307 USA
+//
+// Linking this library statically or dynamically with other modules is making a
+// combined work based on this library. Thus, the terms and conditions of the
+// GNU General Public License cover the whole combination.
+//
+// As a special exception, the copyright holders of this library give you
+// permission to link this library with independent modules to produce an
+// executable, regardless of the license terms of these independent modules, and
+// to copy and distribute the resulting executable under terms of your choice,
+// provided that you also meet, for each linked independent module, the terms
+// and conditions of the license of that module. An independent module is a
+// module which is not derived from or based on this library. If you modify this
+// library, you may extend this exception to your version of the library, but
+// you are not obligated to do so. If you do not wish to do so, delete this
+// exception statement from your version.
+//
+// ******************************************************************************
+package ffx.potential.nonbonded.pme;
+
+import static java.lang.String.format;
+import static org.apache.commons.math3.util.FastMath.max;
+
+/**
+ * The PMEThreadBalancer chooses how many threads compute the real space part of PME while the
+ * remaining threads concurrently compute the reciprocal space part, based on measured timings.
+ *
+ * <p>The real and reciprocal space work (thread-nanoseconds) is estimated from each evaluation
+ * using exponential averages, and every <code>interval</code> evaluations the split that minimizes
+ * the predicted time of the slower part is chosen. Running both parts back to back on all threads
+ * ("sequential") is also measured; if the concurrent split turns out slower, the balancer falls
+ * back to sequential and retries a concurrent split later.
+ *
+ * @author Michael J. Schnieders
+ * @since 1.0
+ */
+public class PMEThreadBalancer {
+
+  /** Weight of a new measurement in the exponential averages. */
+  private static final double ALPHA = 0.25;
+  /** Fractional improvement required to change the split. */
+  private static final double TOLERANCE = 0.05;
+  /** Number of intervals spent sequential before a concurrent split is retried. */
+  private static final int RETRY_INTERVALS = 10;
+
+  /** Total number of threads. */
+  private final int nThreads;
+  /** Number of evaluations between decisions. */
+  private final int interval;
+  /** Number of real space threads; equal to nThreads when the parts run sequentially. */
+  private int realThreads;
+  /** Averaged real space work (thread-nanoseconds per evaluation). */
+  private double realWork = -1.0;
+  /** Averaged reciprocal space work (thread-nanoseconds per evaluation). */
+  private double reciprocalWork = -1.0;
+  /** Averaged wall clock time per evaluation for the sequential mode (nanoseconds). */
+  private double sequentialTime = -1.0;
+  /** Averaged wall clock time per evaluation for the current concurrent split (nanoseconds). */
+  private double concurrentTime = -1.0;
+  /** Number of evaluations since the last decision. */
+  private int count = 0;
+  /** Number of intervals spent in the sequential mode. */
+  private int sequentialIntervals = 0;
+  /** Skip the first evaluation after a change, which includes thread start up. */
+  private boolean warmUp = false;
+
+  /**
+   * Constructor for PMEThreadBalancer. The parts initially run sequentially so that both are
+   * measured with all threads.
+   *
+   * @param nThreads Total number of threads.
+   * @param interval Number of evaluations between decisions.
+   */
+  public PMEThreadBalancer(int nThreads, int interval) {
+    this.nThreads = nThreads;
+    this.interval = max(1, interval);
+    realThreads = nThreads;
+  }
+
+  /**
+   * Get the number of real space threads.
+   *
+   * @return The number of real space threads, which equals the total when the parts run
+   *     sequentially.
+   */
+  public int getRealThreads() {
+    return realThreads;
+  }
+
+  /**
+   * Get the number of reciprocal space threads.
+   *
+   * @return The number of reciprocal space threads, which equals the total when the parts run
+   *     sequentially.
+   */
+  public int getReciprocalThreads() {
+    return isConcurrent() ? nThreads - realThreads : nThreads;
+  }
+
+  /**
+   * Check if the real and reciprocal space parts run concurrently.
+   *
+   * @return True if the current split is concurrent.
+   */
+  public boolean isConcurrent() {
+    return realThreads < nThreads;
+  }
+
+  /**
+   * Record the timings of one evaluation, and choose a new split at the end of each interval.
+   *
+   * @param realTime Wall clock time of the real space part (nanoseconds).
+   * @param reciprocalTime Wall clock time of the reciprocal space part (nanoseconds).
+   * @param totalTime Wall clock time of the whole evaluation (nanoseconds).
+   * @return True if the split changed.
+   */
+  public boolean update(long realTime, long reciprocalTime, long totalTime) {
+    if (nThreads < 2) {
+      return false;
+    }
+    if (warmUp) {
+      warmUp = false;
+      return false;
+    }
+
+    realWork = average(realWork, (double) realTime * realThreads);
+    reciprocalWork = average(reciprocalWork, (double) reciprocalTime * getReciprocalThreads());
+    if (isConcurrent()) {
+      concurrentTime = average(concurrentTime, totalTime);
+    } else {
+      sequentialTime = average(sequentialTime, totalTime);
+    }
+
+    if (++count < interval) {
+      return false;
+    }
+    count = 0;
+
+    int previous = realThreads;
+    if (!isConcurrent()) {
+      // Try a concurrent split if none has been measured, or periodically after a fall back.
+      if (concurrentTime < 0.0 || ++sequentialIntervals >= RETRY_INTERVALS) {
+        sequentialIntervals = 0;
+        realThreads = optimalRealThreads();
+        concurrentTime = -1.0;
+      }
+    } else if (concurrentTime > (1.0 + TOLERANCE) * sequentialTime) {
+      // The concurrent split is slower than running the parts back to back.
+      realThreads = nThreads;
+      sequentialTime = -1.0;
+    } else {
+      int optimal = optimalRealThreads();
+      if (optimal != realThreads
+          && predictedTime(optimal) < (1.0 - TOLERANCE) * predictedTime(realThreads)) {
+        realThreads = optimal;
+        concurrentTime = -1.0;
+      }
+    }
+    warmUp = realThreads != previous;
+    return warmUp;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public String toString() {
+    if (isConcurrent()) {
+      return format(
+          " PME threads: %d real space and %d reciprocal space (work %8.3f / %8.3f sec)",
+          realThreads, nThreads - realThreads, realWork * 1.0e-9, reciprocalWork * 1.0e-9);
+    }
+    return format(
+        " PME threads: %d for sequential real and reciprocal space (work %8.3f / %8.3f sec)",
+        nThreads, realWork * 1.0e-9, reciprocalWork * 1.0e-9);
+  }
+
+  /**
+   * Predict the time of a concurrent split, which is set by the slower part.
+   *
+   * @param nReal Number of real space threads.
+   * @return The predicted time (nanoseconds).
+   */
+  private double predictedTime(int nReal) {
+    return max(realWork / nReal, reciprocalWork / (nThreads - nReal));
+  }
+
+  /**
+   * Find the concurrent split with the least predicted time.
+   *
+   * @return The number of real space threads.
+   */
+  private int optimalRealThreads() {
+    int optimal = 1;
+    for (int nReal = 2; nReal < nThreads; nReal++) {
+      if (predictedTime(nReal) < predictedTime(optimal)) {
+        optimal = nReal;
+      }
+    }
+    return optimal;
+  }
+
+  private static double average(double average, double value) {
+    return average < 0.0 ? value : (1.0 - ALPHA) * average + ALPHA * value;
+  }
+}
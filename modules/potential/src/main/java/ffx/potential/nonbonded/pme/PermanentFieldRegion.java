@@ -183,6 +183,11 @@ public class PermanentFieldRegion extends ParallelRegion implements MaskingInter
 
   private long[] realSpacePermTime;
   private ScaleParameters scaleParameters;
+  /**
+   * If not null, the reciprocal space section also computes b-Splines, spreads the multipoles and
+   * interpolates this potential, so the whole chain overlaps the real space field.
+   */
+  private double[][] cartesianMultipolePhi;
 
   public PermanentFieldRegion(ParallelTeam pt, ForceField forceField, boolean lambdaTerm) {
     permanentRealSpaceFieldSection = new PermanentRealSpaceFieldSection(pt);
@@ -239,6 +244,26 @@ public class PermanentFieldRegion extends ParallelRegion implements MaskingInter
     return realSpacePermTotal;
   }
 
+  /**
+   * Set the parallel team used for the real space field. The team must not have more threads than
+   * the team this region was constructed with.
+   *
+   * @param pt The real space ParallelTeam.
+   */
+  public void setRealSpaceTeam(ParallelTeam pt) {
+    permanentRealSpaceFieldSection.setParallelTeam(pt);
+  }
+
+  /**
+   * Set the permanent multipole potential to be computed by the reciprocal space section. If null,
+   * only the convolution is done and the caller is responsible for the rest of the chain.
+   *
+   * @param cartesianMultipolePhi The permanent multipole potential, or null.
+   */
+  public void setReciprocalPhi(double[][] cartesianMultipolePhi) {
+    this.cartesianMultipolePhi = cartesianMultipolePhi;
+  }
+
   public void init(
       Atom[] atoms,
       Crystal crystal,
@@ -360,7 +385,7 @@ public class PermanentFieldRegion extends ParallelRegion implements MaskingInter
   private class PermanentRealSpaceFieldSection extends ParallelSection {
 
     private final PermanentRealSpaceFieldRegion permanentRealSpaceFieldRegion;
-    private final ParallelTeam parallelTeam;
+    private ParallelTeam parallelTeam;
 
     PermanentRealSpaceFieldSection(ParallelTeam pt) {
       this.parallelTeam = pt;
@@ -368,6 +393,11 @@ public class PermanentFieldRegion extends ParallelRegion implements MaskingInter
       permanentRealSpaceFieldRegion = new PermanentRealSpaceFieldRegion(nt);
     }
 
+    void setParallelTeam(ParallelTeam pt) {
+      this.parallelTeam = pt;
+      permanentRealSpaceFieldRegion.threadCount = pt.getThreadCount();
+    }
+
     @Override
     public void run() {
       try {
@@ -394,7 +424,11 @@ public class PermanentFieldRegion extends ParallelRegion implements MaskingInter
     @Override
     public void run() {
       if (reciprocalSpaceTerm && aewald > 0.0) {
-        reciprocalSpace.permanentMultipoleConvolution();
+        if (cartesianMultipolePhi != null) {
+          reciprocalSpace.permanentReciprocalSpace(globalMultipole, use, cartesianMultipolePhi);
+        } else {
+          reciprocalSpace.permanentMultipoleConvolution();
+        }
       }
     }
   }
@@ -404,7 +438,7 @@ public class PermanentFieldRegion extends ParallelRegion implements MaskingInter
     private final InitializationLoop[] initializationLoop;
     private final PermanentRealSpaceFieldLoop[] permanentRealSpaceFieldLoop;
     private final SharedInteger sharedCount;
-    private final int threadCount;
+    private int threadCount;
 
     PermanentRealSpaceFieldRegion(int nt) {
       threadCount = nt;
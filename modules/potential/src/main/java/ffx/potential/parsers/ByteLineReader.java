@@ -0,0 +1,501 @@
+// ******************************************************************************
+//
+// Title:       Force Field X.
+// Description: Force Field X - Software for Molecular Biophysics.
+// Copyright:   Copyright (c) Michael J. Schnieders 2001-2020.
+//
+// This file is part of Force Field X.
+//
+// Force Field X is free software; you can redistribute it and/or modify it
+// under the terms of the GNU General Public License version 3 as published by
+// the Free Software Foundation.
+//
+// Force Field X is distributed in the hope that it will be useful, but WITHOUT
+// ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+// FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+// details.
+//
+// You should have received a copy of the GNU General Public License along with
+// Force Field X; if not, write to the Free Software Foundation, Inc., 59 Temple
+// Place, Suite 330, Boston, MA 02111-1307 USA
+//
+// Linking this library statically or dynamically with other modules is making a
+// combined work based on this library. Thus, the terms and conditions of the
+// GNU General Public License cover the whole combination.
+//
+// As a special exception, the copyright holders of this library give you
+// permission to link this library with independent modules to produce an
+// executable, regardless of the license terms of these independent modules, and
+// to copy and distribute the resulting executable under terms of your choice,
+// provided that you also meet, for each linked independent module, the terms
+// and conditions of the license of that module. An independent module is a
+// module which is not derived from or based on this library. If you modify this
+// library, you may extend this exception to your version of the library, but
+// you are not obligated to do so. If you do not wish to do so, delete this
+// exception statement from your version.
+//
+// ******************************************************************************
+package ffx.potential.parsers;
+
+import static java.lang.String.format;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * The ByteLineReader class reads ASCII coordinate files one line at a time into a reusable byte
+ * buffer, and parses fixed columns or whitespace delimited tokens of the current line in place.
+ *
+ * <p>Unlike BufferedReader.readLine followed by String.split or substring, no objects are created
+ * per line, which makes it suitable for scanning large archives or multi-model PDB files. Column
+ * indices follow String.substring conventions (0-based, end exclusive) and are clipped to the
+ * length of the line.
+ *
+ * @author Michael J. Schnieders
+ * @since 1.0
+ */
+public class ByteLineReader implements Closeable {
+
+  /** Default size of the read buffer in bytes. */
+  private static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+  /** Maximum number of significant digits parsed without falling back to Double.parseDouble. */
+  private static final int MAX_DIGITS = 15;
+  /** Powers of ten that are exactly representable as doubles. */
+  private static final double[] POWERS_OF_TEN = {
+    1.0e0, 1.0e1, 1.0e2, 1.0e3, 1.0e4, 1.0e5, 1.0e6, 1.0e7, 1.0e8, 1.0e9, 1.0e10, 1.0e11, 1.0e12,
+    1.0e13, 1.0e14, 1.0e15, 1.0e16, 1.0e17, 1.0e18, 1.0e19, 1.0e20, 1.0e21, 1.0e22
+  };
+
+  /** The input. */
+  private final InputStream input;
+  /** Buffered bytes of the input. */
+  private byte[] buffer;
+  /** Start of the unread bytes in the buffer. */
+  private int position = 0;
+  /** End of the valid bytes in the buffer. */
+  private int limit = 0;
+  /** Position up to which the buffer has been searched for a line terminator. */
+  private int scan = 0;
+  /** True once the end of the input has been reached. */
+  private boolean eof = false;
+  /** Start of the current line in the buffer. */
+  private int lineStart = 0;
+  /** End of the current line in the buffer (exclusive). */
+  private int lineEnd = 0;
+  /** Starts of the whitespace delimited tokens of the current line, relative to the line. */
+  private int[] tokenStarts = new int[16];
+  /** Ends of the whitespace delimited tokens of the current line, relative to the line. */
+  private int[] tokenEnds = new int[16];
+  /** Number of tokens of the current line. */
+  private int nTokens = 0;
+
+  /**
+   * Constructor for a ByteLineReader.
+   *
+   * @param file The file to read.
+   * @throws IOException If the file cannot be opened.
+   */
+  public ByteLineReader(File file) throws IOException {
+    this(new FileInputStream(file), DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+   * Constructor for a ByteLineReader.
+   *
+   * @param input The input.
+   * @param bufferSize Initial size of the read buffer (it grows to hold the longest line).
+   */
+  public ByteLineReader(InputStream input, int bufferSize) {
+    this.input = input;
+    buffer = new byte[Math.max(bufferSize, 128)];
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void close() throws IOException {
+    input.close();
+  }
+
+  /**
+   * Advance to the next line; the previous line is no longer available.
+   *
+   * @return True if a line was read, or false at the end of the input.
+   * @throws IOException If reading fails.
+   */
+  public boolean readLine() throws IOException {
+    nTokens = 0;
+    while (true) {
+      for (int i = scan; i < limit; i++) {
+        if (buffer[i] == '\n') {
+          setLine(position, i);
+          position = i + 1;
+          scan = position;
+          return true;
+        }
+      }
+      scan = limit;
+      if (eof) {
+        if (position < limit) {
+          setLine(position, limit);
+          position = limit;
+          return true;
+        }
+        lineStart = lineEnd = limit;
+        return false;
+      }
+      fill();
+    }
+  }
+
+  /**
+   * Check if more input is available.
+   *
+   * @return True if another line can be read.
+   * @throws IOException If reading fails.
+   */
+  public boolean ready() throws IOException {
+    if (position == limit && !eof) {
+      fill();
+    }
+    return position < limit;
+  }
+
+  /**
+   * Remove leading and trailing whitespace from the current line (as String.trim does).
+   */
+  public void trim() {
+    while (lineStart < lineEnd && buffer[lineStart] <= ' ') {
+      lineStart++;
+    }
+    while (lineEnd > lineStart && buffer[lineEnd - 1] <= ' ') {
+      lineEnd--;
+    }
+    nTokens = 0;
+  }
+
+  /**
+   * Get the length of the current line.
+   *
+   * @return The number of characters in the current line.
+   */
+  public int length() {
+    return lineEnd - lineStart;
+  }
+
+  /**
+   * Check if the current line contains only whitespace.
+   *
+   * @return True if the current line is blank.
+   */
+  public boolean isBlank() {
+    for (int i = lineStart; i < lineEnd; i++) {
+      if (buffer[i] > ' ') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Get the current line as a String.
+   *
+   * @return The current line.
+   */
+  public String getLine() {
+    return new String(buffer, lineStart, lineEnd - lineStart, StandardCharsets.US_ASCII);
+  }
+
+  /**
+   * Check if the current line starts with a prefix.
+   *
+   * @param prefix The prefix.
+   * @return True if the current line starts with the prefix.
+   */
+  public boolean startsWith(String prefix) {
+    int n = prefix.length();
+    if (n > lineEnd - lineStart) {
+      return false;
+    }
+    for (int i = 0; i < n; i++) {
+      if (buffer[lineStart + i] != prefix.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Get the character at a column of the current line.
+   *
+   * @param column The column.
+   * @return The character, or a space if the line is shorter.
+   */
+  public char charAt(int column) {
+    if (column >= length()) {
+      return ' ';
+    }
+    return (char) buffer[lineStart + column];
+  }
+
+  /**
+   * Check if the columns [from, to) of the current line, with surrounding whitespace removed, equal
+   * a value.
+   *
+   * @param from The first column.
+   * @param to The end column (exclusive).
+   * @param value The value, which should not have surrounding whitespace.
+   * @return True if the trimmed field equals the value.
+   */
+  public boolean fieldEquals(int from, int to, String value) {
+    int start = lineStart + Math.min(from, length());
+    int end = lineStart + Math.min(to, length());
+    while (start < end && buffer[start] <= ' ') {
+      start++;
+    }
+    while (end > start && buffer[end - 1] <= ' ') {
+      end--;
+    }
+    int n = value.length();
+    if (end - start != n) {
+      return false;
+    }
+    for (int i = 0; i < n; i++) {
+      if (buffer[start + i] != value.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Split the current line into whitespace delimited tokens.
+   *
+   * @return The number of tokens.
+   */
+  public int tokenize() {
+    nTokens = 0;
+    int i = lineStart;
+    while (i < lineEnd) {
+      while (i < lineEnd && buffer[i] <= ' ') {
+        i++;
+      }
+      if (i == lineEnd) {
+        break;
+      }
+      int start = i;
+      while (i < lineEnd && buffer[i] > ' ') {
+        i++;
+      }
+      if (nTokens == tokenStarts.length) {
+        tokenStarts = Arrays.copyOf(tokenStarts, 2 * nTokens);
+        tokenEnds = Arrays.copyOf(tokenEnds, 2 * nTokens);
+      }
+      tokenStarts[nTokens] = start - lineStart;
+      tokenEnds[nTokens] = i - lineStart;
+      nTokens++;
+    }
+    return nTokens;
+  }
+
+  /**
+   * Get the number of tokens found by the last call to tokenize.
+   *
+   * @return The number of tokens.
+   */
+  public int getTokenCount() {
+    return nTokens;
+  }
+
+  /**
+   * Check if a token equals a value.
+   *
+   * @param token The token index.
+   * @param value The value.
+   * @return True if the token equals the value.
+   */
+  public boolean tokenEquals(int token, String value) {
+    return token < nTokens && fieldEquals(tokenStarts[token], tokenEnds[token], value);
+  }
+
+  /**
+   * Check if a token is an integer.
+   *
+   * @param token The token index.
+   * @return True if the token is an optionally signed integer.
+   */
+  public boolean isIntegerToken(int token) {
+    int start = lineStart + tokenStarts[token];
+    int end = lineStart + tokenEnds[token];
+    if (buffer[start] == '-' || buffer[start] == '+') {
+      start++;
+    }
+    if (start == end) {
+      return false;
+    }
+    for (int i = start; i < end; i++) {
+      if (buffer[i] < '0' || buffer[i] > '9') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Parse a token as a double.
+   *
+   * @param token The token index.
+   * @return The value of the token.
+   */
+  public double parseDoubleToken(int token) {
+    return parseDouble(tokenStarts[token], tokenEnds[token]);
+  }
+
+  /**
+   * Parse a token as an int.
+   *
+   * @param token The token index.
+   * @return The value of the token.
+   */
+  public int parseIntToken(int token) {
+    return parseInt(tokenStarts[token], tokenEnds[token]);
+  }
+
+  /**
+   * Parse the columns [from, to) of the current line as a double, ignoring surrounding whitespace.
+   *
+   * @param from The first column.
+   * @param to The end column (exclusive).
+   * @return The value.
+   * @throws NumberFormatException If the field is not a number.
+   */
+  public double parseDouble(int from, int to) {
+    int start = lineStart + Math.min(from, length());
+    int end = lineStart + Math.min(to, length());
+    while (start < end && buffer[start] <= ' ') {
+      start++;
+    }
+    while (end > start && buffer[end - 1] <= ' ') {
+      end--;
+    }
+
+    int i = start;
+    boolean negative = false;
+    if (i < end && (buffer[i] == '-' || buffer[i] == '+')) {
+      negative = buffer[i] == '-';
+      i++;
+    }
+    long mantissa = 0;
+    int nDigits = 0;
+    int digits = 0;
+    int fractionDigits = 0;
+    boolean point = false;
+    for (; i < end; i++) {
+      byte b = buffer[i];
+      if (b >= '0' && b <= '9') {
+        nDigits++;
+        if (mantissa != 0 || b != '0') {
+          digits++;
+        }
+        mantissa = 10 * mantissa + (b - '0');
+        if (point) {
+          fractionDigits++;
+        }
+      } else if (b == '.' && !point) {
+        point = true;
+      } else {
+        break;
+      }
+    }
+
+    // Exponents, long mantissas and malformed fields use the JDK parser.
+    if (i != end || nDigits == 0 || digits > MAX_DIGITS
+        || fractionDigits >= POWERS_OF_TEN.length) {
+      return Double.parseDouble(new String(buffer, start, end - start, StandardCharsets.US_ASCII));
+    }
+
+    // Both the mantissa and the power of ten are exact, so the quotient is correctly rounded.
+    double value = mantissa / POWERS_OF_TEN[fractionDigits];
+    return negative ? -value : value;
+  }
+
+  /**
+   * Parse the columns [from, to) of the current line as an int, ignoring surrounding whitespace.
+   *
+   * @param from The first column.
+   * @param to The end column (exclusive).
+   * @return The value.
+   * @throws NumberFormatException If the field is not an integer.
+   */
+  public int parseInt(int from, int to) {
+    int start = lineStart + Math.min(from, length());
+    int end = lineStart + Math.min(to, length());
+    while (start < end && buffer[start] <= ' ') {
+      start++;
+    }
+    while (end > start && buffer[end - 1] <= ' ') {
+      end--;
+    }
+    int i = start;
+    boolean negative = false;
+    if (i < end && (buffer[i] == '-' || buffer[i] == '+')) {
+      negative = buffer[i] == '-';
+      i++;
+    }
+    if (i == end || end - i > 9) {
+      return Integer.parseInt(new String(buffer, start, end - start, StandardCharsets.US_ASCII));
+    }
+    int value = 0;
+    for (; i < end; i++) {
+      byte b = buffer[i];
+      if (b < '0' || b > '9') {
+        throw new NumberFormatException(
+            format(" Invalid integer: %s",
+                new String(buffer, start, end - start, StandardCharsets.US_ASCII)));
+      }
+      value = 10 * value + (b - '0');
+    }
+    return negative ? -value : value;
+  }
+
+  /**
+   * Set the bounds of the current line, excluding a carriage return before the line feed.
+   *
+   * @param start Start of the line.
+   * @param end End of the line (exclusive).
+   */
+  private void setLine(int start, int end) {
+    if (end > start && buffer[end - 1] == '\r') {
+      end--;
+    }
+    lineStart = start;
+    lineEnd = end;
+  }
+
+  /**
+   * Read more input, compacting or growing the buffer as needed.
+   *
+   * @throws IOException If reading fails.
+   */
+  private void fill() throws IOException {
+    if (position > 0) {
+      System.arraycopy(buffer, position, buffer, 0, limit - position);
+      limit -= position;
+      scan -= position;
+      position = 0;
+    }
+    if (limit == buffer.length) {
+      buffer = Arrays.copyOf(buffer, 2 * buffer.length);
+    }
+    int n = input.read(buffer, limit, buffer.length - limit);
+    if (n < 0) {
+      eof = true;
+    } else {
+      limit += n;
+    }
+  }
+}
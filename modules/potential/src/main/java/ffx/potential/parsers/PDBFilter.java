@@ -84,7 +84,6 @@ import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import org.apache.commons.configuration2.CompositeConfiguration;
 
@@ -138,7 +137,9 @@ public final class PDBFilter extends SystemFilter {
   /** Keep track of ATOM record serial numbers to match them with ANISOU records. */
   private final HashMap<Integer, Atom> atoms = new HashMap<>();
 
-  private final Map<MolecularAssembly, BufferedReader> readers = new HashMap<>();
+  private final Map<MolecularAssembly, ByteLineReader> readers = new HashMap<>();
+  /** The atom matched to each ATOM/HETATM record of the last model read for each system. */
+  private final Map<MolecularAssembly, List<Atom>> modelAtoms = new HashMap<>();
   /** The current altLoc - ie. the one we are defining a chemical system for. */
   private Character currentAltLoc = 'A';
   /** Character for the current chain ID. */
@@ -317,7 +318,7 @@ public final class PDBFilter extends SystemFilter {
   @Override
   public void closeReader() {
     for (MolecularAssembly system : systems) {
-      BufferedReader br = readers.get(system);
+      ByteLineReader br = readers.get(system);
       if (br != null) {
         try {
           br.close();
@@ -1293,35 +1294,36 @@ public final class PDBFilter extends SystemFilter {
     return readNext(resetPosition, false);
   }
 
-  /** {@inheritDoc} */
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Records are parsed in place from a reusable line buffer. Each ATOM/HETATM record is first
+   * compared with the atom matched to the same record of the previous model, in which case only its
+   * coordinates are parsed; otherwise the atom is looked up in the assembly.
+   */
   @Override
   public boolean readNext(boolean resetPosition, boolean print) {
     remarkLines = new ArrayList<>(remarkLines.size());
-    // ^ is beginning of line, \\s+ means "one or more whitespace", (\\d+) means match and capture
-    // one or more digits.
-    Pattern modelPatt = Pattern.compile("^MODEL\\s+(\\d+)");
     modelsRead = resetPosition ? 1 : modelsRead + 1;
     boolean eof = true;
     for (MolecularAssembly system : systems) {
       try {
-        BufferedReader currentReader;
-        if (readers.containsKey(system)) {
-          currentReader = readers.get(system);
-          if (!currentReader.ready()) {
-            currentReader = new BufferedReader(new FileReader(readFile));
-            readers.put(system, currentReader);
+        ByteLineReader currentReader = readers.get(system);
+        if (currentReader == null || !currentReader.ready()) {
+          if (currentReader != null) {
+            currentReader.close();
           }
-        } else {
-          currentReader = new BufferedReader(new FileReader(readFile));
+          currentReader = new ByteLineReader(readFile);
           readers.put(system, currentReader);
         }
         // Skip to appropriate model.
-        String line = currentReader.readLine();
-        while (line != null) {
-          line = line.trim();
-          Matcher m = modelPatt.matcher(line);
-          if (m.find()) {
-            int modelNum = parseInt(m.group(1));
+        while (currentReader.readLine()) {
+          currentReader.trim();
+          if (currentReader.startsWith("MODEL")
+              && currentReader.tokenize() > 1
+              && currentReader.tokenEquals(0, "MODEL")
+              && currentReader.isIntegerToken(1)) {
+            int modelNum = currentReader.parseIntToken(1);
             if (modelNum == modelsRead) {
               if (print) {
                 logger.log(Level.INFO, format(" Reading model %d for %s", modelNum, currentFile));
@@ -1330,7 +1332,6 @@ public final class PDBFilter extends SystemFilter {
               break;
             }
           }
-          line = currentReader.readLine();
         }
         if (eof) {
           if (logger.isLoggable(Level.FINEST)) {
@@ -1341,144 +1342,56 @@ public final class PDBFilter extends SystemFilter {
         }
 
         // Begin parsing the model.
-        boolean modelDone = false;
-        line = currentReader.readLine();
-        while (line != null) {
-          line = line.trim();
-          String recID = line.substring(0, Math.min(6, line.length())).trim();
-          try {
-            Record record = Record.valueOf(recID);
-            boolean hetatm = true;
-            switch (record) {
-              // =============================================================================
-              //
-              //  7 - 11        Integer       serial       Atom serial number.
-              // 13 - 16        Atom          name         Atom name.
-              // 17             Character     altLoc       Alternate location indicator.
-              // 18 - 20        Residue name  resName      Residue name.
-              // 22             Character     chainID      Chain identifier.
-              // 23 - 26        Integer       resSeq       Residue sequence number.
-              // 27             AChar         iCode        Code for insertion of residues.
-              // 31 - 38        Real(8.3)     x            Orthogonal coordinates for X in
-              // Angstroms.
-              // 39 - 46        Real(8.3)     y            Orthogonal coordinates for Y in
-              // Angstroms.
-              // 47 - 54        Real(8.3)     z            Orthogonal coordinates for Z in
-              // Angstroms.
-              // 55 - 60        Real(6.2)     occupancy    Occupancy.
-              // 61 - 66        Real(6.2)     tempFactor   Temperature factor.
-              // 77 - 78        LString(2)    element      Element symbol, right-justified.
-              // 79 - 80        LString(2)    charge       Charge  on the atom.
-              // =============================================================================
-              //         1         2         3         4         5         6         7
-              // 123456789012345678901234567890123456789012345678901234567890123456789012345678
-              // ATOM      1  N   ILE A  16      60.614  71.140 -10.592  1.00  7.38           N
-              // ATOM      2  CA  ILE A  16      60.793  72.149  -9.511  1.00  6.91           C
-              case ATOM:
-                hetatm = false;
-              case HETATM:
-                if (!line.substring(17, 20).trim().equals("HOH")) {
-                  String name = line.substring(12, 16).trim();
-                  if (name.toUpperCase().contains("1H")
-                      || name.toUpperCase().contains("2H")
-                      || name.toUpperCase().contains("3H")) {
-                    // VERSION3_2 is presently just a placeholder for "anything non-standard".
-                    fileStandard = VERSION3_2;
-                  }
-                  Character altLoc = line.substring(16, 17).toUpperCase().charAt(0);
-                  if (!altLoc.equals(' ') && !altLoc.equals('A') && !altLoc.equals(currentAltLoc)) {
-                    break;
-                  }
-                  String resName = line.substring(17, 20).trim();
-                  Character chainID = line.substring(21, 22).charAt(0);
-
-                  List<String> segIDList = segidMap.get(chainID);
-                  if (segIDList == null) {
-                    logger.log(
-                        Level.WARNING,
-                        format(
-                            " No " + "known segment ID corresponds to " + "chain ID %s",
-                            chainID.toString()));
-                    break;
-                  }
-
-                  String segID = segIDList.get(0);
-                  if (segIDList.size() > 1) {
-                    logger.log(
-                        Level.WARNING,
-                        format(
-                            " " + "Multiple segment IDs correspond to" + "chain ID %s; assuming %s",
-                            chainID.toString(), segID));
-                  }
-
-                  int resSeq = Hybrid36.decode(4, line.substring(22, 26));
-
-                  double[] d = new double[3];
-                  d[0] = parseDouble(line.substring(30, 38).trim());
-                  d[1] = parseDouble(line.substring(38, 46).trim());
-                  d[2] = parseDouble(line.substring(46, 54).trim());
-                  double occupancy = 1.0;
-                  double tempFactor = 1.0;
-                  Atom newAtom =
-                      new Atom(
-                          0,
-                          name,
-                          altLoc,
-                          d,
-                          resName,
-                          resSeq,
-                          chainID,
-                          occupancy,
-                          tempFactor,
-                          segID);
-                  newAtom.setHetero(hetatm);
-                  // Check if this is a modified residue.
-                  if (modRes.containsKey(resName.toUpperCase())) {
-                    newAtom.setModRes(true);
-                  }
-
-                  Atom returnedAtom = activeMolecularAssembly.findAtom(newAtom);
-                  if (returnedAtom != null) {
-                    returnedAtom.setXYZ(d);
-                    double[] retXYZ = new double[3];
-                    returnedAtom.getXYZ(retXYZ);
-                  } else {
-                    String message =
-                        format(" Could not find atom %s in assembly", newAtom.toString());
-                    if (dieOnMissingAtom) {
-                      logger.severe(message);
-                    } else {
-                      logger.warning(message);
-                    }
-                  }
-                  break;
-                }
-              case ENDMDL:
-              case END: // Technically speaking, END should be at the end of the file, not end of
-                // the model.
-                logger.log(Level.FINE, format(" Model %d successfully read", modelsRead));
-                modelDone = true;
-                break;
-              case REMARK:
-                remarkLines.add(line.trim());
-                if (line.contains("Lambda:")) {
-                  Matcher m = lambdaPattern.matcher(line);
-                  if (m.find()) {
-                    lastReadLambda = Double.parseDouble(m.group(1));
-                  }
+        List<Atom> previousAtoms = modelAtoms.get(system);
+        List<Atom> currentAtoms =
+            new ArrayList<>(previousAtoms == null ? 64 : previousAtoms.size());
+        double[] xyz = new double[3];
+        while (currentReader.readLine()) {
+          currentReader.trim();
+          boolean atom = currentReader.fieldEquals(0, 6, "ATOM");
+          if (atom || currentReader.fieldEquals(0, 6, "HETATM")) {
+            // As for the first model, a water record ends the model.
+            if (currentReader.fieldEquals(17, 20, "HOH")) {
+              logger.log(Level.FINE, format(" Model %d successfully read", modelsRead));
+              break;
+            }
+            int record = currentAtoms.size();
+            Atom matched = null;
+            try {
+              if (previousAtoms != null && record < previousAtoms.size()) {
+                Atom previous = previousAtoms.get(record);
+                if (previous != null && sameAtom(currentReader, previous)) {
+                  xyz[0] = currentReader.parseDouble(30, 38);
+                  xyz[1] = currentReader.parseDouble(38, 46);
+                  xyz[2] = currentReader.parseDouble(46, 54);
+                  previous.setXYZ(xyz);
+                  matched = previous;
                 }
-                break;
-              default:
-                break;
+              }
+              if (matched == null) {
+                matched = readAtomRecord(currentReader.getLine(), !atom);
+              }
+            } catch (Exception ex) {
+              // Do nothing; the record is malformed.
             }
-          } catch (Exception ex) {
-            // Do nothing; it's not an ATOM/HETATM line.
-          }
-          if (modelDone) {
+            currentAtoms.add(matched);
+          } else if (currentReader.fieldEquals(0, 6, "ENDMDL")
+              || currentReader.fieldEquals(0, 6, "END")) {
+            // END should be at the end of the file, not the end of the model.
+            logger.log(Level.FINE, format(" Model %d successfully read", modelsRead));
             break;
+          } else if (currentReader.fieldEquals(0, 6, "REMARK")) {
+            String line = currentReader.getLine();
+            remarkLines.add(line);
+            if (line.contains("Lambda:")) {
+              Matcher m = lambdaPattern.matcher(line);
+              if (m.find()) {
+                lastReadLambda = Double.parseDouble(m.group(1));
+              }
+            }
           }
-          line = currentReader.readLine();
         }
+        modelAtoms.put(system, currentAtoms);
         return true;
       } catch (IOException ex) {
         logger.info(
@@ -1490,6 +1403,112 @@ public final class PDBFilter extends SystemFilter {
     return false;
   }
 
+  /**
+   * Check if the current ATOM/HETATM record of a ByteLineReader describes an atom matched for a
+   * previous model.
+   *
+   * @param reader The reader.
+   * @param atom The atom.
+   * @return True if the record has the same atom name, residue name, chain and residue number,
+   *     and its alternate location is accepted.
+   */
+  private boolean sameAtom(ByteLineReader reader, Atom atom) {
+    char altLoc = Character.toUpperCase(reader.charAt(16));
+    if (altLoc != ' ' && altLoc != 'A' && altLoc != currentAltLoc) {
+      return false;
+    }
+    String resName = atom.getResidueName();
+    Character chainID = atom.getChainID();
+    if (resName == null
+        || chainID == null
+        || reader.charAt(21) != chainID
+        || !reader.fieldEquals(12, 16, atom.getName())
+        || !reader.fieldEquals(17, 20, resName)) {
+      return false;
+    }
+    // Hybrid-36 residue numbers (above 9999) are left to the atom lookup.
+    int resSeq = atom.getResidueNumber();
+    if (resSeq < -999 || resSeq > 9999) {
+      return false;
+    }
+    try {
+      return reader.parseInt(22, 26) == resSeq;
+    } catch (NumberFormatException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Parse an ATOM/HETATM record of a model and update the coordinates of the matching atom.
+   *
+   * @param line The record.
+   * @param hetatm True for a HETATM record.
+   * @return The matching atom, or null if the record was skipped or no atom matched.
+   */
+  private Atom readAtomRecord(String line, boolean hetatm) {
+    String name = line.substring(12, 16).trim();
+    if (name.toUpperCase().contains("1H")
+        || name.toUpperCase().contains("2H")
+        || name.toUpperCase().contains("3H")) {
+      // VERSION3_2 is presently just a placeholder for "anything non-standard".
+      fileStandard = VERSION3_2;
+    }
+    Character altLoc = line.substring(16, 17).toUpperCase().charAt(0);
+    if (!altLoc.equals(' ') && !altLoc.equals('A') && !altLoc.equals(currentAltLoc)) {
+      return null;
+    }
+    String resName = line.substring(17, 20).trim();
+    Character chainID = line.substring(21, 22).charAt(0);
+
+    List<String> segIDList = segidMap.get(chainID);
+    if (segIDList == null) {
+      logger.log(
+          Level.WARNING,
+          format(
+              " No " + "known segment ID corresponds to " + "chain ID %s",
+              chainID.toString()));
+      return null;
+    }
+
+    String segID = segIDList.get(0);
+    if (segIDList.size() > 1) {
+      logger.log(
+          Level.WARNING,
+          format(
+              " " + "Multiple segment IDs correspond to" + "chain ID %s; assuming %s",
+              chainID.toString(), segID));
+    }
+
+    int resSeq = Hybrid36.decode(4, line.substring(22, 26));
+
+    double[] d = new double[3];
+    d[0] = parseDouble(line.substring(30, 38).trim());
+    d[1] = parseDouble(line.substring(38, 46).trim());
+    d[2] = parseDouble(line.substring(46, 54).trim());
+    double occupancy = 1.0;
+    double tempFactor = 1.0;
+    Atom newAtom =
+        new Atom(0, name, altLoc, d, resName, resSeq, chainID, occupancy, tempFactor, segID);
+    newAtom.setHetero(hetatm);
+    // Check if this is a modified residue.
+    if (modRes.containsKey(resName.toUpperCase())) {
+      newAtom.setModRes(true);
+    }
+
+    Atom returnedAtom = activeMolecularAssembly.findAtom(newAtom);
+    if (returnedAtom != null) {
+      returnedAtom.setXYZ(d);
+    } else {
+      String message = format(" Could not find atom %s in assembly", newAtom.toString());
+      if (dieOnMissingAtom) {
+        logger.severe(message);
+      } else {
+        logger.warning(message);
+      }
+    }
+    return returnedAtom;
+  }
+
   /**
    * Specify the alternate location.
    *
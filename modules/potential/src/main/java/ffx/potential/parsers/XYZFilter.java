@@ -77,7 +77,7 @@ import org.jogamp.vecmath.Vector3d;
 public class XYZFilter extends SystemFilter {
 
   private static final Logger logger = Logger.getLogger(XYZFilter.class.getName());
-  private BufferedReader bufferedReader = null;
+  private ByteLineReader lineReader = null;
   private int snapShot;
   private String remarkLine;
 
@@ -211,34 +211,82 @@ public class XYZFilter extends SystemFilter {
 
     String[] tokens = data.trim().split(" +");
     if (tokens.length == 6) {
-      CompositeConfiguration config = activeMolecularAssembly.getProperties();
-      double a = parseDouble(tokens[0]);
-      double b = parseDouble(tokens[1]);
-      double c = parseDouble(tokens[2]);
-      double alpha = parseDouble(tokens[3]);
-      double beta = parseDouble(tokens[4]);
-      double gamma = parseDouble(tokens[5]);
-      config.setProperty("a-axis", a);
-      config.setProperty("b-axis", b);
-      config.setProperty("c-axis", c);
-      config.setProperty("alpha", alpha);
-      config.setProperty("beta", beta);
-      config.setProperty("gamma", gamma);
+      setUnitCell(
+          activeMolecularAssembly,
+          parseDouble(tokens[0]),
+          parseDouble(tokens[1]),
+          parseDouble(tokens[2]),
+          parseDouble(tokens[3]),
+          parseDouble(tokens[4]),
+          parseDouble(tokens[5]));
+    }
+    return true;
+  }
 
-      Crystal crystal = activeMolecularAssembly.getCrystal();
-      if (crystal != null) {
-        crystal.changeUnitCellParameters(a, b, c, alpha, beta, gamma);
-      }
+  /**
+   * Attempt to parse the current line of a ByteLineReader as unit cell parameters, in place.
+   *
+   * @param reader The reader.
+   * @param activeMolecularAssembly The MolecularAssembly to update.
+   * @return false if the first token of the line is an integer and true otherwise.
+   */
+  private static boolean readPBC(ByteLineReader reader, MolecularAssembly activeMolecularAssembly) {
+    if (firstTokenIsInteger(reader)) {
+      return false;
+    }
+
+    if (reader.getTokenCount() == 6) {
+      setUnitCell(
+          activeMolecularAssembly,
+          reader.parseDoubleToken(0),
+          reader.parseDoubleToken(1),
+          reader.parseDoubleToken(2),
+          reader.parseDoubleToken(3),
+          reader.parseDoubleToken(4),
+          reader.parseDoubleToken(5));
     }
     return true;
   }
 
+  /**
+   * Update the unit cell properties and crystal of a MolecularAssembly.
+   *
+   * @param activeMolecularAssembly The MolecularAssembly to update.
+   * @param a The a-axis.
+   * @param b The b-axis.
+   * @param c The c-axis.
+   * @param alpha The alpha angle.
+   * @param beta The beta angle.
+   * @param gamma The gamma angle.
+   */
+  private static void setUnitCell(
+      MolecularAssembly activeMolecularAssembly,
+      double a,
+      double b,
+      double c,
+      double alpha,
+      double beta,
+      double gamma) {
+    CompositeConfiguration config = activeMolecularAssembly.getProperties();
+    config.setProperty("a-axis", a);
+    config.setProperty("b-axis", b);
+    config.setProperty("c-axis", c);
+    config.setProperty("alpha", alpha);
+    config.setProperty("beta", beta);
+    config.setProperty("gamma", gamma);
+
+    Crystal crystal = activeMolecularAssembly.getCrystal();
+    if (crystal != null) {
+      crystal.changeUnitCellParameters(a, b, c, alpha, beta, gamma);
+    }
+  }
+
   /** {@inheritDoc} */
   @Override
   public void closeReader() {
-    if (bufferedReader != null) {
+    if (lineReader != null) {
       try {
-        bufferedReader.close();
+        lineReader.close();
       } catch (IOException ex) {
         logger.warning(format(" Exception in closing XYZ filter: %s", ex.toString()));
       }
@@ -509,7 +557,7 @@ public class XYZFilter extends SystemFilter {
    * {@inheritDoc}
    *
    * <p>Reads the next snap-shot of an archive into the activeMolecularAssembly. After calling this
-   * function, a BufferedReader will remain open until the <code>close</code> method is called.
+   * function, a ByteLineReader will remain open until the <code>close</code> method is called.
    */
   @Override
   public boolean readNext(boolean resetPosition) {
@@ -518,21 +566,30 @@ public class XYZFilter extends SystemFilter {
 
   /**
    * Reads the next snap-shot of an archive into the activeMolecularAssembly. After calling this
-   * function, a BufferedReader will remain open until the <code>close</code> method is called.
+   * function, a ByteLineReader will remain open until the <code>close</code> method is called.
+   *
+   * <p>Only coordinates (and unit cell parameters) are parsed, directly from a reusable line
+   * buffer, since the topology was read from the first snapshot.
    */
   public boolean readNext(boolean resetPosition, boolean print) {
     try {
-      String data;
       Atom[] atoms = activeMolecularAssembly.getAtomArray();
       int nSystem = atoms.length;
 
-      if (bufferedReader == null || resetPosition) {
-        bufferedReader = new BufferedReader(new FileReader(currentFile));
+      if (lineReader == null || resetPosition) {
+        if (lineReader != null) {
+          lineReader.close();
+        }
+        lineReader = new ByteLineReader(currentFile);
         // Read past the first N + 1 lines that begin with an integer.
         for (int i = 0; i < nSystem + 1; i++) {
-          data = bufferedReader.readLine();
-          while (!firstTokenIsInteger(data)) {
-            data = bufferedReader.readLine();
+          if (!lineReader.readLine()) {
+            return false;
+          }
+          while (!firstTokenIsInteger(lineReader)) {
+            if (!lineReader.readLine()) {
+              return false;
+            }
           }
         }
         snapShot = 1;
@@ -540,58 +597,57 @@ public class XYZFilter extends SystemFilter {
 
       snapShot++;
 
-      data = bufferedReader.readLine();
       // Read past blank lines
-      while (data != null && data.trim().equals("")) {
-        data = bufferedReader.readLine();
-      }
-      if (data == null) {
+      if (!readNonBlankLine(lineReader)) {
         return false;
       }
 
       if (print) {
         logger.info(format("\n Attempting to read snapshot %d.", snapShot));
       }
-      try {
-        int nArchive = Integer.parseInt(data.trim().split(" +")[0]);
-        if (nArchive != nSystem) {
-          String message =
-              format("Number of atoms mismatch (Archive: %d, System: %d).", nArchive, nSystem);
-          if (dieOnMissingAtom) {
-            logger.severe(message);
-          }
-          logger.warning(message);
-          return false;
+      if (!firstTokenIsInteger(lineReader)) {
+        logger.warning(format(" Expected the number of atoms in snapshot %d of %s.", snapShot,
+            currentFile.getName()));
+        return false;
+      }
+      int nArchive = lineReader.parseIntToken(0);
+      if (nArchive != nSystem) {
+        String message =
+            format("Number of atoms mismatch (Archive: %d, System: %d).", nArchive, nSystem);
+        if (dieOnMissingAtom) {
+          logger.severe(message);
         }
-      } catch (NumberFormatException e) {
-        logger.warning(e.toString());
+        logger.warning(message);
         return false;
       }
 
-      remarkLine = data;
+      remarkLine = lineReader.getLine();
 
       // The header line is reasonable. Check for periodic box dimensions.
-      bufferedReader.mark(10000);
-      data = bufferedReader.readLine();
-      if (!readPBC(data, activeMolecularAssembly)) {
-        bufferedReader.reset();
+      if (!lineReader.readLine()) {
+        return false;
+      }
+      boolean atomLine = firstTokenIsInteger(lineReader);
+      if (!atomLine) {
+        readPBC(lineReader, activeMolecularAssembly);
       }
 
       for (int i = 0; i < nSystem; i++) {
-        data = bufferedReader.readLine();
-        // Read past blank lines
-        while (data != null && data.trim().equals("")) {
-          data = bufferedReader.readLine();
+        // The first atom line may already have been read while checking for a unit cell.
+        if (!atomLine && !readNonBlankLine(lineReader)) {
+          String message = format("Check atom %d in %s.", (i + 1), currentFile.getName());
+          logger.warning(message);
+          return false;
         }
-        String[] tokens = data.trim().split(" +");
-        if (tokens.length < 6) {
+        atomLine = false;
+        if (lineReader.tokenize() < 6) {
           String message = format("Check atom %d in %s.", (i + 1), currentFile.getName());
           logger.warning(message);
           return false;
         }
-        double x = parseDouble(tokens[2]);
-        double y = parseDouble(tokens[3]);
-        double z = parseDouble(tokens[4]);
+        double x = lineReader.parseDoubleToken(2);
+        double y = lineReader.parseDoubleToken(3);
+        double z = lineReader.parseDoubleToken(4);
         int xyzIndex = atoms[i].getIndex();
         if (xyzIndex != i + 1) {
           String message =
@@ -608,10 +664,38 @@ public class XYZFilter extends SystemFilter {
     } catch (IOException e) {
       String message = format("Exception reading from file %s.", currentFile);
       logger.log(Level.WARNING, message, e);
+    } catch (NumberFormatException e) {
+      logger.warning(e.toString());
     }
     return false;
   }
 
+  /**
+   * Advance a ByteLineReader past blank lines.
+   *
+   * @param reader The reader.
+   * @return True if a non-blank line was read, or false at the end of the file.
+   * @throws IOException If reading fails.
+   */
+  private static boolean readNonBlankLine(ByteLineReader reader) throws IOException {
+    while (reader.readLine()) {
+      if (!reader.isBlank()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Check if the first token of the current line of a ByteLineReader is an integer.
+   *
+   * @param reader The reader.
+   * @return True if the first token is an integer.
+   */
+  private static boolean firstTokenIsInteger(ByteLineReader reader) {
+    return reader.tokenize() > 0 && reader.isIntegerToken(0);
+  }
+
   /** {@inheritDoc} */
   @Override
   public boolean writeFile(File saveFile, boolean append, String[] extraLines) {
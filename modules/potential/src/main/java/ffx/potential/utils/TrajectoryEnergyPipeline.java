@@ -0,0 +1,392 @@
+// ******************************************************************************
+//
+// Title:       Force Field X.
+// Description: Force Field X - Software for Molecular Biophysics.
+// Copyright:   Copyright (c) Michael J. Schnieders 2001-2020.
+//
+// This file is part of Force Field X.
+//
+// Force Field X is free software; you can redistribute it and/or modify it
+// under the terms of the GNU General Public License version 3 as published by
+// the Free Software Foundation.
+//
+// Force Field X is distributed in the hope that it will be useful, but WITHOUT
+// ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+// FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+// details.
+//
+// You should have received a copy of the GNU General Public License along with
+// Force Field X; if not, write to the Free Software Foundation, Inc., 59 Temple
+// Place, Suite 330, Boston, MA 02111-1307 USA
+//
+// Linking this library statically or dynamically with other modules is making a
+// combined work based on this library. Thus, the terms and conditions of the
+// GNU General Public License cover the whole combination.
+//
+// As a special exception, the copyright holders of this library give you
+// permission to link this library with independent modules to produce an
+// executable, regardless of the license terms of these independent modules, and
+// to copy and distribute the resulting executable under terms of your choice,
+// provided that you also meet, for each linked independent module, the terms
+// and conditions of the license of that module. An independent module is a
+// module which is not derived from or based on this library. If you modify this
+// library, you may extend this exception to your version of the library, but
+// you are not obligated to do so. If you do not wish to do so, delete this
+// exception statement from your version.
+//
+// ******************************************************************************
+package ffx.potential.utils;
+
+import static java.lang.String.format;
+
+import ffx.crystal.Crystal;
+import ffx.potential.ForceFieldEnergy;
+import ffx.potential.MolecularAssembly;
+import ffx.potential.bonded.Atom;
+import ffx.potential.parsers.SystemFilter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.logging.Logger;
+
+/**
+ * The TrajectoryEnergyPipeline evaluates the frames of one or more trajectory files concurrently.
+ *
+ * <p>A parser thread reads ahead through the trajectory using the SystemFilter of each reader
+ * assembly, and copies the coordinates (and unit cell) of each frame. A pool of worker threads,
+ * each owning an independent set of MolecularAssembly instances and their potentials, loads the
+ * frame and calls its FrameEvaluator. Results are passed to a FrameListener on the calling thread in
+ * trajectory order.
+ *
+ * <p>Reader and worker assemblies must describe the same systems (i.e. be opened from the same
+ * files), and worker potentials should use a share of the available threads.
+ *
+ * @author Michael J. Schnieders
+ * @since 1.0
+ */
+public class TrajectoryEnergyPipeline {
+
+  private static final Logger logger = Logger.getLogger(TrajectoryEnergyPipeline.class.getName());
+
+  /** Assemblies whose filters read the trajectory. */
+  private final MolecularAssembly[] readers;
+  /** The filters that read the trajectory, one per reader assembly. */
+  private final SystemFilter[] filters;
+  /** Maximum number of frames read ahead of the workers. */
+  private final int readAhead;
+  /** The workers. */
+  private final List<Worker> workers = new ArrayList<>();
+
+  /**
+   * Constructor for the TrajectoryEnergyPipeline.
+   *
+   * @param readers Assemblies whose filters read the trajectory.
+   * @param filters The filters that read the trajectory, one per reader assembly.
+   * @param readAhead Maximum number of frames read ahead of the workers.
+   */
+  public TrajectoryEnergyPipeline(
+      MolecularAssembly[] readers, SystemFilter[] filters, int readAhead) {
+    if (readers.length != filters.length) {
+      throw new IllegalArgumentException(" Each reader assembly requires one filter.");
+    }
+    this.readers = readers;
+    this.filters = filters;
+    this.readAhead = Math.max(1, readAhead);
+  }
+
+  /**
+   * Add a worker.
+   *
+   * @param assemblies Assemblies of the worker, in the same order as the reader assemblies.
+   * @param evaluator Evaluates the worker potential after a frame has been loaded.
+   */
+  public void addWorker(MolecularAssembly[] assemblies, FrameEvaluator evaluator) {
+    if (assemblies.length != readers.length) {
+      throw new IllegalArgumentException(" Each worker requires one assembly per reader.");
+    }
+    workers.add(new Worker(assemblies, evaluator));
+  }
+
+  /**
+   * Get the number of workers.
+   *
+   * @return The number of workers.
+   */
+  public int getNumberOfWorkers() {
+    return workers.size();
+  }
+
+  /**
+   * Read and evaluate all remaining frames of the trajectory.
+   *
+   * @param listener Receives the result of each frame, in trajectory order, on the calling thread.
+   * @return The number of frames evaluated.
+   */
+  public int run(FrameListener listener) {
+    int nWorkers = workers.size();
+    if (nWorkers == 0) {
+      throw new IllegalStateException(" The trajectory pipeline has no workers.");
+    }
+
+    BlockingQueue<Frame> frames = new ArrayBlockingQueue<>(readAhead + nWorkers);
+    BlockingQueue<Frame> results = new LinkedBlockingQueue<>();
+    List<Thread> threads = new ArrayList<>();
+
+    Thread parser =
+        new Thread(
+            () -> {
+              try {
+                int index = 0;
+                while (readNext()) {
+                  frames.put(new Frame(index++, readers));
+                }
+                for (int i = 0; i < nWorkers; i++) {
+                  frames.put(Frame.END);
+                }
+              } catch (InterruptedException e) {
+                // The pipeline was aborted.
+              } catch (Throwable t) {
+                results.add(new Frame(t));
+              }
+            },
+            "TrajectoryEnergyPipeline-parser");
+    threads.add(parser);
+
+    for (int w = 0; w < nWorkers; w++) {
+      Worker worker = workers.get(w);
+      Thread thread =
+          new Thread(
+              () -> {
+                try {
+                  while (true) {
+                    Frame frame = frames.take();
+                    if (frame == Frame.END) {
+                      results.add(Frame.END);
+                      return;
+                    }
+                    worker.load(frame);
+                    frame.result = worker.evaluator.evaluate();
+                    frame.coordinates = null;
+                    results.add(frame);
+                  }
+                } catch (InterruptedException e) {
+                  // The pipeline was aborted.
+                } catch (Throwable t) {
+                  results.add(new Frame(t));
+                }
+              },
+              "TrajectoryEnergyPipeline-worker-" + w);
+      threads.add(thread);
+    }
+
+    for (Thread thread : threads) {
+      thread.setDaemon(true);
+      thread.start();
+    }
+
+    // Pass results to the listener in trajectory order.
+    TreeMap<Integer, Frame> pending = new TreeMap<>();
+    int next = 0;
+    int finished = 0;
+    try {
+      while (finished < nWorkers) {
+        Frame frame = results.take();
+        if (frame == Frame.END) {
+          finished++;
+          continue;
+        }
+        if (frame.error != null) {
+          throw frame.error;
+        }
+        pending.put(frame.index, frame);
+        while (!pending.isEmpty() && pending.firstKey() == next) {
+          listener.frameEvaluated(next, pending.pollFirstEntry().getValue().result);
+          next++;
+        }
+      }
+    } catch (RuntimeException | Error e) {
+      abort(threads);
+      throw e;
+    } catch (Throwable t) {
+      abort(threads);
+      throw new IllegalStateException(" Exception evaluating a trajectory frame.", t);
+    }
+
+    logger.fine(format(" Evaluated %d frames with %d workers.", next, nWorkers));
+    return next;
+  }
+
+  /**
+   * Interrupt the pipeline threads.
+   *
+   * @param threads The threads.
+   */
+  private void abort(List<Thread> threads) {
+    for (Thread thread : threads) {
+      thread.interrupt();
+    }
+  }
+
+  /**
+   * Read the next frame with every filter.
+   *
+   * @return True if every filter read a frame.
+   */
+  private boolean readNext() {
+    boolean read = true;
+    for (SystemFilter filter : filters) {
+      read &= filter.readNext(false, false);
+    }
+    return read;
+  }
+
+  /** Evaluates a worker's potential for the currently loaded frame. */
+  @FunctionalInterface
+  public interface FrameEvaluator {
+
+    /**
+     * Evaluate the potential of the worker assemblies, which hold the coordinates of the frame.
+     *
+     * @return The results for the frame (e.g. energies at one or more lambda values).
+     */
+    double[] evaluate();
+  }
+
+  /** Receives frame results in trajectory order. */
+  @FunctionalInterface
+  public interface FrameListener {
+
+    /**
+     * Called for each frame in trajectory order.
+     *
+     * @param frame Frame index, counting from 0 for the first frame read by the pipeline.
+     * @param result The results returned by the FrameEvaluator.
+     */
+    void frameEvaluated(int frame, double[] result);
+  }
+
+  /** The coordinates and unit cell of a frame, and then its results. */
+  private static class Frame {
+
+    /** Marks the end of the trajectory. */
+    static final Frame END = new Frame(-1, new MolecularAssembly[0]);
+
+    final int index;
+    /** Coordinates of each assembly (x, y, z for each atom). */
+    double[][] coordinates;
+    /** Unit cell parameters of each assembly, or null if aperiodic. */
+    final double[][] unitCells;
+    /** Results of the frame. */
+    double[] result;
+    /** An exception thrown while reading or evaluating. */
+    final Throwable error;
+
+    /**
+     * Copy the current frame of the reader assemblies.
+     *
+     * @param index The frame index.
+     * @param readers The reader assemblies.
+     */
+    Frame(int index, MolecularAssembly[] readers) {
+      this.index = index;
+      int n = readers.length;
+      coordinates = new double[n][];
+      unitCells = new double[n][];
+      for (int k = 0; k < n; k++) {
+        Atom[] atoms = readers[k].getAtomArray();
+        double[] x = new double[3 * atoms.length];
+        double[] xyz = new double[3];
+        for (int i = 0; i < atoms.length; i++) {
+          atoms[i].getXYZ(xyz);
+          int i3 = 3 * i;
+          x[i3] = xyz[0];
+          x[i3 + 1] = xyz[1];
+          x[i3 + 2] = xyz[2];
+        }
+        coordinates[k] = x;
+        Crystal crystal = readers[k].getCrystal();
+        if (crystal != null && !crystal.aperiodic()) {
+          Crystal unitCell = crystal.getUnitCell();
+          unitCells[k] =
+              new double[] {
+                unitCell.a, unitCell.b, unitCell.c, unitCell.alpha, unitCell.beta, unitCell.gamma
+              };
+        }
+      }
+      error = null;
+    }
+
+    /**
+     * An exception thrown while reading or evaluating.
+     *
+     * @param error The exception.
+     */
+    Frame(Throwable error) {
+      index = -1;
+      unitCells = null;
+      this.error = error;
+    }
+  }
+
+  /** A worker owns independent assemblies and evaluates one frame at a time. */
+  private static class Worker {
+
+    final MolecularAssembly[] assemblies;
+    final FrameEvaluator evaluator;
+
+    Worker(MolecularAssembly[] assemblies, FrameEvaluator evaluator) {
+      this.assemblies = assemblies;
+      this.evaluator = evaluator;
+    }
+
+    /**
+     * Load the coordinates and unit cell of a frame.
+     *
+     * @param frame The frame.
+     */
+    void load(Frame frame) {
+      for (int k = 0; k < assemblies.length; k++) {
+        MolecularAssembly assembly = assemblies[k];
+        Atom[] atoms = assembly.getAtomArray();
+        double[] x = frame.coordinates[k];
+        if (x.length != 3 * atoms.length) {
+          throw new IllegalStateException(
+              format(
+                  " Worker assembly %s has %d atoms, but the frame has %d.",
+                  assembly.getName(), atoms.length, x.length / 3));
+        }
+        for (int i = 0; i < atoms.length; i++) {
+          int i3 = 3 * i;
+          atoms[i].moveTo(x[i3], x[i3 + 1], x[i3 + 2]);
+        }
+
+        // Update the unit cell of the potential if it changed (e.g. an NPT trajectory). Changing
+        // the parameters of the potential's own crystal keeps its replicates cell (for small unit
+        // cells) in step with the unit cell.
+        double[] p = frame.unitCells[k];
+        ForceFieldEnergy forceFieldEnergy = assembly.getPotentialEnergy();
+        if (p != null && forceFieldEnergy != null) {
+          Crystal crystal = forceFieldEnergy.getCrystal();
+          Crystal unitCell = crystal.getUnitCell();
+          if (unitCell.a != p[0]
+              || unitCell.b != p[1]
+              || unitCell.c != p[2]
+              || unitCell.alpha != p[3]
+              || unitCell.beta != p[4]
+              || unitCell.gamma != p[5]) {
+            if (!crystal.changeUnitCellParameters(p[0], p[1], p[2], p[3], p[4], p[5])) {
+              throw new IllegalStateException(
+                  format(
+                      " Worker assembly %s rejected the unit cell of frame %d.",
+                      assembly.getName(), frame.index));
+            }
+            forceFieldEnergy.setCrystal(crystal);
+          }
+        }
+      }
+    }
+  }
+}
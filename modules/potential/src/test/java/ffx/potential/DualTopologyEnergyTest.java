@@ -0,0 +1,131 @@
+// ******************************************************************************
+//
+// Title:       Force Field X.
+// Description: Force Field X - Software for Molecular Biophysics.
+// Copyright:   Copyright (c) Michael J. Schnieders 2001-2020.
+//
+// This file is part of Force Field X.
+//
+// Force Field X is free software; you can redistribute it and/or modify it
+// under the terms of the GNU General Public License version 3 as published by
+// the Free Software Foundation.
+//
+// Force Field X is distributed in the hope that it will be useful, but WITHOUT
+// ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+// FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+// details.
+//
+// You should have received a copy of the GNU General Public License along with
+// Force Field X; if not, write to the Free Software Foundation, Inc., 59 Temple
+// Place, Suite 330, Boston, MA 02111-1307 USA
+//
+// Linking this library statically or dynamically with other modules is making a
+// combined work based on this library. Thus, the terms and conditions of the
+// GNU General Public License cover the whole combination.
+//
+// As a special exception, the copyright holders of this library give you
+// permission to link this library with independent modules to produce an
+// executable, regardless of the license terms of these independent modules, and
+// to copy and distribute the resulting executable under terms of your choice,
+// provided that you also meet, for each linked independent module, the terms
+// and conditions of the license of that module. An independent module is a
+// module which is not derived from or based on this library. If you modify this
+// library, you may extend this exception to your version of the library, but
+// you are not obligated to do so. If you do not wish to do so, delete this
+// exception statement from your version.
+//
+// ******************************************************************************
+package ffx.potential;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import ffx.numerics.switching.PowerSwitch;
+import ffx.potential.cli.AlchemicalOptions;
+import ffx.potential.utils.PotentialsUtils;
+import java.io.File;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests that evaluating the environment shared by both topologies once reproduces the full
+ * dual-topology evaluation.
+ *
+ * @author Michael J. Schnieders
+ */
+public class DualTopologyEnergyTest {
+
+  private static final double TOL = 1.0E-8;
+
+  @After
+  public void tearDown() {
+    System.clearProperty("lambdaterm");
+    System.clearProperty("dual-topology-shared-environment");
+  }
+
+  /**
+   * A water dimer is transformed into a water-sodium pair; the second water is the environment.
+   * The energy, dU/dL, d2U/dL2, gradient and dU/dX/dL must not depend on whether the environment is
+   * shared.
+   */
+  @Test
+  public void testSharedEnvironment() {
+    DualTopologyEnergy unshared = createDualTopology(false);
+    DualTopologyEnergy shared = createDualTopology(true);
+    assertFalse(unshared.isEnvironmentShared());
+    assertTrue(shared.isEnvironmentShared());
+
+    int n = shared.getNumberOfVariables();
+    assertEquals(n, unshared.getNumberOfVariables());
+    double[] x = new double[n];
+    shared.getCoordinates(x);
+
+    for (double lambda : new double[] {0.0, 0.25, 0.6, 1.0}) {
+      unshared.setLambda(lambda);
+      shared.setLambda(lambda);
+      double[] gradient = new double[n];
+      double[] sharedGradient = new double[n];
+      double energy = unshared.energyAndGradient(x, gradient);
+      double sharedEnergy = shared.energyAndGradient(x, sharedGradient);
+      assertEquals(" Energy at L=" + lambda, energy, sharedEnergy, TOL);
+      assertEquals(" dU/dL at L=" + lambda, unshared.getdEdL(), shared.getdEdL(), TOL);
+      assertEquals(" d2U/dL2 at L=" + lambda, unshared.getd2EdL2(), shared.getd2EdL2(), TOL);
+      assertArrayEquals(gradient, sharedGradient, TOL);
+
+      double[] dEdXdL = new double[n];
+      double[] sharedDEdXdL = new double[n];
+      unshared.getdEdXdL(dEdXdL);
+      shared.getdEdXdL(sharedDEdXdL);
+      assertArrayEquals(dEdXdL, sharedDEdXdL, TOL);
+    }
+
+    unshared.destroy();
+    shared.destroy();
+  }
+
+  /**
+   * Open both topologies, mark their alchemical atoms and combine them.
+   *
+   * @param shareEnvironment Value of the dual-topology-shared-environment property.
+   * @return The dual topology.
+   */
+  private DualTopologyEnergy createDualTopology(boolean shareEnvironment) {
+    System.setProperty("lambdaterm", "true");
+    System.setProperty("dual-topology-shared-environment", Boolean.toString(shareEnvironment));
+    ClassLoader classLoader = getClass().getClassLoader();
+    PotentialsUtils potentialsUtils = new PotentialsUtils();
+    MolecularAssembly topology1 =
+        potentialsUtils.open(
+            new File(
+                classLoader.getResource("ffx/potential/structures/dual-water-dimer.xyz").getPath()));
+    MolecularAssembly topology2 =
+        potentialsUtils.open(
+            new File(
+                classLoader.getResource("ffx/potential/structures/dual-water-na.xyz").getPath()));
+    AlchemicalOptions.setAlchemicalAtoms(topology1, "1-3");
+    AlchemicalOptions.setAlchemicalAtoms(topology2, "1");
+    return new DualTopologyEnergy(topology1, topology2, new PowerSwitch());
+  }
+}
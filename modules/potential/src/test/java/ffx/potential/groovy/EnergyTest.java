@@ -37,6 +37,7 @@
 // ******************************************************************************
 package ffx.potential.groovy;
 
+import static java.lang.String.format;
 import static org.apache.commons.math3.util.FastMath.floor;
 import static org.apache.commons.math3.util.FastMath.random;
 import static org.junit.Assert.assertEquals;
@@ -88,6 +89,8 @@ public class EnergyTest extends PotentialTest {
   private final double totalEnergy;
   private final boolean testOpenMM;
   private final double tolerance = 1.0e-2;
+  /** Tolerance for electrostatics computed with a single precision reciprocal space grid. */
+  private final double singlePrecisionTolerance = 1.0e-1;
 
   public EnergyTest(
       String info,
@@ -830,6 +833,41 @@ public class EnergyTest extends PotentialTest {
     assertEquals(info + " Solvation Count", nGK, forceFieldEnergy.getSolvationInteractions());
   }
 
+  @Test
+  public void testSinglePrecisionPME() {
+    if (nAtoms > 10000 && !ffxCI) {
+      return;
+    }
+    logger.info(" Testing single precision PME for " + info);
+
+    String[] args = {"src/main/java/" + filename};
+    binding.setVariable("args", args);
+    System.setProperty("pme-single-precision", "true");
+
+    // Create and evaluate the script.
+    Energy energy = new Energy(binding).run();
+    potentialScript = energy;
+    ForceFieldEnergy forceFieldEnergy = energy.forceFieldEnergy;
+
+    // Report the error relative to the double precision reference energies.
+    double permanent = forceFieldEnergy.getPermanentMultipoleEnergy();
+    double polarization = forceFieldEnergy.getPolarizationEnergy();
+    logger.info(
+        format(
+            " Single precision PME error for %s: permanent %12.8f, polarization %12.8f",
+            info, permanent - permanentEnergy, polarization - polarizationEnergy));
+    assertEquals(
+        info + " Single Precision Permanent Multipole Energy",
+        permanentEnergy,
+        permanent,
+        singlePrecisionTolerance);
+    assertEquals(
+        info + " Single Precision Polarization Energy",
+        polarizationEnergy,
+        polarization,
+        singlePrecisionTolerance);
+  }
+
   @Test
   public void testGradient() {
     if (nAtoms > 5000 && !ffxCI) {
@@ -0,0 +1,289 @@
+// ******************************************************************************
+//
+// Title:       Force Field X.
+// Description: Force Field X - Software for Molecular Biophysics.
+// Copyright:   Copyright (c) Michael J. Schnieders 2001-2020.
+//
+// This file is part of Force Field X.
+//
+// Force Field X is free software; you can redistribute it and/or modify it
+// under the terms of the GNU General Public License version 3 as published by
+// the Free Software Foundation.
+//
+// Force Field X is distributed in the hope that it will be useful, but WITHOUT
+// ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+// FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+// details.
+//
+// You should have received a copy of the GNU General Public License along with
+// Force Field X; if not, write to the Free Software Foundation, Inc., 59 Temple
+// Place, Suite 330, Boston, MA 02111-1307 USA
+//
+// Linking this library statically or dynamically with other modules is making a
+// combined work based on this library. Thus, the terms and conditions of the
+// GNU General Public License cover the whole combination.
+//
+// As a special exception, the copyright holders of this library give you
+// permission to link this library with independent modules to produce an
+// executable, regardless of the license terms of these independent modules, and
+// to copy and distribute the resulting executable under terms of your choice,
+// provided that you also meet, for each linked independent module, the terms
+// and conditions of the license of that module. An independent module is a
+// module which is not derived from or based on this library. If you modify this
+// library, you may extend this exception to your version of the library, but
+// you are not obligated to do so. If you do not wish to do so, delete this
+// exception statement from your version.
+//
+package ffx.potential.nonbonded;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import edu.rit.pj.ParallelTeam;
+import ffx.crystal.Crystal;
+import ffx.potential.ForceFieldEnergy;
+import ffx.potential.MolecularAssembly;
+import ffx.potential.bonded.Atom;
+import ffx.potential.utils.PotentialsUtils;
+import java.io.File;
+import java.util.Random;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test lattice translations stored in the NeighborList against the minimum image convention, and
+ * the rebuild schedule and buffer tuning of the list.
+ */
+public class NeighborListTest {
+
+  private final int nAtoms = 400;
+  private final double tolerance = 1.0e-10;
+  private final Atom[] atoms = new Atom[nAtoms];
+  private final double[][] coordinates = new double[1][3 * nAtoms];
+  private Crystal crystal;
+  private ParallelTeam parallelTeam;
+
+  @Before
+  public void setUp() {
+    parallelTeam = new ParallelTeam(2);
+    crystal = new Crystal(25.0, 27.0, 29.0, 80.0, 95.0, 105.0, "P1");
+    Random random = new Random(2020);
+    double[] frac = new double[3];
+    double[] xyz = new double[3];
+    for (int i = 0; i < nAtoms; i++) {
+      // Include atoms outside of the unit cell.
+      for (int j = 0; j < 3; j++) {
+        frac[j] = 3.0 * random.nextDouble() - 1.0;
+      }
+      crystal.toCartesianCoordinates(frac, xyz);
+      atoms[i] = new Atom("C" + i);
+      System.arraycopy(xyz, 0, coordinates[0], 3 * i, 3);
+    }
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    parallelTeam.shutdown();
+  }
+
+  @Test
+  public void testEncodeShift() {
+    double[] xyz = new double[3];
+    int[] shifts = {-512, -3, -1, 0, 1, 2, 511};
+    for (int a : shifts) {
+      for (int b : shifts) {
+        for (int c : shifts) {
+          xyz[0] = 0.0;
+          xyz[1] = 0.0;
+          xyz[2] = 0.0;
+          NeighborList.image(crystal, NeighborList.encodeShift(a, b, c), xyz);
+          double x = a * crystal.Ai00 + b * crystal.Ai10 + c * crystal.Ai20;
+          double y = a * crystal.Ai01 + b * crystal.Ai11 + c * crystal.Ai21;
+          double z = a * crystal.Ai02 + b * crystal.Ai12 + c * crystal.Ai22;
+          assertEquals(x, xyz[0], tolerance);
+          assertEquals(y, xyz[1], tolerance);
+          assertEquals(z, xyz[2], tolerance);
+        }
+      }
+    }
+    assertEquals(0, NeighborList.encodeShift(0, 0, 0));
+  }
+
+  @Test
+  public void testImageShifts() {
+    NeighborList neighborList = new NeighborList(null, crystal, atoms, 8.0, 2.0, parallelTeam);
+    neighborList.setImageShifts(true);
+    int[][][] lists = new int[1][][];
+    neighborList.buildList(coordinates, lists, null, true, false);
+    int[][][] shifts = neighborList.getShifts();
+    double[] image = new double[3];
+    double[] shifted = new double[3];
+    double[] xyz = coordinates[0];
+    int nPairs = 0;
+    for (int i = 0; i < nAtoms; i++) {
+      int[] list = lists[0][i];
+      assertEquals(list.length, shifts[0][i].length);
+      for (int n = 0; n < list.length; n++) {
+        int k = list[n];
+        for (int j = 0; j < 3; j++) {
+          image[j] = xyz[3 * i + j] - xyz[3 * k + j];
+          shifted[j] = image[j];
+        }
+        double r2 = crystal.image(image);
+        double r2Shifted = NeighborList.image(crystal, shifts[0][i][n], shifted);
+        assertEquals(r2, r2Shifted, tolerance);
+        for (int j = 0; j < 3; j++) {
+          assertEquals(image[j], shifted[j], tolerance);
+        }
+        nPairs++;
+      }
+    }
+    assertTrue(nPairs > 0);
+  }
+
+  @Test
+  public void testRebuildInterval() {
+    NeighborList neighborList = new NeighborList(null, crystal, atoms, 8.0, 2.0, parallelTeam);
+    neighborList.setRebuildInterval(3);
+    int[][][] lists = new int[1][][];
+    neighborList.buildList(coordinates, lists, null, true, false);
+    int[] list = lists[0][0];
+    // Without motion, the list is only rebuilt after the interval.
+    neighborList.buildList(coordinates, lists, null, false, false);
+    assertSame(list, lists[0][0]);
+    neighborList.buildList(coordinates, lists, null, false, false);
+    assertSame(list, lists[0][0]);
+    neighborList.buildList(coordinates, lists, null, false, false);
+    assertNotSame(list, lists[0][0]);
+  }
+
+  @Test
+  public void testBufferTuning() {
+    double cutoff = 8.0;
+    double initialBuffer = 2.0;
+    NeighborList neighborList =
+        new NeighborList(null, crystal, atoms, cutoff, initialBuffer, parallelTeam);
+    int[][][] lists = new int[1][][];
+    // Warm up list construction so that the first window is not dominated by compilation.
+    for (int i = 0; i < 20; i++) {
+      neighborList.buildList(coordinates, lists, null, true, false);
+    }
+    neighborList.setAutoTune(true);
+    double[] xyz = coordinates[0];
+    Random random = new Random(2020);
+    double[] dx = new double[3];
+    boolean moved = false;
+    int tunedAt = -1;
+    double tunedBuffer = Double.NaN;
+    int evaluations = 1000;
+    for (int step = 0; step < evaluations; step++) {
+      for (int i = 0; i < 3 * nAtoms; i++) {
+        xyz[i] += 0.5 * (random.nextDouble() - 0.5);
+      }
+      neighborList.buildList(coordinates, lists, null, false, false);
+      // Model a pair loop whose cost is proportional to the number of pairs, and large compared to
+      // the cost of rebuilding the list, so that the smallest buffer is the cheapest.
+      long pairs = 0;
+      for (int[] list : lists[0]) {
+        pairs += list.length;
+      }
+      neighborList.addPairLoopTime(100000L * pairs);
+      double buffer = neighborList.getBuffer();
+      assertTrue(buffer >= 0.5 && buffer <= 4.0);
+      if (buffer != initialBuffer) {
+        moved = true;
+      }
+      // Once tuned, the buffer must not change.
+      if (tunedAt < 0 && neighborList.isBufferTuned()) {
+        tunedAt = step;
+        tunedBuffer = buffer;
+      } else if (tunedAt >= 0) {
+        assertEquals(tunedBuffer, buffer, 0.0);
+      }
+      if (step % 50 != 0) {
+        continue;
+      }
+      // Every pair within the cutoff must be found in the list.
+      double cutoff2 = cutoff * cutoff;
+      int expected = 0;
+      for (int i = 0; i < nAtoms; i++) {
+        for (int k = i + 1; k < nAtoms; k++) {
+          for (int j = 0; j < 3; j++) {
+            dx[j] = xyz[3 * i + j] - xyz[3 * k + j];
+          }
+          if (crystal.image(dx) <= cutoff2) {
+            expected++;
+          }
+        }
+      }
+      int found = 0;
+      for (int i = 0; i < nAtoms; i++) {
+        for (int k : lists[0][i]) {
+          for (int j = 0; j < 3; j++) {
+            dx[j] = xyz[3 * i + j] - xyz[3 * k + j];
+          }
+          if (crystal.image(dx) <= cutoff2) {
+            found++;
+          }
+        }
+      }
+      assertEquals(expected, found);
+    }
+    // The tuner must move the buffer and settle on the smallest buffer well before the end.
+    assertTrue(moved);
+    assertTrue(tunedAt >= 0 && tunedAt < evaluations / 2);
+    assertEquals(0.5, tunedBuffer, tolerance);
+  }
+
+  /**
+   * The real space PME loops over the list shared with van der Waals dominate the pairwise cost of
+   * an AMOEBA system, so they must be included in the cost seen by the buffer tuner.
+   */
+  @Test
+  public void testPairLoopTimeReporting() {
+    // Warm up both potentials before timing them.
+    pairLoopTime(false);
+    pairLoopTime(true);
+    long vdwTime = pairLoopTime(false);
+    long pmeTime = pairLoopTime(true);
+    assertTrue(vdwTime > 0);
+    assertTrue(pmeTime > vdwTime);
+  }
+
+  /**
+   * Evaluate the acetanilide crystal with buffer tuning and return the pairwise loop time reported
+   * to the neighbor list.
+   *
+   * @param multipoles Include the multipole (PME) term.
+   * @return The reported pairwise loop time (nsec).
+   */
+  private long pairLoopTime(boolean multipoles) {
+    System.setProperty("neighbor-buffer-tuning", "true");
+    System.setProperty("mpoleterm", Boolean.toString(multipoles));
+    try {
+      ClassLoader classLoader = getClass().getClassLoader();
+      File structure =
+          new File(classLoader.getResource("ffx/potential/structures/acetanilide.xyz").getPath());
+      PotentialsUtils potentialsUtils = new PotentialsUtils();
+      MolecularAssembly molecularAssembly = potentialsUtils.open(structure);
+      ForceFieldEnergy forceFieldEnergy = molecularAssembly.getPotentialEnergy();
+      int n = forceFieldEnergy.getNumberOfVariables();
+      double[] x = new double[n];
+      double[] g = new double[n];
+      forceFieldEnergy.getCoordinates(x);
+      // The coordinates do not change, so no tuning window is started and all time is retained.
+      for (int i = 0; i < 10; i++) {
+        forceFieldEnergy.energyAndGradient(x, g);
+      }
+      long time = forceFieldEnergy.getVdwNode().getNeighborList().getPairLoopTime();
+      forceFieldEnergy.destroy();
+      return time;
+    } finally {
+      System.clearProperty("neighbor-buffer-tuning");
+      System.clearProperty("mpoleterm");
+    }
+  }
+}
@@ -0,0 +1,127 @@
+// ******************************************************************************
+//
+// Title:       Force Field X.
+// Description: Force Field X - Software for Molecular Biophysics.
+// Copyright:   Copyright (c) Michael J. Schnieders 2001-2020.
+//
+// This file is part of Force Field X.
+//
+// Force Field X is free software; you can redistribute it and/or modify it
+// under the terms of the GNU General Public License version 3 as published by
+// the Free Software Foundation.
+//
+// Force Field X is distributed in the hope that it will be useful, but WITHOUT
+// ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+// FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+// details.
+//
+// You should have received a copy of the GNU General Public License along with
+// Force Field X; if not, write to the Free Software Foundation, Inc., 59 Temple
+// Place, Suite 330, Boston, MA 02111-1307 USA
+//
+// Linking this library statically or dynamically with other modules is making a
+// combined work based on this library. Thus, the terms and conditions of the
+// GNU General Public License cover the whole combination.
+//
+// As a special exception, the copyright holders of this library give you
+// permission to link this library with independent modules to produce an
+// executable, regardless of the license terms of these independent modules, and
+// to copy and distribute the resulting executable under terms of your choice,
+// provided that you also meet, for each linked independent module, the terms
+// and conditions of the license of that module. An independent module is a
+// module which is not derived from or based on this library. If you modify this
+// library, you may extend this exception to your version of the library, but
+// you are not obligated to do so. If you do not wish to do so, delete this
+// exception statement from your version.
+//
+// ******************************************************************************
+package ffx.potential.nonbonded;
+
+import static org.junit.Assert.assertEquals;
+
+import ffx.potential.ForceFieldEnergy;
+import ffx.potential.MolecularAssembly;
+import ffx.potential.utils.PotentialsUtils;
+import java.io.File;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Test that only announced molecular dynamics steps advance the inertial extended Lagrangian (IEL)
+ * induced dipole history.
+ */
+public class ParticleMeshEwaldIELTest {
+
+  /** Number of molecular dynamics steps; the IEL history is complete after 6. */
+  private static final int STEPS = 20;
+
+  @After
+  public void tearDown() {
+    System.clearProperty("scf-algorithm");
+    System.clearProperty("polar-eps");
+  }
+
+  /**
+   * Two IEL runs follow the same trajectory; one also evaluates an unrelated configuration between
+   * steps. The extra evaluations must be converged like a CG reference, and must not perturb the
+   * steps of the run.
+   */
+  @Test
+  public void testInterleavedEvaluations() {
+    ForceFieldEnergy interleaved = createEnergy("IEL");
+    ForceFieldEnergy steps = createEnergy("IEL");
+    ForceFieldEnergy reference = createEnergy("CG");
+    ParticleMeshEwald interleavedPME = interleaved.getPmeNode();
+    ParticleMeshEwald stepsPME = steps.getPmeNode();
+
+    int n = interleaved.getNumberOfVariables();
+    double[] x0 = new double[n];
+    interleaved.getCoordinates(x0);
+    double[] x = new double[n];
+    double[] y = new double[n];
+    for (int step = 0; step < STEPS; step++) {
+      // A smooth trajectory.
+      for (int i = 0; i < n; i++) {
+        x[i] = x0[i] + 0.02 * Math.sin(0.1 * step + i);
+      }
+      interleavedPME.prepareInertialDipoleStep();
+      double energy = interleaved.energy(x, false);
+      stepsPME.prepareInertialDipoleStep();
+      assertEquals(" Step " + step, steps.energy(x, false), energy, 1.0e-8);
+
+      // An evaluation of a distant configuration between steps, e.g. a Monte Carlo trial move.
+      for (int i = 0; i < n; i++) {
+        y[i] = x[i] + 0.2 * Math.cos(3.0 * i);
+      }
+      double trial = interleaved.energy(y, false);
+      double polarization = interleavedPME.getPolarizationEnergy();
+      assertEquals(" Trial " + step, reference.energy(y, false), trial, 1.0e-6);
+      assertEquals(
+          " Trial polarization " + step,
+          reference.getPmeNode().getPolarizationEnergy(),
+          polarization,
+          1.0e-6);
+    }
+
+    interleaved.destroy();
+    steps.destroy();
+    reference.destroy();
+  }
+
+  /**
+   * Open a polarizable water dimer with the given SCF algorithm.
+   *
+   * @param algorithm The SCF algorithm.
+   * @return The ForceFieldEnergy.
+   */
+  private ForceFieldEnergy createEnergy(String algorithm) {
+    System.setProperty("scf-algorithm", algorithm);
+    System.setProperty("polar-eps", "1.0e-8");
+    ClassLoader classLoader = getClass().getClassLoader();
+    File structure =
+        new File(classLoader.getResource("ffx/potential/structures/water-dimer.xyz").getPath());
+    PotentialsUtils potentialsUtils = new PotentialsUtils();
+    MolecularAssembly molecularAssembly = potentialsUtils.open(structure);
+    return molecularAssembly.getPotentialEnergy();
+  }
+}
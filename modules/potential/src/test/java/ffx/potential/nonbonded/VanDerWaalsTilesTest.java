@@ -0,0 +1,190 @@
+// ******************************************************************************
+//
+// Title:       Force Field X.
+// Description: Force Field X - Software for Molecular Biophysics.
+// Copyright:   Copyright (c) Michael J. Schnieders 2001-2020.
+//
+// This file is part of Force Field X.
+//
+// Force Field X is free software; you can redistribute it and/or modify it
+// under the terms of the GNU General Public License version 3 as published by
+// the Free Software Foundation.
+//
+// Force Field X is distributed in the hope that it will be useful, but WITHOUT
+// ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+// FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+// details.
+//
+// You should have received a copy of the GNU General Public License along with
+// Force Field X; if not, write to the Free Software Foundation, Inc., 59 Temple
+// Place, Suite 330, Boston, MA 02111-1307 USA
+//
+// Linking this library statically or dynamically with other modules is making a
+// combined work based on this library. Thus, the terms and conditions of the
+// GNU General Public License cover the whole combination.
+//
+// As a special exception, the copyright holders of this library give you
+// permission to link this library with independent modules to produce an
+// executable, regardless of the license terms of these independent modules, and
+// to copy and distribute the resulting executable under terms of your choice,
+// provided that you also meet, for each linked independent module, the terms
+// and conditions of the license of that module. An independent module is a
+// module which is not derived from or based on this library. If you modify this
+// library, you may extend this exception to your version of the library, but
+// you are not obligated to do so. If you do not wish to do so, delete this
+// exception statement from your version.
+//
+// ******************************************************************************
+package ffx.potential.nonbonded;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import ffx.potential.ForceFieldEnergy;
+import ffx.potential.MolecularAssembly;
+import ffx.potential.bonded.Atom;
+import ffx.potential.utils.PotentialsUtils;
+import ffx.utilities.FFXTest;
+import java.io.File;
+import org.junit.Test;
+
+/** Test the tiled Van der Waals pair kernel against the scalar kernel and finite differences. */
+public class VanDerWaalsTilesTest extends FFXTest {
+
+  private static final double TOL = 1.0E-8;
+  private static final double GRADIENT_TOL = 1.0E-5;
+  private static final double STEP = 1.0E-5;
+  private static final double CUTOFF = 5.0;
+
+  /** Energy terms turned off to isolate the Van der Waals gradient. */
+  private static final String[] TERMS = {
+    "bondterm", "angleterm", "strbndterm", "ureyterm", "opbendterm", "torsionterm",
+    "strtorsterm", "angtorsterm", "pitorsterm", "tortorterm", "improperterm", "mpoleterm"
+  };
+
+  /** A buffered-14-7 crystal with symmetry mates. */
+  @Test
+  public void testBuffered147() {
+    testTiles("ffx/potential/structures/acetanilide.xyz");
+  }
+
+  /** A Lennard-Jones peptide. */
+  @Test
+  public void testLennardJones() {
+    testTiles("ffx/potential/structures/peptide-oplsaa.xyz");
+  }
+
+  /** Buffered-14-7 pairs inside the multiplicative switch. */
+  @Test
+  public void testBuffered147Taper() {
+    testTaperGradient("ffx/potential/structures/acetanilide.xyz");
+  }
+
+  /** Lennard-Jones pairs inside the multiplicative switch. */
+  @Test
+  public void testLennardJonesTaper() {
+    testTaperGradient("ffx/potential/structures/peptide-oplsaa.xyz");
+  }
+
+  /**
+   * Compare the Van der Waals energy and total gradient computed with and without tiles.
+   *
+   * @param resource The structure resource.
+   */
+  private void testTiles(String resource) {
+    ClassLoader classLoader = getClass().getClassLoader();
+    File structure = new File(classLoader.getResource(resource).getPath());
+    PotentialsUtils potentialsUtils = new PotentialsUtils();
+
+    System.setProperty("vdw-tiles", "false");
+    MolecularAssembly scalarAssembly = potentialsUtils.open(structure);
+    ForceFieldEnergy scalar = scalarAssembly.getPotentialEnergy();
+    int n = scalar.getNumberOfVariables();
+    double[] x = new double[n];
+    double[] g = new double[n];
+    scalar.getCoordinates(x);
+    scalar.energyAndGradient(x, g);
+    double vdwEnergy = scalar.getVanDerWaalsEnergy();
+    int interactions = scalar.getVanDerWaalsInteractions();
+
+    System.setProperty("vdw-tiles", "true");
+    MolecularAssembly tiledAssembly = potentialsUtils.open(structure);
+    ForceFieldEnergy tiled = tiledAssembly.getPotentialEnergy();
+    double[] tiledX = new double[n];
+    double[] tiledG = new double[n];
+    tiled.getCoordinates(tiledX);
+    tiled.energyAndGradient(tiledX, tiledG);
+
+    assertTrue(interactions > 0);
+    assertEquals(interactions, tiled.getVanDerWaalsInteractions());
+    assertEquals(vdwEnergy, tiled.getVanDerWaalsEnergy(), TOL);
+    for (int i = 0; i < n; i++) {
+      assertEquals(g[i], tiledG[i], TOL);
+    }
+
+    scalar.destroy();
+    tiled.destroy();
+  }
+
+  /**
+   * Compare the tiled Van der Waals gradient to central finite differences for each atom with a
+   * partner between the start of the taper (90% of the cutoff) and the cutoff.
+   *
+   * @param resource The structure resource.
+   */
+  private void testTaperGradient(String resource) {
+    ClassLoader classLoader = getClass().getClassLoader();
+    File structure = new File(classLoader.getResource(resource).getPath());
+    System.setProperty("vdw-tiles", "true");
+    System.setProperty("vdw-cutoff", Double.toString(CUTOFF));
+    System.setProperty("ewald-cutoff", Double.toString(CUTOFF));
+    for (String term : TERMS) {
+      System.setProperty(term, "false");
+    }
+    PotentialsUtils potentialsUtils = new PotentialsUtils();
+    MolecularAssembly molecularAssembly = potentialsUtils.open(structure);
+    ForceFieldEnergy forceFieldEnergy = molecularAssembly.getPotentialEnergy();
+    int n = forceFieldEnergy.getNumberOfVariables();
+    double[] x = new double[n];
+    double[] g = new double[n];
+    forceFieldEnergy.getCoordinates(x);
+    forceFieldEnergy.energyAndGradient(x, g);
+
+    // Find atoms with a partner in the taper region.
+    Atom[] atoms = molecularAssembly.getAtomArray();
+    int nAtoms = atoms.length;
+    double cut = 0.9 * CUTOFF;
+    boolean[] tapered = new boolean[nAtoms];
+    int pairs = 0;
+    for (int i = 0; i < nAtoms; i++) {
+      for (int j = i + 1; j < nAtoms; j++) {
+        double r = atoms[i].getXYZ().dist(atoms[j].getXYZ());
+        if (r > cut && r < CUTOFF) {
+          tapered[i] = true;
+          tapered[j] = true;
+          pairs++;
+        }
+      }
+    }
+    assertTrue(pairs > 0);
+
+    for (int i = 0; i < nAtoms; i++) {
+      if (!tapered[i]) {
+        continue;
+      }
+      for (int k = 0; k < 3; k++) {
+        int index = 3 * i + k;
+        double orig = x[index];
+        x[index] = orig + STEP;
+        double ePlus = forceFieldEnergy.energy(x);
+        x[index] = orig - STEP;
+        double eMinus = forceFieldEnergy.energy(x);
+        x[index] = orig;
+        double fd = (ePlus - eMinus) / (2.0 * STEP);
+        assertEquals(" Atom " + (i + 1) + " component " + k, fd, g[index], GRADIENT_TOL);
+      }
+    }
+
+    forceFieldEnergy.destroy();
+  }
+}
@@ -0,0 +1,97 @@
+// ******************************************************************************
+//
+// Title:       Force Field X.
+// Description: Force Field X - Software for Molecular Biophysics.
+// Copyright:   Copyright (c) Michael J. Schnieders 2001-2020.
+//
+// This file is part of Force Field X.
+//
+// Force Field X is free software; you can redistribute it and/or modify it
+// under the terms of the GNU General Public License version 3 as published by
+// the Free Software Foundation.
+//
+// Force Field X is distributed in the hope that it will be useful, but WITHOUT
+// ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+// FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+// details.
+//
+// You should have received a copy of the GNU General Public License along with
+// Force Field X; if not, write to the Free Software Foundation, Inc., 59 Temple
+// Place, Suite 330, Boston, MA 02111-1307 USA
+//
+// Linking this library statically or dynamically with other modules is making a
+// combined work based on this library. Thus, the terms and conditions of the
+// GNU General Public License cover the whole combination.
+//
+// As a special exception, the copyright holders of this library give you
+// permission to link this library with independent modules to produce an
+// executable, regardless of the license terms of these independent modules, and
+// to copy and distribute the resulting executable under terms of your choice,
+// provided that you also meet, for each linked independent module, the terms
+// and conditions of the license of that module. An independent module is a
+// module which is not derived from or based on this library. If you modify this
+// library, you may extend this exception to your version of the library, but
+// you are not obligated to do so. If you do not wish to do so, delete this
+// exception statement from your version.
+//
+// ******************************************************************************
+package ffx.potential.nonbonded.implicit;
+
+import static org.junit.Assert.assertEquals;
+
+import ffx.potential.ForceFieldEnergy;
+import ffx.potential.MolecularAssembly;
+import ffx.potential.utils.PotentialsUtils;
+import java.io.File;
+import org.junit.After;
+import org.junit.Test;
+
+/** Test incremental Born radii updates against a full recomputation. */
+public class BornRadiiRegionTest {
+
+  private static final double TOL = 1.0E-10;
+
+  @After
+  public void tearDown() {
+    System.clearProperty("gk-incremental");
+  }
+
+  /** After moving a few atoms, the incremental Born radii must match the full Born radii. */
+  @Test
+  public void testIncrementalBornRadii() {
+    ClassLoader classLoader = getClass().getClassLoader();
+    File structure =
+        new File(classLoader.getResource("ffx/potential/structures/ethylbenzene.xyz").getPath());
+    PotentialsUtils potentialsUtils = new PotentialsUtils();
+
+    System.setProperty("gk-incremental", "true");
+    MolecularAssembly incrementalAssembly = potentialsUtils.open(structure);
+    ForceFieldEnergy incremental = incrementalAssembly.getPotentialEnergy();
+    int n = incremental.getNumberOfVariables();
+    double[] x = new double[n];
+    incremental.getCoordinates(x);
+    // The first evaluation is a full recomputation that caches the descreening integrals.
+    incremental.energy(x, false);
+    // Move two atoms, which are then updated incrementally.
+    x[0] += 0.2;
+    x[1] -= 0.1;
+    x[3 * 5 + 2] += 0.15;
+    double incrementalEnergy = incremental.energy(x, false);
+    double[] incrementalBorn = incremental.getGK().getBornRadii().clone();
+
+    System.setProperty("gk-incremental", "false");
+    MolecularAssembly fullAssembly = potentialsUtils.open(structure);
+    ForceFieldEnergy full = fullAssembly.getPotentialEnergy();
+    double fullEnergy = full.energy(x, false);
+    double[] fullBorn = full.getGK().getBornRadii();
+
+    assertEquals(fullBorn.length, incrementalBorn.length);
+    for (int i = 0; i < fullBorn.length; i++) {
+      assertEquals(fullBorn[i], incrementalBorn[i], TOL);
+    }
+    assertEquals(fullEnergy, incrementalEnergy, 1.0E-8);
+
+    incremental.destroy();
+    full.destroy();
+  }
+}
@@ -0,0 +1,123 @@
+// ******************************************************************************
+//
+// Title:       Force Field X.
+// Description: Force Field X - Software for Molecular Biophysics.
+// Copyright:   Copyright (c) Michael J. Schnieders 2001-2020.
+//
+// This file is part of Force Field X.
+//
+// Force Field X is free software; you can redistribute it and/or modify it
+// under the terms of the GNU General Public License version 3 as published by
+// the Free Software Foundation.
+//
+// Force Field X is distributed in the hope that it will be useful, but WITHOUT
+// ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+// FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+// details.
+//
+// You should have received a copy of the GNU General Public License along with
+// Force Field X; if not, write to the Free Software Foundation, Inc., 59 Temple
+// Place, Suite 330, Boston, MA 02111-1307 USA
+//
+// Linking this library statically or dynamically with other modules is making a
+// combined work based on this library. Thus, the terms and conditions of the
+// GNU General Public License cover the whole combination.
+//
+// As a special exception, the copyright holders of this library give you
+// permission to link this library with independent modules to produce an
+// executable, regardless of the license terms of these independent modules, and
+// to copy and distribute the resulting executable under terms of your choice,
+// provided that you also meet, for each linked independent module, the terms
+// and conditions of the license of that module. An independent module is a
+// module which is not derived from or based on this library. If you modify this
+// library, you may extend this exception to your version of the library, but
+// you are not obligated to do so. If you do not wish to do so, delete this
+// exception statement from your version.
+//
+package ffx.potential.nonbonded.octree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import edu.rit.pj.ParallelTeam;
+import java.util.Random;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Compare the FastMultipoleMethod to direct summation. */
+public class FastMultipoleMethodTest {
+
+  private final int nSites = 800;
+  private final double[][] xyz = new double[3][nSites];
+  private final double[][] multipole = new double[nSites][10];
+  private ParallelTeam parallelTeam;
+
+  @Before
+  public void setUp() {
+    parallelTeam = new ParallelTeam(2);
+    Random random = new Random(2020);
+    for (int i = 0; i < nSites; i++) {
+      for (int j = 0; j < 3; j++) {
+        xyz[j][i] = 40.0 * random.nextDouble();
+      }
+      for (int j = 0; j < 10; j++) {
+        multipole[i][j] = 0.3 * random.nextGaussian();
+      }
+      // Traceless quadrupole.
+      double trace = (multipole[i][4] + multipole[i][5] + multipole[i][6]) / 3.0;
+      multipole[i][4] -= trace;
+      multipole[i][5] -= trace;
+      multipole[i][6] -= trace;
+    }
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    parallelTeam.shutdown();
+  }
+
+  /** The potential and field should converge toward direct summation with expansion order. */
+  @Test
+  public void testAgainstDirectSum() {
+    double[][] reference = new double[nSites][FastMultipoleMethod.PHI_COUNT];
+    double[][] phi = new double[nSites][FastMultipoleMethod.PHI_COUNT];
+
+    FastMultipoleMethod fmm = new FastMultipoleMethod(4, 16, 0.5, parallelTeam);
+    fmm.directSum(xyz, multipole, reference);
+    fmm.computePotential(xyz, multipole, phi);
+    double[] lowOrder = fmm.error(reference, phi);
+
+    fmm = new FastMultipoleMethod(8, 16, 0.5, parallelTeam);
+    fmm.computePotential(xyz, multipole, phi);
+    double[] highOrder = fmm.error(reference, phi);
+
+    assertTrue(" Order 4 FMM potential error.", lowOrder[0] < 1.0e-3);
+    assertTrue(" Order 4 FMM field error.", lowOrder[1] < 1.0e-3);
+    assertTrue(" Order 8 FMM potential error.", highOrder[0] < 1.0e-6);
+    assertTrue(" Order 8 FMM field error.", highOrder[1] < 1.0e-6);
+    assertTrue(" Increasing the order should reduce the error.", highOrder[0] < lowOrder[0]);
+  }
+
+  /** Removing a pair with addPairPotential should match the analytic charge-dipole result. */
+  @Test
+  public void testPairPotential() {
+    double[][] pairXYZ = {{0.0, 3.0}, {0.0, 0.0}, {0.0, 0.0}};
+    double[][] pairMultipole = new double[2][10];
+    // A unit dipole along x and a traceless quadrupole at x = 3.
+    pairMultipole[1][1] = 1.0;
+    pairMultipole[1][4] = 2.0;
+    pairMultipole[1][5] = -1.0;
+    pairMultipole[1][6] = -1.0;
+    double[][] phi = new double[2][FastMultipoleMethod.PHI_COUNT];
+    FastMultipoleMethod fmm = new FastMultipoleMethod(4, 16, 0.5, parallelTeam);
+    fmm.computePotential(pairXYZ, pairMultipole, phi);
+    // Dipole: d.r / r^3 = -1/9; Quadrupole: Qxx x^2 / r^5 = 2 / 27.
+    double expected = -1.0 / 9.0 + 2.0 / 27.0;
+    assertEquals(" Pair potential.", expected, phi[0][0], 1.0e-12);
+    fmm.addPairPotential(pairXYZ, pairMultipole, 0, 1, -1.0, phi[0]);
+    for (int i = 0; i < FastMultipoleMethod.PHI_COUNT; i++) {
+      assertEquals(" Masked pair potential.", 0.0, phi[0][i], 1.0e-12);
+    }
+  }
+}
@@ -0,0 +1,141 @@
+// ******************************************************************************
+//
+// Title:       Force Field X.
+// Description: Force Field X - Software for Molecular Biophysics.
+// Copyright:   Copyright (c) Michael J. Schnieders 2001-2020.
+//
+// This file is part of Force Field X.
+//
+// Force Field X is free software; you can redistribute it and/or modify it
+// under the terms of the GNU General Public License version 3 as published by
+// the Free Software Foundation.
+//
+// Force Field X is distributed in the hope that it will be useful, but WITHOUT
+// ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+// FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+// details.
+//
+// You should have received a copy of the GNU General Public License along with
+// Force Field X; if not, write to the Free Software Foundation, Inc., 59 Temple
+// Place, Suite 330, Boston, MA 02111-1307 USA
+//
+// Linking this library statically or dynamically with other modules is making a
+// combined work based on this library. Thus, the terms and conditions of the
+// GNU General Public License cover the whole combination.
+//
+// As a special exception, the copyright holders of this library give you
+// permission to link this library with independent modules to produce an
+// executable, regardless of the license terms of these independent modules, and
+// to copy and distribute the resulting executable under terms of your choice,
+// provided that you also meet, for each linked independent module, the terms
+// and conditions of the license of that module. An independent module is a
+// module which is not derived from or based on this library. If you modify this
+// library, you may extend this exception to your version of the library, but
+// you are not obligated to do so. If you do not wish to do so, delete this
+// exception statement from your version.
+//
+// ******************************************************************************
+package ffx.potential.nonbonded.pme;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/** Test propagation of auxiliary induced dipoles by the InertialDipoles class. */
+public class InertialDipolesTest {
+
+  private final int nAtoms = 3;
+  /** Number of steps of history needed before propagation. */
+  private final int history = 6;
+
+  /**
+   * Model induced dipoles that vary smoothly with time.
+   *
+   * @param step The time step.
+   * @param dipole The induced dipoles to set.
+   */
+  private void target(int step, double[][] dipole) {
+    for (int i = 0; i < nAtoms; i++) {
+      for (int j = 0; j < 3; j++) {
+        dipole[i][j] = Math.sin(0.05 * step + i + 0.3 * j);
+      }
+    }
+  }
+
+  @Test
+  public void testConvergence() {
+    InertialDipoles inertialDipoles = new InertialDipoles(nAtoms);
+    double[][] dipole = new double[nAtoms][3];
+    double[][] dipoleCR = new double[nAtoms][3];
+
+    // Seed the history with zero dipoles.
+    for (int step = 0; step < history; step++) {
+      assertFalse(inertialDipoles.isInitialized());
+      inertialDipoles.propagate(dipole, dipoleCR, false);
+    }
+    assertTrue(inertialDipoles.isInitialized());
+
+    // Couple to constant dipoles; the dissipation damps the auxiliary dipole oscillations.
+    double[][] constant = {{1.0, -2.0, 0.5}, {0.0, 0.25, -1.0}, {3.0, 1.0, 2.0}};
+    double[][] prediction = new double[nAtoms][3];
+    for (int step = 0; step < 2000; step++) {
+      for (int i = 0; i < nAtoms; i++) {
+        System.arraycopy(constant[i], 0, dipole[i], 0, 3);
+        System.arraycopy(constant[i], 0, dipoleCR[i], 0, 3);
+      }
+      inertialDipoles.propagate(dipole, dipoleCR, false);
+    }
+    inertialDipoles.predict(prediction, dipoleCR);
+    for (int i = 0; i < nAtoms; i++) {
+      assertArrayEquals(constant[i], prediction[i], 1.0e-6);
+      assertArrayEquals(constant[i], dipoleCR[i], 1.0e-6);
+    }
+    assertEquals(0.0, inertialDipoles.getRMSResidual(), 1.0e-6);
+  }
+
+  @Test
+  public void testTracking() {
+    InertialDipoles inertialDipoles = new InertialDipoles(nAtoms);
+    double[][] dipole = new double[nAtoms][3];
+    double[][] dipoleCR = new double[nAtoms][3];
+    for (int step = 0; step < 500; step++) {
+      target(step, dipole);
+      target(step, dipoleCR);
+      inertialDipoles.propagate(dipole, dipoleCR, false);
+      if (inertialDipoles.isInitialized()) {
+        // The auxiliary dipoles stay close to smoothly varying induced dipoles.
+        assertTrue(inertialDipoles.getRMSResidual() < 1.0e-2);
+      }
+    }
+  }
+
+  @Test
+  public void testZeroSCFAndReset() {
+    InertialDipoles inertialDipoles = new InertialDipoles(nAtoms);
+    double[][] dipole = new double[nAtoms][3];
+    double[][] dipoleCR = new double[nAtoms][3];
+    double[][] auxiliary = new double[nAtoms][3];
+    double[][] auxiliaryCR = new double[nAtoms][3];
+    for (int step = 0; step < 20; step++) {
+      inertialDipoles.predict(auxiliary, auxiliaryCR);
+      target(step, dipole);
+      target(step, dipoleCR);
+      boolean initialized = inertialDipoles.isInitialized();
+      inertialDipoles.propagate(dipole, dipoleCR, true);
+      if (initialized) {
+        // With zero SCF cycles, the induced dipoles are replaced by the auxiliary dipoles.
+        for (int i = 0; i < nAtoms; i++) {
+          assertArrayEquals(auxiliary[i], dipole[i], 0.0);
+          assertArrayEquals(auxiliaryCR[i], dipoleCR[i], 0.0);
+        }
+      }
+    }
+    assertTrue(inertialDipoles.isInitialized());
+    inertialDipoles.reset();
+    assertFalse(inertialDipoles.isInitialized());
+    assertEquals(0.0, inertialDipoles.getRMSResidual(), 0.0);
+  }
+}
@@ -0,0 +1,112 @@
+// ******************************************************************************
+//
+// Title:       Force Field X.
+// Description: Force Field X - Software for Molecular Biophysics.
+// Copyright:   Copyright (c) Michael J. Schnieders 2001-2020.
+//
+// This file is part of Force Field X.
+//
+// Force Field X is free software; you can redistribute it and/or modify it
+// under the terms of the GNU General Public License version 3 as published by
+// the Free Software Foundation.
+//
+// Force Field X is distributed in the hope that it will be useful, but WITHOUT
+// ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+// FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+// details.
+//
+// You should have received a copy of the GNU General Public License along with
+// Force Field X; if not, write to the Free Software Foundation, Inc., 59 Temple
+// Place, Suite 330, Boston, MA 02111-1307 USA
+//
+// Linking this library statically or dynamically with other modules is making a
+// combined work based on this library. Thus, the terms and conditions of the
+// GNU General Public License cover the whole combination.
+//
+// As a special exception, the copyright holders of this library give you
+// permission to link this library with independent modules to produce an
+// executable, regardless of the license terms of these independent modules, and
+// to copy and distribute the resulting executable under terms of your choice,
+// provided that you also meet, for each linked independent module, the terms
+// and conditions of the license of that module. An independent module is a
+// module which is not derived from or based on this library. If you modify this
+// library, you may extend this exception to your version of the library, but
+// you are not obligated to do so. If you do not wish to do so, delete this
+// exception statement from your version.
+//
+// ******************************************************************************
+package ffx.potential.nonbonded.pme;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/** Test the PMEThreadBalancer against a model of real and reciprocal space timings. */
+public class PMEThreadBalancerTest {
+
+  private final int nThreads = 8;
+  private final int interval = 5;
+  /** Real space work (thread-nanoseconds). */
+  private final double realWork = 6.0e9;
+  /** Reciprocal space work (thread-nanoseconds). */
+  private final double reciprocalWork = 2.0e9;
+
+  /**
+   * Time one modelled evaluation and pass the timings to the balancer.
+   *
+   * @param balancer The PMEThreadBalancer.
+   * @param overhead Additional time of a concurrent evaluation.
+   */
+  private void evaluate(PMEThreadBalancer balancer, double overhead) {
+    double realTime = realWork / balancer.getRealThreads();
+    double reciprocalTime = reciprocalWork / balancer.getReciprocalThreads();
+    double totalTime;
+    if (balancer.isConcurrent()) {
+      totalTime = Math.max(realTime, reciprocalTime) + overhead;
+    } else {
+      // Running the parts back to back pays for an extra synchronization.
+      totalTime = realTime + reciprocalTime + 0.2e9;
+    }
+    balancer.update((long) realTime, (long) reciprocalTime, (long) totalTime);
+  }
+
+  @Test
+  public void testConvergedSplit() {
+    PMEThreadBalancer balancer = new PMEThreadBalancer(nThreads, interval);
+    assertFalse(balancer.isConcurrent());
+    for (int i = 0; i < 200; i++) {
+      evaluate(balancer, 0.05e9);
+    }
+    // Work is balanced with 6 real space threads and 2 reciprocal space threads.
+    assertTrue(balancer.isConcurrent());
+    assertEquals(6, balancer.getRealThreads());
+    assertEquals(2, balancer.getReciprocalThreads());
+  }
+
+  @Test
+  public void testSequentialFallback() {
+    PMEThreadBalancer balancer = new PMEThreadBalancer(nThreads, interval);
+    int sequential = 0;
+    int steps = 500;
+    for (int i = 0; i < steps; i++) {
+      evaluate(balancer, 1.0e9);
+      if (!balancer.isConcurrent()) {
+        sequential++;
+      }
+    }
+    // Concurrent splits are only retried periodically once found to be slower.
+    assertTrue(sequential > 0.8 * steps);
+  }
+
+  @Test
+  public void testSingleThread() {
+    PMEThreadBalancer balancer = new PMEThreadBalancer(1, interval);
+    for (int i = 0; i < 50; i++) {
+      assertFalse(balancer.update(1000, 1000, 2000));
+    }
+    assertFalse(balancer.isConcurrent());
+    assertEquals(1, balancer.getRealThreads());
+  }
+}
@@ -0,0 +1,203 @@
+// ******************************************************************************
+//
+// Title:       Force Field X.
+// Description: Force Field X - Software for Molecular Biophysics.
+// Copyright:   Copyright (c) Michael J. Schnieders 2001-2020.
+//
+// This file is part of Force Field X.
+//
+// Force Field X is free software; you can redistribute it and/or modify it
+// under the terms of the GNU General Public License version 3 as published by
+// the Free Software Foundation.
+//
+// Force Field X is distributed in the hope that it will be useful, but WITHOUT
+// ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+// FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+// details.
+//
+// You should have received a copy of the GNU General Public License along with
+// Force Field X; if not, write to the Free Software Foundation, Inc., 59 Temple
+// Place, Suite 330, Boston, MA 02111-1307 USA
+//
+// Linking this library statically or dynamically with other modules is making a
+// combined work based on this library. Thus, the terms and conditions of the
+// GNU General Public License cover the whole combination.
+//
+// As a special exception, the copyright holders of this library give you
+// permission to link this library with independent modules to produce an
+// executable, regardless of the license terms of these independent modules, and
+// to copy and distribute the resulting executable under terms of your choice,
+// provided that you also meet, for each linked independent module, the terms
+// and conditions of the license of that module. An independent module is a
+// module which is not derived from or based on this library. If you modify this
+// library, you may extend this exception to your version of the library, but
+// you are not obligated to do so. If you do not wish to do so, delete this
+// exception statement from your version.
+//
+// ******************************************************************************
+package ffx.potential.parsers;
+
+import static java.lang.String.format;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import ffx.utilities.FFXTest;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Test the ByteLineReader against String based parsing.
+ *
+ * @author Michael J. Schnieders
+ * @since 1.0
+ */
+public class ByteLineReaderTest extends FFXTest {
+
+  /** Test line handling, including CRLF terminators, blank lines and lines longer than the buffer. */
+  @Test
+  public void testLines() throws IOException {
+    StringBuilder longLine = new StringBuilder();
+    for (int i = 0; i < 100; i++) {
+      longLine.append(" token").append(i);
+    }
+    String text = "  first line \r\n\n" + longLine + "\nlast";
+    ByteLineReader reader = reader(text, 16);
+    assertTrue(reader.readLine());
+    assertEquals("  first line ", reader.getLine());
+    reader.trim();
+    assertEquals("first line", reader.getLine());
+    assertTrue(reader.startsWith("first"));
+    assertTrue(reader.readLine());
+    assertTrue(reader.isBlank());
+    assertTrue(reader.readLine());
+    assertEquals(longLine.toString(), reader.getLine());
+    assertEquals(100, reader.tokenize());
+    assertTrue(reader.tokenEquals(99, "token99"));
+    assertTrue(reader.readLine());
+    assertEquals("last", reader.getLine());
+    assertFalse(reader.ready());
+    assertFalse(reader.readLine());
+    reader.close();
+  }
+
+  /** Test fixed column parsing of a PDB ATOM record. */
+  @Test
+  public void testPDBColumns() throws IOException {
+    String line =
+        "ATOM      2  CA  ILE A  16      60.793  72.149  -9.511  1.00  6.91           C";
+    ByteLineReader reader = reader(line, 128);
+    assertTrue(reader.readLine());
+    assertTrue(reader.fieldEquals(0, 6, "ATOM"));
+    assertFalse(reader.fieldEquals(0, 6, "ATOM  X"));
+    assertTrue(reader.fieldEquals(12, 16, "CA"));
+    assertTrue(reader.fieldEquals(17, 20, "ILE"));
+    assertEquals('A', reader.charAt(21));
+    assertEquals(' ', reader.charAt(200));
+    assertEquals(16, reader.parseInt(22, 26));
+    assertEquals(60.793, reader.parseDouble(30, 38), 0.0);
+    assertEquals(72.149, reader.parseDouble(38, 46), 0.0);
+    assertEquals(-9.511, reader.parseDouble(46, 54), 0.0);
+    assertEquals(6.91, reader.parseDouble(60, 66), 0.0);
+  }
+
+  /** Parsed doubles must be identical to Double.parseDouble. */
+  @Test
+  public void testParseDouble() throws IOException {
+    Random random = new Random(1);
+    String[] formats = {"%.3f", "%.6f", "%.8f", "%.12f", "%.3e", "%.0f", "%.17f"};
+    StringBuilder sb = new StringBuilder();
+    int n = 10000;
+    String[] values = new String[n];
+    for (int i = 0; i < n; i++) {
+      double value = (random.nextDouble() - 0.5) * Math.pow(10.0, random.nextInt(8) - 2);
+      values[i] = format(formats[i % formats.length], value);
+      sb.append(values[i]).append(i % 2 == 0 ? " " : "\n");
+    }
+    sb.append("+1.5 -0 .25 7. 0.000000000000000000000001");
+    ByteLineReader reader = reader(sb.toString(), 64);
+    int k = 0;
+    while (reader.readLine()) {
+      int nTokens = reader.tokenize();
+      for (int t = 0; t < nTokens; t++) {
+        double expected = (k < n) ? Double.parseDouble(values[k]) : Double.NaN;
+        double actual = reader.parseDoubleToken(t);
+        if (k < n) {
+          assertEquals(Double.doubleToLongBits(expected), Double.doubleToLongBits(actual));
+        }
+        k++;
+      }
+    }
+    assertEquals(n + 5, k);
+  }
+
+  /**
+   * Compare parsing XYZ atom records with ByteLineReader and BufferedReader/String.split. This
+   * timing comparison only runs with ffx.ci set to true.
+   */
+  @Test
+  public void testParseXYZBenchmark() throws IOException {
+    if (!ffxCI) {
+      logger.info(" Skipping the ByteLineReader benchmark: use ffx.ci true to enable!");
+      return;
+    }
+    Random random = new Random(2);
+    int nLines = 100000;
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < nLines; i++) {
+      sb.append(format("%6d  C    %11.6f %11.6f %11.6f     1 %6d %6d\n", i + 1,
+          random.nextGaussian() * 20.0, random.nextGaussian() * 20.0,
+          random.nextGaussian() * 20.0, i + 2, i));
+    }
+    byte[] bytes = sb.toString().getBytes(StandardCharsets.US_ASCII);
+
+    double stringSum = 0.0;
+    double byteSum = 0.0;
+    long stringTime = 0;
+    long byteTime = 0;
+    for (int iteration = 0; iteration < 3; iteration++) {
+      stringTime = -System.nanoTime();
+      stringSum = 0.0;
+      try (BufferedReader br = new BufferedReader(
+          new InputStreamReader(new ByteArrayInputStream(bytes), StandardCharsets.US_ASCII))) {
+        String data = br.readLine();
+        while (data != null) {
+          String[] tokens = data.trim().split(" +");
+          stringSum += Double.parseDouble(tokens[2]) + Double.parseDouble(tokens[3])
+              + Double.parseDouble(tokens[4]);
+          data = br.readLine();
+        }
+      }
+      stringTime += System.nanoTime();
+
+      byteTime = -System.nanoTime();
+      byteSum = 0.0;
+      try (ByteLineReader reader = reader(bytes)) {
+        while (reader.readLine()) {
+          reader.tokenize();
+          byteSum += reader.parseDoubleToken(2) + reader.parseDoubleToken(3)
+              + reader.parseDoubleToken(4);
+        }
+      }
+      byteTime += System.nanoTime();
+    }
+
+    assertEquals(stringSum, byteSum, 0.0);
+    logger.info(format(" Parsed %d XYZ records: BufferedReader/split %8.3f ms, ByteLineReader %8.3f ms",
+        nLines, stringTime * 1.0e-6, byteTime * 1.0e-6));
+  }
+
+  private static ByteLineReader reader(String text, int bufferSize) {
+    return new ByteLineReader(
+        new ByteArrayInputStream(text.getBytes(StandardCharsets.US_ASCII)), bufferSize);
+  }
+
+  private static ByteLineReader reader(byte[] bytes) {
+    return new ByteLineReader(new ByteArrayInputStream(bytes), 1 << 16);
+  }
+}
@@ -0,0 +1,261 @@
+// ******************************************************************************
+//
+// Title:       Force Field X.
+// Description: Force Field X - Software for Molecular Biophysics.
+// Copyright:   Copyright (c) Michael J. Schnieders 2001-2020.
+//
+// This file is part of Force Field X.
+//
+// Force Field X is free software; you can redistribute it and/or modify it
+// under the terms of the GNU General Public License version 3 as published by
+// the Free Software Foundation.
+//
+// Force Field X is distributed in the hope that it will be useful, but WITHOUT
+// ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+// FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+// details.
+//
+// You should have received a copy of the GNU General Public License along with
+// Force Field X; if not, write to the Free Software Foundation, Inc., 59 Temple
+// Place, Suite 330, Boston, MA 02111-1307 USA
+//
+// Linking this library statically or dynamically with other modules is making a
+// combined work based on this library. Thus, the terms and conditions of the
+// GNU General Public License cover the whole combination.
+//
+// As a special exception, the copyright holders of this library give you
+// permission to link this library with independent modules to produce an
+// executable, regardless of the license terms of these independent modules, and
+// to copy and distribute the resulting executable under terms of your choice,
+// provided that you also meet, for each linked independent module, the terms
+// and conditions of the license of that module. An independent module is a
+// module which is not derived from or based on this library. If you modify this
+// library, you may extend this exception to your version of the library, but
+// you are not obligated to do so. If you do not wish to do so, delete this
+// exception statement from your version.
+//
+// ******************************************************************************
+package ffx.potential.parsers;
+
+import static java.lang.String.format;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import ffx.crystal.Crystal;
+import ffx.potential.MolecularAssembly;
+import ffx.potential.bonded.Atom;
+import ffx.potential.utils.PotentialsUtils;
+import ffx.utilities.FFXTest;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+/**
+ * Round-trip tests of reading the snapshots of multi-model PDB files and XYZ archives with
+ * readNext.
+ *
+ * @author Michael J. Schnieders
+ */
+public class ReadNextTest extends FFXTest {
+
+  private static final String STRUCTURES = "ffx/potential/structures/";
+
+  /**
+   * Read the models of a multi-model PDB file, including models whose records are reordered so that
+   * residues of the same name change places.
+   */
+  @Test
+  public void testPDBModels() throws IOException {
+    List<String> records = new ArrayList<>();
+    for (String line : Files.readAllLines(resource("lys-lys.pdb").toPath())) {
+      if (line.startsWith("ATOM") || line.startsWith("HETATM")) {
+        records.add(line);
+      }
+    }
+    // Swap the records of the first (residue 2) and second (residue 4) lysine.
+    List<String> lys2 = new ArrayList<>();
+    List<String> lys4 = new ArrayList<>();
+    for (String record : records) {
+      int resSeq = Integer.parseInt(record.substring(22, 26).trim());
+      if (resSeq == 2) {
+        lys2.add(record);
+      } else if (resSeq == 4) {
+        lys4.add(record);
+      }
+    }
+    List<String> reordered = new ArrayList<>();
+    for (String record : records) {
+      if (record.equals(lys2.get(0))) {
+        reordered.addAll(lys4);
+      } else if (record.equals(lys4.get(0))) {
+        reordered.addAll(lys2);
+      } else if (!lys2.contains(record) && !lys4.contains(record)) {
+        reordered.add(record);
+      }
+    }
+    assertEquals(records.size(), reordered.size());
+
+    // Model 1 is read by open; models 4 and 5 change the record order.
+    int nModels = 6;
+    Random random = new Random(1);
+    List<Map<String, double[]>> expected = new ArrayList<>();
+    StringBuilder sb = new StringBuilder();
+    for (int m = 1; m <= nModels; m++) {
+      List<String> model = (m == 4) ? reordered : records;
+      Map<String, double[]> coordinates = new HashMap<>();
+      sb.append(format("MODEL     %4d\n", m));
+      for (String record : model) {
+        double[] xyz = new double[3];
+        StringBuilder columns = new StringBuilder();
+        for (int k = 0; k < 3; k++) {
+          double x = Double.parseDouble(record.substring(30 + 8 * k, 38 + 8 * k).trim());
+          String field = format("%8.3f", x + (m == 1 ? 0.0 : 0.2 * random.nextGaussian()));
+          xyz[k] = Double.parseDouble(field.trim());
+          columns.append(field);
+        }
+        coordinates.put(key(record.substring(12, 16), record.substring(22, 26)), xyz);
+        sb.append(record, 0, 30).append(columns).append(record.substring(54)).append("\n");
+      }
+      sb.append("ENDMDL\n");
+      expected.add(coordinates);
+    }
+    sb.append("END\n");
+
+    Path path = registerTemporaryDirectory();
+    File pdb = path.resolve("lys-lys-models.pdb").toFile();
+    Files.write(pdb.toPath(), sb.toString().getBytes(StandardCharsets.US_ASCII));
+
+    PotentialsUtils potentialsUtils = new PotentialsUtils();
+    MolecularAssembly molecularAssembly = potentialsUtils.open(pdb);
+    SystemFilter filter = potentialsUtils.getFilter();
+    assertTrue(filter instanceof PDBFilter);
+    assertModel(molecularAssembly, expected.get(0), 1);
+    for (int m = 2; m <= nModels; m++) {
+      assertTrue(" Model " + m, filter.readNext());
+      assertModel(molecularAssembly, expected.get(m - 1), m);
+    }
+    assertFalse(filter.readNext());
+    filter.closeReader();
+    molecularAssembly.destroy();
+  }
+
+  /** Read the snapshots of an XYZ archive whose unit cell changes from frame to frame. */
+  @Test
+  public void testArchive() throws IOException {
+    Path path = registerTemporaryDirectory();
+    String[] names = {"acetanilide.xyz", "acetanilide.properties", "acetanilide.patch"};
+    for (String name : names) {
+      FileUtils.copyFile(resource(name), path.resolve(name).toFile());
+    }
+    PotentialsUtils potentialsUtils = new PotentialsUtils();
+    MolecularAssembly molecularAssembly =
+        potentialsUtils.open(path.resolve("acetanilide.xyz").toFile());
+    XYZFilter xyzFilter = (XYZFilter) potentialsUtils.getFilter();
+    Atom[] atoms = molecularAssembly.getAtomArray();
+    Crystal crystal = molecularAssembly.getCrystal();
+    Crystal unitCell = crystal.getUnitCell();
+    double[] cell0 = {unitCell.a, unitCell.b, unitCell.c};
+
+    // Write frames with perturbed coordinates and unit cells.
+    int nFrames = 4;
+    Random random = new Random(2);
+    File archive = path.resolve("acetanilide.arc").toFile();
+    double[][] expectedX = new double[nFrames][3 * atoms.length];
+    double[][] expectedCell = new double[nFrames][];
+    for (int f = 0; f < nFrames; f++) {
+      double scale = 1.0 + 0.02 * f;
+      crystal.changeUnitCellParameters(
+          cell0[0] * scale, cell0[1] * scale, cell0[2] * scale, 90.0, 90.0, 90.0);
+      molecularAssembly.getPotentialEnergy().setCrystal(crystal);
+      expectedCell[f] = new double[] {cell0[0] * scale, cell0[1] * scale, cell0[2] * scale};
+      for (int i = 0; i < atoms.length; i++) {
+        double[] xyz = atoms[i].getXYZ(null);
+        for (int k = 0; k < 3; k++) {
+          xyz[k] += 0.1 * random.nextGaussian();
+          expectedX[f][3 * i + k] = xyz[k];
+        }
+        atoms[i].moveTo(xyz[0], xyz[1], xyz[2]);
+      }
+      assertTrue(xyzFilter.writeFile(archive, true, null));
+    }
+    molecularAssembly.destroy();
+
+    molecularAssembly = potentialsUtils.open(archive);
+    SystemFilter filter = potentialsUtils.getFilter();
+    assertTrue(filter instanceof XYZFilter);
+    assertFrame(molecularAssembly, expectedX[0], expectedCell[0], 0);
+    for (int f = 1; f < nFrames; f++) {
+      assertTrue(" Frame " + f, filter.readNext(false, false));
+      assertFrame(molecularAssembly, expectedX[f], expectedCell[f], f);
+    }
+    assertFalse(filter.readNext(false, false));
+
+    // Rewind to the second frame.
+    assertTrue(filter.readNext(true, false));
+    assertFrame(molecularAssembly, expectedX[1], expectedCell[1], 1);
+    filter.closeReader();
+    molecularAssembly.destroy();
+  }
+
+  /**
+   * Check the coordinates of every atom against those of a model.
+   *
+   * @param molecularAssembly The assembly.
+   * @param expected Coordinates keyed by atom name and residue number.
+   * @param model The model number.
+   */
+  private static void assertModel(
+      MolecularAssembly molecularAssembly, Map<String, double[]> expected, int model) {
+    for (Atom atom : molecularAssembly.getAtomArray()) {
+      String key = key(atom.getName(), Integer.toString(atom.getResidueNumber()));
+      double[] xyz = expected.get(key);
+      assertNotNull(format(" Model %d atom %s", model, key), xyz);
+      double[] actual = atom.getXYZ(null);
+      for (int k = 0; k < 3; k++) {
+        assertEquals(format(" Model %d atom %s", model, key), xyz[k], actual[k], 1.0e-6);
+      }
+    }
+  }
+
+  /**
+   * Check the coordinates and unit cell of an archive frame.
+   *
+   * @param molecularAssembly The assembly.
+   * @param x The expected coordinates.
+   * @param cell The expected unit cell axes.
+   * @param frame The frame index.
+   */
+  private static void assertFrame(
+      MolecularAssembly molecularAssembly, double[] x, double[] cell, int frame) {
+    Atom[] atoms = molecularAssembly.getAtomArray();
+    for (int i = 0; i < atoms.length; i++) {
+      double[] actual = atoms[i].getXYZ(null);
+      for (int k = 0; k < 3; k++) {
+        assertEquals(format(" Frame %d atom %d", frame, i + 1), x[3 * i + k], actual[k], 1.0e-6);
+      }
+    }
+    Crystal unitCell = molecularAssembly.getCrystal().getUnitCell();
+    assertEquals(format(" Frame %d a-axis", frame), cell[0], unitCell.a, 1.0e-6);
+    assertEquals(format(" Frame %d b-axis", frame), cell[1], unitCell.b, 1.0e-6);
+    assertEquals(format(" Frame %d c-axis", frame), cell[2], unitCell.c, 1.0e-6);
+  }
+
+  private static String key(String name, String resSeq) {
+    return name.trim() + "-" + resSeq.trim();
+  }
+
+  private File resource(String name) {
+    return new File(getClass().getClassLoader().getResource(STRUCTURES + name).getPath());
+  }
+}
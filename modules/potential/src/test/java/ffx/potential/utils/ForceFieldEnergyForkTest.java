@@ -0,0 +1,133 @@
+// ******************************************************************************
+//
+// Title:       Force Field X.
+// Description: Force Field X - Software for Molecular Biophysics.
+// Copyright:   Copyright (c) Michael J. Schnieders 2001-2020.
+//
+// This file is part of Force Field X.
+//
+// Force Field X is free software; you can redistribute it and/or modify it
+// under the terms of the GNU General Public License version 3 as published by
+// the Free Software Foundation.
+//
+// Force Field X is distributed in the hope that it will be useful, but WITHOUT
+// ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+// FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+// details.
+//
+// You should have received a copy of the GNU General Public License along with
+// Force Field X; if not, write to the Free Software Foundation, Inc., 59 Temple
+// Place, Suite 330, Boston, MA 02111-1307 USA
+//
+// Linking this library statically or dynamically with other modules is making a
+// combined work based on this library. Thus, the terms and conditions of the
+// GNU General Public License cover the whole combination.
+//
+// As a special exception, the copyright holders of this library give you
+// permission to link this library with independent modules to produce an
+// executable, regardless of the license terms of these independent modules, and
+// to copy and distribute the resulting executable under terms of your choice,
+// provided that you also meet, for each linked independent module, the terms
+// and conditions of the license of that module. An independent module is a
+// module which is not derived from or based on this library. If you modify this
+// library, you may extend this exception to your version of the library, but
+// you are not obligated to do so. If you do not wish to do so, delete this
+// exception statement from your version.
+//
+// ******************************************************************************
+package ffx.potential.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import ffx.crystal.Crystal;
+import ffx.potential.ForceFieldEnergy;
+import ffx.potential.MolecularAssembly;
+import java.io.File;
+import org.junit.Test;
+
+/**
+ * Tests forking a ForceFieldEnergy into an independent evaluator with the same topology.
+ *
+ * @author Michael J. Schnieders
+ */
+public class ForceFieldEnergyForkTest {
+
+  private static final double TOL = 1.0E-8;
+
+  /**
+   * A fork of a periodic crystal, whose unit cell is smaller than the cutoff, must reproduce the
+   * energy and gradient of the original with the same replicates cell.
+   */
+  @Test
+  public void testForkCrystal() {
+    testFork("ffx/potential/structures/acetanilide.xyz", 1.0);
+  }
+
+  /** A fork must use the current unit cell of the original, e.g. after an NPT move. */
+  @Test
+  public void testForkChangedUnitCell() {
+    testFork("ffx/potential/structures/acetanilide.xyz", 1.02);
+  }
+
+  /** A fork of an aperiodic peptide must reproduce the energy and gradient of the original. */
+  @Test
+  public void testForkPeptide() {
+    testFork("ffx/potential/structures/LoopClosureTest.pdb", 1.0);
+  }
+
+  /**
+   * Fork the potential of a structure and compare energies and gradients before and after moving a
+   * forked atom.
+   *
+   * @param resource The structure resource.
+   * @param scale Scale factor applied to the unit cell axes of a crystal before forking.
+   */
+  private void testFork(String resource, double scale) {
+    ClassLoader classLoader = getClass().getClassLoader();
+    File structure = new File(classLoader.getResource(resource).getPath());
+    PotentialsUtils potentialsUtils = new PotentialsUtils();
+    MolecularAssembly molecularAssembly = potentialsUtils.open(structure);
+    ForceFieldEnergy forceFieldEnergy = molecularAssembly.getPotentialEnergy();
+    Crystal crystal = forceFieldEnergy.getCrystal();
+    if (scale != 1.0) {
+      Crystal unitCell = crystal.getUnitCell();
+      crystal.changeUnitCellParameters(unitCell.a * scale, unitCell.b * scale, unitCell.c * scale,
+          unitCell.alpha, unitCell.beta, unitCell.gamma);
+      forceFieldEnergy.setCrystal(crystal);
+    }
+    ForceFieldEnergy fork = forceFieldEnergy.fork(1);
+    assertNotSame(forceFieldEnergy, fork);
+
+    int n = forceFieldEnergy.getNumberOfVariables();
+    assertEquals(n, fork.getNumberOfVariables());
+    Crystal forkCrystal = fork.getCrystal();
+    assertNotSame(crystal, forkCrystal);
+    assertSame(crystal.getClass(), forkCrystal.getClass());
+    assertEquals(crystal.getNumSymOps(), forkCrystal.getNumSymOps());
+    assertEquals(crystal.getUnitCell().a, forkCrystal.getUnitCell().a, TOL);
+
+    double[] x = new double[n];
+    forceFieldEnergy.getCoordinates(x);
+    double[] gradient = new double[n];
+    double energy = forceFieldEnergy.energyAndGradient(x, gradient);
+    double[] forkX = new double[n];
+    fork.getCoordinates(forkX);
+    double[] forkGradient = new double[n];
+    assertEquals(energy, fork.energyAndGradient(forkX, forkGradient), TOL);
+    assertArrayEquals(gradient, forkGradient, TOL);
+
+    // Moving the fork must not move the original.
+    forkX[0] += 0.1;
+    double forkEnergy = fork.energy(forkX, false);
+    forceFieldEnergy.getCoordinates(x);
+    assertEquals(energy, forceFieldEnergy.energy(x, false), TOL);
+    fork.getCoordinates(forkX);
+    assertEquals(forkEnergy, fork.energy(forkX, false), TOL);
+
+    fork.destroy();
+    forceFieldEnergy.destroy();
+  }
+}
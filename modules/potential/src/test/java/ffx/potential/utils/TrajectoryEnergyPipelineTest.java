@@ -0,0 +1,302 @@
+// ******************************************************************************
+//
+// Title:       Force Field X.
+// Description: Force Field X - Software for Molecular Biophysics.
+// Copyright:   Copyright (c) Michael J. Schnieders 2001-2020.
+//
+// This file is part of Force Field X.
+//
+// Force Field X is free software; you can redistribute it and/or modify it
+// under the terms of the GNU General Public License version 3 as published by
+// the Free Software Foundation.
+//
+// Force Field X is distributed in the hope that it will be useful, but WITHOUT
+// ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+// FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+// details.
+//
+// You should have received a copy of the GNU General Public License along with
+// Force Field X; if not, write to the Free Software Foundation, Inc., 59 Temple
+// Place, Suite 330, Boston, MA 02111-1307 USA
+//
+// Linking this library statically or dynamically with other modules is making a
+// combined work based on this library. Thus, the terms and conditions of the
+// GNU General Public License cover the whole combination.
+//
+// As a special exception, the copyright holders of this library give you
+// permission to link this library with independent modules to produce an
+// executable, regardless of the license terms of these independent modules, and
+// to copy and distribute the resulting executable under terms of your choice,
+// provided that you also meet, for each linked independent module, the terms
+// and conditions of the license of that module. An independent module is a
+// module which is not derived from or based on this library. If you modify this
+// library, you may extend this exception to your version of the library, but
+// you are not obligated to do so. If you do not wish to do so, delete this
+// exception statement from your version.
+//
+// ******************************************************************************
+package ffx.potential.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import ffx.crystal.Crystal;
+import ffx.potential.ForceFieldEnergy;
+import ffx.potential.MolecularAssembly;
+import ffx.potential.bonded.Atom;
+import ffx.potential.parsers.SystemFilter;
+import ffx.potential.parsers.XYZFilter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the TrajectoryEnergyPipeline on an NPT-like archive of a small periodic crystal, whose
+ * potential uses a replicates cell.
+ *
+ * @author Michael J. Schnieders
+ */
+public class TrajectoryEnergyPipelineTest {
+
+  private static final double TOL = 1.0E-8;
+  private static final int N_FRAMES = 5;
+
+  private final PotentialsUtils potentialsUtils = new PotentialsUtils();
+  private final List<MolecularAssembly> assemblies = new ArrayList<>();
+  private File tempDir;
+  private File archive;
+  /** The assembly whose filter reads the archive for the current pipeline. */
+  private MolecularAssembly reader;
+
+  /** Write an archive whose frames perturb the coordinates and unit cell of acetanilide. */
+  @Before
+  public void setUp() throws IOException {
+    tempDir = Files.createTempDirectory("TrajectoryEnergyPipeline").toFile();
+    String[] resources = {"acetanilide.xyz", "acetanilide.properties", "acetanilide.patch"};
+    ClassLoader classLoader = getClass().getClassLoader();
+    for (String resource : resources) {
+      String path = classLoader.getResource("ffx/potential/structures/" + resource).getPath();
+      FileUtils.copyFile(new File(path), new File(tempDir, resource));
+    }
+
+    MolecularAssembly molecularAssembly = open(new File(tempDir, "acetanilide.xyz"));
+    XYZFilter xyzFilter = (XYZFilter) potentialsUtils.getFilter();
+    ForceFieldEnergy forceFieldEnergy = molecularAssembly.getPotentialEnergy();
+    Atom[] atoms = molecularAssembly.getAtomArray();
+    double[][] x0 = new double[atoms.length][];
+    for (int i = 0; i < atoms.length; i++) {
+      x0[i] = atoms[i].getXYZ(null);
+    }
+    Crystal unitCell = forceFieldEnergy.getCrystal().getUnitCell();
+    double a = unitCell.a;
+    double b = unitCell.b;
+    double c = unitCell.c;
+
+    archive = new File(tempDir, "acetanilide.arc");
+    Random random = new Random(42);
+    for (int f = 0; f < N_FRAMES; f++) {
+      for (int i = 0; i < atoms.length; i++) {
+        atoms[i].moveTo(
+            x0[i][0] + 0.05 * random.nextGaussian(),
+            x0[i][1] + 0.05 * random.nextGaussian(),
+            x0[i][2] + 0.05 * random.nextGaussian());
+      }
+      double scale = 1.0 + 0.01 * f;
+      Crystal crystal = forceFieldEnergy.getCrystal();
+      crystal.changeUnitCellParameters(a * scale, b * scale, c * scale, 90.0, 90.0, 90.0);
+      forceFieldEnergy.setCrystal(crystal);
+      xyzFilter.writeFile(archive, true, null);
+    }
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    for (MolecularAssembly molecularAssembly : assemblies) {
+      molecularAssembly.destroy();
+    }
+    FileUtils.deleteDirectory(tempDir);
+  }
+
+  /** Pipeline energies of each frame must match a serial readNext loop. */
+  @Test
+  public void testSerialEnergies() {
+    double[] serial = serialEnergies();
+
+    // The first frame is read when the archive is opened; the pipeline evaluates the rest.
+    TrajectoryEnergyPipeline pipeline = createPipeline();
+    for (int w = 0; w < 2; w++) {
+      ForceFieldEnergy workerEnergy = fork();
+      double[] workerX = new double[workerEnergy.getNumberOfVariables()];
+      pipeline.addWorker(
+          new MolecularAssembly[] {workerEnergy.getMolecularAssembly()},
+          () -> {
+            workerEnergy.getCoordinates(workerX);
+            return new double[] {workerEnergy.energy(workerX, false)};
+          });
+    }
+
+    double[] energies = new double[N_FRAMES - 1];
+    int nFrames = pipeline.run((frame, result) -> energies[frame] = result[0]);
+    assertEquals(N_FRAMES - 1, nFrames);
+    for (int f = 1; f < N_FRAMES; f++) {
+      assertEquals(" Energy of frame " + f, serial[f], energies[f - 1], TOL);
+    }
+  }
+
+  /** Frames must reach the listener in trajectory order, even if later frames finish first. */
+  @Test
+  public void testFrameOrder() {
+    TrajectoryEnergyPipeline pipeline = createPipeline();
+    AtomicInteger calls = new AtomicInteger();
+    for (int w = 0; w < 3; w++) {
+      ForceFieldEnergy workerEnergy = fork();
+      MolecularAssembly workerAssembly = workerEnergy.getMolecularAssembly();
+      pipeline.addWorker(
+          new MolecularAssembly[] {workerAssembly},
+          () -> {
+            // Delay the frames taken first so that later frames complete before them.
+            int call = calls.getAndIncrement();
+            sleep(50L * Math.max(0, 3 - call));
+            return new double[] {workerAssembly.getAtomArray()[0].getXYZ(null)[0]};
+          });
+    }
+
+    List<Integer> order = new ArrayList<>();
+    List<Double> x = new ArrayList<>();
+    pipeline.run(
+        (frame, result) -> {
+          order.add(frame);
+          x.add(result[0]);
+        });
+    assertEquals(N_FRAMES - 1, order.size());
+    for (int f = 0; f < order.size(); f++) {
+      assertEquals(f, (int) order.get(f));
+    }
+
+    // The results must belong to the frames they are reported for.
+    MolecularAssembly reference = open(archive);
+    SystemFilter filter = potentialsUtils.getFilter();
+    for (int f = 0; f < order.size(); f++) {
+      filter.readNext(false, false);
+      assertEquals(reference.getAtomArray()[0].getXYZ(null)[0], x.get(f), 0.0);
+    }
+  }
+
+  /** An exception thrown by a worker evaluator must be rethrown by run. */
+  @Test
+  public void testWorkerException() {
+    TrajectoryEnergyPipeline pipeline = createPipeline();
+    IllegalArgumentException exception = new IllegalArgumentException(" Evaluator failure.");
+    AtomicInteger calls = new AtomicInteger();
+    for (int w = 0; w < 2; w++) {
+      ForceFieldEnergy workerEnergy = fork();
+      pipeline.addWorker(
+          new MolecularAssembly[] {workerEnergy.getMolecularAssembly()},
+          () -> {
+            if (calls.getAndIncrement() == 1) {
+              throw exception;
+            }
+            return new double[] {0.0};
+          });
+    }
+    try {
+      pipeline.run((frame, result) -> {});
+      fail(" The evaluator exception was not propagated.");
+    } catch (IllegalArgumentException e) {
+      assertSame(exception, e);
+    }
+  }
+
+  /** A worker assembly with a different number of atoms than the archive must be rejected. */
+  @Test(expected = IllegalStateException.class)
+  public void testAtomCountMismatch() {
+    TrajectoryEnergyPipeline pipeline = createPipeline();
+    ClassLoader classLoader = getClass().getClassLoader();
+    File water =
+        new File(classLoader.getResource("ffx/potential/structures/water-dimer.xyz").getPath());
+    MolecularAssembly workerAssembly = open(water);
+    pipeline.addWorker(new MolecularAssembly[] {workerAssembly}, () -> new double[] {0.0});
+    pipeline.run((frame, result) -> {});
+  }
+
+  /**
+   * Compute the energy of each frame of the archive with a serial readNext loop.
+   *
+   * @return The energy of each frame.
+   */
+  private double[] serialEnergies() {
+    MolecularAssembly molecularAssembly = open(archive);
+    SystemFilter filter = potentialsUtils.getFilter();
+    ForceFieldEnergy forceFieldEnergy = molecularAssembly.getPotentialEnergy();
+    double[] x = new double[forceFieldEnergy.getNumberOfVariables()];
+    double[] energies = new double[N_FRAMES];
+    forceFieldEnergy.getCoordinates(x);
+    energies[0] = forceFieldEnergy.energy(x, false);
+    int index = 0;
+    while (filter.readNext()) {
+      index++;
+      forceFieldEnergy.setCrystal(molecularAssembly.getCrystal());
+      forceFieldEnergy.getCoordinates(x);
+      energies[index] = forceFieldEnergy.energy(x, false);
+    }
+    assertEquals(N_FRAMES - 1, index);
+    return energies;
+  }
+
+  /**
+   * Open the archive for reading by a pipeline. The reader's potential is forked by each worker.
+   *
+   * @return The pipeline.
+   */
+  private TrajectoryEnergyPipeline createPipeline() {
+    reader = open(archive);
+    SystemFilter filter = potentialsUtils.getFilter();
+    return new TrajectoryEnergyPipeline(
+        new MolecularAssembly[] {reader}, new SystemFilter[] {filter}, 2);
+  }
+
+  /**
+   * Fork the potential of the pipeline reader.
+   *
+   * @return The forked potential.
+   */
+  private ForceFieldEnergy fork() {
+    ForceFieldEnergy workerEnergy = reader.getPotentialEnergy().fork(1);
+    assemblies.add(workerEnergy.getMolecularAssembly());
+    return workerEnergy;
+  }
+
+  /**
+   * Open a structure and register it for destruction.
+   *
+   * @param file The structure file.
+   * @return The MolecularAssembly.
+   */
+  private MolecularAssembly open(File file) {
+    MolecularAssembly molecularAssembly = potentialsUtils.open(file);
+    assemblies.add(molecularAssembly);
+    return molecularAssembly;
+  }
+
+  /**
+   * Sleep without propagating interrupts as checked exceptions.
+   *
+   * @param millis Milliseconds to sleep.
+   */
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -41,6 +41,9 @@ import static ffx.crystal.Crystal.mod;
 import static java.lang.String.format;
 import static java.util.Arrays.fill;
 import static org.apache.commons.math3.util.FastMath.floor;
+import static org.apache.commons.math3.util.FastMath.max;
+import static org.apache.commons.math3.util.FastMath.min;
+import static org.apache.commons.math3.util.FastMath.sqrt;
 
 import edu.rit.pj.IntegerForLoop;
 import edu.rit.pj.ParallelRegion;
@@ -104,6 +107,12 @@ public class RealSpaceData implements DataContainer {
   private double xweight;
   /** The current value of the state variable lambda. */
   private double lambda = 1.0;
+  /** Optional cache of tricubic spline coefficients for each real space data source. */
+  private SplineCoefficientCache[] coefficientCache;
+  /** The number of cells in each spline coefficient cache. */
+  private int cacheSize;
+  /** If true, cached spline coefficients are stored in single precision. */
+  private boolean cacheFloat;
 
   /**
    * Construct a real space data molecularAssemblies, assumes a real space map with a weight of 1.0
@@ -187,6 +196,8 @@ public class RealSpaceData implements DataContainer {
       }
     }
 
+    initCoefficientCache(properties);
+
     // Initialize the refinement model.
     refinementModel = new RefinementModel(molecularAssemblies);
 
@@ -261,8 +272,15 @@ public class RealSpaceData implements DataContainer {
       }
     }
 
+    // Optionally read only the part of each map that surrounds the model.
+    boolean mapSubregion = properties.getBoolean("mapsubregion", false);
+    double mapSubregionBuffer = properties.getDouble("mapsubregionbuffer", 5.0);
+
     for (int i = 0; i < nRealSpaceData; i++) {
       refinementData[i] = new RealSpaceRefinementData();
+      if (mapSubregion) {
+        setModelRegion(refinementData[i], crystal[i], mapSubregionBuffer);
+      }
       dataFile[i]
           .getRealSpaceFileFilter()
           .readFile(dataFile[i].getFilename(), refinementData[i], properties);
@@ -283,6 +301,8 @@ public class RealSpaceData implements DataContainer {
       logger.info(sb.toString());
     }
 
+    initCoefficientCache(properties);
+
     // now set up the refinement model
     refinementModel = new RefinementModel(molecularAssemblies);
 
@@ -292,6 +312,46 @@ public class RealSpaceData implements DataContainer {
         new RealSpaceRegion(parallelTeam.getThreadCount(), nAtoms, refinementData.length);
   }
 
+  /**
+   * Set the fractional bounding box of the model atoms, padded by a buffer, as the region of the
+   * map to read.
+   *
+   * @param data the refinement data to update.
+   * @param crystal the crystal of the map.
+   * @param buffer the padding in Angstroms.
+   */
+  private void setModelRegion(RealSpaceRefinementData data, Crystal crystal, double buffer) {
+    double[] min = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY};
+    double[] max = {Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+    double[] xyz = new double[3];
+    double[] uvw = new double[3];
+    for (MolecularAssembly molecularAssembly : molecularAssemblies) {
+      for (Atom atom : molecularAssembly.getAtomArray()) {
+        atom.getXYZ(xyz);
+        crystal.toFractionalCoordinates(xyz, uvw);
+        for (int j = 0; j < 3; j++) {
+          min[j] = min(min[j], uvw[j]);
+          max[j] = max(max[j], uvw[j]);
+        }
+      }
+    }
+    if (min[0] > max[0]) {
+      return;
+    }
+    // A Cartesian shift of length buffer moves fractional coordinate j by at most buffer * |A_j|.
+    double[][] a = {
+      {crystal.A00, crystal.A10, crystal.A20},
+      {crystal.A01, crystal.A11, crystal.A21},
+      {crystal.A02, crystal.A12, crystal.A22}
+    };
+    for (int j = 0; j < 3; j++) {
+      double pad = buffer * sqrt(a[j][0] * a[j][0] + a[j][1] * a[j][1] + a[j][2] * a[j][2]);
+      min[j] -= pad;
+      max[j] += pad;
+    }
+    data.setRegion(min, max);
+  }
+
   /**
    * Similar to Potential.destroy(), frees up resources associated with this RealSpaceData.
    *
@@ -420,6 +480,12 @@ public class RealSpaceData implements DataContainer {
    */
   public void setRefinementData(RealSpaceRefinementData[] refinementData) {
     this.refinementData = refinementData;
+    if (coefficientCache != null) {
+      // Cached coefficients refer to the previous maps.
+      for (int i = 0; i < nRealSpaceData; i++) {
+        coefficientCache[i] = new SplineCoefficientCache(refinementData[i], cacheSize, cacheFloat);
+      }
+    }
   }
 
   /** {@inheritDoc} */
@@ -556,6 +622,30 @@ public class RealSpaceData implements DataContainer {
     return gradient;
   }
 
+  /**
+   * Create the optional spline coefficient cache for each real space data source.
+   *
+   * @param properties the properties that control the cache.
+   */
+  private void initCoefficientCache(CompositeConfiguration properties) {
+    if (!properties.getBoolean("splinecache", false)) {
+      coefficientCache = null;
+      return;
+    }
+    cacheSize = properties.getInt("splinecachesize", 1 << 18);
+    cacheFloat = properties.getBoolean("splinecachefloat", false);
+    coefficientCache = new SplineCoefficientCache[nRealSpaceData];
+    for (int i = 0; i < nRealSpaceData; i++) {
+      coefficientCache[i] = new SplineCoefficientCache(refinementData[i], cacheSize, cacheFloat);
+    }
+    if (logger.isLoggable(Level.INFO)) {
+      logger.info(
+          format(
+              "  Spline coefficient cache: %d cells (%s precision)",
+              cacheSize, cacheFloat ? "single" : "double"));
+    }
+  }
+
   /**
    * Getter for the field <code>realSpaceFile</code>.
    *
@@ -677,6 +767,12 @@ public class RealSpaceData implements DataContainer {
 
       double[] target = new double[nData];
       double localdUdL;
+      final double[] xyz = new double[3];
+      final double[] uvw = new double[3];
+      final double[] grad = new double[3];
+      final double[][][] scalar = new double[4][4][4];
+      final double[] coefficients = new double[64];
+      final TriCubicSpline spline = new TriCubicSpline();
 
       @Override
       public void finish() {
@@ -690,13 +786,9 @@ public class RealSpaceData implements DataContainer {
       public void run(int first, int last) throws Exception {
 
         int threadID = getThreadIndex();
-        double[] xyz = new double[3];
-        double[] uvw = new double[3];
-        double[] grad = new double[3];
-        double[][][] scalar = new double[4][4][4];
-        TriCubicSpline spline = new TriCubicSpline();
 
         for (int i = 0; i < getnRealSpaceData(); i++) {
+          SplineCoefficientCache cache = coefficientCache != null ? coefficientCache[i] : null;
 
           // Define the extent of this real space data sources.
           int extX = getRefinementData()[i].getExtent()[0];
@@ -754,7 +846,9 @@ public class RealSpaceData implements DataContainer {
             }
 
             // Fill in scalar 4x4 array for interpolation.
-            if (getRefinementData()[i].isPeriodic()) {
+            if (cache != null) {
+              cache.getCoefficients(ifrx, ifry, ifrz, scalar, coefficients);
+            } else if (getRefinementData()[i].isPeriodic()) {
               for (int ui = ifrx - 1; ui < ifrx + 3; ui++) {
                 int uii = ui - (ifrx - 1);
                 int pui = mod(ui, extX);
@@ -791,7 +885,12 @@ public class RealSpaceData implements DataContainer {
             scale = -1.0 * lambdai * atomicWeight;
             scaledUdL = -1.0 * dUdL * atomicWeight;
 
-            double val = spline.spline(dfrx, dfry, dfrz, scalar, grad);
+            double val;
+            if (cache != null) {
+              val = TriCubicSpline.spline(dfrx, dfry, dfrz, coefficients, grad);
+            } else {
+              val = spline.spline(dfrx, dfry, dfrz, scalar, grad);
+            }
             target[i] += scale * val;
             localdUdL += scaledUdL * val;
 
@@ -37,6 +37,8 @@
 // ******************************************************************************
 package ffx.realspace;
 
+import java.nio.FloatBuffer;
+
 /**
  * RealSpaceRefinementData class.
  *
@@ -49,6 +51,10 @@ public class RealSpaceRefinementData {
   private final int[] extent;
   private final int[] ni;
   private double[] data;
+  /** Map values backed by a memory-mapped file, used when data is null. */
+  private FloatBuffer mappedData;
+  /** Optional fractional bounds {min, max} of the region of the map to read. */
+  private double[][] region;
   private double densityScore;
   private boolean periodic;
 
@@ -76,6 +82,47 @@ public class RealSpaceRefinementData {
    */
   public void setData(double[] data) {
     this.data = data;
+    this.mappedData = null;
+  }
+
+  /**
+   * Getter for the field <code>mappedData</code>.
+   *
+   * @return the memory-mapped map values, or null if the map is held in memory.
+   */
+  public FloatBuffer getMappedData() {
+    return mappedData;
+  }
+
+  /**
+   * Back the map values by a memory-mapped buffer rather than an array. The buffer must be ordered
+   * with X fastest, then Y, then Z, and is only accessed using absolute (thread-safe) reads.
+   *
+   * @param mappedData the memory-mapped map values.
+   */
+  public void setMappedData(FloatBuffer mappedData) {
+    this.mappedData = mappedData;
+    this.data = null;
+  }
+
+  /**
+   * Getter for the field <code>region</code>.
+   *
+   * @return the fractional bounds {min, max} of the region of the map to read, or null to read the
+   *     entire map.
+   */
+  public double[][] getRegion() {
+    return region;
+  }
+
+  /**
+   * Limit reading of the map to a fractional region (for example, around the model).
+   *
+   * @param min the minimum fractional coordinates.
+   * @param max the maximum fractional coordinates.
+   */
+  void setRegion(double[] min, double[] max) {
+    region = new double[][] {min, max};
   }
 
   /**
@@ -145,6 +192,9 @@ public class RealSpaceRefinementData {
    */
   double getDataIndex(int x, int y, int z) {
     int index = x + extent[0] * (y + extent[1] * z);
+    if (data == null) {
+      return mappedData.get(index);
+    }
     return data[index];
   }
 
@@ -0,0 +1,188 @@
+// ******************************************************************************
+//
+// Title:       Force Field X.
+// Description: Force Field X - Software for Molecular Biophysics.
+// Copyright:   Copyright (c) Michael J. Schnieders 2001-2020.
+//
+// This file is part of Force Field X.
+//
+// Force Field X is free software; you can redistribute it and/or modify it
+// under the terms of the GNU General Public License version 3 as published by
+// the Free Software Foundation.
+//
+// Force Field X is distributed in the hope that it will be useful, but WITHOUT
+// ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+// FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+// details.
+//
+// You should have received a copy of the GNU General Public License along with
+// Force Field X; if not, write to the Free Software Foundation, Inc., 59 Temple
+// Place, Suite 330, Boston, MA 02111-1307 USA
+//
+// Linking this library statically or dynamically with other modules is making a
+// combined work based on this library. Thus, the terms and conditions of the
+// GNU General Public License cover the whole combination.
+//
+// As a special exception, the copyright holders of this library give you
+// permission to link this library with independent modules to produce an
+// executable, regardless of the license terms of these independent modules, and
+// to copy and distribute the resulting executable under terms of your choice,
+// provided that you also meet, for each linked independent module, the terms
+// and conditions of the license of that module. An independent module is a
+// module which is not derived from or based on this library. If you modify this
+// library, you may extend this exception to your version of the library, but
+// you are not obligated to do so. If you do not wish to do so, delete this
+// exception statement from your version.
+//
+package ffx.realspace;
+
+import static ffx.crystal.Crystal.mod;
+
+import ffx.numerics.spline.TriCubicSpline;
+
+/**
+ * The SplineCoefficientCache stores the tricubic spline polynomial coefficients of recently used
+ * map cells, so that evaluating the map at an atom requires only a lookup and a polynomial
+ * evaluation instead of gathering 64 map values and transforming them again.
+ *
+ * <p>The cache is direct mapped with a fixed number of slots; a cell whose slot is occupied by
+ * another cell evicts it. Coefficients are built lazily on first use and may optionally be stored
+ * in single precision to halve the memory footprint. Entries are immutable, so threads can share
+ * the cache without locking (two threads may occasionally build the same cell).
+ *
+ * @author Michael J. Schnieders
+ * @since 1.0
+ */
+public class SplineCoefficientCache {
+
+  private final RealSpaceRefinementData refinementData;
+  private final boolean useFloat;
+  private final int mask;
+  private final Entry[] entries;
+
+  /**
+   * Constructor for a SplineCoefficientCache.
+   *
+   * @param refinementData the map to interpolate.
+   * @param size the requested number of cached cells (rounded up to a power of 2).
+   * @param useFloat if true, coefficients are stored in single precision.
+   */
+  public SplineCoefficientCache(
+      RealSpaceRefinementData refinementData, int size, boolean useFloat) {
+    this.refinementData = refinementData;
+    this.useFloat = useFloat;
+    int capacity = Integer.highestOneBit(Math.max(1, size - 1)) << 1;
+    // Do not allocate more slots than there are cells in the map.
+    int[] extent = refinementData.getExtent();
+    long nCells = (long) extent[0] * extent[1] * extent[2];
+    while (capacity > 1 && capacity / 2 >= nCells) {
+      capacity /= 2;
+    }
+    mask = capacity - 1;
+    entries = new Entry[capacity];
+  }
+
+  /**
+   * Load the spline coefficients of the cell whose first interpolation point is (x, y, z).
+   *
+   * <p>For a periodic map the indices are wrapped into the unit cell; otherwise the 4x4x4 block
+   * starting at (x - 1, y - 1, z - 1) must lie inside the map.
+   *
+   * @param x the grid index of the cell along X.
+   * @param y the grid index of the cell along Y.
+   * @param z the grid index of the cell along Z.
+   * @param scalar scratch space of dimension [4][4][4] used to build missing coefficients.
+   * @param coefficients the 64 coefficients of the cell (output).
+   */
+  public void getCoefficients(int x, int y, int z, double[][][] scalar, double[] coefficients) {
+    int[] extent = refinementData.getExtent();
+    int extX = extent[0];
+    int extY = extent[1];
+    int extZ = extent[2];
+    boolean periodic = refinementData.isPeriodic();
+    if (periodic) {
+      x = mod(x, extX);
+      y = mod(y, extY);
+      z = mod(z, extZ);
+    }
+    long key = x + (long) extX * (y + (long) extY * z);
+    int slot = (int) (mix(key) & mask);
+    Entry entry = entries[slot];
+    if (entry != null && entry.key == key) {
+      entry.get(coefficients);
+      return;
+    }
+
+    // Gather the 4x4x4 block of map values.
+    for (int ui = x - 1; ui < x + 3; ui++) {
+      int uii = ui - (x - 1);
+      int pui = periodic ? mod(ui, extX) : ui;
+      for (int vi = y - 1; vi < y + 3; vi++) {
+        int vii = vi - (y - 1);
+        int pvi = periodic ? mod(vi, extY) : vi;
+        for (int wi = z - 1; wi < z + 3; wi++) {
+          int wii = wi - (z - 1);
+          int pwi = periodic ? mod(wi, extZ) : wi;
+          scalar[uii][vii][wii] = refinementData.getDataIndex(pui, pvi, pwi);
+        }
+      }
+    }
+    TriCubicSpline.coefficients(scalar, coefficients);
+    entry = new Entry(key, coefficients, useFloat);
+    entries[slot] = entry;
+    if (useFloat) {
+      // Return the rounded coefficients so repeated evaluations are consistent.
+      entry.get(coefficients);
+    }
+  }
+
+  /** Remove all cached coefficients (e.g. after the map data has been modified). */
+  public void clear() {
+    for (int i = 0; i < entries.length; i++) {
+      entries[i] = null;
+    }
+  }
+
+  /**
+   * Spread neighboring cells across slots.
+   *
+   * @param key the cell index.
+   * @return a hash of the cell index.
+   */
+  private static long mix(long key) {
+    key *= 0x9E3779B97F4A7C15L;
+    return key ^ (key >>> 32);
+  }
+
+  /** An immutable set of coefficients for one cell. */
+  private static final class Entry {
+
+    private final long key;
+    private final double[] doubleCoefficients;
+    private final float[] floatCoefficients;
+
+    Entry(long key, double[] coefficients, boolean useFloat) {
+      this.key = key;
+      if (useFloat) {
+        floatCoefficients = new float[64];
+        for (int i = 0; i < 64; i++) {
+          floatCoefficients[i] = (float) coefficients[i];
+        }
+        doubleCoefficients = null;
+      } else {
+        doubleCoefficients = coefficients.clone();
+        floatCoefficients = null;
+      }
+    }
+
+    void get(double[] coefficients) {
+      if (doubleCoefficients != null) {
+        System.arraycopy(doubleCoefficients, 0, coefficients, 0, 64);
+      } else {
+        for (int i = 0; i < 64; i++) {
+          coefficients[i] = floatCoefficients[i];
+        }
+      }
+    }
+  }
+}
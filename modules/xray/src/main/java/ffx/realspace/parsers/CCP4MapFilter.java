@@ -38,14 +38,22 @@
 package ffx.realspace.parsers;
 
 import static java.lang.String.format;
+import static java.nio.file.StandardOpenOption.READ;
+import static org.apache.commons.math3.util.FastMath.floor;
+import static org.apache.commons.math3.util.FastMath.max;
+import static org.apache.commons.math3.util.FastMath.min;
 
 import ffx.crystal.Crystal;
 import ffx.crystal.SpaceGroup;
 import ffx.realspace.RealSpaceRefinementData;
-import java.io.DataInputStream;
-import java.io.FileInputStream;
+import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Paths;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.apache.commons.configuration2.CompositeConfiguration;
@@ -63,10 +71,75 @@ public class CCP4MapFilter implements RealSpaceFileFilter {
 
   private static final Logger logger = Logger.getLogger(CCP4MapFilter.class.getName());
 
+  /** Size of the CCP4 map header in bytes. */
+  private static final int HEADER_BYTES = 1024;
+  /** Upper bound on the number of bytes mapped at once while decoding map sections. */
+  private static final long CHUNK_BYTES = 1L << 28;
+
+  /**
+   * Determine the byte order of a CCP4 map from the machine stamp.
+   *
+   * @param header the mapped map header.
+   * @return the byte order of the map.
+   */
+  private static ByteOrder byteOrder(ByteBuffer header) {
+    ByteOrder byteOrder = ByteOrder.nativeOrder();
+    int imapData = header.order(ByteOrder.BIG_ENDIAN).getInt(212);
+    String stampString = Integer.toHexString(imapData);
+    switch (stampString.charAt(0)) {
+      case '1':
+      case '3':
+        if (byteOrder.equals(ByteOrder.LITTLE_ENDIAN)) {
+          byteOrder = ByteOrder.BIG_ENDIAN;
+        }
+        break;
+      case '4':
+        if (byteOrder.equals(ByteOrder.BIG_ENDIAN)) {
+          byteOrder = ByteOrder.LITTLE_ENDIAN;
+        }
+        break;
+    }
+    return byteOrder;
+  }
+
+  /**
+   * Map the header of a CCP4 map in the byte order of the file.
+   *
+   * @param fileChannel an open channel to the map.
+   * @return the header.
+   * @throws IOException if the header could not be mapped.
+   */
+  private static ByteBuffer mapHeader(FileChannel fileChannel) throws IOException {
+    ByteBuffer header = fileChannel.map(MapMode.READ_ONLY, 0, HEADER_BYTES);
+    return header.order(byteOrder(header));
+  }
+
+  /**
+   * Build a lookup table from map grid points along one axis to indices of the stored data. When a
+   * region is given, grid points are wrapped into the region and those outside it map to -1.
+   *
+   * @param n the number of grid points along the axis in the file.
+   * @param ni the number of grid points along the axis of the unit cell.
+   * @param lower the first grid point of the region.
+   * @param size the number of grid points in the region, or -1 to keep every grid point.
+   * @return the lookup table.
+   */
+  private static int[] axisLookup(int n, int ni, int lower, int size) {
+    int[] lookup = new int[n];
+    for (int i = 0; i < n; i++) {
+      if (size < 0) {
+        lookup[i] = i;
+      } else {
+        int local = Crystal.mod(i - lower, ni);
+        lookup[i] = local < size ? local : -1;
+      }
+    }
+    return lookup;
+  }
+
   /** {@inheritDoc} */
   @Override
   public Crystal getCrystal(String fileName, CompositeConfiguration properties) {
-    int imapData;
     int spaceGroup = -1;
     double cellA = -1.0;
     double cellB = -1.0;
@@ -75,67 +148,15 @@ public class CCP4MapFilter implements RealSpaceFileFilter {
     double cellBeta = -1.0;
     double cellGamma = -1.0;
 
-    ByteOrder byteOrder = ByteOrder.nativeOrder();
-    FileInputStream fileInputStream;
-    DataInputStream dataInputStream;
-
-    // First determine byte order of file versus system.
-    try {
-      fileInputStream = new FileInputStream(fileName);
-      dataInputStream = new DataInputStream(fileInputStream);
-
-      dataInputStream.skipBytes(212);
-      byte[] bytes = new byte[4];
-      dataInputStream.read(bytes, 0, 4);
-      ByteBuffer byteBuffer = ByteBuffer.wrap(bytes);
-
-      imapData = byteBuffer.order(ByteOrder.BIG_ENDIAN).getInt();
-      String stampString = Integer.toHexString(imapData);
-
-      switch (stampString.charAt(0)) {
-        case '1':
-        case '3':
-          if (byteOrder.equals(ByteOrder.LITTLE_ENDIAN)) {
-            byteOrder = ByteOrder.BIG_ENDIAN;
-          }
-          break;
-        case '4':
-          if (byteOrder.equals(ByteOrder.BIG_ENDIAN)) {
-            byteOrder = ByteOrder.LITTLE_ENDIAN;
-          }
-          break;
-      }
-      fileInputStream.close();
-    } catch (Exception e) {
-      String message = " Fatal exception reading CCP4 map.\n";
-      logger.log(Level.SEVERE, message, e);
-    }
-
-    try {
-      fileInputStream = new FileInputStream(fileName);
-      dataInputStream = new DataInputStream(fileInputStream);
-
-      dataInputStream.skipBytes(40);
-      byte[] bytes = new byte[80];
-      dataInputStream.read(bytes, 0, 80);
-      ByteBuffer byteBuffer = ByteBuffer.wrap(bytes);
-
-      cellA = byteBuffer.order(byteOrder).getFloat();
-      cellB = byteBuffer.order(byteOrder).getFloat();
-      cellC = byteBuffer.order(byteOrder).getFloat();
-      cellAlpha = byteBuffer.order(byteOrder).getFloat();
-      cellBeta = byteBuffer.order(byteOrder).getFloat();
-      cellGamma = byteBuffer.order(byteOrder).getFloat();
-
-      for (int i = 0; i < 3; i++) {
-        byteBuffer.order(byteOrder).getInt();
-      }
-      for (int i = 0; i < 3; i++) {
-        byteBuffer.order(byteOrder).getFloat();
-      }
-
-      spaceGroup = byteBuffer.order(byteOrder).getInt();
-      fileInputStream.close();
+    try (FileChannel fileChannel = FileChannel.open(Paths.get(fileName), READ)) {
+      ByteBuffer header = mapHeader(fileChannel);
+      cellA = header.getFloat(40);
+      cellB = header.getFloat(44);
+      cellC = header.getFloat(48);
+      cellAlpha = header.getFloat(52);
+      cellBeta = header.getFloat(56);
+      cellGamma = header.getFloat(60);
+      spaceGroup = header.getInt(88);
     } catch (Exception e) {
       String message = " Fatal exception reading CCP4 map.\n";
       logger.log(Level.SEVERE, message, e);
@@ -156,127 +177,38 @@ public class CCP4MapFilter implements RealSpaceFileFilter {
   public boolean readFile(
       String filename, RealSpaceRefinementData refinementdata, CompositeConfiguration properties) {
 
-    int imapData;
-    double cellA, cellB, cellC, cellAlpha, cellBeta, cellGamma;
-    String stampString;
-
-    ByteOrder byteOrder = ByteOrder.nativeOrder();
-    FileInputStream fileInputStream;
-    DataInputStream dataInputStream;
-
-    double min = Double.POSITIVE_INFINITY;
-    double max = Double.NEGATIVE_INFINITY;
-    double mean = 0.0;
-    double sd = 0.0;
-    double rmsd = 0.0;
-
-    // First determine byte order of file versus system
-    try {
-      fileInputStream = new FileInputStream(filename);
-      dataInputStream = new DataInputStream(fileInputStream);
-
-      dataInputStream.skipBytes(212);
-      byte[] bytes = new byte[4];
-      dataInputStream.read(bytes, 0, 4);
-      ByteBuffer byteBuffer = ByteBuffer.wrap(bytes);
-
-      imapData = byteBuffer.order(ByteOrder.BIG_ENDIAN).getInt();
-      stampString = Integer.toHexString(imapData);
-      switch (stampString.charAt(0)) {
-        case '1':
-        case '3':
-          if (byteOrder.equals(ByteOrder.LITTLE_ENDIAN)) {
-            byteOrder = ByteOrder.BIG_ENDIAN;
-          }
-          break;
-        case '4':
-          if (byteOrder.equals(ByteOrder.BIG_ENDIAN)) {
-            byteOrder = ByteOrder.LITTLE_ENDIAN;
-          }
-          break;
-      }
-      if (logger.isLoggable(Level.INFO)) {
-        StringBuilder sb = new StringBuilder();
-        sb.append(format(" Opening CCP4 map: %s\n", filename));
-        logger.info(sb.toString());
-      }
-
-      fileInputStream.close();
-    } catch (Exception e) {
-      String message = " Fatal exception reading CCP4 map.\n";
-      logger.log(Level.SEVERE, message, e);
+    if (logger.isLoggable(Level.INFO)) {
+      logger.info(format(" Opening CCP4 map: %s\n", filename));
     }
 
-    try {
-      fileInputStream = new FileInputStream(filename);
-      dataInputStream = new DataInputStream(fileInputStream);
-
-      byte[] bytes = new byte[2048];
-
-      dataInputStream.read(bytes, 0, 1024);
-      ByteBuffer byteBuffer = ByteBuffer.wrap(bytes);
+    try (FileChannel fileChannel = FileChannel.open(Paths.get(filename), READ)) {
+      ByteBuffer header = mapHeader(fileChannel);
+      ByteOrder byteOrder = header.order();
 
       int[] ext = new int[3];
-      ext[0] = byteBuffer.order(byteOrder).getInt();
-      ext[1] = byteBuffer.order(byteOrder).getInt();
-      ext[2] = byteBuffer.order(byteOrder).getInt();
-
-      // mode (2 = reals, only one we accept)
-      int mode = byteBuffer.order(byteOrder).getInt();
-
       int[] ori = new int[3];
-      ori[0] = byteBuffer.order(byteOrder).getInt();
-      ori[1] = byteBuffer.order(byteOrder).getInt();
-      ori[2] = byteBuffer.order(byteOrder).getInt();
-
       int[] ni = new int[3];
-      ni[0] = byteBuffer.order(byteOrder).getInt();
-      ni[1] = byteBuffer.order(byteOrder).getInt();
-      ni[2] = byteBuffer.order(byteOrder).getInt();
-
-      cellA = byteBuffer.order(byteOrder).getFloat();
-      cellB = byteBuffer.order(byteOrder).getFloat();
-      cellC = byteBuffer.order(byteOrder).getFloat();
-      cellAlpha = byteBuffer.order(byteOrder).getFloat();
-      cellBeta = byteBuffer.order(byteOrder).getFloat();
-      cellGamma = byteBuffer.order(byteOrder).getFloat();
-
       int[] axisi = new int[3];
       for (int i = 0; i < 3; i++) {
-        int axis = byteBuffer.order(byteOrder).getInt();
-        switch (axis) {
-          case 1:
-            axisi[0] = i;
-            break;
-          case 2:
-            axisi[1] = i;
-            break;
-          case 3:
-            axisi[2] = i;
-            break;
+        ext[i] = header.getInt(4 * i);
+        ori[i] = header.getInt(16 + 4 * i);
+        ni[i] = header.getInt(28 + 4 * i);
+        int axis = header.getInt(64 + 4 * i);
+        if (axis >= 1 && axis <= 3) {
+          axisi[axis - 1] = i;
         }
       }
 
-      min = byteBuffer.order(byteOrder).getFloat();
-      max = byteBuffer.order(byteOrder).getFloat();
-      mean = byteBuffer.order(byteOrder).getFloat();
-      int sg = byteBuffer.order(byteOrder).getInt();
-      int nsymb = byteBuffer.order(byteOrder).getInt();
-      int skew = byteBuffer.order(byteOrder).getInt();
-
-      for (int i = 0; i < 12; i++) {
-        byteBuffer.order(byteOrder).getFloat();
-      }
-
-      for (int i = 0; i < 15; i++) {
-        byteBuffer.order(byteOrder).getInt();
-      }
-
-      byte[] word = new byte[2048];
-      byteBuffer.order(byteOrder).get(word, 0, 4);
-      String mapString = new String(word);
-      sd = byteBuffer.order(byteOrder).getFloat();
-      rmsd = byteBuffer.order(byteOrder).getFloat();
+      // mode (2 = reals, only one we accept)
+      int mode = header.getInt(12);
+      double cellA = header.getFloat(40);
+      double cellB = header.getFloat(44);
+      double cellC = header.getFloat(48);
+      double cellAlpha = header.getFloat(52);
+      double cellBeta = header.getFloat(56);
+      double cellGamma = header.getFloat(60);
+      int sg = header.getInt(88);
+      int nsymb = header.getInt(92);
 
       if (logger.isLoggable(Level.INFO)) {
         StringBuilder sb = new StringBuilder();
@@ -293,48 +225,121 @@ public class CCP4MapFilter implements RealSpaceFileFilter {
         logger.info(sb.toString());
       }
 
-      int nlabel = byteBuffer.order(byteOrder).getInt();
-      for (int i = 0; i < 10; i++) {
-        byteBuffer.order(byteOrder).get(word, 0, 80);
-        mapString = new String(word);
-      }
-
-      if (nsymb > 0) {
-        byteBuffer.rewind();
-        dataInputStream.read(bytes, 0, nsymb);
-        for (int i = 0; i < nsymb / 80; i += 80) {
-          byteBuffer.order(byteOrder).get(word, 0, 80);
-          mapString = new String(word);
-        }
+      if (mode != 2) {
+        logger.warning(format(" CCP4 map mode %d is not supported (only mode 2 reals).", mode));
+        return false;
       }
 
-      byteBuffer.rewind();
-      dataInputStream.read(bytes, 0, 2048);
-      refinementdata.setData(new double[ext[0] * ext[1] * ext[2]]);
-      int[] ijk = new int[3];
-      int index, x, y, z;
-      refinementdata.setOrigin(ori[axisi[0]], ori[axisi[1]], ori[axisi[2]]);
       int nx = ext[axisi[0]];
       int ny = ext[axisi[1]];
       int nz = ext[axisi[2]];
+      long nData = (long) ext[0] * ext[1] * ext[2];
+      long dataOffset = HEADER_BYTES + (long) nsymb;
+
+      // Map real values in X, Y, Z order directly from the file.
+      boolean memoryMap = properties != null && properties.getBoolean("memorymap", false);
+      if (memoryMap
+          && axisi[0] == 0
+          && axisi[1] == 1
+          && axisi[2] == 2
+          && 4L * nData <= Integer.MAX_VALUE) {
+        refinementdata.setOrigin(ori[0], ori[1], ori[2]);
+        refinementdata.setExtent(nx, ny, nz);
+        refinementdata.setNI(ni[0], ni[1], ni[2]);
+        MappedByteBuffer mappedByteBuffer =
+            fileChannel.map(MapMode.READ_ONLY, dataOffset, 4L * nData);
+        refinementdata.setMappedData(mappedByteBuffer.order(byteOrder).asFloatBuffer());
+        if (logger.isLoggable(Level.INFO)) {
+          logger.info(format("  Memory-mapped %d map values.", nData));
+        }
+        return true;
+      }
+
+      // Optionally keep only the part of a full unit cell map that surrounds the model.
+      int[] lower = new int[3];
+      int[] size = {-1, -1, -1};
+      double[][] region = refinementdata.getRegion();
+      boolean fullCell =
+          ori[0] == 0 && ori[1] == 0 && ori[2] == 0 && nx == ni[0] && ny == ni[1] && nz == ni[2];
+      if (region != null && fullCell) {
+        boolean smaller = true;
+        for (int i = 0; i < 3; i++) {
+          lower[i] = (int) floor(region[0][i] * ni[i]) - 2;
+          int upper = (int) floor(region[1][i] * ni[i]) + 3;
+          size[i] = upper - lower[i] + 1;
+          smaller &= size[i] < ni[i];
+        }
+        if (!smaller) {
+          size[0] = size[1] = size[2] = -1;
+        }
+      }
+
+      int[][] lookup = new int[3][];
+      for (int i = 0; i < 3; i++) {
+        lookup[i] = axisLookup(ext[axisi[i]], ni[i], lower[i], size[i]);
+      }
+      if (size[0] > 0) {
+        nx = size[0];
+        ny = size[1];
+        nz = size[2];
+        refinementdata.setOrigin(lower[0], lower[1], lower[2]);
+        if (logger.isLoggable(Level.INFO)) {
+          logger.info(
+              format(
+                  "  Extracted map region origin: %d %d %d\t Extent: %d %d %d",
+                  lower[0], lower[1], lower[2], nx, ny, nz));
+        }
+      } else {
+        refinementdata.setOrigin(ori[axisi[0]], ori[axisi[1]], ori[axisi[2]]);
+      }
       refinementdata.setExtent(nx, ny, nz);
       refinementdata.setNI(ni[0], ni[1], ni[2]);
-      for (ijk[2] = 0; ijk[2] < ext[2]; ijk[2]++) {
-        for (ijk[1] = 0; ijk[1] < ext[1]; ijk[1]++) {
-          for (ijk[0] = 0; ijk[0] < ext[0]; ijk[0]++) {
-            x = ijk[axisi[0]];
-            y = ijk[axisi[1]];
-            z = ijk[axisi[2]];
-            index = x + nx * (y + ny * z);
-            refinementdata.getData()[index] = byteBuffer.order(byteOrder).getFloat();
-            if (!byteBuffer.hasRemaining()) {
-              byteBuffer.rewind();
-              dataInputStream.read(bytes, 0, 2048);
+
+      // Decode whole sections in bulk, mapping at most CHUNK_BYTES at a time.
+      double[] data = new double[nx * ny * nz];
+      float[] row = new float[ext[0]];
+      int[] ijk = new int[3];
+      long sectionBytes = 4L * ext[0] * ext[1];
+      int sectionsPerChunk = (int) max(1, min(ext[2], CHUNK_BYTES / sectionBytes));
+      for (int section = 0; section < ext[2]; section += sectionsPerChunk) {
+        int nSections = min(sectionsPerChunk, ext[2] - section);
+        long position = dataOffset + section * sectionBytes;
+        FloatBuffer floatBuffer =
+            fileChannel
+                .map(MapMode.READ_ONLY, position, nSections * sectionBytes)
+                .order(byteOrder)
+                .asFloatBuffer();
+        for (ijk[2] = section; ijk[2] < section + nSections; ijk[2]++) {
+          for (ijk[1] = 0; ijk[1] < ext[1]; ijk[1]++) {
+            floatBuffer.get(row);
+            if (axisi[0] == 0) {
+              // Columns run along X, so each row shares its Y and Z index.
+              int y = lookup[1][ijk[axisi[1]]];
+              int z = lookup[2][ijk[axisi[2]]];
+              if (y < 0 || z < 0) {
+                continue;
+              }
+              int offset = nx * (y + ny * z);
+              for (int c = 0; c < ext[0]; c++) {
+                int x = lookup[0][c];
+                if (x >= 0) {
+                  data[x + offset] = row[c];
+                }
+              }
+            } else {
+              for (ijk[0] = 0; ijk[0] < ext[0]; ijk[0]++) {
+                int x = lookup[0][ijk[axisi[0]]];
+                int y = lookup[1][ijk[axisi[1]]];
+                int z = lookup[2][ijk[axisi[2]]];
+                if (x >= 0 && y >= 0 && z >= 0) {
+                  data[x + nx * (y + ny * z)] = row[ijk[0]];
+                }
+              }
             }
           }
         }
       }
-      fileInputStream.close();
+      refinementdata.setData(data);
     } catch (Exception e) {
       String message = " Fatal exception reading CCP4 map.\n";
       logger.log(Level.SEVERE, message, e);
@@ -198,6 +198,11 @@ public class CrystalReciprocalSpace {
   private int aRadGrid;
   /** If the "Native Environment Approximation" is true, the "use" flag is ignored. */
   private boolean nativeEnvironmentApproximation = false;
+  /**
+   * If true, atomic density is spread onto the grid using separable tables or row recurrences
+   * rather than evaluating each grid point independently.
+   */
+  private boolean separableDensity = true;
 
   /**
    * Crystal Reciprocal Space constructor, assumes this is not a bulk solvent mask and is not a
@@ -986,6 +991,16 @@ public class CrystalReciprocalSpace {
     }
   }
 
+  /**
+   * Setter for the field <code>separableDensity</code>.
+   *
+   * @param separableDensity if true, use the {@link DensitySpreader} to put atomic density on the
+   *     grid.
+   */
+  void setSeparableDensity(boolean separableDensity) {
+    this.separableDensity = separableDensity;
+  }
+
   /**
    * should the structure factor computation use 3 Gaussians or 6 for atoms?
    *
@@ -1836,9 +1851,12 @@ public class CrystalReciprocalSpace {
     final double[] xf = new double[3];
     final double[] grid;
 
+    final DensitySpreader densitySpreader;
+
     AtomicDensityLoop(SpatialDensityRegion region) {
       super(region, region.getNsymm(), region.actualCount);
       grid = region.getGrid();
+      densitySpreader = new DensitySpreader(crystal, fftX, fftY, fftZ);
     }
 
     @Override
@@ -1873,6 +1891,23 @@ public class CrystalReciprocalSpace {
       final int ifrz = (int) frz;
       final int ifrzu = ifrz + frad;
 
+      if (separableDensity
+          && densitySpreader.setAtom(atomff, ifrx - frad, ifry - frad, ifrz - frad, 2 * frad + 1)) {
+        for (int iz = ifrz - frad; iz <= ifrzu; iz++) {
+          int giz = Crystal.mod(iz, fftZ);
+          for (int iy = ifry - frad; iy <= ifryu; iy++) {
+            int giy = Crystal.mod(iy, fftY);
+            final double[] row = densitySpreader.row(iy, iz);
+            for (int ix = ifrx - frad; ix <= ifrxu; ix++) {
+              int gix = Crystal.mod(ix, fftX);
+              final int ii = iComplex3D(gix, giy, giz, fftX, fftY);
+              grid[ii] += row[ix - ifrx + frad];
+            }
+          }
+        }
+        return;
+      }
+
       for (int iz = ifrz - frad; iz <= ifrzu; iz++) {
         int giz = Crystal.mod(iz, fftZ);
         xf[2] = iz * ifftZ;
@@ -1982,10 +2017,13 @@ public class CrystalReciprocalSpace {
     int previousUB, previousLB;
     int actualWeight;
 
+    final DensitySpreader densitySpreader;
+
     AtomicRowLoop(RowRegion region) {
       super(region.getNatoms(), region.getNsymm(), region);
       grid = region.getGrid();
       optLocal = new int[fftZ * fftY];
+      densitySpreader = new DensitySpreader(crystal, fftX, fftY, fftZ);
     }
 
     public void buildList(int iSymm, int iAtom, int lb, int ub) {
@@ -2102,6 +2140,32 @@ public class CrystalReciprocalSpace {
       final int ifrz = (int) frz;
       final int ifrzu = ifrz + frad;
 
+      if (separableDensity
+          && densitySpreader.setAtom(atomff, ifrx - frad, ifry - frad, ifrz - frad, 2 * frad + 1)) {
+        for (int iz = ifrz - frad; iz <= ifrzu; iz++) {
+          int giz = Crystal.mod(iz, fftZ);
+          if (lbZ > giz || giz > ubZ) {
+            continue;
+          }
+          for (int iy = ifry - frad; iy <= ifryu; iy++) {
+            int giy = Crystal.mod(iy, fftY);
+            int rowIndex = rowRegion.rowIndexForYZ(giy, giz);
+            if (lb > rowIndex || rowIndex > ub) {
+              continue;
+            }
+            final double[] row = densitySpreader.row(iy, iz);
+            for (int ix = ifrx - frad; ix <= ifrxu; ix++) {
+              int gix = Crystal.mod(ix, fftX);
+              optLocal[rowIndex]++;
+              actualWeight++;
+              final int ii = iComplex3D(gix, giy, giz, fftX, fftY);
+              grid[ii] += row[ix - ifrx + frad];
+            }
+          }
+        }
+        return;
+      }
+
       for (int iz = ifrz - frad; iz <= ifrzu; iz++) {
         int giz = Crystal.mod(iz, fftZ);
         if (lbZ > giz || giz > ubZ) {
@@ -2594,10 +2658,13 @@ public class CrystalReciprocalSpace {
     int previousUB, previousLB;
     int actualWeight;
 
+    final DensitySpreader densitySpreader;
+
     public AtomicSliceLoop(SliceRegion region) {
       super(region.getNatoms(), region.getNsymm(), region);
       grid = region.getGrid();
       optLocal = new int[fftZ];
+      densitySpreader = new DensitySpreader(crystal, fftX, fftY, fftZ);
     }
 
     public void buildList(int iSymm, int iAtom, int lb, int ub) {
@@ -2703,6 +2770,28 @@ public class CrystalReciprocalSpace {
       final int ifrz = (int) frz;
       final int ifrzu = ifrz + frad;
 
+      if (separableDensity
+          && densitySpreader.setAtom(atomff, ifrx - frad, ifry - frad, ifrz - frad, 2 * frad + 1)) {
+        for (int iz = ifrz - frad; iz <= ifrzu; iz++) {
+          int giz = Crystal.mod(iz, fftZ);
+          if (lb > giz || giz > ub) {
+            continue;
+          }
+          for (int iy = ifry - frad; iy <= ifryu; iy++) {
+            int giy = Crystal.mod(iy, fftY);
+            final double[] row = densitySpreader.row(iy, iz);
+            for (int ix = ifrx - frad; ix <= ifrxu; ix++) {
+              int gix = Crystal.mod(ix, fftX);
+              optLocal[giz]++;
+              actualWeight++;
+              final int ii = iComplex3D(gix, giy, giz, fftX, fftY);
+              grid[ii] += row[ix - ifrx + frad];
+            }
+          }
+        }
+        return;
+      }
+
       for (int iz = ifrz - frad; iz <= ifrzu; iz++) {
         int giz = Crystal.mod(iz, fftZ);
         if (lb > giz || giz > ub) {
@@ -0,0 +1,344 @@
+// ******************************************************************************
+//
+// Title:       Force Field X.
+// Description: Force Field X - Software for Molecular Biophysics.
+// Copyright:   Copyright (c) Michael J. Schnieders 2001-2020.
+//
+// This file is part of Force Field X.
+//
+// Force Field X is free software; you can redistribute it and/or modify it
+// under the terms of the GNU General Public License version 3 as published by
+// the Free Software Foundation.
+//
+// Force Field X is distributed in the hope that it will be useful, but WITHOUT
+// ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+// FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+// details.
+//
+// You should have received a copy of the GNU General Public License along with
+// Force Field X; if not, write to the Free Software Foundation, Inc., 59 Temple
+// Place, Suite 330, Boston, MA 02111-1307 USA
+//
+// Linking this library statically or dynamically with other modules is making a
+// combined work based on this library. Thus, the terms and conditions of the
+// GNU General Public License cover the whole combination.
+//
+// As a special exception, the copyright holders of this library give you
+// permission to link this library with independent modules to produce an
+// executable, regardless of the license terms of these independent modules, and
+// to copy and distribute the resulting executable under terms of your choice,
+// provided that you also meet, for each linked independent module, the terms
+// and conditions of the license of that module. An independent module is a
+// module which is not derived from or based on this library. If you modify this
+// library, you may extend this exception to your version of the library, but
+// you are not obligated to do so. If you do not wish to do so, delete this
+// exception statement from your version.
+//
+package ffx.xray;
+
+import static ffx.numerics.math.DoubleMath.dot;
+import static java.util.Arrays.fill;
+import static org.apache.commons.math3.util.FastMath.abs;
+import static org.apache.commons.math3.util.FastMath.exp;
+import static org.apache.commons.math3.util.FastMath.max;
+import static org.apache.commons.math3.util.FastMath.min;
+import static org.apache.commons.math3.util.FastMath.rint;
+
+import ffx.crystal.Crystal;
+
+/**
+ * The DensitySpreader evaluates the density of a Gaussian atomic form factor over a box of FFT grid
+ * points one row at a time, using far fewer exponentials than calling {@link FormFactor#rho(double,
+ * double, double[])} for each grid point.
+ *
+ * <p>The first grid axis is always parallel to the Cartesian X-axis. For isotropic atoms in an
+ * orthogonal unit cell each Gaussian therefore factors into the product of three one-dimensional
+ * tables that are computed once per atom. For all other cases (anisotropic atoms or non-orthogonal
+ * unit cells) the exponent is a quadratic polynomial in the X-index along a row, so the density
+ * along a row is generated by a recurrence that requires only three exponentials per Gaussian per
+ * row. In both cases the density is identical to the direct evaluation up to round-off, including
+ * the spherical form factor cutoff.
+ *
+ * <p>Each thread must use its own instance.
+ *
+ * @author Michael J. Schnieders
+ * @since 1.0
+ */
+public final class DensitySpreader {
+
+  /** Tolerance used to identify an orthogonal unit cell. */
+  private static final double ORTHOGONAL_TOLERANCE = 1.0e-8;
+
+  private final Crystal crystal;
+  private final double ifftX, ifftY, ifftZ;
+  private final double[] xf = new double[3];
+  private final double[] xc = new double[3];
+  private final double[] d0 = new double[3];
+  private final double[] step = new double[3];
+  private final double[] work = new double[3];
+  /** The current form factor. */
+  private XRayFormFactor formFactor;
+  /** The center of the current atom. */
+  private double[] center;
+  /** The number of Gaussians for the current atom. */
+  private int nGaussians;
+  /** The weight of each Gaussian (occupancy and normalization included). */
+  private double[] weight = new double[0];
+  /** The number of grid points along each axis of the current box. */
+  private int nPoints;
+  /** The first grid index along each axis of the current box. */
+  private int x0, y0, z0;
+  /** The square of the form factor cutoff radius. */
+  private double width2;
+  /** If true, the current atom is evaluated using separable one-dimensional tables. */
+  private boolean separable;
+  /** Separable tables: [nGaussians][nPoints]. */
+  private double[][] tableX, tableY, tableZ;
+  /** Separable squared distances along each axis: [nPoints]. */
+  private double[] r2X, r2Y, r2Z;
+  /** Row recurrence: x^T U^-1 x for a single grid step along the row for each Gaussian. */
+  private double[] stepQuad = new double[0];
+  /** Row recurrence: the decay of the recurrence ratio for each Gaussian. */
+  private double[] stepDecay = new double[0];
+  /** Density along the current row. */
+  private double[] row = new double[0];
+  /** Weights for the current row of a separable atom. */
+  private double[] rowWeight = new double[0];
+
+  /**
+   * Constructor for a DensitySpreader.
+   *
+   * @param crystal the unit cell.
+   * @param fftX the number of grid points along the a-axis.
+   * @param fftY the number of grid points along the b-axis.
+   * @param fftZ the number of grid points along the c-axis.
+   */
+  public DensitySpreader(Crystal crystal, int fftX, int fftY, int fftZ) {
+    this.crystal = crystal;
+    ifftX = 1.0 / (double) fftX;
+    ifftY = 1.0 / (double) fftY;
+    ifftZ = 1.0 / (double) fftZ;
+  }
+
+  /**
+   * Prepare to evaluate the density of an atom over a cubic box of grid points.
+   *
+   * @param formFactor the form factor of the atom.
+   * @param x0 the first grid index along the a-axis.
+   * @param y0 the first grid index along the b-axis.
+   * @param z0 the first grid index along the c-axis.
+   * @param nPoints the number of grid points along each axis.
+   * @return false if this form factor is not supported, in which case the caller should use {@link
+   *     FormFactor#rho(double, double, double[])} directly.
+   */
+  public boolean setAtom(FormFactor formFactor, int x0, int y0, int z0, int nPoints) {
+    if (!(formFactor instanceof XRayFormFactor)) {
+      this.formFactor = null;
+      return false;
+    }
+    this.formFactor = (XRayFormFactor) formFactor;
+    this.x0 = x0;
+    this.y0 = y0;
+    this.z0 = z0;
+    this.nPoints = nPoints;
+    center = this.formFactor.getCenter();
+    width2 = this.formFactor.getFormFactorWidth2();
+    nGaussians = this.formFactor.getNumberOfGaussians();
+    allocate();
+    for (int i = 0; i < nGaussians; i++) {
+      weight[i] = this.formFactor.getGaussianWeight(i);
+    }
+
+    separable = this.formFactor.isIsotropic() && isOrthogonal();
+    if (separable) {
+      fillTables();
+    } else {
+      // The Cartesian vector of a single grid step along the a-axis.
+      xf[0] = ifftX;
+      xf[1] = 0.0;
+      xf[2] = 0.0;
+      crystal.toCartesianCoordinates(xf, step);
+      for (int i = 0; i < nGaussians; i++) {
+        double[][] uInv = this.formFactor.getInverseU(i);
+        stepQuad[i] = quadForm(step, uInv);
+        stepDecay[i] = exp(-stepQuad[i]);
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Compute the density of the current atom along the row of grid points with b-axis index iy and
+   * c-axis index iz.
+   *
+   * @param iy the b-axis grid index (in the range y0 to y0 + nPoints - 1).
+   * @param iz the c-axis grid index (in the range z0 to z0 + nPoints - 1).
+   * @return the density at a-axis grid indices x0 to x0 + nPoints - 1 (the returned array is reused
+   *     by the next call).
+   */
+  public double[] row(int iy, int iz) {
+    fill(row, 0, nPoints, 0.0);
+    if (separable) {
+      separableRow(iy - y0, iz - z0);
+    } else {
+      recurrenceRow(iy, iz);
+    }
+    return row;
+  }
+
+  /**
+   * Check if the current form factor is evaluated using one-dimensional tables.
+   *
+   * @return true if the current atom is separable.
+   */
+  public boolean isSeparable() {
+    return separable;
+  }
+
+  private boolean isOrthogonal() {
+    return abs(crystal.Ai10) < ORTHOGONAL_TOLERANCE * crystal.b
+        && abs(crystal.Ai20) < ORTHOGONAL_TOLERANCE * crystal.c
+        && abs(crystal.Ai21) < ORTHOGONAL_TOLERANCE * crystal.c;
+  }
+
+  private void allocate() {
+    if (row.length < nPoints) {
+      row = new double[nPoints];
+      r2X = new double[nPoints];
+      r2Y = new double[nPoints];
+      r2Z = new double[nPoints];
+      tableX = null;
+    }
+    if (weight.length < nGaussians) {
+      weight = new double[nGaussians];
+      rowWeight = new double[nGaussians];
+      stepQuad = new double[nGaussians];
+      stepDecay = new double[nGaussians];
+      tableX = null;
+    }
+    if (tableX == null) {
+      tableX = new double[weight.length][row.length];
+      tableY = new double[weight.length][row.length];
+      tableZ = new double[weight.length][row.length];
+    }
+  }
+
+  private void fillTables() {
+    double ax = crystal.Ai00 * ifftX;
+    double by = crystal.Ai11 * ifftY;
+    double cz = crystal.Ai22 * ifftZ;
+    for (int k = 0; k < nPoints; k++) {
+      double dx = center[0] - (x0 + k) * ax;
+      double dy = center[1] - (y0 + k) * by;
+      double dz = center[2] - (z0 + k) * cz;
+      r2X[k] = dx * dx;
+      r2Y[k] = dy * dy;
+      r2Z[k] = dz * dz;
+    }
+    for (int i = 0; i < nGaussians; i++) {
+      // For an isotropic atom U^-1 is diagonal with identical elements.
+      double s = -0.5 * formFactor.getInverseU(i)[0][0];
+      double[] tx = tableX[i];
+      double[] ty = tableY[i];
+      double[] tz = tableZ[i];
+      for (int k = 0; k < nPoints; k++) {
+        tx[k] = exp(s * r2X[k]);
+        ty[k] = exp(s * r2Y[k]);
+        tz[k] = exp(s * r2Z[k]);
+      }
+    }
+  }
+
+  private void separableRow(int jy, int jz) {
+    double r2YZ = r2Y[jy] + r2Z[jz];
+    if (r2YZ > width2) {
+      return;
+    }
+    for (int i = 0; i < nGaussians; i++) {
+      rowWeight[i] = weight[i] * tableY[i][jy] * tableZ[i][jz];
+    }
+    for (int k = 0; k < nPoints; k++) {
+      if (r2X[k] + r2YZ > width2) {
+        continue;
+      }
+      double sum = 0.0;
+      for (int i = 0; i < nGaussians; i++) {
+        sum += rowWeight[i] * tableX[i][k];
+      }
+      row[k] = sum;
+    }
+  }
+
+  private void recurrenceRow(int iy, int iz) {
+    // Displacement from the first grid point of the row to the atom; it decreases by step along the
+    // row.
+    xf[0] = x0 * ifftX;
+    xf[1] = iy * ifftY;
+    xf[2] = iz * ifftZ;
+    crystal.toCartesianCoordinates(xf, xc);
+    d0[0] = center[0] - xc[0];
+    d0[1] = center[1] - xc[1];
+    d0[2] = center[2] - xc[2];
+
+    // Squared distance is r2(k) = r0 - 2 k s.d0 + k^2 s.s
+    double r0 = dot(d0, d0);
+    double sd = dot(step, d0);
+    double ss = dot(step, step);
+    // Find the range of k within the cutoff, which is contiguous because r2(k) is convex.
+    int kFirst = nPoints;
+    int kLast = -1;
+    for (int k = 0; k < nPoints; k++) {
+      if (r0 - 2.0 * k * sd + k * k * ss <= width2) {
+        kFirst = min(kFirst, k);
+        kLast = k;
+      }
+    }
+    if (kLast < 0) {
+      return;
+    }
+
+    for (int i = 0; i < nGaussians; i++) {
+      // Q(k) = A - 2 k B + k^2 C, where the density is proportional to exp(-Q(k) / 2).
+      double[][] uInv = formFactor.getInverseU(i);
+      double a = quadForm(d0, uInv);
+      double b = bilinearForm(step, uInv, d0);
+      double c = stepQuad[i];
+      double decay = stepDecay[i];
+      double w = weight[i];
+
+      // Start from the grid point nearest the peak so the recurrence does not underflow.
+      int kc = (int) rint(b / c);
+      kc = max(kFirst, min(kLast, kc));
+      double peak = exp(-0.5 * (a - 2.0 * kc * b + kc * c * kc));
+
+      // Walk up the row: Q(k+1) - Q(k) = -2 B + C (2k + 1).
+      double value = peak;
+      double ratio = exp(-0.5 * (-2.0 * b + c * (2 * kc + 1)));
+      for (int k = kc; k <= kLast; k++) {
+        row[k] += w * value;
+        value *= ratio;
+        ratio *= decay;
+      }
+
+      // Walk down the row: Q(k-1) - Q(k) = 2 B - C (2k - 1).
+      value = peak;
+      ratio = exp(-0.5 * (2.0 * b - c * (2 * kc - 1)));
+      for (int k = kc - 1; k >= kFirst; k--) {
+        value *= ratio;
+        ratio *= decay;
+        row[k] += w * value;
+      }
+    }
+  }
+
+  private double quadForm(double[] v, double[][] m) {
+    return bilinearForm(v, m, v);
+  }
+
+  private double bilinearForm(double[] v, double[][] m, double[] w) {
+    work[0] = m[0][0] * w[0] + m[0][1] * w[1] + m[0][2] * w[2];
+    work[1] = m[1][0] * w[0] + m[1][1] * w[1] + m[1][2] * w[2];
+    work[2] = m[2][0] * w[0] + m[2][1] * w[1] + m[2][2] * w[2];
+    return dot(v, work);
+  }
+}
@@ -108,6 +108,8 @@ public class DiffractionData implements DataContainer {
   private final boolean refineMolOcc;
   private final double occMass;
   private final boolean nativeEnvironmentApproximation;
+  /** If true, atomic density is put on the grid using separable tables or row recurrences. */
+  private final boolean separableDensity;
   private ScaleBulkMinimize[] scaleBulkMinimize;
   private SigmaAMinimize[] sigmaAMinimize;
   private SplineMinimize[] splineMinimize;
@@ -253,6 +255,7 @@ public class DiffractionData implements DataContainer {
     addAnisou = properties.getBoolean("addanisou", false);
     refineMolOcc = properties.getBoolean("refinemolocc", false);
     occMass = properties.getDouble("occmass", 10.0);
+    separableDensity = properties.getBoolean("separable-density", true);
 
     ForceField forceField = assembly[0].getForceField();
     nativeEnvironmentApproximation =
@@ -316,6 +319,7 @@ public class DiffractionData implements DataContainer {
       sb.append("   X-ray refinement weight: ").append(xWeight).append("\n");
       sb.append("   Use cctbx 3 Gaussians: ").append(use_3g).append("\n");
       sb.append("   Atomic form factor radius buffer: ").append(aRadBuff).append("\n");
+      sb.append("   Separable atomic density: ").append(separableDensity).append("\n");
       sb.append("   Reciprocal space sampling rate: ").append(sampling).append("\n");
       sb.append("   Resolution dependent spline scale: ").append(splineFit).append("\n");
       sb.append("   Solvent grid search: ").append(gridSearch).append("\n");
@@ -411,6 +415,7 @@ public class DiffractionData implements DataContainer {
       crystalReciprocalSpacesFc[i].lambdaTerm = false;
       crystalReciprocalSpacesFc[i].setNativeEnvironmentApproximation(
           nativeEnvironmentApproximation);
+      crystalReciprocalSpacesFc[i].setSeparableDensity(separableDensity);
 
       // Bulk Solvent Scattering
       crystalReciprocalSpacesFs[i] =
@@ -487,6 +492,7 @@ public class DiffractionData implements DataContainer {
               gridMethod);
       crystalReciprocalSpacesFc[i].setNativeEnvironmentApproximation(
           nativeEnvironmentApproximation);
+      crystalReciprocalSpacesFc[i].setSeparableDensity(separableDensity);
       refinementData[i].setCrystalReciprocalSpaceFc(crystalReciprocalSpacesFc[i]);
 
       crystalReciprocalSpacesFs[i] =
@@ -477,6 +477,10 @@ public class XRayEnergy implements LambdaInterface, CrystalPotential {
         xrayTerms = false;
         restraintTerms = true;
         break;
+      case MEDIUM:
+        xrayTerms = false;
+        restraintTerms = false;
+        break;
       case SLOW:
         xrayTerms = true;
         restraintTerms = false;
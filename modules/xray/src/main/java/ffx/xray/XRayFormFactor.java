@@ -1533,6 +1533,62 @@ public final class XRayFormFactor implements FormFactor {
     }
   }
 
+  /**
+   * The current atomic center used to evaluate the density.
+   *
+   * @return the atomic center (a reference, not a copy).
+   */
+  double[] getCenter() {
+    return xyz;
+  }
+
+  /**
+   * The square of the form factor cutoff radius.
+   *
+   * @return the squared width.
+   */
+  double getFormFactorWidth2() {
+    return atom.getFormFactorWidth2();
+  }
+
+  /**
+   * The number of Gaussians used to evaluate the density.
+   *
+   * @return the number of Gaussians.
+   */
+  int getNumberOfGaussians() {
+    return nGaussians;
+  }
+
+  /**
+   * The weight of Gaussian i in real space, including the occupancy and normalization.
+   *
+   * @param i the Gaussian index.
+   * @return the weight.
+   */
+  double getGaussianWeight(int i) {
+    return occupancy * twopi32 * ainv[i];
+  }
+
+  /**
+   * The inverse of the U matrix for Gaussian i.
+   *
+   * @param i the Gaussian index.
+   * @return the inverse U matrix (a reference, not a copy).
+   */
+  double[][] getInverseU(int i) {
+    return uinv[i];
+  }
+
+  /**
+   * Check if the density of this atom is isotropic.
+   *
+   * @return true if the atom does not have an ANISOU.
+   */
+  boolean isIsotropic() {
+    return !hasAnisou;
+  }
+
   /**
    * rho_n
    *
@@ -41,6 +41,7 @@ import static java.lang.Double.parseDouble;
 import static java.lang.Float.parseFloat;
 import static java.lang.Integer.parseInt;
 import static java.lang.String.format;
+import static java.nio.file.StandardOpenOption.READ;
 import static org.apache.commons.math3.util.FastMath.cos;
 import static org.apache.commons.math3.util.FastMath.max;
 import static org.apache.commons.math3.util.FastMath.min;
@@ -56,14 +57,16 @@ import ffx.crystal.SpaceGroup;
 import ffx.numerics.math.ComplexNumber;
 import ffx.xray.DiffractionRefinementData;
 import ffx.xray.parsers.MTZWriter.MTZType;
-import java.io.DataInputStream;
-import java.io.EOFException;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -91,6 +94,7 @@ public class MTZFilter implements DiffractionFileFilter {
   private int fPlus, sigFPlus, fMinus, sigFMinus, rFreePlus, rFreeMinus;
   private int fc, phiC, fs, phiS;
   private int dsetOffset = 1;
+  private String machineStamp;
   private int nColumns;
   private int nReflections;
   private int spaceGroupNum;
@@ -141,56 +145,8 @@ public class MTZFilter implements DiffractionFileFilter {
   /** {@inheritDoc} */
   @Override
   public ReflectionList getReflectionList(File mtzFile, CompositeConfiguration properties) {
-    ByteOrder byteOrder = ByteOrder.nativeOrder();
-    FileInputStream fileInputStream;
-    DataInputStream dataInputStream;
     try {
-      fileInputStream = new FileInputStream(mtzFile);
-      dataInputStream = new DataInputStream(fileInputStream);
-
-      byte[] headerOffset = new byte[4];
-      byte[] bytes = new byte[80];
-      int offset = 0;
-
-      // Eat "MTZ" title.
-      dataInputStream.read(bytes, offset, 4);
-
-      // Header offset.
-      dataInputStream.read(headerOffset, offset, 4);
-
-      // Machine stamp.
-      dataInputStream.read(bytes, offset, 4);
-      ByteBuffer byteBuffer = ByteBuffer.wrap(bytes);
-      int stamp = byteBuffer.order(ByteOrder.BIG_ENDIAN).getInt();
-      String stampstr = Integer.toHexString(stamp);
-      switch (stampstr.charAt(0)) {
-        case '1':
-        case '3':
-          if (byteOrder.equals(ByteOrder.LITTLE_ENDIAN)) {
-            byteOrder = ByteOrder.BIG_ENDIAN;
-          }
-          break;
-        case '4':
-          if (byteOrder.equals(ByteOrder.BIG_ENDIAN)) {
-            byteOrder = ByteOrder.LITTLE_ENDIAN;
-          }
-          break;
-      }
-
-      byteBuffer = ByteBuffer.wrap(headerOffset);
-      int headerOffsetI = byteBuffer.order(byteOrder).getInt();
-
-      // skip to header and parse
-      dataInputStream.skipBytes((headerOffsetI - 4) * 4);
-
-      for (Boolean parsing = true; parsing; dataInputStream.read(bytes, offset, 80)) {
-        String mtzstr = new String(bytes);
-        parsing = parseHeader(mtzstr);
-      }
-    } catch (EOFException e) {
-      String message = " MTZ end of file reached.";
-      logger.log(Level.WARNING, message, e);
-      return null;
+      mapFile(mtzFile);
     } catch (IOException e) {
       String message = " MTZ IO exception.";
       logger.log(Level.WARNING, message, e);
@@ -342,56 +298,11 @@ public class MTZFilter implements DiffractionFileFilter {
       DiffractionRefinementData refinementData,
       CompositeConfiguration properties) {
     int nRead, nIgnore, nRes, nFriedel, nCut;
-    ByteOrder byteOrder = ByteOrder.nativeOrder();
-    FileInputStream fileInputStream;
-    DataInputStream dataInputStream;
     boolean transpose = false;
 
     StringBuilder sb = new StringBuilder();
     try {
-      fileInputStream = new FileInputStream(mtzFile);
-      dataInputStream = new DataInputStream(fileInputStream);
-
-      byte[] headerOffset = new byte[4];
-      byte[] bytes = new byte[80];
-      int offset = 0;
-
-      // Eat "MTZ" title.
-      dataInputStream.read(bytes, offset, 4);
-      // String mtzstr;
-
-      // Header offset.
-      dataInputStream.read(headerOffset, offset, 4);
-
-      // Machine stamp.
-      dataInputStream.read(bytes, offset, 4);
-      ByteBuffer byteBuffer = ByteBuffer.wrap(bytes);
-      int stamp = byteBuffer.order(ByteOrder.BIG_ENDIAN).getInt();
-      String stampString = Integer.toHexString(stamp);
-      switch (stampString.charAt(0)) {
-        case '1':
-        case '3':
-          if (byteOrder.equals(ByteOrder.LITTLE_ENDIAN)) {
-            byteOrder = ByteOrder.BIG_ENDIAN;
-          }
-          break;
-        case '4':
-          if (byteOrder.equals(ByteOrder.BIG_ENDIAN)) {
-            byteOrder = ByteOrder.LITTLE_ENDIAN;
-          }
-          break;
-      }
-
-      byteBuffer = ByteBuffer.wrap(headerOffset);
-      int headerOffsetI = byteBuffer.order(byteOrder).getInt();
-
-      // skip to header and parse
-      dataInputStream.skipBytes((headerOffsetI - 4) * 4);
-
-      for (Boolean parsing = true; parsing; dataInputStream.read(bytes, offset, 80)) {
-        String mtzstr = new String(bytes);
-        parsing = parseHeader(mtzstr);
-      }
+      FloatBuffer reflections = mapFile(mtzFile);
 
       // column identifiers
       foString = sigFoString = rFreeString = null;
@@ -411,12 +322,10 @@ public class MTZFilter implements DiffractionFileFilter {
         return false;
       }
 
-      // Reopen to start at beginning.
-      fileInputStream = new FileInputStream(mtzFile);
-      dataInputStream = new DataInputStream(fileInputStream);
-
-      // Skip initial header.
-      dataInputStream.skipBytes(80);
+      // Only decode the columns that are used.
+      int[] selected =
+          selectColumns(
+              h, k, l, fo, sigFo, rFree, fPlus, sigFPlus, fMinus, sigFMinus, rFreePlus, rFreeMinus);
 
       // Check if HKLs need to be transposed or not.
       float[] data = new float[nColumns];
@@ -426,11 +335,7 @@ public class MTZFilter implements DiffractionFileFilter {
       int nZero = 0;
       int none = 0;
       for (int i = 0; i < nReflections; i++) {
-        for (int j = 0; j < nColumns; j++) {
-          dataInputStream.read(bytes, offset, 4);
-          byteBuffer = ByteBuffer.wrap(bytes);
-          data[j] = byteBuffer.order(byteOrder).getFloat();
-        }
+        readReflection(reflections, i, selected, data);
         int ih = (int) data[h];
         int ik = (int) data[k];
         int il = (int) data[l];
@@ -486,13 +391,6 @@ public class MTZFilter implements DiffractionFileFilter {
         sb.append(format(" Setting R free flag to MTZ default: %d\n", refinementData.rFreeFlag));
       }
 
-      // Reopen to start at beginning
-      fileInputStream = new FileInputStream(mtzFile);
-      dataInputStream = new DataInputStream(fileInputStream);
-
-      // Skip initial header
-      dataInputStream.skipBytes(80);
-
       // Read in data
       double[][] anofSigF = new double[refinementData.n][4];
       for (int i = 0; i < refinementData.n; i++) {
@@ -500,11 +398,7 @@ public class MTZFilter implements DiffractionFileFilter {
       }
       nRead = nIgnore = nRes = nFriedel = nCut = 0;
       for (int i = 0; i < nReflections; i++) {
-        for (int j = 0; j < nColumns; j++) {
-          dataInputStream.read(bytes, offset, 4);
-          byteBuffer = ByteBuffer.wrap(bytes);
-          data[j] = byteBuffer.order(byteOrder).getFloat();
-        }
+        readReflection(reflections, i, selected, data);
         int ih = (int) data[h];
         int ik = (int) data[k];
         int il = (int) data[l];
@@ -577,7 +471,7 @@ public class MTZFilter implements DiffractionFileFilter {
 
       // Log results.
       if (logger.isLoggable(Level.INFO)) {
-        sb.append(format(" MTZ file type (machine stamp): %s\n", stampString));
+        sb.append(format(" MTZ file type (machine stamp): %s\n", machineStamp));
         sb.append(format(" HKL data is %s\n", transpose ? "transposed" : "not transposed"));
         sb.append(format(" HKL read in:                             %d\n", nRead));
         sb.append(format(" HKL read as friedel mates:               %d\n", nFriedel));
@@ -591,7 +485,7 @@ public class MTZFilter implements DiffractionFileFilter {
       if (rFree < 0 && rFreePlus < 0 && rFreeMinus < 0) {
         refinementData.generateRFree();
       }
-    } catch (EOFException e) {
+    } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
       String message = " MTZ end of file reached.";
       logger.log(Level.WARNING, message, e);
       return false;
@@ -620,54 +514,10 @@ public class MTZFilter implements DiffractionFileFilter {
       CompositeConfiguration properties) {
 
     int nRead, nIgnore, nRes, nFriedel, nCut;
-    ByteOrder byteOrder = ByteOrder.nativeOrder();
-    FileInputStream fileInputStream;
-    DataInputStream dataInputStream;
 
     StringBuilder sb = new StringBuilder();
     try {
-      fileInputStream = new FileInputStream(mtzFile);
-      dataInputStream = new DataInputStream(fileInputStream);
-
-      byte[] headerOffset = new byte[4];
-      byte[] bytes = new byte[80];
-      int offset = 0;
-
-      // Eat "MTZ" title.
-      dataInputStream.read(bytes, offset, 4);
-
-      // Header offset.
-      dataInputStream.read(headerOffset, offset, 4);
-
-      // Machine stamp.
-      dataInputStream.read(bytes, offset, 4);
-      ByteBuffer byteBuffer = ByteBuffer.wrap(bytes);
-      int stamp = byteBuffer.order(ByteOrder.BIG_ENDIAN).getInt();
-      String stampString = Integer.toHexString(stamp);
-      switch (stampString.charAt(0)) {
-        case '1':
-        case '3':
-          if (byteOrder.equals(ByteOrder.LITTLE_ENDIAN)) {
-            byteOrder = ByteOrder.BIG_ENDIAN;
-          }
-          break;
-        case '4':
-          if (byteOrder.equals(ByteOrder.BIG_ENDIAN)) {
-            byteOrder = ByteOrder.LITTLE_ENDIAN;
-          }
-          break;
-      }
-
-      byteBuffer = ByteBuffer.wrap(headerOffset);
-      int headerOffsetI = byteBuffer.order(byteOrder).getInt();
-
-      // Skip to header and parse.
-      dataInputStream.skipBytes((headerOffsetI - 4) * 4);
-
-      for (Boolean parsing = true; parsing; dataInputStream.read(bytes, offset, 80)) {
-        String mtzString = new String(bytes);
-        parsing = parseHeader(mtzString);
-      }
+      FloatBuffer reflections = mapFile(mtzFile);
 
       // Column identifiers.
       fc = phiC = fs = phiS = -1;
@@ -680,12 +530,8 @@ public class MTZFilter implements DiffractionFileFilter {
         return false;
       }
 
-      // Reopen to start at beginning.
-      fileInputStream = new FileInputStream(mtzFile);
-      dataInputStream = new DataInputStream(fileInputStream);
-
-      // Skip initial header.
-      dataInputStream.skipBytes(80);
+      // Only decode the columns that are used.
+      int[] selected = selectColumns(h, k, l, fc, phiC, fs, phiS);
 
       float[] data = new float[nColumns];
       HKL mate = new HKL();
@@ -694,11 +540,7 @@ public class MTZFilter implements DiffractionFileFilter {
       ComplexNumber complexNumber = new ComplexNumber();
       nRead = nIgnore = nRes = nFriedel = nCut = 0;
       for (int i = 0; i < nReflections; i++) {
-        for (int j = 0; j < nColumns; j++) {
-          dataInputStream.read(bytes, offset, 4);
-          byteBuffer = ByteBuffer.wrap(bytes);
-          data[j] = byteBuffer.order(byteOrder).getFloat();
-        }
+        readReflection(reflections, i, selected, data);
         int ih = (int) data[h];
         int ik = (int) data[k];
         int il = (int) data[l];
@@ -729,7 +571,7 @@ public class MTZFilter implements DiffractionFileFilter {
       }
 
       if (logger.isLoggable(Level.INFO)) {
-        sb.append(format(" MTZ file type (machine stamp): %s\n", stampString));
+        sb.append(format(" MTZ file type (machine stamp): %s\n", machineStamp));
         sb.append(format("  Fc HKL read in:                             %d\n", nRead));
         sb.append(format("  Fc HKL read as friedel mates:               %d\n", nFriedel));
         sb.append(format("  Fc HKL NOT read in (too high resolution):   %d\n", nRes));
@@ -741,7 +583,7 @@ public class MTZFilter implements DiffractionFileFilter {
                 reflectionList.hkllist.size()));
         logger.info(sb.toString());
       }
-    } catch (EOFException e) {
+    } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
       String message = " MTZ end of file reached.";
       logger.log(Level.WARNING, message, e);
       return false;
@@ -754,6 +596,79 @@ public class MTZFilter implements DiffractionFileFilter {
     return true;
   }
 
+  /**
+   * Memory-map an MTZ file, determine its byte order from the machine stamp and parse its header.
+   *
+   * @param mtzFile the MTZ file.
+   * @return the reflection records, with the byte order of the file.
+   * @throws IOException if the file cannot be mapped.
+   */
+  private FloatBuffer mapFile(File mtzFile) throws IOException {
+    ByteBuffer byteBuffer;
+    try (FileChannel fileChannel = FileChannel.open(mtzFile.toPath(), READ)) {
+      byteBuffer = fileChannel.map(MapMode.READ_ONLY, 0, fileChannel.size());
+    }
+
+    // Machine stamp.
+    ByteOrder byteOrder = ByteOrder.nativeOrder();
+    int stamp = byteBuffer.order(ByteOrder.BIG_ENDIAN).getInt(8);
+    machineStamp = Integer.toHexString(stamp);
+    switch (machineStamp.charAt(0)) {
+      case '1':
+      case '3':
+        if (byteOrder.equals(ByteOrder.LITTLE_ENDIAN)) {
+          byteOrder = ByteOrder.BIG_ENDIAN;
+        }
+        break;
+      case '4':
+        if (byteOrder.equals(ByteOrder.BIG_ENDIAN)) {
+          byteOrder = ByteOrder.LITTLE_ENDIAN;
+        }
+        break;
+    }
+    byteBuffer.order(byteOrder);
+
+    // The header offset is a 1-based word index; parse 80 character records until END.
+    int headerOffset = byteBuffer.getInt(4);
+    byteBuffer.position((headerOffset - 1) * 4);
+    byte[] bytes = new byte[80];
+    boolean parsing = true;
+    while (parsing && byteBuffer.remaining() >= 80) {
+      byteBuffer.get(bytes);
+      parsing = parseHeader(new String(bytes));
+    }
+
+    // Reflection records follow the initial 80 byte header.
+    byteBuffer.position(80);
+    return byteBuffer.slice().order(byteOrder).asFloatBuffer();
+  }
+
+  /**
+   * Collect the defined (non-negative) column indices.
+   *
+   * @param columnIndices column indices, where a negative index is an undefined column.
+   * @return the defined column indices.
+   */
+  private static int[] selectColumns(int... columnIndices) {
+    return Arrays.stream(columnIndices).filter(c -> c >= 0).distinct().toArray();
+  }
+
+  /**
+   * Decode the selected columns of a reflection record.
+   *
+   * @param reflections the reflection records.
+   * @param reflection the reflection index.
+   * @param selected the columns to decode.
+   * @param data the column values (only selected columns are updated).
+   */
+  private void readReflection(
+      FloatBuffer reflections, int reflection, int[] selected, float[] data) {
+    int offset = reflection * nColumns;
+    for (int column : selected) {
+      data[column] = reflections.get(offset + column);
+    }
+  }
+
   /**
    * Parse the header.
    *
@@ -0,0 +1,133 @@
+// ******************************************************************************
+//
+// Title:       Force Field X.
+// Description: Force Field X - Software for Molecular Biophysics.
+// Copyright:   Copyright (c) Michael J. Schnieders 2001-2020.
+//
+// This file is part of Force Field X.
+//
+// Force Field X is free software; you can redistribute it and/or modify it
+// under the terms of the GNU General Public License version 3 as published by
+// the Free Software Foundation.
+//
+// Force Field X is distributed in the hope that it will be useful, but WITHOUT
+// ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+// FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+// details.
+//
+// You should have received a copy of the GNU General Public License along with
+// Force Field X; if not, write to the Free Software Foundation, Inc., 59 Temple
+// Place, Suite 330, Boston, MA 02111-1307 USA
+//
+// Linking this library statically or dynamically with other modules is making a
+// combined work based on this library. Thus, the terms and conditions of the
+// GNU General Public License cover the whole combination.
+//
+// As a special exception, the copyright holders of this library give you
+// permission to link this library with independent modules to produce an
+// executable, regardless of the license terms of these independent modules, and
+// to copy and distribute the resulting executable under terms of your choice,
+// provided that you also meet, for each linked independent module, the terms
+// and conditions of the license of that module. An independent module is a
+// module which is not derived from or based on this library. If you modify this
+// library, you may extend this exception to your version of the library, but
+// you are not obligated to do so. If you do not wish to do so, delete this
+// exception statement from your version.
+//
+package ffx.realspace;
+
+import static ffx.crystal.Crystal.mod;
+import static org.junit.Assert.assertEquals;
+
+import ffx.numerics.spline.TriCubicSpline;
+import java.nio.FloatBuffer;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Test the SplineCoefficientCache against direct tricubic spline interpolation.
+ *
+ * @author Michael J. Schnieders
+ */
+public class SplineCoefficientCacheTest {
+
+  private static final int nX = 12;
+  private static final int nY = 10;
+  private static final int nZ = 8;
+
+  @Test
+  public void testDoubleCache() {
+    RealSpaceRefinementData data = createMap(false);
+    compare(data, new SplineCoefficientCache(data, 64, false), 1.0e-12);
+  }
+
+  @Test
+  public void testFloatCache() {
+    RealSpaceRefinementData data = createMap(false);
+    compare(data, new SplineCoefficientCache(data, 64, true), 1.0e-5);
+  }
+
+  @Test
+  public void testMappedData() {
+    RealSpaceRefinementData data = createMap(true);
+    compare(data, new SplineCoefficientCache(data, 1 << 12, false), 1.0e-12);
+  }
+
+  private static RealSpaceRefinementData createMap(boolean mapped) {
+    Random random = new Random(1);
+    RealSpaceRefinementData data = new RealSpaceRefinementData();
+    data.setNI(nX, nY, nZ);
+    data.setExtent(nX, nY, nZ);
+    data.setOrigin(0, 0, 0);
+    data.setPeriodic(true);
+    int n = nX * nY * nZ;
+    if (mapped) {
+      FloatBuffer floatBuffer = FloatBuffer.allocate(n);
+      for (int i = 0; i < n; i++) {
+        floatBuffer.put(i, (float) random.nextGaussian());
+      }
+      data.setMappedData(floatBuffer);
+    } else {
+      double[] values = new double[n];
+      for (int i = 0; i < n; i++) {
+        values[i] = random.nextGaussian();
+      }
+      data.setData(values);
+    }
+    return data;
+  }
+
+  private static void compare(
+      RealSpaceRefinementData data, SplineCoefficientCache cache, double tolerance) {
+    Random random = new Random(2);
+    TriCubicSpline spline = new TriCubicSpline();
+    double[][][] scalar = new double[4][4][4];
+    double[] coefficients = new double[64];
+    double[] g = new double[3];
+    double[] gc = new double[3];
+    // Visit each cell several times, so that both new and cached coefficients are used.
+    for (int n = 0; n < 2000; n++) {
+      int x = random.nextInt(2 * nX) - nX;
+      int y = random.nextInt(2 * nY) - nY;
+      int z = random.nextInt(2 * nZ) - nZ;
+      double dx = random.nextDouble();
+      double dy = random.nextDouble();
+      double dz = random.nextDouble();
+      for (int i = 0; i < 4; i++) {
+        for (int j = 0; j < 4; j++) {
+          for (int k = 0; k < 4; k++) {
+            scalar[i][j][k] =
+                data.getDataIndex(mod(x - 1 + i, nX), mod(y - 1 + j, nY), mod(z - 1 + k, nZ));
+          }
+        }
+      }
+      double expected = spline.spline(dx, dy, dz, scalar, g);
+      cache.getCoefficients(x, y, z, scalar, coefficients);
+      double actual = TriCubicSpline.spline(dx, dy, dz, coefficients, gc);
+      assertEquals(" Spline value", expected, actual, tolerance);
+      for (int i = 0; i < 3; i++) {
+        assertEquals(" Spline gradient", g[i], gc[i], 10.0 * tolerance);
+      }
+    }
+  }
+}
@@ -0,0 +1,136 @@
+// ******************************************************************************
+//
+// Title:       Force Field X.
+// Description: Force Field X - Software for Molecular Biophysics.
+// Copyright:   Copyright (c) Michael J. Schnieders 2001-2020.
+//
+// This file is part of Force Field X.
+//
+// Force Field X is free software; you can redistribute it and/or modify it
+// under the terms of the GNU General Public License version 3 as published by
+// the Free Software Foundation.
+//
+// Force Field X is distributed in the hope that it will be useful, but WITHOUT
+// ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+// FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+// details.
+//
+// You should have received a copy of the GNU General Public License along with
+// Force Field X; if not, write to the Free Software Foundation, Inc., 59 Temple
+// Place, Suite 330, Boston, MA 02111-1307 USA
+//
+// Linking this library statically or dynamically with other modules is making a
+// combined work based on this library. Thus, the terms and conditions of the
+// GNU General Public License cover the whole combination.
+//
+// As a special exception, the copyright holders of this library give you
+// permission to link this library with independent modules to produce an
+// executable, regardless of the license terms of these independent modules, and
+// to copy and distribute the resulting executable under terms of your choice,
+// provided that you also meet, for each linked independent module, the terms
+// and conditions of the license of that module. An independent module is a
+// module which is not derived from or based on this library. If you modify this
+// library, you may extend this exception to your version of the library, but
+// you are not obligated to do so. If you do not wish to do so, delete this
+// exception statement from your version.
+//
+package ffx.xray;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import ffx.crystal.Crystal;
+import ffx.potential.bonded.Atom;
+import ffx.potential.parameters.AtomType;
+import org.junit.Test;
+
+/**
+ * Compare the DensitySpreader to direct evaluation of XRayFormFactor density.
+ *
+ * @author Michael J. Schnieders
+ */
+public class DensitySpreaderTest {
+
+  private static final int FFT = 64;
+  private static final double TOLERANCE = 1.0e-12;
+
+  @Test
+  public void testIsotropicOrthogonal() {
+    Crystal crystal = new Crystal(30.0, 35.0, 40.0, 90.0, 90.0, 90.0, "P1");
+    XRayFormFactor formFactor = carbon(false);
+    assertTrue(compare(crystal, formFactor) > 0.0);
+  }
+
+  @Test
+  public void testIsotropicTriclinic() {
+    Crystal crystal = new Crystal(30.0, 35.0, 40.0, 80.0, 100.0, 115.0, "P1");
+    XRayFormFactor formFactor = carbon(false);
+    assertTrue(compare(crystal, formFactor) > 0.0);
+  }
+
+  @Test
+  public void testAnisotropic() {
+    Crystal crystal = new Crystal(30.0, 35.0, 40.0, 90.0, 90.0, 90.0, "P1");
+    XRayFormFactor formFactor = carbon(true);
+    assertTrue(compare(crystal, formFactor) > 0.0);
+  }
+
+  private static XRayFormFactor carbon(boolean anisotropic) {
+    double[] xyz = {7.31, 8.17, 9.73};
+    Atom carbon = new Atom(1, "C", 'A', xyz, "ALA", 1, 'A', 0.8, 15.0, "A");
+    AtomType atomType = new AtomType(1, 1, "C", null, 6, 12.01, 1);
+    carbon.setAtomType(atomType);
+    carbon.setAltLoc('A');
+    if (anisotropic) {
+      double[] anisou = {0.25, 0.18, 0.21, 0.02, -0.03, 0.01};
+      carbon.setAnisou(anisou);
+    }
+    carbon.setFormFactorWidth(3.5);
+    return new XRayFormFactor(carbon, true, 2.0);
+  }
+
+  /**
+   * Spread the density of an atom with the DensitySpreader and compare to direct evaluation.
+   *
+   * @return the total density.
+   */
+  private static double compare(Crystal crystal, XRayFormFactor formFactor) {
+    double[] center = formFactor.getCenter();
+    double[] uvw = new double[3];
+    crystal.toFractionalCoordinates(center, uvw);
+    int frad = (int) Math.floor(3.5 * FFT / crystal.a) + 1;
+    int x0 = (int) (FFT * uvw[0]) - frad;
+    int y0 = (int) (FFT * uvw[1]) - frad;
+    int z0 = (int) (FFT * uvw[2]) - frad;
+    int n = 2 * frad + 1;
+
+    DensitySpreader densitySpreader = new DensitySpreader(crystal, FFT, FFT, FFT);
+    assertTrue(densitySpreader.setAtom(formFactor, x0, y0, z0, n));
+    boolean separable = formFactor.isIsotropic() && crystal.alpha == 90.0 && crystal.gamma == 90.0;
+    if (separable) {
+      assertTrue(densitySpreader.isSeparable());
+    } else {
+      assertFalse(densitySpreader.isSeparable());
+    }
+
+    double[] xf = new double[3];
+    double[] xc = new double[3];
+    double total = 0.0;
+    for (int iz = z0; iz < z0 + n; iz++) {
+      for (int iy = y0; iy < y0 + n; iy++) {
+        double[] row = densitySpreader.row(iy, iz);
+        for (int ix = x0; ix < x0 + n; ix++) {
+          xf[0] = (double) ix / FFT;
+          xf[1] = (double) iy / FFT;
+          xf[2] = (double) iz / FFT;
+          crystal.toCartesianCoordinates(xf, xc);
+          double expected = formFactor.rho(0.0, 1.0, xc);
+          assertEquals(" Density at grid point", expected, row[ix - x0], TOLERANCE);
+          total += expected;
+        }
+      }
+    }
+    return total;
+  }
+}